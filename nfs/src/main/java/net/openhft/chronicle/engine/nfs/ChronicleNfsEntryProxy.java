@@ -1,12 +1,18 @@
 package net.openhft.chronicle.engine.nfs;
 
 import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
 import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.threads.NamedThreadFactory;
 import net.openhft.chronicle.wire.TextWire;
 import net.openhft.chronicle.wire.WriteMarshallable;
 import org.jetbrains.annotations.Nullable;
 
 import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * holds a reference to the map and the key of interest, the reason that we don hold a reference to
@@ -14,11 +20,19 @@ import java.lang.ref.WeakReference;
  * to work in all cases
  */
 class ChronicleNfsEntryProxy {
+    // unstable writes which the client never commits are committed after this long.
+    static final long UNSTABLE_COMMIT_MS = Long.getLong("engine.nfs.unstableCommitMs", 1000);
+    private static final ScheduledExecutorService COMMITTER = Executors.newSingleThreadScheduledExecutor(
+            new NamedThreadFactory("nfs-unstable-commit", true));
+
     private final MapView mapView;
     private final String key;
     private WeakReference<CharSequence> text;
     private long lastTimeMS = 0;
     private boolean readOnly;
+    // writes not yet committed to the map, over a copy of the value, null if there are none.
+    @Nullable
+    private Bytes<?> pending;
 
     public ChronicleNfsEntryProxy(MapView mapView, String key) {
         this.mapView = mapView;
@@ -52,7 +66,9 @@ class ChronicleNfsEntryProxy {
         return key;
     }
 
-    public int valueSize() {
+    public synchronized int valueSize() {
+        if (pending != null)
+            return (int) pending.readRemaining();
         final CharSequence o = value();
         if (o == null)
             return 0;
@@ -69,7 +85,7 @@ class ChronicleNfsEntryProxy {
         }
         Object value = mapView.get(key);
         if (value instanceof WriteMarshallable) {
-            Bytes bytes = Bytes.elasticByteBuffer();
+            Bytes bytes = Bytes.elasticHeapByteBuffer(128);
             TextWire wire = new TextWire(bytes);
             wire.writeObject(value);
             text = bytes;
@@ -86,6 +102,98 @@ class ChronicleNfsEntryProxy {
     }
 
     public boolean isReadOnly() {
-        return mapView.valueType() != String.class;
+        return mapView.valueType() != String.class && !isBytesValued();
+    }
+
+    boolean isBytesValued() {
+        return BytesStore.class.isAssignableFrom(mapView.valueType());
+    }
+
+    /**
+     * copies up to {@code count} bytes from {@code offset} into {@code data}, only the range asked
+     * for is read so reading a large value in chunks is linear in its size.
+     *
+     * @return the number of bytes copied
+     */
+    @SuppressWarnings("deprecation")
+    synchronized int read(long offset, byte[] data, int count) {
+        final CharSequence value = pending != null ? pending : value();
+        if (value == null || offset >= value.length())
+            return 0;
+
+        final int len = (int) Math.min(count, value.length() - offset);
+        if (value instanceof BytesStore) {
+            final BytesStore bytes = (BytesStore) value;
+            bytes.read(bytes.readPosition() + offset, data, 0, len);
+
+        } else if (value instanceof String) {
+            // copies the low byte of each char, as a single bulk copy
+            ((String) value).getBytes((int) offset, (int) offset + len, data, 0);
+
+        } else {
+            for (int i = 0; i < len; i++)
+                data[i] = (byte) value.charAt((int) offset + i);
+        }
+        return len;
+    }
+
+    /**
+     * writes {@code count} bytes at {@code offset}, held back until {@link #commit()} so a value
+     * written in many chunks is only put to the map once. If the client doesn't commit them, the
+     * writes are committed after {@link #UNSTABLE_COMMIT_MS}.
+     */
+    synchronized void write(long offset, byte[] data, int count) {
+        if (pending == null) {
+            pending = Bytes.elasticByteBuffer();
+            COMMITTER.schedule(this::commit, UNSTABLE_COMMIT_MS, TimeUnit.MILLISECONDS);
+            final CharSequence value = value();
+            if (value instanceof BytesStore)
+                pending.write((BytesStore) value);
+            else if (value != null)
+                pending.append8bit(value);
+        }
+
+        final long size = pending.writePosition();
+        final long end = offset + count;
+        if (end <= size) {
+            pending.write(offset, data, 0, count);
+            return;
+        }
+
+        // the write extends the value, any gap before it is zero filled.
+        for (long i = size; i < offset; i++)
+            pending.writeByte((byte) 0);
+        pending.writePosition(offset);
+        pending.write(data, 0, count);
+    }
+
+    /**
+     * puts the pending writes, if any, to the map as a single update, as a heap copy so the
+     * buffer they were written to can be released.
+     */
+    synchronized void commit() {
+        final Bytes<?> bytes = pending;
+        if (bytes == null)
+            return;
+        pending = null;
+        text = null;
+
+        try {
+            final byte[] value = bytes.toByteArray();
+            //noinspection unchecked
+            mapView.put(key, isBytesValued()
+                    ? BytesStore.wrap(value)
+                    : new String(value, StandardCharsets.ISO_8859_1));
+
+        } finally {
+            bytes.release();
+        }
+    }
+
+    /**
+     * @return true if there are writes not yet put to the map.
+     */
+    synchronized boolean hasPending() {
+        return pending != null;
     }
 }
@@ -1,7 +1,7 @@
 package net.openhft.chronicle.engine.nfs;
 
+import net.openhft.chronicle.bytes.BytesStore;
 import net.openhft.chronicle.core.Jvm;
-import net.openhft.chronicle.core.Maths;
 import net.openhft.chronicle.engine.api.map.MapView;
 import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
 import net.openhft.chronicle.engine.api.tree.Asset;
@@ -95,11 +95,12 @@ public class ChronicleNfsVirtualFileSystem implements VirtualFileSystem {
         } else if (type == org.dcache.nfs.vfs.Stat.Type.REGULAR) {
             final MapView view = toAsset(parent).acquireView(MapView.class);
 
-            if (view.keyType() != String.class || view.valueType() != String.class)
-                throw new UnsupportedOperationException("type of map must be string key and value");
+            final boolean bytesValued = BytesStore.class.isAssignableFrom(view.valueType());
+            if (view.keyType() != String.class || (view.valueType() != String.class && !bytesValued))
+                throw new UnsupportedOperationException("type of map must be string key and string or bytes value");
 
             //noinspection unchecked
-            view.put(path, "");
+            view.put(path, bytesValued ? BytesStore.wrap(new byte[0]) : "");
             return ChronicleNfsEntryInode.aquireINode(view, path);
         } else {
             throw new UnsupportedOperationException("todo type=" + type);
@@ -221,18 +222,7 @@ public class ChronicleNfsVirtualFileSystem implements VirtualFileSystem {
             throw new IllegalStateException("offset too large");
         final Object object = ChronicleNfsFileHandleLookup.reverseLookup(inode.getFileId());
         if (object instanceof ChronicleNfsEntryProxy) {
-            final ChronicleNfsEntryProxy entryProxy = (ChronicleNfsEntryProxy) object;
-
-            final CharSequence value = entryProxy.value();
-            if (value == null)
-                return 0;
-
-            long len = Math.min(count, value.length() - offset);
-            for (int i = 0; i < len; i++) {
-                data[i] = (byte) value.charAt(Maths.toInt32(offset + i));
-            }
-
-            return (int) len;
+            return ((ChronicleNfsEntryProxy) object).read(offset, data, count);
         } else {
             throw new UnsupportedOperationException();
         }
@@ -273,23 +263,25 @@ public class ChronicleNfsVirtualFileSystem implements VirtualFileSystem {
         final Object object = ChronicleNfsFileHandleLookup.reverseLookup(inode.getFileId());
         if (object instanceof ChronicleNfsEntryProxy) {
             final ChronicleNfsEntryProxy entryProxy = (ChronicleNfsEntryProxy) object;
-            final MapView mapView = entryProxy.mapView();
-            if (CharSequence.class.isAssignableFrom(mapView.valueType())) {
-                final String key = entryProxy.key();
-                //noinspection unchecked
-                mapView.put(key, new String(data));
-            } else {
+            final Class valueType = entryProxy.mapView().valueType();
+            if (!entryProxy.isBytesValued() && !CharSequence.class.isAssignableFrom(valueType))
                 throw new UnsupportedOperationException("Cannot convert to text");
-            }
-            return new WriteResult(StabilityLevel.DATA_SYNC, data.length);
+
+            // unstable writes are coalesced until the client commits them
+            entryProxy.write(offset, data, count);
+            if (stabilityLevel != StabilityLevel.UNSTABLE)
+                entryProxy.commit();
+            return new WriteResult(stabilityLevel, count);
         } else {
             throw new UnsupportedOperationException();
         }
     }
 
     @Override
-    public void commit(Inode inode, long offset, int count) throws IOException {
-        LOGGER.info("... commit not supported");
+    public void commit(@NotNull Inode inode, long offset, int count) throws IOException {
+        final Object object = ChronicleNfsFileHandleLookup.reverseLookup(inode.getFileId());
+        if (object instanceof ChronicleNfsEntryProxy)
+            ((ChronicleNfsEntryProxy) object).commit();
     }
 
     @NotNull
@@ -0,0 +1,105 @@
+package net.openhft.chronicle.engine.nfs;
+
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.api.tree.AssetTree;
+import net.openhft.chronicle.engine.tree.VanillaAssetTree;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class ChronicleNfsEntryProxyTest {
+    private AssetTree tree;
+
+    @Before
+    public void setUp() {
+        tree = new VanillaAssetTree().forTesting();
+    }
+
+    @After
+    public void tearDown() {
+        tree.close();
+    }
+
+    @Test
+    public void readInChunks() {
+        MapView<String, String> map = tree.acquireMap("/nfs/strings", String.class, String.class);
+        map.put("key", "hello world");
+        ChronicleNfsEntryProxy proxy = new ChronicleNfsEntryProxy(map, "key");
+
+        byte[] data = new byte[5];
+        assertEquals(5, proxy.read(0, data, 5));
+        assertEquals("hello", new String(data, StandardCharsets.ISO_8859_1));
+        assertEquals(5, proxy.read(6, data, 5));
+        assertEquals("world", new String(data, StandardCharsets.ISO_8859_1));
+        assertEquals(1, proxy.read(10, data, 5));
+        assertEquals(0, proxy.read(11, data, 5));
+    }
+
+    @Test
+    public void readBytesValue() {
+        MapView<String, BytesStore> map = tree.acquireMap("/nfs/bytes", String.class, BytesStore.class);
+        map.put("key", BytesStore.wrap("hello world".getBytes(StandardCharsets.ISO_8859_1)));
+        ChronicleNfsEntryProxy proxy = new ChronicleNfsEntryProxy(map, "key");
+
+        byte[] data = new byte[5];
+        assertEquals(5, proxy.read(6, data, 5));
+        assertEquals("world", new String(data, StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    public void writeThenCommit() {
+        MapView<String, String> map = tree.acquireMap("/nfs/strings", String.class, String.class);
+        map.put("key", "hello world");
+        ChronicleNfsEntryProxy proxy = new ChronicleNfsEntryProxy(map, "key");
+
+        proxy.write(6, "there".getBytes(StandardCharsets.ISO_8859_1), 5);
+        assertTrue(proxy.hasPending());
+        // the pending write is visible to reads but not yet in the map.
+        assertEquals(11, proxy.valueSize());
+        assertEquals("hello world", map.get("key"));
+
+        proxy.commit();
+        assertFalse(proxy.hasPending());
+        assertEquals("hello there", map.get("key"));
+
+        byte[] data = new byte[11];
+        assertEquals(11, proxy.read(0, data, 11));
+        assertEquals("hello there", new String(data, StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    public void chunkedWritesExtendTheBytesValue() {
+        MapView<String, BytesStore> map = tree.acquireMap("/nfs/bytes", String.class, BytesStore.class);
+        ChronicleNfsEntryProxy proxy = new ChronicleNfsEntryProxy(map, "key");
+
+        proxy.write(0, new byte[]{1, 2}, 2);
+        proxy.write(4, new byte[]{5, 6}, 2);
+        proxy.commit();
+
+        BytesStore value = map.get("key");
+        assertNotNull(value);
+        assertArrayEquals(new byte[]{1, 2, 0, 0, 5, 6}, value.toByteArray());
+
+        // a second commit with nothing pending leaves the map as it is.
+        proxy.commit();
+        assertArrayEquals(new byte[]{1, 2, 0, 0, 5, 6}, map.get("key").toByteArray());
+    }
+
+    @Test(timeout = 10_000)
+    public void uncommittedWriteIsCommittedLater() throws InterruptedException {
+        MapView<String, String> map = tree.acquireMap("/nfs/strings", String.class, String.class);
+        ChronicleNfsEntryProxy proxy = new ChronicleNfsEntryProxy(map, "key");
+
+        proxy.write(0, "unstable".getBytes(StandardCharsets.ISO_8859_1), 8);
+        assertNull(map.get("key"));
+
+        while (proxy.hasPending())
+            Thread.sleep(ChronicleNfsEntryProxy.UNSTABLE_COMMIT_MS / 10 + 1);
+        assertEquals("unstable", map.get("key"));
+    }
+}
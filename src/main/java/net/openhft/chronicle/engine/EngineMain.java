@@ -28,7 +28,9 @@ import net.openhft.chronicle.engine.cfg.FilePerKeyMapCfg;
 import net.openhft.chronicle.engine.cfg.InMemoryMapCfg;
 import net.openhft.chronicle.engine.cfg.Installable;
 import net.openhft.chronicle.engine.cfg.JmxCfg;
+import net.openhft.chronicle.engine.cfg.MapOffloadCfg;
 import net.openhft.chronicle.engine.cfg.MonitorCfg;
+import net.openhft.chronicle.engine.cfg.ReplicationEncodingCfg;
 import net.openhft.chronicle.engine.cfg.ServerCfg;
 import net.openhft.chronicle.engine.tree.TopologicalEvent;
 import net.openhft.chronicle.engine.tree.VanillaAssetTree;
@@ -61,6 +63,8 @@ public class EngineMain {
         addClass(FilePerKeyMapCfg.class);
         addClass(ChronicleMapCfg.class);
         addClass(MonitorCfg.class);
+        addClass(MapOffloadCfg.class);
+        addClass(ReplicationEncodingCfg.class);
 
         @NotNull String name = args.length > 0 ? args[0] : resolveConfigurationFile();
         @NotNull TextWire yaml = TextWire.fromFile(name);
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.api.map;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The operations of a remote map which don't wait for a reply. Each request is sent as soon as it
+ * is made, so many can be outstanding on one connection, and its future is completed when the
+ * reply with the same tid arrives.
+ * <p>
+ * Requests are run on the server in the order they are sent. A future is completed on the
+ * thread which reads from the connection, so a dependent action shouldn't block.
+ */
+public interface AsyncMapView<K, V> {
+
+    @NotNull
+    CompletableFuture<V> getAsync(@NotNull K key);
+
+    @NotNull
+    CompletableFuture<Boolean> containsKeyAsync(@NotNull K key);
+
+    @NotNull
+    CompletableFuture<V> getAndPutAsync(@NotNull K key, @NotNull V value);
+
+    @NotNull
+    CompletableFuture<V> getAndRemoveAsync(@NotNull K key);
+
+    @NotNull
+    CompletableFuture<V> putIfAbsentAsync(@NotNull K key, @NotNull V value);
+
+    @NotNull
+    CompletableFuture<V> replaceAsync(@NotNull K key, @NotNull V value);
+
+    @NotNull
+    CompletableFuture<Long> longSizeAsync();
+
+    /**
+     * Reads the values of many keys in one request.
+     *
+     * @return the keys present, with their values, in the order of {@code keys}
+     */
+    @NotNull
+    CompletableFuture<Map<K, V>> getAllAsync(@NotNull Collection<? extends K> keys);
+
+    /**
+     * Writes many entries in one request.
+     *
+     * @return completed once every entry has been written
+     */
+    @NotNull
+    CompletableFuture<Void> putAllAsync(@NotNull Map<? extends K, ? extends V> map);
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.api.pubsub;
+
+/**
+ * What an asynchronous subscriber does when its buffer of undelivered events is full.
+ */
+public enum OverflowPolicy {
+    /**
+     * the publishing thread waits until there is space in the buffer.
+     */
+    BLOCK,
+    /**
+     * the oldest undelivered event is discarded to make space.
+     */
+    DROP_OLDEST,
+    /**
+     * an undelivered event for the same key is replaced by the latest one, the publishing thread
+     * only waits if every event in the buffer is for a different key.
+     */
+    CONFLATE
+}
@@ -21,6 +21,12 @@ import net.openhft.chronicle.engine.api.tree.AssetNotFoundException;
 import net.openhft.chronicle.engine.api.tree.KeyedView;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
 /**
  * Publish to any topic in an Asset group.
  */
@@ -33,6 +39,40 @@ public interface TopicPublisher<T, M> extends KeyedView {
      */
     void publish(@NotNull T topic, @NotNull M message);
 
+    /**
+     * Publish many messages in order, in one batch where the implementation supports it e.g. as
+     * one network frame for a remote publisher.
+     *
+     * @param messages the topic and message of each publish
+     */
+    default void publishAll(@NotNull Iterable<? extends Map.Entry<T, M>> messages) {
+        for (@NotNull Map.Entry<T, M> entry : messages)
+            publish(entry.getKey(), entry.getValue());
+    }
+
+    /**
+     * Publish every remaining message of this iterator as one batch.
+     *
+     * @param messages the topic and message of each publish
+     */
+    default void publishAll(@NotNull Iterator<? extends Map.Entry<T, M>> messages) {
+        @NotNull final List<Map.Entry<T, M>> batch = new ArrayList<>();
+        messages.forEachRemaining(batch::add);
+        publishAll(batch);
+    }
+
+    /**
+     * Publish the messages from this supplier, until it returns null, as one batch.
+     *
+     * @param messages supplies the topic and message of each publish, then null
+     */
+    default void publishAllUntilNull(@NotNull Supplier<? extends Map.Entry<T, M>> messages) {
+        @NotNull final List<Map.Entry<T, M>> batch = new ArrayList<>();
+        for (Map.Entry<T, M> entry; (entry = messages.get()) != null; )
+            batch.add(entry);
+        publishAll(batch);
+    }
+
     /**
      * Add a subscription to this group.
      *
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.api.query;
+
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.core.io.IORuntimeException;
+import net.openhft.chronicle.map.ChronicleMap;
+import net.openhft.chronicle.map.ChronicleMapBuilder;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.TreeSet;
+
+/**
+ * A memory mapped checkpoint of a {@link VanillaIndexQueueView}, it holds the queue index of the
+ * latest message for each event name and key, and the last queue index which was indexed.
+ * <p>
+ * On restart the view only has to re-read the latest message for each key and can then carry on
+ * from the last index, rather than replaying the whole cycle.
+ */
+class IndexCheckpoint implements Closeable {
+
+    static final String FILE_NAME = "index-checkpoint.cm";
+
+    // real keys always contain the separator so can't clash with this.
+    private static final String LAST_INDEX = "";
+    private static final char SEPARATOR = '\u0000';
+
+    @NotNull
+    private final ChronicleMap<String, Long> keyToIndex;
+    private final StringBuilder keyBuilder = new StringBuilder();
+
+    IndexCheckpoint(@NotNull File file, long entries) {
+        try {
+            keyToIndex = ChronicleMapBuilder.of(String.class, Long.class)
+                    .entries(entries)
+                    .averageKeySize(64)
+                    .createPersistedTo(file);
+
+        } catch (IOException e) {
+            throw new IORuntimeException("Could not access " + file, e);
+        }
+    }
+
+    /**
+     * @return the last queue index in the checkpoint, or -1 if there is none.
+     */
+    long lastIndex() {
+        Long index = keyToIndex.get(LAST_INDEX);
+        return index == null ? -1 : index;
+    }
+
+    void lastIndex(long index) {
+        keyToIndex.put(LAST_INDEX, index);
+    }
+
+    /**
+     * record the index of the latest message for this event name and key, only called from the
+     * thread doing the indexing.
+     */
+    void put(@NotNull String eventName, @NotNull BytesStore key, long index) {
+        keyBuilder.setLength(0);
+        keyBuilder.append(eventName).append(SEPARATOR);
+        for (long i = key.readPosition(); i < key.readLimit(); i++)
+            keyBuilder.append((char) (key.readByte(i) & 0xFF));
+        keyToIndex.put(keyBuilder.toString(), index);
+    }
+
+    /**
+     * @return the distinct indexes of the messages which hold a latest value, in queue order.
+     */
+    @NotNull
+    TreeSet<Long> indexes() {
+        @NotNull TreeSet<Long> indexes = new TreeSet<>();
+        keyToIndex.forEach((k, v) -> {
+            if (!LAST_INDEX.equals(k))
+                indexes.add(v);
+        });
+        return indexes;
+    }
+
+    void clear() {
+        keyToIndex.clear();
+    }
+
+    @Override
+    public void close() {
+        keyToIndex.close();
+    }
+}
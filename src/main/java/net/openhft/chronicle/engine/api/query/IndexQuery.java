@@ -19,6 +19,7 @@ package net.openhft.chronicle.engine.api.query;
 
 import net.openhft.chronicle.wire.KeyedMarshallable;
 import net.openhft.chronicle.wire.Marshallable;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.function.Predicate;
 
@@ -50,4 +51,29 @@ public interface IndexQuery<V> extends Marshallable {
     Predicate<V> filter();
 
     String eventName();
+
+    /**
+     * @return the name of the {@link SecondaryIndex} to select values with, or null to test every
+     * value with the filter
+     */
+    @Nullable
+    default String indexName() {
+        return null;
+    }
+
+    /**
+     * @return the lowest value of the indexed field inclusive, or null for no lower bound
+     */
+    @Nullable
+    default Object indexFrom() {
+        return null;
+    }
+
+    /**
+     * @return the highest value of the indexed field inclusive, or null for no upper bound
+     */
+    @Nullable
+    default Object indexTo() {
+        return null;
+    }
 }
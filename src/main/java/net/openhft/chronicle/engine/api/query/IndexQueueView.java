@@ -54,5 +54,16 @@ public interface IndexQueueView<S extends Subscriber<IndexedValue<V>>, V extends
 
     void unregisterSubscriber(@NotNull S listener);
 
+    /**
+     * Adds a secondary index on the values of an event name, so a query which names the index
+     * bootstraps from only the values which match rather than testing every value.
+     *
+     * @param eventName the event name of the values indexed
+     * @param index     the index
+     */
+    default void addIndex(@NotNull String eventName, @NotNull SecondaryIndex<V> index) {
+        throw new UnsupportedOperationException("Secondary indexes can only be added on the server");
+    }
+
 
 }
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.api.query;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.pool.StringInterner;
+import net.openhft.chronicle.wire.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static net.openhft.chronicle.wire.Wires.*;
+
+/**
+ * The latest value for each event name and key read from a queue.
+ * <p>
+ * There is a single writer, the thread tailing the queue, so no locks are needed to update the
+ * index, readers only see the maps, which are concurrent, and {@link #lastIndexRead()} which is
+ * published once each document has been indexed. In steady state, i.e. once a key has been seen,
+ * indexing a message doesn't create any garbage, the keys are copied off heap when first seen.
+ */
+class LatestValueIndex<V extends Marshallable> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LatestValueIndex.class);
+
+    private final Map<String, ConcurrentMap<Object, IndexedValue<V>>> multiMap = new ConcurrentHashMap<>();
+    private final Map<String, List<SecondaryIndex<V>>> secondaryIndexes = new ConcurrentHashMap<>();
+    @NotNull
+    private final TypeToString typeToString;
+    private final StringInterner eventNameInterner = new StringInterner(128);
+    private final StringBuilder eventName = new StringBuilder();
+    private volatile long lastIndexRead = 0;
+    // only read and written by the writer.
+    private long messagesRead = 0;
+
+    LatestValueIndex(@NotNull TypeToString typeToString) {
+        this.typeToString = typeToString;
+    }
+
+    /**
+     * @return the index of the last document indexed, every value up to this index is visible.
+     */
+    long lastIndexRead() {
+        return lastIndexRead;
+    }
+
+    void lastIndexRead(long lastIndexRead) {
+        this.lastIndexRead = lastIndexRead;
+    }
+
+    /**
+     * @return the number of keyed messages indexed so far.
+     */
+    long messagesRead() {
+        return messagesRead;
+    }
+
+    /**
+     * @return the latest value for each key for this event name.
+     */
+    @NotNull
+    ConcurrentMap<Object, IndexedValue<V>> eventMap(@NotNull String eventName) {
+        return multiMap.computeIfAbsent(eventName, e -> new ConcurrentHashMap<>());
+    }
+
+    @NotNull
+    Map<String, ConcurrentMap<Object, IndexedValue<V>>> eventMaps() {
+        return multiMap;
+    }
+
+    void clear() {
+        multiMap.clear();
+        secondaryIndexes.values().forEach(l -> l.forEach(SecondaryIndex::clear));
+    }
+
+    /**
+     * adds a secondary index on the values of this event name, the values already held are added
+     * to it.
+     */
+    void addIndex(@NotNull String eventName, @NotNull SecondaryIndex<V> index) {
+        if (secondaryIndex(eventName, index.name()) != null)
+            throw new IllegalArgumentException("There is already an index called " + index.name()
+                    + " for " + eventName);
+        // added before the existing values so no update is missed, a value may be added twice
+        // with an old field if it changes meanwhile, which lookup allows for.
+        secondaryIndexes.computeIfAbsent(eventName, e -> new CopyOnWriteArrayList<>()).add(index);
+        for (@NotNull IndexedValue<V> value : eventMap(eventName).values())
+            index.add(value);
+    }
+
+    @Nullable
+    SecondaryIndex<V> secondaryIndex(@NotNull String eventName, @NotNull String name) {
+        final List<SecondaryIndex<V>> indexes = secondaryIndexes.get(eventName);
+        if (indexes != null)
+            for (@NotNull SecondaryIndex<V> index : indexes)
+                if (index.name().equals(name))
+                    return index;
+        return null;
+    }
+
+    /**
+     * adds the latest value for each keyed event in this document to the index, only called by the
+     * writer.
+     *
+     * @return false if the document could not be read
+     */
+    boolean indexDocument(@NotNull DocumentContext dc) {
+        final Wire wire = dc.wire();
+        final long start = wire.bytes().readPosition();
+        final long index = dc.index();
+
+        try {
+            for (; ; ) {
+                wire.consumePadding();
+
+                if (wire.bytes().readRemaining() == 0)
+                    return true;
+
+                final StringBuilder sb = eventName;
+                @NotNull ValueIn read = wire.read(sb);
+
+                // skip the history if the message has one.
+                if ("history".contentEquals(sb)) {
+                    read.marshallable(MessageHistory.get());
+                    sb.setLength(0);
+                    read = wire.read(sb);
+                }
+
+                if (sb.length() == 0)
+                    return true;
+                final String eventName = eventNameInterner.intern(sb);
+                Class<? extends Marshallable> type = typeToString.toType(eventName);
+                if (type == null)
+                    return true;
+                @NotNull final V v = (V) VanillaObjectCacheFactory.INSTANCE.get()
+                        .apply(type);
+                long readPosition = wire.bytes().readPosition();
+                try {
+                    read.marshallable(v);
+                } catch (Exception e) {
+
+                    @NotNull final String msg = wire.bytes().toHexString(readPosition, wire
+                            .bytes()
+                            .readLimit() - readPosition);
+
+                    LOG.error("Error passing " + v.getClass().getSimpleName() + " bytes:\n"
+                            + msg, e);
+                    return false;
+                }
+
+                if (!(v instanceof KeyedMarshallable))
+                    return true;
+
+                final Bytes bytes = Wires.acquireBytes();
+                ((KeyedMarshallable) v).writeKey(bytes);
+
+                messagesRead++;
+
+                final ConcurrentMap<Object, IndexedValue<V>> map = eventMap(eventName);
+                final List<SecondaryIndex<V>> indexes = secondaryIndexes.get(eventName);
+                final IndexedValue<V> vOld = map.get(bytes);
+                if (vOld == null) {
+                    // first time this key is seen, copy it off heap, the native memory is freed
+                    // once the key is no longer reachable.
+                    final Bytes key = Bytes.allocateDirect(bytes.readRemaining());
+                    key.write(bytes, bytes.readPosition(), bytes.readRemaining());
+                    final IndexedValue<V> value = new IndexedValue<>(key, deepCopy(v), index);
+                    map.put(key, value);
+                    if (indexes != null)
+                        for (int i = 0; i < indexes.size(); i++)
+                            indexes.get(i).add(value);
+
+                } else if (indexes == null) {
+                    copyTo(v, vOld.v());
+                    vOld.index(index);
+
+                } else {
+                    updateIndexed(indexes, vOld, v, index);
+                }
+            }
+
+        } catch (RuntimeException e) {
+            Jvm.warn().on(getClass(), fromSizePrefixedBlobs(wire.bytes(), start - 4), e);
+            return true;
+
+        } finally {
+            // we are the only writer so this is monotonic.
+            if (index > lastIndexRead)
+                lastIndexRead = index;
+        }
+    }
+
+    private void updateIndexed(@NotNull List<SecondaryIndex<V>> indexes,
+                               @NotNull IndexedValue<V> vOld,
+                               @NotNull V v,
+                               long index) {
+        int size = indexes.size();
+        // the values indexed under a field which is about to change.
+        long moved = 0;
+        for (int i = 0; i < size; i++) {
+            final SecondaryIndex<V> secondaryIndex = indexes.get(i);
+            final Object oldField = secondaryIndex.fieldOf(vOld.v());
+            if (!Objects.equals(oldField, secondaryIndex.fieldOf(v))) {
+                secondaryIndex.remove(oldField, vOld);
+                if (i < Long.SIZE)
+                    moved |= 1L << i;
+            }
+        }
+
+        copyTo(v, vOld.v());
+        vOld.index(index);
+
+        for (int i = 0; i < size; i++)
+            if (i >= Long.SIZE || (moved & (1L << i)) != 0)
+                indexes.get(i).add(vOld);
+    }
+
+    /**
+     * records the index of each value which changed after {@code fromIndex} in the checkpoint,
+     * followed by the last index read. Only called by the writer.
+     *
+     * @return the last index which was checkpointed
+     */
+    long checkpoint(@NotNull IndexCheckpoint checkpoint, long fromIndex) {
+        final long lastIndex = lastIndexRead;
+        if (lastIndex <= fromIndex)
+            return fromIndex;
+        for (@NotNull Map.Entry<String, ConcurrentMap<Object, IndexedValue<V>>> e : multiMap.entrySet()) {
+            for (@NotNull Map.Entry<Object, IndexedValue<V>> kv : e.getValue().entrySet()) {
+                long index = kv.getValue().index();
+                if (index > fromIndex)
+                    checkpoint.put(e.getKey(), (BytesStore) kv.getKey(), index);
+            }
+        }
+        checkpoint.lastIndex(lastIndex);
+        return lastIndex;
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.api.query;
+
+import net.openhft.chronicle.wire.Marshallable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * An index on a field of the latest values of an {@link IndexQueueView}, so a query which names
+ * the index can bootstrap from only the values which match, rather than testing every value.
+ * <p>
+ * A hash index supports lookup by equality, a sorted index supports lookup by equality and by
+ * range. Values whose field is null are not indexed. A numeric bound, which may have been
+ * decoded from the wire as a different type of Number, is converted to the type of the field.
+ */
+public class SecondaryIndex<V extends Marshallable> {
+
+    @NotNull
+    private final String name;
+    @NotNull
+    private final Function<V, ?> field;
+    private final boolean sorted;
+    @NotNull
+    private final ConcurrentMap<Object, Set<IndexedValue<V>>> byField;
+    // the type of the field, known once a value has been indexed.
+    @Nullable
+    private volatile Class fieldType;
+
+    private SecondaryIndex(@NotNull String name, @NotNull Function<V, ?> field, boolean sorted) {
+        this.name = name;
+        this.field = field;
+        this.sorted = sorted;
+        this.byField = sorted ? new ConcurrentSkipListMap<>() : new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @param name  the name a query uses to select this index
+     * @param field returns the value of the field indexed
+     * @return an index which supports lookup by equality
+     */
+    @NotNull
+    public static <V extends Marshallable> SecondaryIndex<V> hash(@NotNull String name,
+                                                                  @NotNull Function<V, ?> field) {
+        return new SecondaryIndex<>(name, field, false);
+    }
+
+    /**
+     * @param name  the name a query uses to select this index
+     * @param field returns the value of the field indexed
+     * @return an index which supports lookup by equality and by range
+     */
+    @NotNull
+    public static <V extends Marshallable, F extends Comparable<? super F>> SecondaryIndex<V> sorted(
+            @NotNull String name, @NotNull Function<V, F> field) {
+        return new SecondaryIndex<>(name, field, true);
+    }
+
+    @NotNull
+    public String name() {
+        return name;
+    }
+
+    public boolean sorted() {
+        return sorted;
+    }
+
+    @Nullable
+    Object fieldOf(@Nullable V v) {
+        return v == null ? null : field.apply(v);
+    }
+
+    /**
+     * only called by the writer of the index
+     */
+    void add(@NotNull IndexedValue<V> value) {
+        Object f = fieldOf(value.v());
+        if (f == null)
+            return;
+        if (fieldType == null)
+            fieldType = f.getClass();
+        byField.computeIfAbsent(f, k -> ConcurrentHashMap.newKeySet()).add(value);
+    }
+
+    /**
+     * only called by the writer of the index
+     */
+    void remove(@Nullable Object f, @NotNull IndexedValue<V> value) {
+        if (f == null)
+            return;
+        Set<IndexedValue<V>> values = byField.get(f);
+        if (values == null)
+            return;
+        values.remove(value);
+        if (values.isEmpty())
+            byField.remove(f, values);
+    }
+
+    void clear() {
+        byField.clear();
+    }
+
+    /**
+     * @return true if {@link #lookup(Object, Object)} can find the values for this range.
+     */
+    boolean canLookup(@Nullable Object from, @Nullable Object to) {
+        if (sorted)
+            return true;
+        from = bound(from, true);
+        return from != null && from.equals(bound(to, false));
+    }
+
+    /**
+     * @param bound a bound of a lookup
+     * @param lower true for the lowest value, a fractional bound of an integral field is rounded
+     *              into the range
+     * @return the bound as the type of the field, if both are numbers, otherwise the bound.
+     */
+    @Nullable
+    Object bound(@Nullable Object bound, boolean lower) {
+        final Class type = fieldType;
+        if (!(bound instanceof Number) || type == null || type == bound.getClass())
+            return bound;
+        final Number n = (Number) bound;
+        if (type == Double.class)
+            return n.doubleValue();
+        if (type == Float.class)
+            return n.floatValue();
+
+        final long l = n instanceof Double || n instanceof Float
+                ? (long) (lower ? Math.ceil(n.doubleValue()) : Math.floor(n.doubleValue()))
+                : n.longValue();
+        if (type == Long.class)
+            return l;
+        if (type == Integer.class)
+            return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, l));
+        if (type == Short.class)
+            return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, l));
+        if (type == Byte.class)
+            return (byte) Math.max(Byte.MIN_VALUE, Math.min(Byte.MAX_VALUE, l));
+        return bound;
+    }
+
+    /**
+     * @param from the lowest value of the field inclusive, or null for no lower bound
+     * @param to   the highest value of the field inclusive, or null for no upper bound
+     * @return the values whose field may be in this range, each should still be checked with
+     * {@link #matches(Marshallable, Object, Object)} as the field can change after lookup.
+     */
+    @NotNull
+    Stream<IndexedValue<V>> lookup(@Nullable Object from, @Nullable Object to) {
+        from = bound(from, true);
+        to = bound(to, false);
+        if (!sorted) {
+            assert canLookup(from, to);
+            Set<IndexedValue<V>> values = byField.get(from);
+            return values == null ? Stream.empty() : values.stream();
+        }
+
+        @NotNull NavigableMap<Object, Set<IndexedValue<V>>> map = (NavigableMap<Object, Set<IndexedValue<V>>>) byField;
+        if (from != null && to != null)
+            map = map.subMap(from, true, to, true);
+        else if (from != null)
+            map = map.tailMap(from, true);
+        else if (to != null)
+            map = map.headMap(to, true);
+        // a value can briefly be under two fields if it changed while the index was being added.
+        return map.values().stream().flatMap(Set::stream).distinct();
+    }
+
+    /**
+     * @return true if the field of this value is in the range.
+     */
+    boolean matches(@Nullable V v, @Nullable Object from, @Nullable Object to) {
+        Object f = fieldOf(v);
+        if (f == null)
+            return false;
+        from = bound(from, true);
+        to = bound(to, false);
+        if (!sorted)
+            return f.equals(from) && f.equals(to);
+        Comparable c = (Comparable) f;
+        return (from == null || c.compareTo(from) >= 0)
+                && (to == null || c.compareTo(to) <= 0);
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return "SecondaryIndex{" +
+                "name='" + name + '\'' +
+                ", sorted=" + sorted +
+                ", fieldValues=" + byField.size() +
+                '}';
+    }
+}
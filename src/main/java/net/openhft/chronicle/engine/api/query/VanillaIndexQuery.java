@@ -28,6 +28,7 @@ import net.openhft.chronicle.wire.Wires;
 import net.openhft.compiler.CompilerUtils;
 import net.openhft.lang.model.DataValueGenerator;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -50,6 +51,9 @@ public class VanillaIndexQuery<V> extends AbstractMarshallable implements Demars
     private String eventName;
     private long from;
     private boolean bootstrap = true;
+    private String indexName;
+    private Object indexFrom;
+    private Object indexTo;
 
     public VanillaIndexQuery() {
     }
@@ -104,6 +108,52 @@ public class VanillaIndexQuery<V> extends AbstractMarshallable implements Demars
         return this;
     }
 
+    /**
+     * selects only the values whose indexed field equals this value.
+     *
+     * @param indexName the name of a {@link SecondaryIndex} on the server
+     * @param value     the value of the indexed field
+     * @return this
+     */
+    @NotNull
+    public VanillaIndexQuery<V> where(@NotNull String indexName, @NotNull Comparable value) {
+        return whereBetween(indexName, value, value);
+    }
+
+    /**
+     * selects only the values whose indexed field is in a range, this requires a sorted index.
+     *
+     * @param indexName the name of a sorted {@link SecondaryIndex} on the server
+     * @param from      the lowest value inclusive, or null for no lower bound
+     * @param to        the highest value inclusive, or null for no upper bound
+     * @return this
+     */
+    @NotNull
+    public VanillaIndexQuery<V> whereBetween(@NotNull String indexName, @Nullable Comparable from, @Nullable Comparable to) {
+        this.indexName = indexName;
+        this.indexFrom = from;
+        this.indexTo = to;
+        return this;
+    }
+
+    @Nullable
+    @Override
+    public String indexName() {
+        return indexName;
+    }
+
+    @Nullable
+    @Override
+    public Object indexFrom() {
+        return indexFrom;
+    }
+
+    @Nullable
+    @Override
+    public Object indexTo() {
+        return indexTo;
+    }
+
     @Override
     public boolean bootstrap() {
         return bootstrap;
@@ -138,6 +188,9 @@ public class VanillaIndexQuery<V> extends AbstractMarshallable implements Demars
                 ", select='" + select + '\'' +
                 ", eventName='" + eventName + '\'' +
                 ", from=" + Long.toHexString(from) +
+                (indexName == null ? "" : ", indexName='" + indexName + '\'' +
+                        ", indexFrom=" + indexFrom +
+                        ", indexTo=" + indexTo) +
                 '}';
     }
 
@@ -17,8 +17,6 @@
 
 package net.openhft.chronicle.engine.api.query;
 
-import net.openhft.chronicle.bytes.Bytes;
-import net.openhft.chronicle.bytes.BytesStore;
 import net.openhft.chronicle.core.Jvm;
 import net.openhft.chronicle.core.pool.StringBuilderPool;
 import net.openhft.chronicle.core.threads.EventLoop;
@@ -40,6 +38,7 @@ import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
@@ -62,16 +61,18 @@ public class VanillaIndexQueueView<V extends Marshallable>
 
     private static final Logger LOG = LoggerFactory.getLogger(VanillaIndexQueueView.class);
     private static final Iterator EMPTY_ITERATOR = Collections.EMPTY_LIST.iterator();
+    private static final long DEFAULT_CHECKPOINT_ENTRIES = 1 << 20;
+    private static final long CHECKPOINT_PERIOD_MS = 1000;
 
 
     @Nullable
     private final ChronicleQueue chronicleQueue;
-    private final Map<String, ConcurrentMap<Object, IndexedValue<V>>> multiMap = new ConcurrentHashMap<>();
+    @NotNull
+    private final LatestValueIndex<V> latestValueIndex;
     private final Map<Subscriber<IndexedValue<V>>, AtomicBoolean> activeSubscriptions
             = new ConcurrentHashMap<>();
     private final AtomicBoolean isClosed = new AtomicBoolean();
 
-    private final Object lastIndexLock = new Object();
     private final ThreadLocal<IndexedValue<V>> indexedValue = ThreadLocal.withInitial(IndexedValue::new);
     @Nullable
     private final TypeToString typeToString;
@@ -79,12 +80,15 @@ public class VanillaIndexQueueView<V extends Marshallable>
     private final Asset asset;
     @NotNull
     private final StringBuilderPool eventNameDeserialiserPool = new StringBuilderPool();
-    private volatile long lastIndexRead = 0;
     private long lastSecond = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
-    private long messagesReadPerSecond = 0;
+    private long lastMessagesRead = 0;
 
-    @NotNull
-    private ConcurrentMap<Bytes, BytesStore> bytesToKey = new ConcurrentHashMap<>();
+    // the latest index for each key is checkpointed unless the queue is not persisted.
+    @Nullable
+    private final IndexCheckpoint checkpoint;
+    // only used by the event loop indexing the queue.
+    private long lastCheckpointIndex = -1;
+    private long nextCheckpointMs;
 
     public VanillaIndexQueueView(@NotNull RequestContext context,
                                  @NotNull Asset asset,
@@ -95,10 +99,15 @@ public class VanillaIndexQueueView<V extends Marshallable>
 
         chronicleQueue = chronicleQueueView.chronicleQueue();
         @NotNull final ExcerptTailer tailer = chronicleQueue.createTailer();
+        checkpoint = chronicleQueueView.dontPersist()
+                ? null
+                : new IndexCheckpoint(new File(chronicleQueue.file(), IndexCheckpoint.FILE_NAME),
+                context.getEntries() > 0 ? context.getEntries() : DEFAULT_CHECKPOINT_ENTRIES);
 
         @NotNull AtomicBoolean hasMovedToStart = new AtomicBoolean();
 
         typeToString = asset.root().findView(TypeToString.class);
+        latestValueIndex = new LatestValueIndex<>(typeToString);
 
         eventLoop.addHandler(() -> handleAction(tailer, hasMovedToStart));
     }
@@ -119,110 +128,109 @@ public class VanillaIndexQueueView<V extends Marshallable>
     }
 
     private boolean handleAction(ExcerptTailer tailer, AtomicBoolean hasMovedToStart) throws InvalidEventHandlerException {
-        // the first time this is run, we move to the start of the current cycle
+        if (isClosed.get()) {
+            closeCheckpoint();
+            throw new InvalidEventHandlerException();
+        }
+
+        // the first time this is run, we move to the start of the current cycle or resume from the checkpoint
         if (!hasMovedToStart.get()) {
-            @NotNull final RollingChronicleQueue chronicleQueue = (RollingChronicleQueue) this.chronicleQueue;
-            final int cycle = chronicleQueue.cycle();
-            long startOfCurrentCycle = chronicleQueue.rollCycle().toIndex(cycle, 0);
-            final boolean success = tailer.moveToIndex(startOfCurrentCycle);
+            final boolean success = moveToStart(tailer);
             hasMovedToStart.set(success);
             if (!success)
                 return false;
         }
 
-        long currentSecond = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        long currentTimeMillis = System.currentTimeMillis();
+        long currentSecond = TimeUnit.MILLISECONDS.toSeconds(currentTimeMillis);
 
         if (currentSecond >= lastSecond + 10) {
             lastSecond = currentSecond;
-            LOG.info("messages read per second=" + messagesReadPerSecond / 10);
-            messagesReadPerSecond = 0;
+            long messagesRead = latestValueIndex.messagesRead();
+            LOG.info("messages read per second=" + (messagesRead - lastMessagesRead) / 10);
+            lastMessagesRead = messagesRead;
         }
 
-        if (isClosed.get())
-            throw new InvalidEventHandlerException();
+        if (checkpoint != null && currentTimeMillis >= nextCheckpointMs) {
+            nextCheckpointMs = currentTimeMillis + CHECKPOINT_PERIOD_MS;
+            lastCheckpointIndex = latestValueIndex.checkpoint(checkpoint, lastCheckpointIndex);
+        }
 
         try (DocumentContext dc = tailer.readingDocument()) {
 
             if (!dc.isPresent())
                 return false;
 
-            long start = dc.wire().bytes().readPosition();
-
-            try {
-                for (; ; ) {
-                    dc.wire().consumePadding();
-
-                    if (dc.wire().bytes().readRemaining() == 0)
-                        return true;
-
-                    final StringBuilder sb = acquireStringBuilder();
-                    @NotNull ValueIn read = dc.wire().read(sb);
+            return latestValueIndex.indexDocument(dc);
+        }
+    }
 
-                    // skip the history if the message has one.
-                    if ("history".contentEquals(sb)) {
-                        read.marshallable(MessageHistory.get());
-                        sb.setLength(0);
-                        read = dc.wire().read(sb);
-                    }
+    /**
+     * the checkpoint is only written to by the event loop, so it is closed there too.
+     */
+    private void closeCheckpoint() {
+        if (checkpoint == null)
+            return;
+        try {
+            latestValueIndex.checkpoint(checkpoint, lastCheckpointIndex);
+        } catch (RuntimeException e) {
+            Jvm.warn().on(getClass(), "Unable to write the final index checkpoint", e);
+        }
+        checkpoint.close();
+    }
 
-                    if (sb.length() == 0)
-                        return true;
-                    Class<? extends Marshallable> type = typeToString.toType(sb);
-                    if (type == null)
-                        return true;
-                    @NotNull final V v = (V) VanillaObjectCacheFactory.INSTANCE.get()
-                            .apply(type);
-                    long readPosition = dc.wire().bytes().readPosition();
-                    try {
-                        read.marshallable(v);
-                    } catch (Exception e) {
-
-                        @NotNull final String msg = dc.wire().bytes().toHexString(readPosition, dc.wire()
-                                .bytes()
-                                .readLimit() - readPosition);
-
-                        LOG.error("Error passing " + v.getClass().getSimpleName() + " bytes:\n"
-                                + msg, e);
-                        return false;
-                    }
+    private boolean moveToStart(@NotNull ExcerptTailer tailer) {
+        @NotNull final RollingChronicleQueue chronicleQueue = (RollingChronicleQueue) this.chronicleQueue;
+        final int cycle = chronicleQueue.cycle();
+
+        if (checkpoint != null) {
+            long lastIndex = checkpoint.lastIndex();
+            if (lastIndex != -1 && chronicleQueue.rollCycle().toCycle(lastIndex) == cycle
+                    && restoreCheckpoint(tailer, lastIndex))
+                return true;
+            // the checkpoint is for an earlier cycle, or is no longer usable.
+            checkpoint.clear();
+        }
 
-                    Object k;
-                    if (v instanceof KeyedMarshallable) {
-                        final Bytes bytes = Wires.acquireBytes();
-                        ((KeyedMarshallable) v).writeKey(bytes);
-
-                        k = bytesToKey.get(bytes);
-                        if (k == null) {
-                            BytesStore copy = bytes.copy();
-                            bytesToKey.put(copy.bytesForRead(), copy);
-                            k = copy;
-                        }
-                    } else
-                        return true;
-
-                    messagesReadPerSecond++;
-
-                    @NotNull final String eventName = sb.toString();
-                    synchronized (lastIndexLock) {
-                        multiMap.computeIfAbsent(eventName, e -> new ConcurrentHashMap<>())
-                                .compute(k, (k1, vOld) -> {
-                                    if (vOld == null)
-                                        return new IndexedValue<>(deepCopy(v), dc.index());
-                                    else {
-                                        copyTo(v, vOld.v());
-                                        vOld.index(dc.index());
-                                        return vOld;
-                                    }
-                                });
-                        lastIndexRead = dc.index();
-                    }
-                }
+        long startOfCurrentCycle = chronicleQueue.rollCycle().toIndex(cycle, 0);
+        return tailer.moveToIndex(startOfCurrentCycle);
+    }
 
-            } catch (RuntimeException e) {
-                Jvm.warn().on(getClass(), fromSizePrefixedBlobs(dc.wire().bytes(), start - 4), e);
+    /**
+     * re-reads only the messages which hold the latest value for a key, then positions the tailer
+     * after the last message indexed.
+     */
+    private boolean restoreCheckpoint(@NotNull ExcerptTailer tailer, long lastIndex) {
+        assert checkpoint != null;
+        final long start = System.currentTimeMillis();
+        int count = 0;
+        for (long index : checkpoint.indexes()) {
+            if (!tailer.moveToIndex(index)) {
+                LOG.warn("Unable to restore the index checkpoint, index " + Long.toHexString(index)
+                        + " not found, replaying the cycle instead");
+                latestValueIndex.clear();
+                return false;
+            }
+            try (DocumentContext dc = tailer.readingDocument()) {
+                if (dc.isPresent())
+                    latestValueIndex.indexDocument(dc);
             }
+            count++;
         }
 
+        if (!tailer.moveToIndex(lastIndex)) {
+            latestValueIndex.clear();
+            return false;
+        }
+        try (DocumentContext dc = tailer.readingDocument()) {
+            // skip the last message indexed.
+            assert dc.isPresent();
+        }
+        latestValueIndex.lastIndexRead(lastIndex);
+        lastCheckpointIndex = lastIndex;
+        LOG.info("restored the index checkpoint from " + count + " messages in "
+                + (System.currentTimeMillis() - start) + " ms, resuming after index "
+                + Long.toHexString(lastIndex));
         return true;
     }
 
@@ -250,7 +258,7 @@ public class VanillaIndexQueueView<V extends Marshallable>
             final int cycle = rollCycle.toCycle(currentIndex);
             fromIndex0 = rollCycle.toIndex(cycle, 0);
         } else if (fromIndex0 == 0) {
-            long lastIndexRead = this.lastIndexRead;
+            long lastIndexRead = latestValueIndex.lastIndexRead();
             // if data is streaming in constantly, then the lastIndexRead may not be a the last message in the queue, but in the case
             // we can use this lastIndexRead as the fromIndex0  as the indexes are almost the same.
             // In other-words its not worth blocking till the lastIndexRead == endIndex
@@ -270,7 +278,7 @@ public class VanillaIndexQueueView<V extends Marshallable>
         assert success : "fromIndex=" + Long.toHexString(fromIndex)
                 + ", start=" + Long.toHexString(start) + ",end=" + Long.toHexString(endIndex);
 
-        if (fromIndex <= lastIndexRead) {
+        if (fromIndex <= latestValueIndex.lastIndexRead()) {
             registerSubscriber(sub, vanillaIndexQuery, tailer, fromIndex);
             return;
         }
@@ -292,7 +300,7 @@ public class VanillaIndexQueueView<V extends Marshallable>
                                                        @NotNull IndexQuery<V> vanillaIndexQuery,
                                                        @NotNull ExcerptTailer tailer,
                                                        long fromIndex) throws InvalidEventHandlerException {
-        if (fromIndex > lastIndexRead)
+        if (fromIndex > latestValueIndex.lastIndexRead())
             return false;
 
         registerSubscriber(sub, vanillaIndexQuery, tailer, fromIndex);
@@ -307,23 +315,49 @@ public class VanillaIndexQueueView<V extends Marshallable>
         activeSubscriptions.put(sub, isClosed);
 
         final String eventName = vanillaIndexQuery.eventName();
-        final Predicate<V> filter = vanillaIndexQuery.filter();
+        Predicate<V> filter = vanillaIndexQuery.filter();
+
+        @Nullable final String indexName = vanillaIndexQuery.indexName();
+        @Nullable SecondaryIndex<V> secondaryIndex = null;
+        final Object indexFrom = vanillaIndexQuery.indexFrom();
+        final Object indexTo = vanillaIndexQuery.indexTo();
+        if (indexName != null) {
+            secondaryIndex = latestValueIndex.secondaryIndex(eventName, indexName);
+            if (secondaryIndex == null || !secondaryIndex.canLookup(indexFrom, indexTo)) {
+                activeSubscriptions.remove(sub);
+                sub.onEndOfSubscription();
+                Jvm.warn().on(getClass(), "No index " + indexName + " for " + eventName
+                        + " which supports " + vanillaIndexQuery);
+                return;
+            }
+            // the range of the index is part of the query, for the bootstrap and the updates.
+            @NotNull final SecondaryIndex<V> index = secondaryIndex;
+            filter = filter.and(v -> index.matches(v, indexFrom, indexTo));
+        }
 
         // don't set iterator if the 'fromIndex' has not caught up.
 
         @NotNull final Iterator<IndexedValue<V>> iterator;
 
-        final ConcurrentMap<Object, IndexedValue<V>> map = multiMap.computeIfAbsent(eventName, k -> new ConcurrentHashMap<>());
+        final ConcurrentMap<Object, IndexedValue<V>> map = latestValueIndex.eventMap(eventName);
 
         CheckPointPredicate checkPointPredicate = new CheckPointPredicate(fromIndex);
-        iterator = (vanillaIndexQuery.bootstrap())
-                ? map.values().stream().filter(
-                i -> filter.test(i.v()) && checkPointPredicate.test(i)).iterator()
-                : EMPTY_ITERATOR;
+        @NotNull final Predicate<V> filter0 = filter;
+        if (!vanillaIndexQuery.bootstrap()) {
+            iterator = EMPTY_ITERATOR;
+
+        } else if (secondaryIndex != null) {
+            // only the values which the index matches are tested.
+            iterator = secondaryIndex.lookup(indexFrom, indexTo).filter(
+                    i -> filter0.test(i.v()) && checkPointPredicate.test(i)).iterator();
+        } else {
+            iterator = map.values().stream().filter(
+                    i -> filter0.test(i.v()) && checkPointPredicate.test(i)).iterator();
+        }
 
         try {
             @NotNull final Supplier<Marshallable> supplier = excerptConsumer(vanillaIndexQuery,
-                    tailer, iterator, fromIndex, checkPointPredicate);
+                    filter0, tailer, iterator, fromIndex, checkPointPredicate);
             sub.addSupplier(supplier);
 
         } catch (RuntimeException e) {
@@ -334,15 +368,17 @@ public class VanillaIndexQueueView<V extends Marshallable>
 
     @NotNull
     private Supplier<Marshallable> excerptConsumer(@NotNull IndexQuery<V> vanillaIndexQuery,
+                                                   @NotNull Predicate<V> filter,
                                                    @NotNull ExcerptTailer tailer,
                                                    @NotNull Iterator<IndexedValue<V>> iterator,
                                                    final long fromIndex,
                                                    LongSupplier lastIndexOfSnapshot) {
-        return () -> VanillaIndexQueueView.this.value(vanillaIndexQuery, tailer, iterator, fromIndex, lastIndexOfSnapshot);
+        return () -> VanillaIndexQueueView.this.value(vanillaIndexQuery, filter, tailer, iterator, fromIndex, lastIndexOfSnapshot);
     }
 
     @Nullable
     private Marshallable value(@NotNull IndexQuery<V> vanillaIndexQuery,
+                               @NotNull Predicate<V> filter,
                                @NotNull ExcerptTailer tailer,
                                @NotNull Iterator<IndexedValue<V>> iterator,
                                final long from,
@@ -351,7 +387,7 @@ public class VanillaIndexQueueView<V extends Marshallable>
         if (iterator.hasNext()) {
             IndexedValue<V> indexedValue = iterator.next();
             indexedValue.timePublished(System.currentTimeMillis());
-            indexedValue.maxIndex(lastIndexRead);
+            indexedValue.maxIndex(latestValueIndex.lastIndexRead());
             // we have to also check that we are on the last message
             // because the value returned  by lastIndexOfSnapshot may change on each call
             // as more of the maps is understood
@@ -366,7 +402,6 @@ public class VanillaIndexQueueView<V extends Marshallable>
         }
 
         final String eventName = vanillaIndexQuery.eventName();
-        final Predicate<V> filter = vanillaIndexQuery.filter();
         if (isClosed.get())
             throw Jvm.rethrow(new InvalidEventHandlerException("shutdown"));
 
@@ -409,7 +444,7 @@ public class VanillaIndexQueueView<V extends Marshallable>
                 indexedValue.v(v);
                 indexedValue.timePublished(System.currentTimeMillis());
                 indexedValue.isEndOfSnapshot(index == lastIndexOfSnapshot.getAsLong());
-                indexedValue.maxIndex(Math.max(dc.index(), lastIndexRead));
+                indexedValue.maxIndex(Math.max(dc.index(), latestValueIndex.lastIndexRead()));
                 return indexedValue;
 
             } finally {
@@ -424,6 +459,19 @@ public class VanillaIndexQueueView<V extends Marshallable>
 
     }
 
+    /**
+     * Adds a secondary index on the latest values of an event name, a query which names the index
+     * then bootstraps in time proportional to the number of values which match.
+     *
+     * @param eventName the event name of the values indexed
+     * @param index     the index
+     * @throws IllegalArgumentException if there is already an index with this name
+     */
+    @Override
+    public void addIndex(@NotNull String eventName, @NotNull SecondaryIndex<V> index) {
+        latestValueIndex.addIndex(eventName, index);
+    }
+
     @Override
     public void unregisterSubscriber(@NotNull ConsumingSubscriber<IndexedValue<V>> listener) {
         final AtomicBoolean isClosed = activeSubscriptions.remove(listener);
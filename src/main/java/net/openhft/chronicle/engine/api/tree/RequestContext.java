@@ -128,7 +128,9 @@ public class RequestContext implements Cloneable {
                 InMemoryMapCfg.class,
                 FilePerKeyMapCfg.class,
                 ChronicleMapCfg.class,
-                MonitorCfg.class);
+                MonitorCfg.class,
+                MapOffloadCfg.class,
+                ReplicationEncodingCfg.class);
         return true;
     }
 
@@ -142,7 +144,8 @@ public class RequestContext implements Cloneable {
             removeReturnsNull = null,
             nullOldValueOnUpdateEvent = null,
             endSubscriptionAfterBootstrap = null,
-            bootstrap = null;
+            bootstrap = null,
+            conflate = null;
     private double averageValueSize;
     private long entries;
     private Boolean recurse;
@@ -150,6 +153,10 @@ public class RequestContext implements Cloneable {
     private String cluster = "cluster";
 
     private int throttlePeriodMs = 0;
+    private int asyncBufferSize = 0;
+    private int nearCacheSize = 0;
+    @NotNull
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
     private boolean dontPersist;
     private long token;
 
@@ -275,6 +282,10 @@ public class RequestContext implements Cloneable {
         parser.register(() -> "elementType", (s, v, $) -> v.typeLiteral(this, (o, x) -> o.type2 = x));
         parser.register(() -> "endSubscriptionAfterBootstrap", (s, v, $) -> v.bool(this, (o, x) -> o.endSubscriptionAfterBootstrap = x));
         parser.register(() -> "throttlePeriodMs", (s, v, $) -> v.int32(this, (o, x) -> o.throttlePeriodMs = x));
+        parser.register(() -> "conflate", (s, v, $) -> v.bool(this, (o, x) -> o.conflate = x));
+        parser.register(() -> "asyncBufferSize", (s, v, $) -> v.int32(this, (o, x) -> o.asyncBufferSize = x));
+        parser.register(() -> "nearCacheSize", (s, v, $) -> v.int32(this, (o, x) -> o.nearCacheSize = x));
+        parser.register(() -> "overflowPolicy", (s, v, $) -> v.text(this, (o, x) -> o.overflowPolicy = OverflowPolicy.valueOf(x)));
         parser.register(() -> "entries", (s, v, $) -> v.int64(this, (o, x) -> o.entries = x));
         parser.register(() -> "averageValueSize", (s, v, $) -> v.int64(this, (o, x) -> o.averageValueSize = x));
         parser.register(() -> "dontPersist", (s, v, $) -> v.bool(this, (o, x) -> o.dontPersist = x));
@@ -495,6 +506,22 @@ public class RequestContext implements Cloneable {
         return this;
     }
 
+    /**
+     * @return true if a subscription should only hold the latest event for each key between
+     * flushes, the flush period is the throttlePeriodMs.
+     */
+    @Nullable
+    public Boolean conflate() {
+        return conflate;
+    }
+
+    @NotNull
+    public RequestContext conflate(boolean conflate) {
+        checkSealed();
+        this.conflate = conflate;
+        return this;
+    }
+
     @NotNull
     public RequestContext endSubscriptionAfterBootstrap(boolean endSubscriptionAfterBootstrap) {
         checkSealed();
@@ -530,6 +557,10 @@ public class RequestContext implements Cloneable {
                 ", recurse=" + recurse +
                 ", endSubscriptionAfterBootstrap=" + endSubscriptionAfterBootstrap +
                 ", throttlePeriodMs=" + throttlePeriodMs +
+                ", conflate=" + conflate +
+                ", asyncBufferSize=" + asyncBufferSize +
+                ", overflowPolicy=" + overflowPolicy +
+                ", nearCacheSize=" + nearCacheSize +
                 ", dontPersist=" + dontPersist +
                 '}';
     }
@@ -601,6 +632,15 @@ public class RequestContext implements Cloneable {
             sb.append(sep).append("dontPersist").append(dontPersist);
             sep = "&";
         }
+        if (conflate() != null) {
+            sb.append(sep).append("conflate=").append(conflate);
+            sep = "&";
+        }
+        if (asyncBufferSize > 0) {
+            sb.append(sep).append("asyncBufferSize=").append(asyncBufferSize)
+                    .append("&overflowPolicy=").append(overflowPolicy);
+            sep = "&";
+        }
         return sb.toString();
     }
 
@@ -614,6 +654,45 @@ public class RequestContext implements Cloneable {
         return this;
     }
 
+    /**
+     * @return the size of the buffer of events for each subscriber delivered asynchronously, or 0
+     * if events are delivered on the publishing thread.
+     */
+    public int asyncBufferSize() {
+        return asyncBufferSize;
+    }
+
+    @NotNull
+    public RequestContext asyncBufferSize(int asyncBufferSize) {
+        this.asyncBufferSize = asyncBufferSize;
+        return this;
+    }
+
+    /**
+     * @return the number of entries of a remote map to cache on the client, or 0 to use the
+     * default of the asset.
+     */
+    public int nearCacheSize() {
+        return nearCacheSize;
+    }
+
+    @NotNull
+    public RequestContext nearCacheSize(int nearCacheSize) {
+        this.nearCacheSize = nearCacheSize;
+        return this;
+    }
+
+    @NotNull
+    public OverflowPolicy overflowPolicy() {
+        return overflowPolicy;
+    }
+
+    @NotNull
+    public RequestContext overflowPolicy(@NotNull OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+        return this;
+    }
+
     @NotNull
     public <E> RequestContext elementType(Class<E> eClass) {
         this.type2 = eClass;
@@ -22,6 +22,7 @@ import net.openhft.chronicle.engine.api.tree.AssetTree;
 import net.openhft.chronicle.engine.api.tree.RequestContext;
 import net.openhft.chronicle.engine.map.ChronicleMapKeyValueStore;
 import net.openhft.chronicle.engine.map.ObjectKeyValueStore;
+import net.openhft.chronicle.engine.map.ValueCompression;
 import net.openhft.chronicle.engine.tree.VanillaAsset;
 import net.openhft.chronicle.wire.WireIn;
 import org.jetbrains.annotations.NotNull;
@@ -56,6 +57,10 @@ public class ChronicleMapCfg implements Installable {
         if (entries != -1) rc.entries(entries);
         if (averageSize != -1) rc.averageValueSize(averageSize);
 
+        // Chronicle Map serialises values in its own format which is also what is replicated.
+        if (ValueCompression.forName(compression) != ValueCompression.NONE)
+            LOGGER.warn("Compression is not supported for Chronicle Map values, " + path + " is not compressed");
+
         @NotNull ChronicleMapKeyValueStore chronicleMapKeyValueStore = new ChronicleMapKeyValueStore(rc, asset);
         asset.addView(ObjectKeyValueStore.class, chronicleMapKeyValueStore);
 
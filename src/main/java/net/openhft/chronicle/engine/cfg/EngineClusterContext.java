@@ -55,6 +55,10 @@ public class EngineClusterContext extends ClusterContext {
     private static final Logger LOG = LoggerFactory.getLogger(EngineClusterContext.class);
     Asset assetRoot;
     private byte localIdentifier;
+    // the most replicated entries, and bytes, sent to a host in one write. These are set in
+    // defaults() rather than initialised as they are read in the super constructor.
+    private int replicationBatchEntries;
+    private int replicationBatchBytes;
     @NotNull
     private NetworkStatsListener defaultNetworkStatsListener = new NetworkStatsListener() {
 
@@ -130,8 +134,45 @@ public class EngineClusterContext extends ClusterContext {
         return this;
     }
 
+    /**
+     * @return the most map entries to drain from a modification iterator and send to a host in
+     * one write.
+     */
+    public int replicationBatchEntries() {
+        return replicationBatchEntries > 0 ? replicationBatchEntries : defaultReplicationBatchEntries();
+    }
+
+    @NotNull
+    public EngineClusterContext replicationBatchEntries(int replicationBatchEntries) {
+        this.replicationBatchEntries = replicationBatchEntries;
+        return this;
+    }
+
+    /**
+     * @return the number of bytes after which no more entries are added to a write.
+     */
+    public int replicationBatchBytes() {
+        return replicationBatchBytes > 0 ? replicationBatchBytes : defaultReplicationBatchBytes();
+    }
+
+    @NotNull
+    public EngineClusterContext replicationBatchBytes(int replicationBatchBytes) {
+        this.replicationBatchBytes = replicationBatchBytes;
+        return this;
+    }
+
+    public static int defaultReplicationBatchEntries() {
+        return Integer.getInteger("engine.replication.batchEntries", 256);
+    }
+
+    public static int defaultReplicationBatchBytes() {
+        return Integer.getInteger("engine.replication.batchBytes", 256 << 10);
+    }
+
     @Override
     public void defaults() {
+        replicationBatchEntries = defaultReplicationBatchEntries();
+        replicationBatchBytes = defaultReplicationBatchBytes();
         wireType(WireType.TEXT);
         handlerFactory(new UberHandler.Factory());
         wireOutPublisherFactory(new VanillaWireOutPublisherFactory());
@@ -22,7 +22,9 @@ import net.openhft.chronicle.engine.api.tree.Asset;
 import net.openhft.chronicle.engine.api.tree.AssetTree;
 import net.openhft.chronicle.engine.api.tree.RequestContext;
 import net.openhft.chronicle.engine.map.AuthenticatedKeyValueStore;
+import net.openhft.chronicle.engine.map.CompressedKeyValueStore;
 import net.openhft.chronicle.engine.map.FilePerKeyValueStore;
+import net.openhft.chronicle.engine.map.ValueCompression;
 import net.openhft.chronicle.engine.tree.VanillaAsset;
 import net.openhft.chronicle.wire.WireIn;
 import org.jetbrains.annotations.NotNull;
@@ -40,6 +42,7 @@ public class FilePerKeyMapCfg implements Installable {
     private Class keyType, valueType;
     private boolean putReturnsNull, removeReturnsNull;
     private String compression;
+    private int compressionThreshold;
     private String diskPath;
 
     @Nullable
@@ -49,7 +52,13 @@ public class FilePerKeyMapCfg implements Installable {
         ((VanillaAsset) asset).enableTranslatingValuesToBytesStore();
         @NotNull String uri = path + "?putReturnsNull=" + putReturnsNull + "&removeReturnsNull=" + removeReturnsNull;
         @NotNull RequestContext rc = RequestContext.requestContext(uri);
-        asset.addView(AuthenticatedKeyValueStore.class, new FilePerKeyValueStore(rc, asset));
+        @NotNull FilePerKeyValueStore store = new FilePerKeyValueStore(rc, asset);
+        @NotNull ValueCompression valueCompression = ValueCompression.forName(compression);
+        if (valueCompression == ValueCompression.NONE)
+            asset.addView(AuthenticatedKeyValueStore.class, store);
+        else
+            asset.addView(AuthenticatedKeyValueStore.class,
+                    new CompressedKeyValueStore<>(rc, asset, store, valueCompression, compressionThreshold));
         @NotNull MapView mapView = assetTree.acquireMap(uri, keyType, valueType);
         LOGGER.info("Added FilePerKeyMap " + path + ", size: " + mapView.size());
         return null;
@@ -62,7 +71,8 @@ public class FilePerKeyMapCfg implements Installable {
                 .read(() -> "compression").text(this, (o, c) -> o.compression = c)
                 .read(() -> "putReturnsNull").bool(this, (o, e) -> o.putReturnsNull = e)
                 .read(() -> "removeReturnsNull").bool(this, (o, e) -> o.removeReturnsNull = e)
-                .read(() -> "diskPath").text(this, (o, s) -> o.diskPath = s);
+                .read(() -> "diskPath").text(this, (o, s) -> o.diskPath = s)
+                .read(() -> "compressionThreshold").int32(this, (o, e) -> o.compressionThreshold = e);
     }
 
     @NotNull
@@ -74,6 +84,7 @@ public class FilePerKeyMapCfg implements Installable {
                 ", putReturnsNull=" + putReturnsNull +
                 ", removeReturnsNull=" + removeReturnsNull +
                 ", compression='" + compression + '\'' +
+                ", compressionThreshold=" + compressionThreshold +
                 ", diskPath='" + diskPath + '\'' +
                 '}';
     }
@@ -20,6 +20,12 @@ package net.openhft.chronicle.engine.cfg;
 import net.openhft.chronicle.core.util.ObjectUtils;
 import net.openhft.chronicle.engine.api.map.MapView;
 import net.openhft.chronicle.engine.api.tree.AssetTree;
+import net.openhft.chronicle.engine.map.AuthenticatedKeyValueStore;
+import net.openhft.chronicle.engine.map.CompressedKeyValueStore;
+import net.openhft.chronicle.engine.map.ValueCompression;
+import net.openhft.chronicle.engine.map.VanillaKeyValueStore;
+import net.openhft.chronicle.engine.tree.VanillaAsset;
+import net.openhft.chronicle.wire.Marshallable;
 import net.openhft.chronicle.wire.Wire;
 import net.openhft.chronicle.wire.WireIn;
 import org.jetbrains.annotations.NotNull;
@@ -37,12 +43,22 @@ public class InMemoryMapCfg implements Installable {
     private Class keyType, valueType;
     private boolean putReturnsNull, removeReturnsNull;
     private String compression;
+    private int compressionThreshold;
     private String importFile;
+    private boolean offHeap;
+    private long entries = -1;
+    private double averageSize = -1;
 
     @Nullable
     @Override
     public Void install(@NotNull String path, @NotNull AssetTree assetTree) throws IOException {
         @NotNull String uri = path + "?putReturnsNull=" + putReturnsNull + "&removeReturnsNull=" + removeReturnsNull;
+        if (offHeap) {
+            ((VanillaAsset) assetTree.acquireAsset(path)).enableOffHeapKeyValueStore();
+            if (entries != -1) uri += "&entries=" + entries;
+            if (averageSize != -1) uri += "&averageValueSize=" + (long) averageSize;
+        }
+        enableCompression(path, assetTree);
         @NotNull MapView mapView = assetTree.acquireMap(uri, keyType, valueType);
         if (importFile != null) {
             @NotNull Wire wire = Wire.fromFile(importFile);
@@ -57,13 +73,39 @@ public class InMemoryMapCfg implements Installable {
         return null;
     }
 
+    /**
+     * Stores the values as compressed bytes, which is only supported for String keys and String or
+     * Marshallable values held on heap.
+     */
+    private void enableCompression(@NotNull String path, @NotNull AssetTree assetTree) {
+        @NotNull ValueCompression valueCompression = ValueCompression.forName(compression);
+        if (valueCompression == ValueCompression.NONE)
+            return;
+        if (offHeap || keyType != String.class
+                || (valueType != String.class && !Marshallable.class.isAssignableFrom(valueType))) {
+            LOGGER.warn("Compression is only supported for on heap maps of String to String or " +
+                    "Marshallable, " + path + " is not compressed");
+            return;
+        }
+
+        @NotNull VanillaAsset asset = (VanillaAsset) assetTree.acquireAsset(path);
+        asset.enableTranslatingValuesToBytesStore();
+        asset.addLeafRule(AuthenticatedKeyValueStore.class, VanillaAsset.LAST + " CompressedKeyValueStore",
+                (rc, a) -> new CompressedKeyValueStore<>(rc, a, new VanillaKeyValueStore<>(rc, a),
+                        valueCompression, compressionThreshold));
+    }
+
     @Override
     public void readMarshallable(@NotNull WireIn wire) throws IllegalStateException {
         wire.read(() -> "keyType").typeLiteral(this, (o, c) -> o.keyType = c)
                 .read(() -> "valueType").typeLiteral(this, (o, c) -> o.valueType = c)
                 .read(() -> "compression").text(this, (o, c) -> o.compression = c)
                 .read(() -> "putReturnsNull").bool(this, (o, e) -> o.putReturnsNull = e)
-                .read(() -> "removeReturnsNull").bool(this, (o, e) -> o.removeReturnsNull = e);
+                .read(() -> "removeReturnsNull").bool(this, (o, e) -> o.removeReturnsNull = e)
+                .read(() -> "offHeap").bool(this, (o, e) -> o.offHeap = e)
+                .read(() -> "entries").int64(this, (o, e) -> o.entries = e)
+                .read(() -> "averageSize").float64(this, (o, e) -> o.averageSize = e)
+                .read(() -> "compressionThreshold").int32(this, (o, e) -> o.compressionThreshold = e);
         while (!wire.isEmpty())
             wire.read(() -> "import").text(this, (o, s) -> o.importFile = s);
     }
@@ -76,7 +118,9 @@ public class InMemoryMapCfg implements Installable {
                 ", valueType=" + valueType +
                 ", putReturnsNull=" + putReturnsNull +
                 ", removeReturnsNull=" + removeReturnsNull +
+                ", offHeap=" + offHeap +
                 ", compression='" + compression + '\'' +
+                ", compressionThreshold=" + compressionThreshold +
                 ", importFile='" + importFile + '\'' +
                 '}';
     }
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.cfg;
+
+import net.openhft.chronicle.engine.api.tree.AssetTree;
+import net.openhft.chronicle.wire.AbstractMarshallable;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Runs the listed map events, for the maps at or under a path, on a worker pool rather than on
+ * the network event loop, e.g. a user supplied function passed to applyTo2 or a large putAll.
+ * <pre>
+ * !MapOffloadCfg { events: "applyTo2,update2,update4,putAll" }
+ * </pre>
+ * The requests of a connection are still run, and replied to, in the order they arrive.
+ */
+public class MapOffloadCfg extends AbstractMarshallable implements Installable {
+    // a comma separated list of the names of MapWireHandler.EventId
+    private String events = "";
+
+    public MapOffloadCfg() {
+    }
+
+    public MapOffloadCfg(@NotNull String... events) {
+        this.events = String.join(",", events);
+    }
+
+    @NotNull
+    @Override
+    public MapOffloadCfg install(@NotNull String path, @NotNull AssetTree assetTree) {
+        assetTree.acquireAsset(path).addView(MapOffloadCfg.class, this);
+        return this;
+    }
+
+    public boolean isOffloaded(@NotNull CharSequence eventName) {
+        for (int start = 0, length = events.length(); start < length; ) {
+            int end = events.indexOf(',', start);
+            if (end < 0)
+                end = length;
+            if (matches(eventName, start, end))
+                return true;
+            start = end + 1;
+        }
+        return false;
+    }
+
+    private boolean matches(@NotNull CharSequence eventName, int start, int end) {
+        while (start < end && events.charAt(start) == ' ')
+            start++;
+        while (end > start && events.charAt(end - 1) == ' ')
+            end--;
+        if (end - start != eventName.length())
+            return false;
+        for (int i = 0; i < eventName.length(); i++)
+            if (events.charAt(start + i) != eventName.charAt(i))
+                return false;
+        return true;
+    }
+}
@@ -17,10 +17,14 @@
 
 package net.openhft.chronicle.engine.cfg;
 
+import net.openhft.chronicle.core.threads.EventLoop;
+import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.api.tree.Asset;
 import net.openhft.chronicle.engine.api.tree.AssetTree;
 import net.openhft.chronicle.engine.tree.VanillaAsset;
 import net.openhft.chronicle.wire.AbstractMarshallable;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -34,18 +38,28 @@ public class MonitorCfg extends AbstractMarshallable implements Installable {
     private static final Logger LOGGER = LoggerFactory.getLogger(MonitorCfg.class);
     private boolean subscriptionMonitoringEnabled;
     private boolean userMonitoringEnabled;
+    // how often the counts are copied into /proc/users and /proc/subscriptions.
+    private long publishIntervalMs = MonitorStats.DEFAULT_PUBLISH_INTERVAL_MS;
 
     @NotNull
     @Override
     public MonitorCfg install(@NotNull String path, @NotNull AssetTree assetTree) throws IOException, URISyntaxException {
         ((VanillaAsset) assetTree.acquireAsset("/proc")).configMapServer();
+        @Nullable MapView<String, SubscriptionStat> subscriptions = null;
+        @Nullable MapView<String, UserStat> users = null;
         if (subscriptionMonitoringEnabled) {
             LOGGER.info("Enabling Subscription Monitoring for " + assetTree);
-            assetTree.acquireMap("/proc/subscriptions", String.class, SubscriptionStat.class);
+            subscriptions = assetTree.acquireMap("/proc/subscriptions", String.class, SubscriptionStat.class);
         }
         if (userMonitoringEnabled) {
             LOGGER.info("Enabling User Monitoring for " + assetTree);
-            assetTree.acquireMap("/proc/users", String.class, UserStat.class);
+            users = assetTree.acquireMap("/proc/users", String.class, UserStat.class);
+        }
+        if (subscriptions != null || users != null) {
+            @NotNull final MonitorStats stats = new MonitorStats(users, subscriptions, publishIntervalMs);
+            @NotNull final Asset root = assetTree.root();
+            root.addView(MonitorStats.class, stats);
+            root.findOrCreateView(EventLoop.class).addHandler(stats);
         }
         return this;
     }
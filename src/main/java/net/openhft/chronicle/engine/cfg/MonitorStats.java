@@ -0,0 +1,212 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.cfg;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.threads.EventHandler;
+import net.openhft.chronicle.core.threads.HandlerPriority;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts user interactions and subscriptions in memory, and copies a snapshot of the counts into
+ * /proc/users and /proc/subscriptions each publish interval, so recording an event is an
+ * increment rather than a read and write of a map.
+ * <p>
+ * This is added as a view of the root asset by MonitorCfg, and run on its event loop.
+ */
+public class MonitorStats implements EventHandler {
+
+    static final long DEFAULT_PUBLISH_INTERVAL_MS = 1000;
+
+    private final ConcurrentMap<String, UserCounters> users = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, SubscriptionCounters> subscriptions = new ConcurrentHashMap<>();
+    @Nullable
+    private final Map<String, UserStat> userMap;
+    @Nullable
+    private final Map<String, SubscriptionStat> subscriptionMap;
+    private final long publishIntervalMs;
+    private long nextPublishMs;
+
+    /**
+     * @param userMap           to publish user stats to, or null if users aren't monitored
+     * @param subscriptionMap   to publish subscription stats to, or null if subscriptions aren't
+     *                          monitored
+     * @param publishIntervalMs how often to publish
+     */
+    public MonitorStats(@Nullable Map<String, UserStat> userMap,
+                        @Nullable Map<String, SubscriptionStat> subscriptionMap,
+                        long publishIntervalMs) {
+        this.userMap = userMap;
+        this.subscriptionMap = subscriptionMap;
+        this.publishIntervalMs = publishIntervalMs > 0 ? publishIntervalMs : DEFAULT_PUBLISH_INTERVAL_MS;
+    }
+
+    /**
+     * Records a login, the counts of a user are kept across logins.
+     *
+     * @return the counters for this user, or null if users aren't monitored
+     */
+    @Nullable
+    public UserCounters loggedIn(@NotNull String userId) {
+        if (userMap == null)
+            return null;
+        final long now = System.currentTimeMillis();
+        @NotNull final UserCounters counters = users.computeIfAbsent(userId, k -> new UserCounters(now));
+        counters.loggedInMs = now;
+        return counters;
+    }
+
+    /**
+     * @return the counters for this user, which can be kept for the session, or null if the user
+     * hasn't logged in or users aren't monitored
+     */
+    @Nullable
+    public UserCounters user(@Nullable String userId) {
+        return userMap == null || userId == null ? null : users.get(userId);
+    }
+
+    public void subscribed(@Nullable String userId, @NotNull String subType) {
+        if (subscriptionMap == null)
+            return;
+        final long now = System.currentTimeMillis();
+        @NotNull final SubscriptionCounters counters = subscriptions.computeIfAbsent(userId + "~" + subType,
+                k -> new SubscriptionCounters(now));
+        counters.total.increment();
+        counters.active.increment();
+        counters.recentlySubscribedMs = now;
+    }
+
+    public void unsubscribed(@Nullable String userId, @NotNull String subType) {
+        if (subscriptionMap == null)
+            return;
+        @Nullable final SubscriptionCounters counters = subscriptions.get(userId + "~" + subType);
+        if (counters == null)
+            return;
+        counters.active.decrement();
+        counters.recentlySubscribedMs = System.currentTimeMillis();
+    }
+
+    @Override
+    public boolean action() {
+        final long now = System.currentTimeMillis();
+        if (now < nextPublishMs)
+            return false;
+        nextPublishMs = now + publishIntervalMs;
+        try {
+            publish();
+
+        } catch (RuntimeException e) {
+            Jvm.warn().on(getClass(), "Failed to publish monitoring stats", e);
+        }
+        return true;
+    }
+
+    @NotNull
+    @Override
+    public HandlerPriority priority() {
+        return HandlerPriority.MONITOR;
+    }
+
+    /**
+     * Copies the counters which have changed since the last publish into the maps.
+     */
+    void publish() {
+        if (userMap != null) {
+            for (@NotNull Map.Entry<String, UserCounters> entry : users.entrySet()) {
+                @NotNull final UserCounters counters = entry.getValue();
+                final long interactions = counters.interactions.sum();
+                if (interactions == counters.published && counters.loggedInMs == counters.publishedLoggedInMs)
+                    continue;
+                counters.published = interactions;
+                counters.publishedLoggedInMs = counters.loggedInMs;
+
+                @NotNull final UserStat stat = new UserStat();
+                stat.setLoggedIn(toTime(counters.loggedInMs));
+                stat.setRecentInteraction(toTime(counters.recentInteractionMs));
+                stat.setTotalInteractions((int) interactions);
+                userMap.put(entry.getKey(), stat);
+            }
+        }
+
+        if (subscriptionMap != null) {
+            for (@NotNull Map.Entry<String, SubscriptionCounters> entry : subscriptions.entrySet()) {
+                @NotNull final SubscriptionCounters counters = entry.getValue();
+                final long total = counters.total.sum();
+                final long active = counters.active.sum();
+                if (total == counters.publishedTotal && active == counters.publishedActive)
+                    continue;
+                counters.publishedTotal = total;
+                counters.publishedActive = active;
+
+                @NotNull final SubscriptionStat stat = new SubscriptionStat();
+                stat.setFirstSubscribed(toTime(counters.firstSubscribedMs));
+                stat.setRecentlySubscribed(toTime(counters.recentlySubscribedMs));
+                stat.setTotalSubscriptions((int) total);
+                stat.setActiveSubscriptions((int) active);
+                subscriptionMap.put(entry.getKey(), stat);
+            }
+        }
+    }
+
+    @Nullable
+    private static LocalTime toTime(long timeMs) {
+        return timeMs == 0 ? null : Instant.ofEpochMilli(timeMs).atZone(ZoneId.systemDefault()).toLocalTime();
+    }
+
+    /**
+     * The counts for one user, updated without allocating.
+     */
+    public static final class UserCounters {
+        final LongAdder interactions = new LongAdder();
+        volatile long loggedInMs;
+        volatile long recentInteractionMs;
+        // only used when publishing.
+        long published = -1, publishedLoggedInMs;
+
+        UserCounters(long loggedInMs) {
+            this.loggedInMs = loggedInMs;
+        }
+
+        public void interaction() {
+            interactions.increment();
+            recentInteractionMs = System.currentTimeMillis();
+        }
+    }
+
+    static final class SubscriptionCounters {
+        final LongAdder total = new LongAdder();
+        final LongAdder active = new LongAdder();
+        final long firstSubscribedMs;
+        volatile long recentlySubscribedMs;
+        // only used when publishing.
+        long publishedTotal = -1, publishedActive;
+
+        SubscriptionCounters(long firstSubscribedMs) {
+            this.firstSubscribedMs = firstSubscribedMs;
+        }
+    }
+}
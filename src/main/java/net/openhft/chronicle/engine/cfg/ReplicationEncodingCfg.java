@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.cfg;
+
+import net.openhft.chronicle.engine.api.tree.AssetTree;
+import net.openhft.chronicle.engine.map.ValueCompression;
+import net.openhft.chronicle.wire.AbstractMarshallable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * How the entries of the maps at or under a path are encoded when they are replicated to another
+ * host, optionally for the connections of one cluster only.
+ * <pre>
+ * !ReplicationEncodingCfg { cluster: "", compression: deflate, compressAbove: 128, delta: true, deltaCacheSize: 4096 }
+ * </pre>
+ * With delta, only the bytes of a value which changed since it was last sent on the connection
+ * are sent, and the value last sent is used as the dictionary when compressing them. Every host
+ * of the cluster has to understand this encoding, a host which doesn't ignores the entries.
+ */
+public class ReplicationEncodingCfg extends AbstractMarshallable implements Installable {
+    // the cluster this applies to, or empty for every cluster.
+    private String cluster = "";
+    private String compression = "none";
+    // values, or changes, shorter than this are sent uncompressed.
+    private int compressAbove = 128;
+    private boolean delta;
+    // the number of keys a connection remembers the last value sent of.
+    private int deltaCacheSize = 4096;
+
+    public ReplicationEncodingCfg() {
+    }
+
+    public ReplicationEncodingCfg(@NotNull String compression, boolean delta) {
+        this.compression = compression;
+        this.delta = delta;
+    }
+
+    @NotNull
+    @Override
+    public ReplicationEncodingCfg install(@NotNull String path, @NotNull AssetTree assetTree) {
+        // fail on an unknown name when the cfg is loaded rather than on the first connection.
+        ValueCompression.forName(compression);
+        assetTree.acquireAsset(path).addView(ReplicationEncodingCfg.class, this);
+        return this;
+    }
+
+    public boolean appliesTo(@Nullable String clusterName) {
+        return cluster == null || cluster.isEmpty() || cluster.equals(clusterName);
+    }
+
+    @NotNull
+    public ReplicationEncodingCfg cluster(@NotNull String cluster) {
+        this.cluster = cluster;
+        return this;
+    }
+
+    @NotNull
+    public ValueCompression compression() {
+        return ValueCompression.forName(compression);
+    }
+
+    public int compressAbove() {
+        return compressAbove;
+    }
+
+    @NotNull
+    public ReplicationEncodingCfg compressAbove(int compressAbove) {
+        this.compressAbove = compressAbove;
+        return this;
+    }
+
+    public boolean delta() {
+        return delta;
+    }
+
+    public int deltaCacheSize() {
+        return delta ? Math.max(1, deltaCacheSize) : 0;
+    }
+
+    @NotNull
+    public ReplicationEncodingCfg deltaCacheSize(int deltaCacheSize) {
+        this.deltaCacheSize = deltaCacheSize;
+        return this;
+    }
+}
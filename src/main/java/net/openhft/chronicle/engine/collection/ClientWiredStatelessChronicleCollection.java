@@ -22,18 +22,20 @@ import net.openhft.chronicle.network.connection.TcpChannelHub;
 import net.openhft.chronicle.wire.ValueIn;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Collection;
-import java.util.Iterator;
+import java.util.*;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
 import static net.openhft.chronicle.engine.collection.CollectionWireHandler.EventId;
+import static net.openhft.chronicle.engine.collection.CollectionWireHandler.Params;
 import static net.openhft.chronicle.engine.collection.CollectionWireHandler.EventId.*;
 import static net.openhft.chronicle.network.connection.CoreFields.reply;
 
 public class ClientWiredStatelessChronicleCollection<U, E extends Collection<U>> extends
         AbstractStatelessClient<EventId> implements Collection<U> {
 
+    static final int DEFAULT_BATCH_SIZE = Integer.getInteger("engine.collection.batchSize", 1024);
+
     @NotNull
     private final Function<ValueIn, U> consumer;
     @NotNull
@@ -66,31 +68,19 @@ public class ClientWiredStatelessChronicleCollection<U, E extends Collection<U>>
     @Override
     @NotNull
     public Iterator<U> iterator() {
-        // todo improve numberOfSegments
-        final int numberOfSegments = proxyReturnUint16(EventId.numberOfSegments);
-
-        // todo iterate the segments for the moment we just assume one segment
-        return segmentSet(1).iterator();
+        return iterator(DEFAULT_BATCH_SIZE);
     }
 
     /**
-     * gets the iterator for a given segment
+     * Reads the elements from the server a batch at a time, the next batch is only requested once
+     * the last has been consumed, so neither side holds more than a batch.
      *
-     * @param segment the maps segment number
-     * @return and iterator for the {@code segment}
+     * @param batchSize the maximum number of elements to read in each round trip
+     * @return an iterator over the elements
      */
     @NotNull
-    private E segmentSet(int segment) {
-
-        return proxyReturnWireConsumerInOut(iterator, reply, valueOut -> valueOut.uint16(segment),
-                read -> {
-                    final E e = factory.get();
-                    read.sequence(e, (e2, s) -> {
-                        while (read.hasNextSequenceItem())
-                            e2.add(consumer.apply(read));
-                    });
-                    return e;
-                });
+    public Iterator<U> iterator(int batchSize) {
+        return new BatchIterator(batchSize);
     }
 
     @Override
@@ -102,17 +92,8 @@ public class ClientWiredStatelessChronicleCollection<U, E extends Collection<U>>
     @NotNull
     private E asCollection() {
         final E e = factory.get();
-        final int numberOfSegments = proxyReturnUint16(EventId.numberOfSegments);
-
-        for (long j = 0; j < numberOfSegments; j++) {
-            final long i = j;
-            proxyReturnWireConsumerInOut(iterator, reply, valueOut -> valueOut.uint16(i),
-                    read -> read.sequence(e, (e2, r) -> {
-                        while (r.hasNextSequenceItem()) {
-                            e2.add(consumer.apply(r));
-                        }
-                    }));
-        }
+        for (@NotNull final Iterator<U> iterator = iterator(); iterator.hasNext(); )
+            e.add(iterator.next());
         return e;
     }
 
@@ -156,4 +137,52 @@ public class ClientWiredStatelessChronicleCollection<U, E extends Collection<U>>
     public void clear() {
         proxyReturnVoid(clear);
     }
+
+    private final class BatchIterator implements Iterator<U> {
+        private final int batchSize;
+        private final List<U> batch = new ArrayList<>();
+        private int position;
+        // the cursor to read the next batch from, 0 once the last batch has been read.
+        private long cursor;
+        private boolean started;
+
+        BatchIterator(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (position == batch.size()) {
+                if (started && cursor == 0)
+                    return false;
+                readBatch();
+            }
+            return true;
+        }
+
+        @Override
+        public U next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            return batch.get(position++);
+        }
+
+        private void readBatch() {
+            batch.clear();
+            position = 0;
+            final long from = cursor;
+            cursor = proxyReturnWireConsumerInOut(nextBatch, reply,
+                    valueOut -> valueOut.marshallable(m -> m
+                            .write(Params.cursor).int64(from)
+                            .write(Params.batchSize).int32(batchSize)),
+                    read -> read.applyToMarshallable(w -> {
+                        w.read(Params.elements).sequence(batch, (b, v) -> {
+                            while (v.hasNextSequenceItem())
+                                b.add(consumer.apply(v));
+                        });
+                        return w.read(Params.cursor).int64();
+                    }));
+            started = true;
+        }
+    }
 }
\ No newline at end of file
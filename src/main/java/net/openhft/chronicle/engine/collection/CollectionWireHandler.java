@@ -31,6 +31,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -41,6 +44,7 @@ import java.util.function.Supplier;
 public class CollectionWireHandler<U, C extends Collection<U>> {
 
     private static final int SIZE_OF_SIZE = 4;
+    private static final int MAX_CURSORS = 64;
     private static final Logger LOG = LoggerFactory.getLogger(CollectionWireHandler.class);
     private Function<ValueIn, U> fromWire;
     private BiConsumer<ValueOut, U> toWire;
@@ -52,6 +56,15 @@ public class CollectionWireHandler<U, C extends Collection<U>> {
     private C underlyingCollection;
     private long tid;
     private Supplier<C> factory;
+    // the iterators of this connection which haven't been read to the end, the eldest are
+    // dropped if a client stops reading part way.
+    private final Map<Long, Iterator<U>> cursors = new LinkedHashMap<Long, Iterator<U>>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Iterator<U>> eldest) {
+            return size() > MAX_CURSORS;
+        }
+    };
+    private long lastCursorId;
 
     private final ReadMarshallable dataConsumer = new ReadMarshallable() {
         @Override
@@ -82,6 +95,23 @@ public class CollectionWireHandler<U, C extends Collection<U>> {
                         return;
                     }
 
+                    if (EventId.nextBatch.contentEquals(eventName)) {
+                        valueIn.marshallable(w -> {
+                            final long cursorId = w.read(Params.cursor).int64();
+                            final int batchSize = w.read(Params.batchSize).int32();
+                            // 0 starts from the first element.
+                            @Nullable final Iterator<U> iterator = cursorId == 0
+                                    ? underlyingCollection.iterator()
+                                    : cursors.remove(cursorId);
+                            if (iterator == null)
+                                out.writeEventName(() -> "exception").throwable(
+                                        new IllegalStateException("Cursor " + cursorId + " has expired"));
+                            else
+                                nextBatch(iterator, batchSize, out.writeEventName(CoreFields.reply));
+                        });
+                        return;
+                    }
+
                     if (EventId.numberOfSegments.contentEquals(eventName)) {
                         outWire.write(CoreFields.reply).int32(1);
                         return;
@@ -170,6 +200,27 @@ public class CollectionWireHandler<U, C extends Collection<U>> {
         }
     };
 
+    /**
+     * Writes up to {@code batchSize} elements, read straight from the collection's iterator, so
+     * the collection isn't copied and no one message holds all of it. The cursor to pass to read
+     * the next batch is written after the elements, 0 once there are no more.
+     */
+    private void nextBatch(@NotNull Iterator<U> elements, int batchSize, @NotNull ValueOut valueOut) {
+        final int limit = Math.max(1, batchSize);
+        valueOut.marshallable(m -> {
+            m.write(Params.elements).sequence(v -> {
+                for (int i = 0; i < limit && elements.hasNext(); i++)
+                    toWire.accept(v, elements.next());
+            });
+            long next = 0;
+            if (elements.hasNext()) {
+                next = ++lastCursorId;
+                cursors.put(next, elements);
+            }
+            m.write(Params.cursor).int64(next);
+        });
+    }
+
     private C collectionFromWire() {
         C c = factory.get();
         @NotNull @SuppressWarnings("ConstantConditions")
@@ -212,6 +263,9 @@ public class CollectionWireHandler<U, C extends Collection<U>> {
     enum Params implements WireKey {
         key,
         segment,
+        cursor,
+        batchSize,
+        elements
     }
 
     enum EventId implements ParameterizeWireKey {
@@ -227,7 +281,8 @@ public class CollectionWireHandler<U, C extends Collection<U>> {
         numberOfSegments,
         contains(CollectionWireHandler.Params.key),
         identifier,
-        iterator(CollectionWireHandler.Params.segment);
+        iterator(CollectionWireHandler.Params.segment),
+        nextBatch(CollectionWireHandler.Params.cursor, CollectionWireHandler.Params.batchSize);
 
         private final WireKey[] params;
 
@@ -21,6 +21,7 @@ import net.openhft.chronicle.engine.api.tree.Asset;
 import net.openhft.chronicle.engine.cfg.EngineClusterContext;
 import net.openhft.chronicle.network.cluster.Cluster;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /*
  * Created by peter.lawrey on 17/06/2015.
@@ -37,6 +38,14 @@ public class EngineCluster extends Cluster<EngineHostDetails, EngineClusterConte
             context.assetRoot(assetRoot);
     }
 
+    /**
+     * @return the context the hosts of this cluster connect with, or null if it has none.
+     */
+    @Nullable
+    public EngineClusterContext engineClusterContext() {
+        return clusterContext();
+    }
+
     @NotNull
     @Override
     protected EngineHostDetails newHostDetails() {
@@ -187,6 +187,12 @@ public class AbstractKeyValueStore<K, V> implements KeyValueStore<K, V> {
         return kvStore.keySetIterator();
     }
 
+    @NotNull
+    @Override
+    public Iterator<V> valuesIterator() {
+        return kvStore.valuesIterator();
+    }
+
     public Class<K> keyType() {
         return keyType;
     }
@@ -307,6 +307,12 @@ public class ChronicleMapKeyValueStore<K, V> implements ObjectKeyValueStore<K, V
         return chronicleMap.keySet().iterator();
     }
 
+    @NotNull
+    @Override
+    public Iterator<V> valuesIterator() {
+        return chronicleMap.values().iterator();
+    }
+
     @Override
     public void clear() {
         chronicleMap.clear();
@@ -0,0 +1,371 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.engine.api.map.KeyValueStore;
+import net.openhft.chronicle.engine.api.map.MapEvent;
+import net.openhft.chronicle.engine.api.map.SubscriptionKeyValueStore;
+import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
+import net.openhft.chronicle.engine.api.pubsub.SubscriptionConsumer;
+import net.openhft.chronicle.engine.api.tree.Asset;
+import net.openhft.chronicle.engine.api.tree.RequestContext;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compresses the values of the store it wraps, so a map of large, compressible values e.g.
+ * JSON or YAML documents holds less in memory or on disk.
+ * <p>
+ * Values shorter than the threshold, or which don't get smaller, are stored as they are. A
+ * compressed value starts with a header of a zero byte, 'Z', 'V', the id of the algorithm and the length
+ * of the value before it was compressed. A short value which happens to start with the same
+ * three bytes is stored behind a header for {@link ValueCompression#NONE}.
+ * <p>
+ * Changes published by the underlying store are passed on uncompressed. If it doesn't publish
+ * its changes, e.g. an in memory store, this store publishes the changes made through it.
+ */
+public class CompressedKeyValueStore<K> extends AbstractKeyValueStore<K, BytesStore>
+        implements AuthenticatedKeyValueStore<K, BytesStore> {
+
+    public static final int DEFAULT_THRESHOLD = Integer.getInteger("engine.compression.threshold", 512);
+
+    private static final byte[] MAGIC = {0, 'Z', 'V'};
+    private static final int HEADER_LENGTH = MAGIC.length + 1 + 4;
+
+    @NotNull
+    private final ValueCompression compression;
+    private final int threshold;
+    @NotNull
+    private final RawKVSSubscription<K, BytesStore> subscriptions;
+    // true if the underlying store doesn't publish its changes.
+    private final boolean publishChanges;
+
+    private final LongAdder compressedCount = new LongAdder();
+    private final LongAdder rawBytes = new LongAdder(), storedBytes = new LongAdder();
+    private final LongAdder compressNanos = new LongAdder(), uncompressNanos = new LongAdder();
+
+    /**
+     * @param threshold the length below which values aren't compressed, or 0 for the default
+     */
+    public CompressedKeyValueStore(@NotNull RequestContext rc,
+                                   @NotNull Asset asset,
+                                   @NotNull SubscriptionKeyValueStore<K, BytesStore> kvStore,
+                                   @NotNull ValueCompression compression,
+                                   int threshold) {
+        super(rc, asset, kvStore);
+        this.compression = compression;
+        this.threshold = threshold > 0 ? threshold : DEFAULT_THRESHOLD;
+        this.subscriptions = new MapKVSSubscription<>((Class) null, asset);
+        subscriptions.setKvStore(this);
+
+        @Nullable KVSSubscription<K, BytesStore> underlying;
+        try {
+            underlying = kvStore.subscription(true);
+        } catch (UnsupportedOperationException e) {
+            underlying = null;
+        }
+        publishChanges = !(underlying instanceof RawKVSSubscription);
+        if (!publishChanges)
+            underlying.registerDownstream(e -> subscriptions.notifyEvent(e.translate(k -> k, this::uncompress)));
+
+        asset.addView(CompressedKeyValueStore.class, this);
+    }
+
+    @NotNull
+    @Override
+    public RawKVSSubscription<K, BytesStore> subscription(boolean createIfAbsent) {
+        return subscriptions;
+    }
+
+    @Override
+    public boolean put(K key, @NotNull BytesStore value) {
+        @NotNull final BytesStore stored = compress(value);
+        if (!isPublishing())
+            return kvStore.put(key, stored);
+
+        @Nullable final BytesStore oldValue = kvStore.getAndPut(key, stored);
+        publishPut(key, oldValue, stored);
+        return oldValue != null;
+    }
+
+    @Nullable
+    @Override
+    public BytesStore getAndPut(K key, @NotNull BytesStore value) {
+        @NotNull final BytesStore stored = compress(value);
+        @Nullable final BytesStore oldValue = kvStore.getAndPut(key, stored);
+        if (isPublishing())
+            publishPut(key, oldValue, stored);
+        return uncompress(oldValue);
+    }
+
+    @Override
+    public boolean remove(K key) {
+        if (!isPublishing())
+            return kvStore.remove(key);
+        return getAndRemove(key) != null;
+    }
+
+    @Nullable
+    @Override
+    public BytesStore getAndRemove(K key) {
+        @Nullable final BytesStore oldValue = uncompress(kvStore.getAndRemove(key));
+        if (oldValue != null && isPublishing())
+            subscriptions.notifyEvent(RemovedEvent.of(asset.fullName(), key, oldValue, false));
+        return oldValue;
+    }
+
+    @Nullable
+    @Override
+    public BytesStore getUsing(K key, Object value) {
+        return uncompress(kvStore.getUsing(key, value));
+    }
+
+    @Nullable
+    @Override
+    public BytesStore get(K key) {
+        return uncompress(kvStore.get(key));
+    }
+
+    @Nullable
+    @Override
+    public BytesStore replace(K key, @NotNull BytesStore value) {
+        @NotNull final BytesStore stored = compress(value);
+        @Nullable final BytesStore oldValue = kvStore.replace(key, stored);
+        if (oldValue != null && isPublishing())
+            publishPut(key, oldValue, stored);
+        return uncompress(oldValue);
+    }
+
+    /**
+     * compares the values as stored, a value always compresses to the same bytes so this is
+     * done atomically by the underlying store.
+     */
+    @Override
+    public boolean replaceIfEqual(K key, @NotNull BytesStore oldValue, @NotNull BytesStore newValue) {
+        @NotNull final BytesStore storedOld = encode(oldValue, false);
+        @NotNull final BytesStore stored = compress(newValue);
+        if (!kvStore.replaceIfEqual(key, storedOld, stored))
+            return false;
+        if (isPublishing())
+            publishPut(key, storedOld, stored);
+        return true;
+    }
+
+    @Override
+    public boolean removeIfEqual(K key, @NotNull BytesStore value) {
+        if (!kvStore.removeIfEqual(key, encode(value, false)))
+            return false;
+        if (isPublishing())
+            subscriptions.notifyEvent(RemovedEvent.of(asset.fullName(), key, value, false));
+        return true;
+    }
+
+    @Nullable
+    @Override
+    public BytesStore putIfAbsent(K key, @NotNull BytesStore value) {
+        @NotNull final BytesStore stored = compress(value);
+        @Nullable final BytesStore current = kvStore.putIfAbsent(key, stored);
+        if (current == null && isPublishing())
+            publishPut(key, null, stored);
+        return uncompress(current);
+    }
+
+    @Override
+    public void entriesFor(int segment, @NotNull SubscriptionConsumer<MapEvent<K, BytesStore>> kvConsumer) throws InvalidSubscriberException {
+        kvStore.entriesFor(segment, e -> kvConsumer.accept(e.translate(k -> k, this::uncompress)));
+    }
+
+    @NotNull
+    @Override
+    public Iterator<Map.Entry<K, BytesStore>> entrySetIterator() {
+        final Iterator<Map.Entry<K, BytesStore>> entries = kvStore.entrySetIterator();
+        return new Iterator<Map.Entry<K, BytesStore>>() {
+            @Override
+            public boolean hasNext() {
+                return entries.hasNext();
+            }
+
+            @NotNull
+            @Override
+            public Map.Entry<K, BytesStore> next() {
+                final Map.Entry<K, BytesStore> e = entries.next();
+                return new SimpleImmutableEntry<>(e.getKey(), uncompress(e.getValue()));
+            }
+        };
+    }
+
+    @NotNull
+    @Override
+    public Iterator<BytesStore> valuesIterator() {
+        final Iterator<BytesStore> values = kvStore.valuesIterator();
+        return new Iterator<BytesStore>() {
+            @Override
+            public boolean hasNext() {
+                return values.hasNext();
+            }
+
+            @Nullable
+            @Override
+            public BytesStore next() {
+                return uncompress(values.next());
+            }
+        };
+    }
+
+    @NotNull
+    @Override
+    public KeyValueStore<K, BytesStore> underlying() {
+        return kvStore;
+    }
+
+    /**
+     * @return the number of values stored compressed.
+     */
+    public long compressedCount() {
+        return compressedCount.sum();
+    }
+
+    /**
+     * @return the bytes saved by compressing values, compared to storing them as they are.
+     */
+    public long bytesSaved() {
+        return rawBytes.sum() - storedBytes.sum();
+    }
+
+    /**
+     * @return the time spent compressing values, in nano-seconds.
+     */
+    public long compressNanos() {
+        return compressNanos.sum();
+    }
+
+    /**
+     * @return the time spent uncompressing values, in nano-seconds.
+     */
+    public long uncompressNanos() {
+        return uncompressNanos.sum();
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return "CompressedKeyValueStore{" +
+                "compression=" + compression +
+                ", threshold=" + threshold +
+                ", compressedCount=" + compressedCount() +
+                ", bytesSaved=" + bytesSaved() +
+                ", compressNanos=" + compressNanos() +
+                ", uncompressNanos=" + uncompressNanos() +
+                '}';
+    }
+
+    private boolean isPublishing() {
+        return publishChanges && subscriptions.hasSubscribers();
+    }
+
+    private void publishPut(K key, @Nullable BytesStore oldValue, @NotNull BytesStore stored) {
+        @Nullable final BytesStore value = uncompress(stored);
+        subscriptions.notifyEvent(oldValue == null
+                ? InsertedEvent.of(asset.fullName(), key, value, false)
+                : UpdatedEvent.of(asset.fullName(), key, uncompress(oldValue), value, false, !stored.equals(oldValue)));
+    }
+
+    /**
+     * @return a copy of the value to store, as the caller may reuse the value passed.
+     */
+    @NotNull
+    BytesStore compress(@NotNull BytesStore value) {
+        return encode(value, true);
+    }
+
+    /**
+     * @param record false if the value is only compared with what is stored, so it isn't counted
+     *               in the statistics.
+     */
+    @NotNull
+    private BytesStore encode(@NotNull BytesStore value, boolean record) {
+        @NotNull final byte[] raw = value.toByteArray();
+        if (raw.length >= threshold && compression != ValueCompression.NONE) {
+            final long start = System.nanoTime();
+            @NotNull final byte[] compressed = compression.compress(raw);
+            if (record)
+                compressNanos.add(System.nanoTime() - start);
+
+            if (compressed.length + HEADER_LENGTH < raw.length) {
+                if (record) {
+                    compressedCount.increment();
+                    rawBytes.add(raw.length);
+                    storedBytes.add(compressed.length + HEADER_LENGTH);
+                }
+                return BytesStore.wrap(withHeader(compression, raw.length, compressed));
+            }
+        }
+        return startsWithMagic(raw)
+                ? BytesStore.wrap(withHeader(ValueCompression.NONE, raw.length, raw))
+                : BytesStore.wrap(raw);
+    }
+
+    @Nullable
+    BytesStore uncompress(@Nullable BytesStore stored) {
+        if (stored == null || stored.readRemaining() < HEADER_LENGTH)
+            return stored;
+        final long position = stored.readPosition();
+        for (int i = 0; i < MAGIC.length; i++)
+            if (stored.readByte(position + i) != MAGIC[i])
+                return stored;
+
+        @NotNull final byte[] bytes = stored.toByteArray();
+        @NotNull final ValueCompression algorithm = ValueCompression.forId(bytes[MAGIC.length]);
+        final int rawLength = ((bytes[4] & 0xFF) << 24) | ((bytes[5] & 0xFF) << 16)
+                | ((bytes[6] & 0xFF) << 8) | (bytes[7] & 0xFF);
+
+        final long start = System.nanoTime();
+        @NotNull final byte[] raw = algorithm.uncompress(bytes, HEADER_LENGTH, rawLength);
+        uncompressNanos.add(System.nanoTime() - start);
+        return BytesStore.wrap(raw);
+    }
+
+    private static boolean startsWithMagic(@NotNull byte[] raw) {
+        if (raw.length < MAGIC.length)
+            return false;
+        for (int i = 0; i < MAGIC.length; i++)
+            if (raw[i] != MAGIC[i])
+                return false;
+        return true;
+    }
+
+    @NotNull
+    private static byte[] withHeader(@NotNull ValueCompression algorithm, int rawLength, @NotNull byte[] data) {
+        @NotNull final byte[] bytes = new byte[HEADER_LENGTH + data.length];
+        System.arraycopy(MAGIC, 0, bytes, 0, MAGIC.length);
+        bytes[3] = algorithm.id();
+        bytes[4] = (byte) (rawLength >>> 24);
+        bytes[5] = (byte) (rawLength >>> 16);
+        bytes[6] = (byte) (rawLength >>> 8);
+        bytes[7] = (byte) rawLength;
+        System.arraycopy(data, 0, bytes, HEADER_LENGTH, data.length);
+        return bytes;
+    }
+}
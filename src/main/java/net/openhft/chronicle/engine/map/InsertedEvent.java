@@ -52,6 +52,18 @@ public class InsertedEvent<K, V> extends AbstractMarshallable implements MapEven
         return new InsertedEvent<>(assetName, key, value, isReplicationEvent);
     }
 
+    /**
+     * Resets this event so it can be reused, see {@link MapEventFlyweights}
+     */
+    @NotNull
+    InsertedEvent<K, V> set(String assetName, @NotNull K key, V value, boolean isReplicationEvent) {
+        this.assetName = assetName;
+        this.key = key;
+        this.value = value;
+        this.isReplicationEvent = isReplicationEvent;
+        return this;
+    }
+
     @Nullable
     @Override
     public String assetName() {
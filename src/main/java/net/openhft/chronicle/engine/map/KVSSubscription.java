@@ -61,6 +61,14 @@ public interface KVSSubscription<K, V> extends SubscriptionCollection<MapEvent<K
 
     boolean needsPrevious();
 
+    /**
+     * @return false if no subscriber holds on to, or hands off, the events it is passed so an
+     * event can be reused once {@link #notifyEvent(MapEvent)} returns.
+     */
+    default boolean retainsEvents() {
+        return true;
+    }
+
     void setKvStore(KeyValueStore<K, V> store);
 
     @Override
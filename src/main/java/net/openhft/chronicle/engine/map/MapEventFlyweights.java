@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.map;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A reusable insert, update and remove event for each thread, passed to subscriptions whose
+ * subscribers don't hold on to the events they are given, so notifying them of a change doesn't
+ * create garbage.
+ * <p>
+ * A subscriber may change a store in turn on the same thread, so the events are lent to one change
+ * at a time and a nested change creates events of its own.
+ */
+final class MapEventFlyweights {
+
+    private static final ThreadLocal<MapEventFlyweights> FLYWEIGHTS =
+            ThreadLocal.withInitial(MapEventFlyweights::new);
+
+    private final InsertedEvent inserted = InsertedEvent.of(null, "", null, false);
+    private final UpdatedEvent updated = UpdatedEvent.of(null, "", null, null, false, false);
+    private final RemovedEvent removed = RemovedEvent.of(null, "", null, false);
+    private boolean inUse;
+
+    private MapEventFlyweights() {
+    }
+
+    /**
+     * @return the events for this thread, or null if they are in use by a change further up the
+     * stack. They must be passed to {@link #release()} after use.
+     */
+    @Nullable
+    static MapEventFlyweights acquire() {
+        @NotNull final MapEventFlyweights flyweights = FLYWEIGHTS.get();
+        if (flyweights.inUse)
+            return null;
+        flyweights.inUse = true;
+        return flyweights;
+    }
+
+    @NotNull
+    <K, V> InsertedEvent<K, V> inserted(String assetName, @NotNull K key, V value) {
+        //noinspection unchecked
+        return inserted.set(assetName, key, value, false);
+    }
+
+    @NotNull
+    <K, V> UpdatedEvent<K, V> updated(String assetName, @NotNull K key, V oldValue, V value,
+                                      boolean hasValueChanged) {
+        //noinspection unchecked
+        return updated.set(assetName, key, oldValue, value, false, hasValueChanged);
+    }
+
+    @NotNull
+    <K, V> RemovedEvent<K, V> removed(String assetName, @NotNull K key, V oldValue) {
+        //noinspection unchecked
+        return removed.set(assetName, key, oldValue, false);
+    }
+
+    /**
+     * Drops the keys and values of the last change so they can be collected, and lends the
+     * events out again.
+     */
+    void release() {
+        inserted.set(null, "", null, false);
+        updated.set(null, "", null, null, false, false);
+        removed.set(null, "", null, false);
+        inUse = false;
+    }
+}
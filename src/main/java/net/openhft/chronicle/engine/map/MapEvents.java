@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.engine.api.map.MapEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Helpers for working with {@link MapEvent}s
+ */
+public enum MapEvents {
+    ;
+
+    /**
+     * Combine an event which has not been delivered yet with a later event for the same key, so
+     * a subscriber which only sees the result ends up in the same state as one which saw both.
+     *
+     * @param pending the earlier, undelivered event
+     * @param next    the later event for the same key
+     * @return the event to deliver instead of both, or null if they cancel out.
+     */
+    @Nullable
+    public static <K, V> MapEvent<K, V> conflate(@NotNull MapEvent<K, V> pending, @NotNull MapEvent<K, V> next) {
+        K key = next.getKey();
+        boolean replicationEvent = next.isReplicationEvent();
+        if (pending instanceof InsertedEvent) {
+            if (next instanceof RemovedEvent)
+                // the subscriber never saw the key.
+                return null;
+            return InsertedEvent.of(next.assetName(), key, next.getValue(), replicationEvent);
+        }
+        if (pending instanceof UpdatedEvent) {
+            if (next instanceof RemovedEvent)
+                return RemovedEvent.of(next.assetName(), key, pending.oldValue(), replicationEvent);
+            return UpdatedEvent.of(next.assetName(), key, pending.oldValue(), next.getValue(), replicationEvent, true);
+        }
+        if (pending instanceof RemovedEvent && next instanceof InsertedEvent)
+            // the subscriber still holds the value which was removed.
+            return UpdatedEvent.of(next.assetName(), key, pending.oldValue(), next.getValue(), replicationEvent, true);
+        return next;
+    }
+}
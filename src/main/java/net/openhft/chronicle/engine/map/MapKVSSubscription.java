@@ -18,14 +18,16 @@
 package net.openhft.chronicle.engine.map;
 
 import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.threads.EventLoop;
 import net.openhft.chronicle.engine.api.map.KeyValueStore;
 import net.openhft.chronicle.engine.api.map.KeyValueStore.Entry;
 import net.openhft.chronicle.engine.api.map.MapEvent;
-import net.openhft.chronicle.engine.api.map.MapView;
 import net.openhft.chronicle.engine.api.pubsub.*;
 import net.openhft.chronicle.engine.api.tree.Asset;
 import net.openhft.chronicle.engine.api.tree.RequestContext;
-import net.openhft.chronicle.engine.cfg.SubscriptionStat;
+import net.openhft.chronicle.engine.cfg.MonitorStats;
+import net.openhft.chronicle.engine.pubsub.AsyncSubscriber;
+import net.openhft.chronicle.engine.pubsub.ConflatingSubscriber;
 import net.openhft.chronicle.engine.pubsub.MapSimpleSubscription;
 import net.openhft.chronicle.engine.pubsub.SimpleSubscription;
 import net.openhft.chronicle.engine.query.Filter;
@@ -36,11 +38,14 @@ import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.time.LocalTime;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import static java.lang.Boolean.TRUE;
 import static net.openhft.chronicle.engine.api.pubsub.SubscriptionConsumer.notifyEachSubscriber;
@@ -61,10 +66,11 @@ public class MapKVSSubscription<K, V> implements ObjectSubscription<K, V>,
 
     @Nullable
     private final Asset asset;
-    private final Map<Subscriber, Subscriber> subscriptionDelegate = new IdentityHashMap<>();
+    private final Map<ISubscriber, ISubscriber> subscriptionDelegate = new IdentityHashMap<>();
+    private final Set<AsyncSubscriber<?>> asyncSubscribers = new CopyOnWriteArraySet<>();
     private KeyValueStore<K, V> kvStore;
     @Nullable
-    private Map<String, SubscriptionStat> subscriptionMonitoringMap = null;
+    private MonitorStats monitorStats;
 
     public MapKVSSubscription(@NotNull RequestContext requestContext, @NotNull Asset asset) {
         this(requestContext.viewType(), asset);
@@ -192,6 +198,15 @@ public class MapKVSSubscription<K, V> implements ObjectSubscription<K, V>,
         return !subscribers.isEmpty() || !downstream.isEmpty();
     }
 
+    /**
+     * Topic and key subscribers, and the subscriptions of child assets, are only passed the key
+     * and value of an event.
+     */
+    @Override
+    public boolean retainsEvents() {
+        return !subscribers.isEmpty() || !downstream.isEmpty();
+    }
+
     @Override
     public void registerSubscriber(@NotNull RequestContext rc,
                                    @NotNull Subscriber subscriber,
@@ -205,25 +220,115 @@ public class MapKVSSubscription<K, V> implements ObjectSubscription<K, V>,
     }
 
     @NotNull
-    private <T> Subscriber<T> subscriber(@NotNull Subscriber<T> subscriber,
-                                         @NotNull Filter<T> filter) {
-        @NotNull final Subscriber<T> sub;
-        if (filter.isEmpty())
-            sub = subscriber;
-        else {
-            sub = new Filter.FilteredSubscriber<>(filter, subscriber);
-            subscriptionDelegate.put(subscriber, sub);
+    private <T> Subscriber<T> subscriber(@NotNull RequestContext rc,
+                                         @NotNull Subscriber<T> subscriber,
+                                         @NotNull Filter<T> filter,
+                                         @NotNull Function<T, Object> keyFunction,
+                                         @NotNull BinaryOperator<T> conflater) {
+        @NotNull Subscriber<T> sub = filter.isEmpty()
+                ? subscriber
+                : new Filter.FilteredSubscriber<>(filter, subscriber);
+
+        if (TRUE.equals(rc.conflate()) && asset != null) {
+            @NotNull ConflatingSubscriber<T> conflating = new ConflatingSubscriber<>(sub,
+                    rc.throttlePeriodMs(), keyFunction, conflater);
+            eventLoop().addHandler(conflating);
+            sub = conflating;
+
+        } else if (rc.asyncBufferSize() > 0 && asset != null) {
+            @NotNull AsyncSubscriber<T> async = new AsyncSubscriber<>(sub, rc.asyncBufferSize(),
+                    rc.overflowPolicy(), keyFunction, conflater);
+            asyncSubscribers.add(async);
+            @NotNull EventLoop eventLoop = eventLoop();
+            eventLoop.addHandler(async);
+            // a blocked publisher waits for this loop to drain the buffer.
+            eventLoop.start();
+            sub = async;
         }
+
+        if (sub != subscriber)
+            subscriptionDelegate.put(subscriber, sub);
         return sub;
     }
 
+    /**
+     * A topic subscriber which only receives the latest message for each topic between flushes.
+     */
+    @NotNull
+    private TopicSubscriber<K, V> topicSubscriber(@NotNull RequestContext rc,
+                                                  @NotNull TopicSubscriber<K, V> subscriber) {
+        if (!TRUE.equals(rc.conflate()) || asset == null)
+            return subscriber;
+
+        @NotNull Subscriber<Map.Entry<K, V>> downstream = new Subscriber<Map.Entry<K, V>>() {
+            @Override
+            public void onMessage(@NotNull Map.Entry<K, V> e) throws InvalidSubscriberException {
+                subscriber.onMessage(e.getKey(), e.getValue());
+            }
+
+            @Override
+            public void onEndOfSubscription() {
+                subscriber.onEndOfSubscription();
+            }
+        };
+        @NotNull ConflatingSubscriber<Map.Entry<K, V>> conflating = new ConflatingSubscriber<>(downstream,
+                rc.throttlePeriodMs(), Map.Entry::getKey, (pending, next) -> next);
+        eventLoop().addHandler(conflating);
+
+        @NotNull TopicSubscriber<K, V> sub = new TopicSubscriber<K, V>() {
+            @Override
+            public void onMessage(K topic, V message) throws InvalidSubscriberException {
+                conflating.onMessage(new SimpleImmutableEntry<>(topic, message));
+            }
+
+            @Override
+            public void onEndOfSubscription() {
+                conflating.onEndOfSubscription();
+            }
+        };
+        subscriptionDelegate.put(subscriber, sub);
+        return sub;
+    }
+
+    @NotNull
+    private EventLoop eventLoop() {
+        assert asset != null;
+        @Nullable EventLoop eventLoop = asset.findOrCreateView(EventLoop.class);
+        assert eventLoop != null;
+        return eventLoop;
+    }
+
+    /**
+     * Visit each subscriber which is delivered events asynchronously e.g. to read its lag.
+     *
+     * @param consumer to pass each active AsyncSubscriber to
+     */
+    public void forEachAsyncSubscriber(@NotNull Consumer<AsyncSubscriber<?>> consumer) {
+        asyncSubscribers.removeIf(AsyncSubscriber::isClosed);
+        asyncSubscribers.forEach(consumer);
+    }
+
     private void registerSubscriber0(@NotNull RequestContext rc,
                                      @NotNull Subscriber<MapEvent<K, V>> subscriber,
                                      @NotNull Filter<MapEvent<K, V>> filter) {
         addToStats("subscription");
-        @NotNull final Subscriber<MapEvent<K, V>> sub = subscriber(subscriber, filter);
-        this.subscribers.add(sub);
+        @NotNull final Subscriber<MapEvent<K, V>> sub = subscriber(rc, subscriber, filter,
+                MapEvent::getKey, MapEvents::conflate);
         @Nullable Boolean bootstrap = rc.bootstrap();
+        if (bootstrap != Boolean.FALSE && kvStore != null && ParallelBootstrap.isParallel(kvStore, subscriber)) {
+            @NotNull final ParallelBootstrap<K, MapEvent<K, V>> parallel = new ParallelBootstrap<>(sub, MapEvent::getKey);
+            chainDelegate(subscriber, sub, parallel);
+            this.subscribers.add(parallel);
+            parallel.start(kvStore.segments(), kvStore::entriesFor, () -> {
+                if (TRUE.equals(rc.endSubscriptionAfterBootstrap())) {
+                    this.subscribers.remove(parallel);
+                    sub.onEndOfSubscription();
+                }
+            }, () -> this.subscribers.remove(parallel));
+            return;
+        }
+
+        this.subscribers.add(sub);
         if (bootstrap != Boolean.FALSE && kvStore != null) {
             try {
                 for (int i = 0; i < kvStore.segments(); i++)
@@ -248,7 +353,21 @@ public class MapKVSSubscription<K, V> implements ObjectSubscription<K, V>,
                                       @NotNull Filter<K> filter) {
         addToStats("keySubscription");
         @Nullable final Boolean bootstrap = rc.bootstrap();
-        @NotNull final Subscriber<K> sub = subscriber(subscriber, filter);
+        @NotNull final Subscriber<K> sub = subscriber(rc, subscriber, filter,
+                k -> k, (pending, next) -> next);
+        if (bootstrap != Boolean.FALSE && kvStore != null && ParallelBootstrap.isParallel(kvStore, subscriber)) {
+            @NotNull final ParallelBootstrap<K, K> parallel = new ParallelBootstrap<>(sub, k -> k);
+            chainDelegate(subscriber, sub, parallel);
+            keySubscribers.add(parallel);
+            parallel.start(kvStore.segments(), kvStore::keysFor, () -> {
+                if (TRUE.equals(rc.endSubscriptionAfterBootstrap())) {
+                    keySubscribers.remove(parallel);
+                    sub.onEndOfSubscription();
+                }
+            }, () -> keySubscribers.remove(parallel));
+            return;
+        }
+
         keySubscribers.add(sub);
         if (bootstrap != Boolean.FALSE && kvStore != null) {
             try {
@@ -268,18 +387,61 @@ public class MapKVSSubscription<K, V> implements ObjectSubscription<K, V>,
     public void registerTopicSubscriber(@NotNull RequestContext rc, @NotNull TopicSubscriber subscriber) {
         addToStats("topicSubscription");
         @Nullable Boolean bootstrap = rc.bootstrap();
-        topicSubscribers.add((TopicSubscriber<K, V>) subscriber);
+        @NotNull final TopicSubscriber<K, V> sub = topicSubscriber(rc, (TopicSubscriber<K, V>) subscriber);
+        if (bootstrap != Boolean.FALSE && kvStore != null && ParallelBootstrap.isParallel(kvStore, subscriber)) {
+            registerParallelTopicSubscriber(subscriber, sub);
+            return;
+        }
+
+        topicSubscribers.add(sub);
         if (bootstrap != Boolean.FALSE && kvStore != null) {
             try {
                 for (int i = 0; i < kvStore.segments(); i++)
-                    kvStore.entriesFor(i, e -> subscriber.onMessage(e.getKey(), e.getValue()));
+                    kvStore.entriesFor(i, e -> sub.onMessage(e.getKey(), e.getValue()));
 
             } catch (InvalidSubscriberException dontAdd) {
-                topicSubscribers.remove(subscriber);
+                topicSubscribers.remove(sub);
             }
         }
     }
 
+    private void registerParallelTopicSubscriber(@NotNull TopicSubscriber subscriber,
+                                                 @NotNull TopicSubscriber<K, V> sub) {
+        @NotNull final ParallelBootstrap<K, Map.Entry<K, V>> parallel = new ParallelBootstrap<>(
+                new Subscriber<Map.Entry<K, V>>() {
+                    @Override
+                    public void onMessage(@NotNull Map.Entry<K, V> e) throws InvalidSubscriberException {
+                        sub.onMessage(e.getKey(), e.getValue());
+                    }
+
+                    @Override
+                    public void onEndOfSubscription() {
+                        sub.onEndOfSubscription();
+                    }
+                }, Map.Entry::getKey);
+
+        // once bootstrapped live messages go straight to the subscriber.
+        @NotNull final TopicSubscriber<K, V> live = new TopicSubscriber<K, V>() {
+            @Override
+            public void onMessage(K topic, V message) throws InvalidSubscriberException {
+                if (parallel.isBootstrapped())
+                    sub.onMessage(topic, message);
+                else
+                    parallel.onMessage(new SimpleImmutableEntry<>(topic, message));
+            }
+
+            @Override
+            public void onEndOfSubscription() {
+                parallel.onEndOfSubscription();
+            }
+        };
+        chainDelegate(subscriber, sub, live);
+        topicSubscribers.add(live);
+        parallel.start(kvStore.segments(), (segment, consumer) -> kvStore.entriesFor(segment, consumer::accept),
+                () -> {
+                }, () -> topicSubscribers.remove(live));
+    }
+
     @Override
     public void registerDownstream(@NotNull EventConsumer<K, V> subscription) {
         downstream.add(subscription);
@@ -290,9 +452,36 @@ public class MapKVSSubscription<K, V> implements ObjectSubscription<K, V>,
         downstream.remove(subscription);
     }
 
+    /**
+     * Registers the outer delegate in place of the subscriber, keeping the delegate it wraps, if
+     * any, as the next link in the chain.
+     */
+    private void chainDelegate(@NotNull ISubscriber subscriber,
+                               @NotNull ISubscriber wrapped,
+                               @NotNull ISubscriber outer) {
+        subscriptionDelegate.put(subscriber, outer);
+        if (wrapped != subscriber)
+            subscriptionDelegate.put(outer, wrapped);
+    }
+
+    /**
+     * Removes the chain of delegates registered for a subscriber.
+     *
+     * @return the outermost delegate, the one which was registered
+     */
+    @Nullable
+    private ISubscriber removeDelegates(@NotNull ISubscriber subscriber) {
+        final ISubscriber outer = subscriptionDelegate.remove(subscriber);
+        for (ISubscriber next = outer; next != null; next = subscriptionDelegate.remove(next)) {
+            if (next instanceof AsyncSubscriber)
+                asyncSubscribers.remove(next);
+        }
+        return outer;
+    }
+
     @Override
     public void unregisterSubscriber(@NotNull Subscriber subscriber) {
-        final Subscriber delegate = subscriptionDelegate.remove(subscriber);
+        final Subscriber delegate = (Subscriber) removeDelegates(subscriber);
         @NotNull final Subscriber s = delegate != null ? delegate : subscriber;
         boolean subscription = subscribers.remove(s);
         boolean keySubscription = keySubscribers.remove(s);
@@ -305,62 +494,36 @@ public class MapKVSSubscription<K, V> implements ObjectSubscription<K, V>,
 
     @Override
     public void unregisterTopicSubscriber(@NotNull TopicSubscriber subscriber) {
-        topicSubscribers.remove(subscriber);
+        final TopicSubscriber delegate = (TopicSubscriber) removeDelegates(subscriber);
+        @NotNull final TopicSubscriber s = delegate != null ? delegate : subscriber;
+        topicSubscribers.remove(s);
         removeFromStats("topicSubscription");
-        subscriber.onEndOfSubscription();
+        s.onEndOfSubscription();
     }
 
-    //Needs some refactoring - need a definitive way of knowing when this map should become available
-    //3 combinations, not lookedUP, exists or does not exist
+    //Needs some refactoring - need a definitive way of knowing when monitoring becomes available
     @Nullable
-    private Map getSubscriptionMap() {
-        if (subscriptionMonitoringMap != null) return subscriptionMonitoringMap;
-        @Nullable Asset subscriptionAsset = asset.root().getAsset("proc/subscriptions");
-        if (subscriptionAsset != null && subscriptionAsset.getView(MapView.class) != null) {
-            subscriptionMonitoringMap = subscriptionAsset.getView(MapView.class);
-        }
-        return subscriptionMonitoringMap;
+    private MonitorStats monitorStats() {
+        if (monitorStats == null)
+            monitorStats = asset.root().getView(MonitorStats.class);
+        return monitorStats;
     }
 
     private void addToStats(String subType) {
         if (sessionProvider == null) return;
 
+        @Nullable MonitorStats stats = monitorStats();
         @Nullable SessionDetails sessionDetails = sessionProvider.get();
-        if (sessionDetails != null) {
-            @Nullable String userId = sessionDetails.userId();
-
-            @Nullable Map<String, SubscriptionStat> subStats = getSubscriptionMap();
-            if (subStats != null) {
-                SubscriptionStat stat = subStats.get(userId + "~" + subType);
-                if (stat == null) {
-                    stat = new SubscriptionStat();
-                    stat.setFirstSubscribed(LocalTime.now());
-                }
-                stat.setTotalSubscriptions(stat.getTotalSubscriptions() + 1);
-                stat.setActiveSubscriptions(stat.getActiveSubscriptions() + 1);
-                stat.setRecentlySubscribed(LocalTime.now());
-                subStats.put(userId + "~" + subType, stat);
-            }
-        }
+        if (stats != null && sessionDetails != null)
+            stats.subscribed(sessionDetails.userId(), subType);
     }
 
     private void removeFromStats(String subType) {
         if (sessionProvider == null) return;
 
+        @Nullable MonitorStats stats = monitorStats();
         @Nullable SessionDetails sessionDetails = sessionProvider.get();
-        if (sessionDetails != null) {
-            @Nullable String userId = sessionDetails.userId();
-
-            @Nullable Map<String, SubscriptionStat> subStats = getSubscriptionMap();
-            if (subStats != null) {
-                SubscriptionStat stat = subStats.get(userId + "~" + subType);
-                if (stat == null) {
-                    throw new AssertionError("There should be an active subscription");
-                }
-                stat.setActiveSubscriptions(stat.getActiveSubscriptions() - 1);
-                stat.setRecentlySubscribed(LocalTime.now());
-                subStats.put(userId + "~" + subType, stat);
-            }
-        }
+        if (stats != null && sessionDetails != null)
+            stats.unsubscribed(sessionDetails.userId(), subType);
     }
 }
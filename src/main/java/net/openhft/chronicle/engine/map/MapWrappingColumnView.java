@@ -7,6 +7,7 @@ import net.openhft.chronicle.engine.api.column.Column;
 import net.openhft.chronicle.engine.api.column.MapColumnView;
 import net.openhft.chronicle.engine.api.column.Row;
 import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.api.pubsub.SubscriptionCollection;
 import net.openhft.chronicle.engine.api.tree.Asset;
 import net.openhft.chronicle.engine.api.tree.RequestContext;
 import net.openhft.chronicle.wire.FieldInfo;
@@ -25,6 +26,8 @@ import static net.openhft.chronicle.core.util.ObjectUtils.convertTo;
  */
 public class MapWrappingColumnView<K, V> implements MapColumnView {
 
+    private static final int MAX_SORTED_FILTER_INDEXES = 8;
+
     private final RequestContext requestContext;
     private final Asset asset;
     @NotNull
@@ -33,6 +36,21 @@ public class MapWrappingColumnView<K, V> implements MapColumnView {
     private final boolean valueMap;
     @Nullable
     private ArrayList<String> columnNames = null;
+    // the index of the rows for the most recently used filters and sort orders.
+    private final Map<List<Object>, SortedFilterIndex<K, V>> sortedFilterIndexes =
+            new LinkedHashMap<List<Object>, SortedFilterIndex<K, V>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<List<Object>, SortedFilterIndex<K, V>> eldest) {
+                    if (size() <= MAX_SORTED_FILTER_INDEXES)
+                        return false;
+                    final SortedFilterIndex<K, V> index = eldest.getValue();
+                    index.close();
+                    @Nullable final SubscriptionCollection subscription = mapView.asset().subscription(false);
+                    if (subscription != null)
+                        subscription.unregisterSubscriber(index);
+                    return true;
+                }
+            };
 
     public MapWrappingColumnView(RequestContext requestContext,
                                  Asset asset,
@@ -111,14 +129,39 @@ public class MapWrappingColumnView<K, V> implements MapColumnView {
         };
     }
 
+    /**
+     * @return the rows which pass the filters in sort order, the index is created from the map's
+     * subscription the first time the filters and sort order are used, and kept up to date after.
+     */
+    @NotNull
+    private synchronized SortedFilterIndex<K, V> sortedFilterIndex(@NotNull SortedFilter sortedFilter) {
+        @NotNull final List<Object> key = Arrays.asList(new ArrayList<>(sortedFilter.marshableFilters),
+                new ArrayList<>(sortedFilter.marshableOrderBy));
+        SortedFilterIndex<K, V> index = sortedFilterIndexes.get(key);
+        if (index == null) {
+            // entries which sort the same are ordered by key so each has a distinct position.
+            @NotNull final Comparator<Map.Entry<K, V>> comparator = sort(sortedFilter.marshableOrderBy)
+                    .thenComparing((o1, o2) -> compareKeys(o1.getKey(), o2.getKey()));
+            index = new SortedFilterIndex<>(filter(sortedFilter.marshableFilters), comparator);
+            sortedFilterIndexes.put(key, index);
+            // bootstraps the index with the existing entries.
+            mapView.registerSubscriber(index);
+        }
+        return index;
+    }
+
+    private static int compareKeys(Object k1, Object k2) {
+        if (k1 instanceof Comparable && k1.getClass() == k2.getClass())
+            return ((Comparable) k1).compareTo(k2);
+        return k1.toString().compareTo(k2.toString());
+    }
+
     @NotNull
     @Override
     public ClosableIterator<Row> iterator(@NotNull final SortedFilter sortedFilter) {
 
-        final Iterator<Map.Entry<K, V>> core = mapView.entrySet().stream()
-                .filter(filter(sortedFilter.marshableFilters))
-                .sorted(sort(sortedFilter.marshableOrderBy))
-                .iterator();
+        final Iterator<Map.Entry<K, V>> core = sortedFilterIndex(sortedFilter)
+                .iterator(sortedFilter.fromIndex);
 
         @NotNull final ClosableIterator<Row> result = new ClosableIterator<Row>() {
 
@@ -168,12 +211,6 @@ public class MapWrappingColumnView<K, V> implements MapColumnView {
             }
         };
 
-
-        long x = 0;
-        while (x++ < sortedFilter.fromIndex && result.hasNext()) {
-            result.next();
-        }
-
         return result;
     }
 
@@ -382,9 +419,7 @@ public class MapWrappingColumnView<K, V> implements MapColumnView {
         if (sortedFilter == null || sortedFilter.marshableFilters.isEmpty())
             return (int) mapView.longSize();
 
-        return (int) mapView.entrySet().stream()
-                .filter(filter(sortedFilter.marshableFilters))
-                .count();
+        return sortedFilterIndex(sortedFilter).size();
     }
 
 }
\ No newline at end of file
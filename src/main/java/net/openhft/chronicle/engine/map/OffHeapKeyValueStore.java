@@ -0,0 +1,403 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.bytes.BytesUtil;
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.core.util.ObjectUtils;
+import net.openhft.chronicle.engine.api.EngineReplication.ReplicationEntry;
+import net.openhft.chronicle.engine.api.map.KeyValueStore;
+import net.openhft.chronicle.engine.api.map.MapEvent;
+import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
+import net.openhft.chronicle.engine.api.pubsub.SubscriptionConsumer;
+import net.openhft.chronicle.engine.api.tree.Asset;
+import net.openhft.chronicle.engine.api.tree.RequestContext;
+import net.openhft.chronicle.map.ChronicleMap;
+import net.openhft.chronicle.map.ChronicleMapBuilder;
+import net.openhft.chronicle.map.UpdateResult;
+import net.openhft.chronicle.wire.Marshallable;
+import net.openhft.chronicle.wire.WireType;
+import net.openhft.lang.model.DataValueClasses;
+import net.openhft.lang.values.IntValue;
+import net.openhft.lang.values.LongValue;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Function;
+
+import static net.openhft.chronicle.engine.map.Buffers.BUFFERS;
+
+/**
+ * An in-memory, leaf {@link KeyValueStore} which holds its keys and values off heap in serialized
+ * form rather than as a map of boxed objects, so the entries it holds are invisible to the GC.
+ * <p>
+ * Long and Integer keys are held as {@link LongValue} and {@link IntValue} data values, set on a
+ * key reused by each thread, so a lookup doesn't box, and {@link #get(long)}, {@link #put(long,
+ * Object)}, {@link #remove(long)} and {@link #containsKey(long)} take a primitive key. BytesStore
+ * and Marshallable values are copied into a buffer reused by each thread and stored as raw bytes,
+ * every other type is left to the default Chronicle Map marshalling. The store is not persisted
+ * or replicated, it is installed with {@link net.openhft.chronicle.engine.tree.VanillaAsset#enableOffHeapKeyValueStore()}
+ * or by setting {@code offHeap: true} on an {@link net.openhft.chronicle.engine.cfg.InMemoryMapCfg}.
+ */
+public class OffHeapKeyValueStore<K, V> implements AuthenticatedKeyValueStore<K, V>, Closeable {
+
+    private static final ThreadLocal<LongValue> LONG_KEY = ThreadLocal.withInitial(() -> DataValueClasses.newInstance(LongValue.class));
+    private static final ThreadLocal<IntValue> INT_KEY = ThreadLocal.withInitial(() -> DataValueClasses.newInstance(IntValue.class));
+
+    @NotNull
+    private final ChronicleMap<Object, Object> map;
+    @NotNull
+    private final RequestContext context;
+    @NotNull
+    private final Asset asset;
+    @NotNull
+    private final KeyKind keyKind;
+    @NotNull
+    private final Function<V, Object> valueToStored;
+    @NotNull
+    private final StoredReader<V> storedToValue;
+
+    public OffHeapKeyValueStore(@NotNull RequestContext context, @NotNull Asset asset) {
+        this.context = context;
+        this.asset = asset;
+        Class keyType = context.keyType();
+        Class valueType = context.valueType();
+
+        Class storedKeyType;
+        if (keyType == Long.class) {
+            keyKind = KeyKind.LONG;
+            storedKeyType = LongValue.class;
+
+        } else if (keyType == Integer.class) {
+            keyKind = KeyKind.INT;
+            storedKeyType = IntValue.class;
+
+        } else {
+            keyKind = KeyKind.OBJECT;
+            storedKeyType = keyType;
+        }
+
+        Class storedValueType;
+        if (BytesStore.class.isAssignableFrom(valueType)) {
+            storedValueType = ByteBuffer.class;
+            valueToStored = v -> {
+                Bytes<ByteBuffer> bytes = valueBuffer();
+                bytes.write((BytesStore) v);
+                return toByteBuffer(bytes);
+            };
+            storedToValue = (o, using) -> (V) BytesStore.wrap(((ByteBuffer) o).slice());
+
+        } else if (Marshallable.class.isAssignableFrom(valueType)) {
+            storedValueType = ByteBuffer.class;
+            valueToStored = v -> {
+                Bytes<ByteBuffer> bytes = valueBuffer();
+                ((Marshallable) v).writeMarshallable(WireType.BINARY.apply(bytes));
+                return toByteBuffer(bytes);
+            };
+            storedToValue = (o, using) -> {
+                V v = valueType.isInstance(using) ? (V) using : (V) ObjectUtils.newInstance(valueType);
+                ((Marshallable) v).readMarshallable(WireType.BINARY.apply(BytesStore.wrap(((ByteBuffer) o).slice()).bytesForRead()));
+                return v;
+            };
+
+        } else {
+            storedValueType = valueType;
+            valueToStored = v -> v;
+            storedToValue = (o, using) -> (V) o;
+        }
+
+        ChronicleMapBuilder<Object, Object> builder = ChronicleMapBuilder.of(storedKeyType, storedValueType);
+        if (context.getEntries() > 0)
+            builder.entries(context.getEntries());
+        if (context.getAverageValueSize() > 0)
+            builder.averageValueSize(context.getAverageValueSize());
+        map = builder.create();
+    }
+
+    @NotNull
+    private static Bytes<ByteBuffer> valueBuffer() {
+        Bytes<ByteBuffer> bytes = BUFFERS.get().valueBuffer;
+        bytes.clear();
+        return bytes;
+    }
+
+    /**
+     * @return a view of the bytes written, valid until the buffer is next used on this thread.
+     */
+    @NotNull
+    private static ByteBuffer toByteBuffer(@NotNull Bytes<ByteBuffer> bytes) {
+        // taken after writing as an elastic buffer may have been replaced as it grew.
+        ByteBuffer bb = bytes.underlyingObject();
+        bb.limit(Math.toIntExact(bytes.writePosition()));
+        bb.position(Math.toIntExact(bytes.readPosition()));
+        return bb;
+    }
+
+    @NotNull
+    private Object storedKey(@NotNull Object key) {
+        switch (keyKind) {
+            case LONG:
+                return longKey(((Number) key).longValue());
+            case INT:
+                return intKey(((Number) key).intValue());
+            default:
+                return key;
+        }
+    }
+
+    @NotNull
+    private Object storedKey(long key) {
+        switch (keyKind) {
+            case LONG:
+                return longKey(key);
+            case INT:
+                return intKey(Math.toIntExact(key));
+            default:
+                throw new IllegalStateException("Keys of " + asset.fullName() + " are not long or int");
+        }
+    }
+
+    @NotNull
+    private static LongValue longKey(long key) {
+        LongValue storedKey = LONG_KEY.get();
+        storedKey.setValue(key);
+        return storedKey;
+    }
+
+    @NotNull
+    private static IntValue intKey(int key) {
+        IntValue storedKey = INT_KEY.get();
+        storedKey.setValue(key);
+        return storedKey;
+    }
+
+    @NotNull
+    private K fromStoredKey(@NotNull Object storedKey) {
+        switch (keyKind) {
+            case LONG:
+                return (K) (Long) ((LongValue) storedKey).getValue();
+            case INT:
+                return (K) (Integer) ((IntValue) storedKey).getValue();
+            default:
+                return (K) storedKey;
+        }
+    }
+
+    @Nullable
+    private V fromStored(@Nullable Object stored, Object using) {
+        return stored == null ? null : storedToValue.read(stored, using);
+    }
+
+    @Override
+    public boolean put(K key, V value) {
+        return map.update(storedKey(key), valueToStored.apply(value)) != UpdateResult.INSERT;
+    }
+
+    /**
+     * @return true if the key was present, as {@link #put(Object, Object)}.
+     */
+    public boolean put(long key, V value) {
+        return map.update(storedKey(key), valueToStored.apply(value)) != UpdateResult.INSERT;
+    }
+
+    @Nullable
+    @Override
+    public V getAndPut(K key, V value) {
+        return fromStored(map.put(storedKey(key), valueToStored.apply(value)), null);
+    }
+
+    @Override
+    public boolean remove(K key) {
+        return map.remove(storedKey(key)) != null;
+    }
+
+    public boolean remove(long key) {
+        return map.remove(storedKey(key)) != null;
+    }
+
+    @Nullable
+    @Override
+    public V getAndRemove(K key) {
+        return fromStored(map.remove(storedKey(key)), null);
+    }
+
+    @Nullable
+    @Override
+    public V getUsing(K key, Object value) {
+        return fromStored(map.get(storedKey(key)), value);
+    }
+
+    @Nullable
+    public V get(long key) {
+        return fromStored(map.get(storedKey(key)), null);
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return map.containsKey(storedKey(key));
+    }
+
+    public boolean containsKey(long key) {
+        return map.containsKey(storedKey(key));
+    }
+
+    @Override
+    public long longSize() {
+        return map.longSize();
+    }
+
+    /**
+     * The entries are held in one Chronicle Map, whose segments aren't exposed, so this store has
+     * the one segment, 0.
+     */
+    @Override
+    public int segments() {
+        return 1;
+    }
+
+    @Override
+    public void keysFor(int segment, @NotNull SubscriptionConsumer<K> kConsumer) throws InvalidSubscriberException {
+        if (segment != 0)
+            return;
+        for (Object storedKey : map.keySet())
+            kConsumer.accept(fromStoredKey(storedKey));
+    }
+
+    @Override
+    public void entriesFor(int segment, @NotNull SubscriptionConsumer<MapEvent<K, V>> kvConsumer) throws InvalidSubscriberException {
+        if (segment != 0)
+            return;
+        @NotNull String assetName = asset.fullName();
+        for (Map.Entry<Object, Object> e : map.entrySet())
+            kvConsumer.accept(InsertedEvent.of(assetName, fromStoredKey(e.getKey()), fromStored(e.getValue(), null), false));
+    }
+
+    @NotNull
+    @Override
+    public Iterator<Map.Entry<K, V>> entrySetIterator() {
+        @NotNull Iterator<Map.Entry<Object, Object>> iterator = map.entrySet().iterator();
+        return new Iterator<Map.Entry<K, V>>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @NotNull
+            @Override
+            public Map.Entry<K, V> next() {
+                Map.Entry<Object, Object> e = iterator.next();
+                return new SimpleEntry<>(fromStoredKey(e.getKey()), fromStored(e.getValue(), null));
+            }
+
+            @Override
+            public void remove() {
+                iterator.remove();
+            }
+        };
+    }
+
+    @NotNull
+    @Override
+    public Iterator<K> keySetIterator() {
+        @NotNull Iterator<Object> iterator = map.keySet().iterator();
+        return new Iterator<K>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @NotNull
+            @Override
+            public K next() {
+                return fromStoredKey(iterator.next());
+            }
+
+            @Override
+            public void remove() {
+                iterator.remove();
+            }
+        };
+    }
+
+    @Override
+    public void clear() {
+        map.clear();
+    }
+
+    @Override
+    public boolean containsValue(final V value) {
+        for (Object stored : map.values()) {
+            if (BytesUtil.equals(value, fromStored(stored, null)))
+                return true;
+        }
+        return false;
+    }
+
+    @NotNull
+    @Override
+    public Asset asset() {
+        return asset;
+    }
+
+    @Nullable
+    @Override
+    public KeyValueStore underlying() {
+        return null;
+    }
+
+    @Override
+    public void close() {
+        Closeable.closeQuietly(map);
+    }
+
+    /**
+     * @return the subscription of the asset, which the subscription store wrapping this leaf
+     * notifies.
+     */
+    @NotNull
+    @Override
+    public KVSSubscription<K, V> subscription(boolean createIfAbsent) {
+        return asset.acquireView(ObjectSubscription.class, context);
+    }
+
+    /**
+     * This store isn't replicated, a replicated map uses a ChronicleMapKeyValueStore, so an entry
+     * sent to it is skipped.
+     */
+    @Override
+    public void accept(final ReplicationEntry replicationEntry) {
+        Jvm.warn().on(getClass(), "Replication isn't supported by " + asset.fullName()
+                + ", skipped replicationEntry=" + replicationEntry);
+    }
+
+    enum KeyKind {
+        LONG, INT, OBJECT
+    }
+
+    @FunctionalInterface
+    interface StoredReader<V> {
+        V read(@NotNull Object stored, Object using);
+    }
+}
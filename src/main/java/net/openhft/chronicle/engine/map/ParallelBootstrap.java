@@ -0,0 +1,191 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.engine.api.map.KeyValueStore;
+import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
+import net.openhft.chronicle.engine.api.pubsub.Subscriber;
+import net.openhft.chronicle.engine.api.pubsub.SubscriptionConsumer;
+import net.openhft.chronicle.threads.NamedThreadFactory;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Bootstraps a subscriber from a large store on a pool of its own, reading each segment in
+ * parallel and passing the entries on in chunks, so registering doesn't hold up the thread it is
+ * called on for as long as it takes to read the whole store.
+ * <p>
+ * This is registered in place of the subscriber so live events are passed on as they happen. The
+ * key of each live event delivered while the snapshot is being read is remembered, and the
+ * snapshot entry for that key is dropped as it may be older than the live event.
+ */
+class ParallelBootstrap<K, E> implements Subscriber<E> {
+
+    static final long PARALLEL_THRESHOLD = Long.getLong("engine.bootstrap.parallelThreshold", 100_000);
+    static final int CHUNK_SIZE = 256;
+
+    private static final Executor BOOTSTRAP_POOL = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), new NamedThreadFactory("map-bootstrap", true));
+
+    @NotNull
+    private final Subscriber<E> subscriber;
+    @NotNull
+    private final Function<E, K> keyFunction;
+    // the keys with a live event delivered while bootstrapping.
+    private final Set<K> liveKeys = new HashSet<>();
+    private volatile boolean bootstrapped, invalid;
+
+    ParallelBootstrap(@NotNull Subscriber<E> subscriber, @NotNull Function<E, K> keyFunction) {
+        this.subscriber = subscriber;
+        this.keyFunction = keyFunction;
+    }
+
+    /**
+     * @return whether the store is large enough it should be bootstrapped off the calling thread,
+     * and the subscriber doesn't need every entry as soon as it is registered.
+     */
+    static boolean isParallel(@NotNull KeyValueStore<?, ?> kvStore, @NotNull Object subscriber) {
+        return !(subscriber instanceof Synchronous) && kvStore.longSize() >= PARALLEL_THRESHOLD;
+    }
+
+    /**
+     * Reads every segment on the bootstrap pool.
+     *
+     * @param segments   the number of segments to read
+     * @param reader     reads one segment
+     * @param onComplete called once every segment has been passed on
+     * @param onInvalid  called instead if the subscriber is no longer valid
+     */
+    void start(int segments,
+               @NotNull SegmentReader<E> reader,
+               @NotNull Runnable onComplete,
+               @NotNull Runnable onInvalid) {
+        @NotNull final AtomicInteger remaining = new AtomicInteger(segments);
+        for (int i = 0; i < segments; i++) {
+            final int segment = i;
+            BOOTSTRAP_POOL.execute(() -> {
+                try {
+                    readSegment(segment, reader);
+
+                } catch (InvalidSubscriberException e) {
+                    invalid = true;
+
+                } catch (RuntimeException e) {
+                    Jvm.warn().on(getClass(), "Failed to bootstrap segment " + segment, e);
+                }
+                if (remaining.decrementAndGet() == 0)
+                    complete(onComplete, onInvalid);
+            });
+        }
+    }
+
+    private void readSegment(int segment, @NotNull SegmentReader<E> reader) throws InvalidSubscriberException {
+        @NotNull final List<E> chunk = new ArrayList<>(CHUNK_SIZE);
+        reader.read(segment, e -> {
+            if (invalid)
+                throw new InvalidSubscriberException();
+            chunk.add(e);
+            if (chunk.size() == CHUNK_SIZE)
+                deliver(chunk);
+        });
+        deliver(chunk);
+    }
+
+    private synchronized void deliver(@NotNull List<E> chunk) throws InvalidSubscriberException {
+        try {
+            for (E e : chunk) {
+                if (!liveKeys.contains(keyFunction.apply(e)))
+                    subscriber.onMessage(e);
+            }
+
+        } catch (InvalidSubscriberException e) {
+            invalid = true;
+            throw e;
+
+        } finally {
+            chunk.clear();
+        }
+    }
+
+    private void complete(@NotNull Runnable onComplete, @NotNull Runnable onInvalid) {
+        synchronized (this) {
+            bootstrapped = true;
+            liveKeys.clear();
+        }
+        if (invalid)
+            onInvalid.run();
+        else
+            onComplete.run();
+    }
+
+    boolean isBootstrapped() {
+        return bootstrapped;
+    }
+
+    @Override
+    public void onMessage(E e) throws InvalidSubscriberException {
+        if (invalid)
+            throw new InvalidSubscriberException();
+        if (bootstrapped) {
+            subscriber.onMessage(e);
+            return;
+        }
+
+        synchronized (this) {
+            if (!bootstrapped)
+                liveKeys.add(keyFunction.apply(e));
+            try {
+                subscriber.onMessage(e);
+
+            } catch (InvalidSubscriberException ise) {
+                invalid = true;
+                throw ise;
+            }
+        }
+    }
+
+    /**
+     * Stops reading the snapshot, if it hasn't finished, and ends the subscription.
+     */
+    @Override
+    public void onEndOfSubscription() {
+        invalid = true;
+        subscriber.onEndOfSubscription();
+    }
+
+    /**
+     * Marks a subscriber which is read as soon as it is registered, e.g. an index, so it is always
+     * bootstrapped on the thread registering it.
+     */
+    interface Synchronous {
+    }
+
+    @FunctionalInterface
+    interface SegmentReader<E> {
+        void read(int segment, @NotNull SubscriptionConsumer<E> consumer) throws InvalidSubscriberException;
+    }
+}
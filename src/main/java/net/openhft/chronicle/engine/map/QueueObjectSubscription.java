@@ -19,18 +19,15 @@ package net.openhft.chronicle.engine.map;
 
 import net.openhft.chronicle.core.Jvm;
 import net.openhft.chronicle.core.threads.EventLoop;
-import net.openhft.chronicle.core.threads.InvalidEventHandlerException;
 import net.openhft.chronicle.core.util.ObjectUtils;
 import net.openhft.chronicle.engine.api.map.KeyValueStore;
 import net.openhft.chronicle.engine.api.map.MapEvent;
-import net.openhft.chronicle.engine.api.map.MapView;
 import net.openhft.chronicle.engine.api.pubsub.ISubscriber;
-import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
 import net.openhft.chronicle.engine.api.pubsub.Subscriber;
 import net.openhft.chronicle.engine.api.pubsub.TopicSubscriber;
 import net.openhft.chronicle.engine.api.tree.Asset;
 import net.openhft.chronicle.engine.api.tree.RequestContext;
-import net.openhft.chronicle.engine.cfg.SubscriptionStat;
+import net.openhft.chronicle.engine.cfg.MonitorStats;
 import net.openhft.chronicle.engine.query.Filter;
 import net.openhft.chronicle.engine.tree.ChronicleQueueView;
 import net.openhft.chronicle.engine.tree.QueueView;
@@ -43,12 +40,10 @@ import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.time.LocalTime;
 import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 /*
  * Created by Peter Lawrey on 22/05/15.
@@ -69,8 +64,10 @@ public class QueueObjectSubscription<T, M> implements ObjectSubscription<T, M> {
     private final Class<T> topicType;
 
     @Nullable
-    private Map<String, SubscriptionStat> subscriptionMonitoringMap = null;
+    private MonitorStats monitorStats;
     private EventLoop eventLoop;
+    @Nullable
+    private QueueTopicDispatcher<T, M> dispatcher;
 
     public QueueObjectSubscription(@NotNull RequestContext requestContext, @NotNull Asset asset) {
         this(requestContext.topicType(), requestContext.viewType(), asset);
@@ -89,6 +86,10 @@ public class QueueObjectSubscription<T, M> implements ObjectSubscription<T, M> {
 
     @Override
     public void close() {
+        synchronized (this) {
+            if (dispatcher != null)
+                dispatcher.close();
+        }
         notifyEndOfSubscription(topicSubscribers);
         notifyEndOfSubscription(subscribers);
         //notifyEndOfSubscription(keySubscribers);
@@ -151,20 +152,13 @@ public class QueueObjectSubscription<T, M> implements ObjectSubscription<T, M> {
     public void registerSubscriber(@NotNull final RequestContext rc,
                                    @NotNull final Subscriber subscriber,
                                    @NotNull final Filter filter) {
-        @NotNull final QueueView<T, M> chronicleQueue = asset.acquireView(QueueView.class, rc);
-
         @Nullable final T topic = ObjectUtils.convertTo(topicType, rc.name());
-        eventLoop.addHandler(() -> {
-
-            QueueView.Excerpt<T, M> excerpt = chronicleQueue.getExcerpt(topic);
-            if (excerpt == null)
-                return false;
-            final M e = excerpt.message();
-            if (e == null)
-                return false;
-            subscriber.accept(e);
-            return true;
-        });
+        @NotNull final Subscriber<M> sub = filter.isEmpty()
+                ? subscriber
+                : new Filter.FilteredSubscriber<>(filter, subscriber);
+        if (sub != subscriber)
+            subscriptionDelegate.put(subscriber, sub);
+        dispatcher(rc).addSubscriber(topic, sub);
     }
 
     @Override
@@ -172,42 +166,21 @@ public class QueueObjectSubscription<T, M> implements ObjectSubscription<T, M> {
         addToStats("topicSubscription");
 
         topicSubscribers.add(subscriber);
-        @NotNull AtomicBoolean terminate = new AtomicBoolean();
-
-        @NotNull final ChronicleQueueView<T, M> chronicleQueue = (ChronicleQueueView) asset.acquireView
-                (QueueView.class, rc);
-
-        QueueView.Tailer<T, M> iterator = chronicleQueue.tailer();
-        eventLoop.addHandler(() -> {
-
-            // this will be set to true if onMessage throws InvalidSubscriberException
-            if (terminate.get())
-                throw new InvalidEventHandlerException();
-
-            boolean busy = false;
-            long start = System.nanoTime();
-            do {
-                @Nullable final QueueView.Excerpt<T, M> next = iterator.read();
-                if (next == null)
-                    return busy;
-                try {
-                    M message = next.message();
-                    T topic = next.topic();
-                    subscriber.onMessage(topic, message);
-
-                } catch (InvalidSubscriberException e) {
-                    topicSubscribers.add(subscriber);
-                    terminate.set(true);
-
-                } catch (RuntimeException e) {
-                    Jvm.warn().on(getClass(), e);
-                    terminate.set(true);
-                }
-                busy = true;
-            } while (System.nanoTime() - start < 5000);
-            return busy;
-        });
+        dispatcher(rc).addTopicSubscriber(subscriber);
+    }
 
+    /**
+     * @return the dispatcher which reads the queue once for every subscriber of this asset.
+     */
+    @NotNull
+    private synchronized QueueTopicDispatcher<T, M> dispatcher(@NotNull RequestContext rc) {
+        if (dispatcher == null) {
+            @NotNull final ChronicleQueueView<T, M> chronicleQueue = (ChronicleQueueView) asset.acquireView
+                    (QueueView.class, rc);
+            dispatcher = new QueueTopicDispatcher<>(chronicleQueue::tailer);
+            eventLoop.addHandler(dispatcher);
+        }
+        return dispatcher;
     }
 
     @NotNull
@@ -236,6 +209,10 @@ public class QueueObjectSubscription<T, M> implements ObjectSubscription<T, M> {
         final Subscriber delegate = subscriptionDelegate.get(subscriber);
         @NotNull final Subscriber s = delegate != null ? delegate : subscriber;
         boolean subscription = subscribers.remove(s);
+        synchronized (this) {
+            if (dispatcher != null)
+                dispatcher.remove(s);
+        }
 
         if (subscription) removeFromStats("subscription");
 
@@ -255,61 +232,37 @@ public class QueueObjectSubscription<T, M> implements ObjectSubscription<T, M> {
     @Override
     public void unregisterTopicSubscriber(@NotNull TopicSubscriber subscriber) {
         topicSubscribers.remove(subscriber);
+        synchronized (this) {
+            if (dispatcher != null)
+                dispatcher.remove(subscriber);
+        }
         removeFromStats("topicSubscription");
         subscriber.onEndOfSubscription();
     }
 
-    //Needs some refactoring - need a definitive way of knowing when this map should become available
-    //3 combinations, not lookedUP, exists or does not exist
+    //Needs some refactoring - need a definitive way of knowing when monitoring becomes available
     @Nullable
-    private Map getSubscriptionMap() {
-        if (subscriptionMonitoringMap != null) return subscriptionMonitoringMap;
-        @Nullable Asset subscriptionAsset = asset.root().getAsset("proc/subscriptions");
-        if (subscriptionAsset != null && subscriptionAsset.getView(MapView.class) != null) {
-            subscriptionMonitoringMap = subscriptionAsset.getView(MapView.class);
-        }
-        return subscriptionMonitoringMap;
+    private MonitorStats monitorStats() {
+        if (monitorStats == null)
+            monitorStats = asset.root().getView(MonitorStats.class);
+        return monitorStats;
     }
 
     private void addToStats(String subType) {
         if (sessionProvider == null) return;
 
+        @Nullable MonitorStats stats = monitorStats();
         @Nullable SessionDetails sessionDetails = sessionProvider.get();
-        if (sessionDetails != null) {
-            @Nullable String userId = sessionDetails.userId();
-
-            @Nullable Map<String, SubscriptionStat> subStats = getSubscriptionMap();
-            if (subStats != null) {
-                SubscriptionStat stat = subStats.get(userId + "~" + subType);
-                if (stat == null) {
-                    stat = new SubscriptionStat();
-                    stat.setFirstSubscribed(LocalTime.now());
-                }
-                stat.setTotalSubscriptions(stat.getTotalSubscriptions() + 1);
-                stat.setActiveSubscriptions(stat.getActiveSubscriptions() + 1);
-                stat.setRecentlySubscribed(LocalTime.now());
-                subStats.put(userId + "~" + subType, stat);
-            }
-        }
+        if (stats != null && sessionDetails != null)
+            stats.subscribed(sessionDetails.userId(), subType);
     }
 
     private void removeFromStats(String subType) {
         if (sessionProvider == null) return;
 
+        @Nullable MonitorStats stats = monitorStats();
         @Nullable SessionDetails sessionDetails = sessionProvider.get();
-        if (sessionDetails != null) {
-            @Nullable String userId = sessionDetails.userId();
-
-            @Nullable Map<String, SubscriptionStat> subStats = getSubscriptionMap();
-            if (subStats != null) {
-                SubscriptionStat stat = subStats.get(userId + "~" + subType);
-                if (stat == null) {
-                    throw new AssertionError("There should be an active subscription");
-                }
-                stat.setActiveSubscriptions(stat.getActiveSubscriptions() - 1);
-                stat.setRecentlySubscribed(LocalTime.now());
-                subStats.put(userId + "~" + subType, stat);
-            }
-        }
+        if (stats != null && sessionDetails != null)
+            stats.unsubscribed(sessionDetails.userId(), subType);
     }
 }
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.threads.EventHandler;
+import net.openhft.chronicle.core.threads.InvalidEventHandlerException;
+import net.openhft.chronicle.engine.api.pubsub.ISubscriber;
+import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
+import net.openhft.chronicle.engine.api.pubsub.Subscriber;
+import net.openhft.chronicle.engine.api.pubsub.TopicSubscriber;
+import net.openhft.chronicle.engine.tree.QueueView;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Supplier;
+
+/**
+ * Reads each excerpt of a queue once, with one tailer, and passes the message to the subscribers
+ * of its topic, found by a hash lookup, and to the subscribers of every topic.
+ * <p>
+ * A new subscriber starts from the beginning of the queue as before. It reads with a tailer of
+ * its own until it reaches the excerpts the shared tailer has not read yet, and only then is it
+ * added to the index of subscribers.
+ */
+class QueueTopicDispatcher<T, M> implements EventHandler {
+
+    private static final int MAX_BATCH = 256;
+
+    @NotNull
+    private final Supplier<QueueView.Tailer<T, M>> tailerSupplier;
+    @NotNull
+    private final QueueView.Tailer<T, M> tailer;
+    private final Map<T, Set<Subscriber<M>>> byTopic = new ConcurrentHashMap<>();
+    private final Set<TopicSubscriber<T, M>> allTopics = new CopyOnWriteArraySet<>();
+    private final Queue<CatchUp> catchingUp = new ConcurrentLinkedQueue<>();
+    // the index of the last excerpt read by the shared tailer, only used on the event loop.
+    private long lastIndex = -1;
+    private volatile boolean closed;
+
+    /**
+     * @param tailerSupplier creates a tailer which reads from the start of the queue
+     */
+    QueueTopicDispatcher(@NotNull Supplier<QueueView.Tailer<T, M>> tailerSupplier) {
+        this.tailerSupplier = tailerSupplier;
+        this.tailer = tailerSupplier.get();
+    }
+
+    void addSubscriber(@NotNull T topic, @NotNull Subscriber<M> subscriber) {
+        catchingUp.add(new CatchUp(topic, subscriber));
+    }
+
+    void addTopicSubscriber(@NotNull TopicSubscriber<T, M> subscriber) {
+        catchingUp.add(new CatchUp(null, subscriber));
+    }
+
+    /**
+     * @return true if the subscriber was found and removed.
+     */
+    boolean remove(@NotNull ISubscriber subscriber) {
+        boolean removed = allTopics.remove(subscriber);
+        for (@NotNull Set<Subscriber<M>> subscribers : byTopic.values())
+            removed |= subscribers.remove(subscriber);
+        for (@NotNull CatchUp catchUp : catchingUp) {
+            if (catchUp.subscriber == subscriber) {
+                catchUp.removed = true;
+                removed = true;
+            }
+        }
+        return removed;
+    }
+
+    int subscriberCount() {
+        int count = allTopics.size() + catchingUp.size();
+        for (@NotNull Set<Subscriber<M>> subscribers : byTopic.values())
+            count += subscribers.size();
+        return count;
+    }
+
+    void close() {
+        closed = true;
+    }
+
+    @Override
+    public boolean action() throws InvalidEventHandlerException {
+        if (closed)
+            throw new InvalidEventHandlerException();
+
+        boolean busy = !catchingUp.isEmpty() && catchUp();
+
+        for (int i = 0; i < MAX_BATCH; i++) {
+            @Nullable final QueueView.Excerpt<T, M> excerpt = tailer.read();
+            if (excerpt == null)
+                break;
+            lastIndex = excerpt.index();
+            dispatch(excerpt.topic(), excerpt.message());
+            busy = true;
+        }
+        return busy;
+    }
+
+    private boolean catchUp() {
+        boolean busy = false;
+        for (Iterator<CatchUp> iterator = catchingUp.iterator(); iterator.hasNext(); ) {
+            @NotNull final CatchUp catchUp = iterator.next();
+            if (catchUp.removed || catchUp.read()) {
+                iterator.remove();
+                if (!catchUp.removed)
+                    join(catchUp);
+            }
+            busy = true;
+        }
+        return busy;
+    }
+
+    private void join(@NotNull CatchUp catchUp) {
+        if (catchUp.topic == null)
+            allTopics.add((TopicSubscriber<T, M>) catchUp.subscriber);
+        else
+            byTopic.computeIfAbsent(catchUp.topic, t -> new CopyOnWriteArraySet<>())
+                    .add((Subscriber<M>) catchUp.subscriber);
+    }
+
+    private void dispatch(@Nullable T topic, @Nullable M message) {
+        if (message == null)
+            return;
+
+        if (topic != null) {
+            @Nullable final Set<Subscriber<M>> subscribers = byTopic.get(topic);
+            if (subscribers != null) {
+                for (@NotNull Subscriber<M> subscriber : subscribers) {
+                    try {
+                        subscriber.onMessage(message);
+
+                    } catch (InvalidSubscriberException e) {
+                        subscribers.remove(subscriber);
+                        endSubscription(subscriber);
+
+                    } catch (RuntimeException e) {
+                        Jvm.warn().on(getClass(), "Failed to deliver to " + subscriber, e);
+                    }
+                }
+            }
+        }
+
+        for (@NotNull TopicSubscriber<T, M> subscriber : allTopics) {
+            try {
+                subscriber.onMessage(topic, message);
+
+            } catch (InvalidSubscriberException e) {
+                allTopics.remove(subscriber);
+                endSubscription(subscriber);
+
+            } catch (RuntimeException e) {
+                Jvm.warn().on(getClass(), "Failed to deliver to " + subscriber, e);
+            }
+        }
+    }
+
+    private void endSubscription(@NotNull ISubscriber subscriber) {
+        try {
+            subscriber.onEndOfSubscription();
+
+        } catch (RuntimeException e) {
+            Jvm.debug().on(getClass(), e);
+        }
+    }
+
+    /**
+     * A subscriber reading from the start of the queue with its own tailer.
+     */
+    private final class CatchUp {
+        // null for a subscriber to every topic.
+        @Nullable
+        final T topic;
+        @NotNull
+        final ISubscriber subscriber;
+        @Nullable
+        QueueView.Tailer<T, M> tailer;
+        volatile boolean removed;
+
+        CatchUp(@Nullable T topic, @NotNull ISubscriber subscriber) {
+            this.topic = topic;
+            this.subscriber = subscriber;
+        }
+
+        /**
+         * @return true once every excerpt the shared tailer has read has been passed on.
+         */
+        boolean read() {
+            if (tailer == null)
+                tailer = tailerSupplier.get();
+
+            for (int i = 0; i < MAX_BATCH; i++) {
+                @Nullable final QueueView.Excerpt<T, M> excerpt = tailer.read();
+                // excerpts after lastIndex are passed on by the shared tailer.
+                if (excerpt == null || excerpt.index() > lastIndex)
+                    return true;
+
+                final M message = excerpt.message();
+                if (message == null)
+                    continue;
+                try {
+                    if (topic == null)
+                        ((TopicSubscriber<T, M>) subscriber).onMessage(excerpt.topic(), message);
+                    else if (topic.equals(excerpt.topic()))
+                        ((Subscriber<M>) subscriber).onMessage(message);
+
+                } catch (InvalidSubscriberException e) {
+                    removed = true;
+                    endSubscription(subscriber);
+                    return true;
+
+                } catch (RuntimeException e) {
+                    Jvm.warn().on(QueueTopicDispatcher.class, "Failed to deliver to " + subscriber, e);
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -51,6 +51,18 @@ public class RemovedEvent<K, V> extends AbstractMarshallable implements MapEvent
         return new RemovedEvent<>(assetName, key, value, isReplicationEvent);
     }
 
+    /**
+     * Resets this event so it can be reused, see {@link MapEventFlyweights}
+     */
+    @NotNull
+    RemovedEvent<K, V> set(String assetName, @NotNull K key, V value, boolean isReplicationEvent) {
+        this.assetName = assetName;
+        this.key = key;
+        this.oldValue = value;
+        this.isReplicationEvent = isReplicationEvent;
+        return this;
+    }
+
     @Override
     public String assetName() {
         return assetName;
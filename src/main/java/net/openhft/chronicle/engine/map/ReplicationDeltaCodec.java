@@ -0,0 +1,209 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.engine.api.EngineReplication.ReplicationEntry;
+import net.openhft.chronicle.wire.WireIn;
+import net.openhft.chronicle.wire.WireOut;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Encodes the entries replicated on one connection as the bytes which changed since the value
+ * last sent for the key, optionally compressed with that value as the dictionary, and decodes
+ * them again on the other side.
+ * <p>
+ * Both sides remember the last value sent for the most recently used keys, in a cache of the same
+ * size updated in the same order, as entries are delivered in the order they are sent, so the
+ * value a delta is against is always known to the receiver. Each direction of a connection has a
+ * codec of its own, and a new connection starts with an empty cache.
+ */
+public final class ReplicationDeltaCodec {
+
+    private final ValueCompression compression;
+    private final int compressAbove;
+    // the number of keys to remember, or 0 if values are sent whole.
+    private final int cacheSize;
+    @Nullable
+    private Map<ByteBuffer, byte[]> lastValues;
+
+    /**
+     * For encoding.
+     *
+     * @param compression   to compress the changed bytes with
+     * @param compressAbove the number of changed bytes worth compressing
+     * @param cacheSize     the number of keys to remember the last value of, or 0 to send values
+     *                      whole
+     */
+    public ReplicationDeltaCodec(@NotNull ValueCompression compression, int compressAbove, int cacheSize) {
+        this.compression = compression;
+        this.compressAbove = compressAbove;
+        this.cacheSize = cacheSize;
+        if (cacheSize > 0)
+            lastValues = newCache(cacheSize);
+    }
+
+    /**
+     * For decoding, how to decode is sent with each entry.
+     */
+    public ReplicationDeltaCodec() {
+        this(ValueCompression.NONE, Integer.MAX_VALUE, 0);
+    }
+
+    @NotNull
+    private static Map<ByteBuffer, byte[]> newCache(int cacheSize) {
+        return new LinkedHashMap<ByteBuffer, byte[]>(Math.min(cacheSize, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ByteBuffer, byte[]> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Writes an entry which isn't deleted.
+     *
+     * @return the length of the key and value as they would be sent whole.
+     */
+    public long write(@NotNull WireOut wire, @NotNull ReplicationEntry entry) {
+        assert !entry.isDeleted();
+        @NotNull final byte[] key = entry.key().toByteArray();
+        @Nullable final BytesStore valueStore = entry.value();
+        @NotNull final byte[] value = valueStore == null ? new byte[0] : valueStore.toByteArray();
+
+        @Nullable byte[] base = null;
+        if (lastValues != null) {
+            final ByteBuffer k = ByteBuffer.wrap(key);
+            base = lastValues.get(k);
+            lastValues.put(k, value);
+        }
+
+        int prefix = -1, suffix = 0;
+        byte[] data = value;
+        if (base != null) {
+            final int max = Math.min(base.length, value.length);
+            prefix = 0;
+            while (prefix < max && base[prefix] == value[prefix])
+                prefix++;
+            while (suffix < max - prefix && base[base.length - 1 - suffix] == value[value.length - 1 - suffix])
+                suffix++;
+            data = prefix == 0 && suffix == 0 ? value : copy(value, prefix, value.length - prefix - suffix);
+        }
+
+        ValueCompression compressedWith = ValueCompression.NONE;
+        if (compression != ValueCompression.NONE && data.length >= compressAbove) {
+            @NotNull final byte[] compressed = compression.compress(data, base);
+            if (compressed.length < data.length) {
+                data = compressed;
+                compressedWith = compression;
+            }
+        }
+
+        wire.write(() -> "key").bytes(BytesStore.wrap(key));
+        wire.write(() -> "timestamp").int64(entry.timestamp());
+        wire.write(() -> "identifier").int8(entry.identifier());
+        wire.write(() -> "bootStrapTimeStamp").int64(entry.bootStrapTimeStamp());
+        wire.write(() -> "cacheSize").int32(cacheSize);
+        wire.write(() -> "prefix").int32(prefix);
+        wire.write(() -> "suffix").int32(suffix);
+        wire.write(() -> "length").int32(value.length);
+        wire.write(() -> "compression").int8(compressedWith.id());
+        wire.write(() -> "data").bytes(BytesStore.wrap(data));
+        return key.length + value.length;
+    }
+
+    /**
+     * Reads an entry written by {@link #write(WireOut, ReplicationEntry)} into {@code entry}, whose
+     * key and value are set to heap copies.
+     *
+     * @throws IllegalStateException if the value is a delta against one this side doesn't have.
+     */
+    public void read(@NotNull WireIn wire, @NotNull ReplicationEntry entry) throws IllegalStateException {
+        @NotNull final byte[] key = wire.read(() -> "key").bytesStore().toByteArray();
+        entry.timestamp(wire.read(() -> "timestamp").int64());
+        entry.identifier(wire.read(() -> "identifier").int8());
+        entry.bootStrapTimeStamp(wire.read(() -> "bootStrapTimeStamp").int64());
+        final int senderCacheSize = wire.read(() -> "cacheSize").int32();
+        final int prefix = wire.read(() -> "prefix").int32();
+        final int suffix = wire.read(() -> "suffix").int32();
+        final int length = wire.read(() -> "length").int32();
+        @NotNull final ValueCompression compressedWith = ValueCompression.forId(wire.read(() -> "compression").int8());
+        @Nullable final BytesStore dataStore = wire.read(() -> "data").bytesStore();
+        @NotNull final byte[] data = dataStore == null ? new byte[0] : dataStore.toByteArray();
+
+        if (senderCacheSize > 0 && lastValues == null)
+            lastValues = newCache(senderCacheSize);
+
+        @Nullable byte[] base = null;
+        @Nullable final ByteBuffer k = lastValues == null ? null : ByteBuffer.wrap(key);
+        if (k != null)
+            base = lastValues.get(k);
+        if (prefix >= 0 && base == null)
+            throw new IllegalStateException("Received a delta for a key with no previous value");
+
+        final int changed = prefix < 0 ? length : length - prefix - suffix;
+        @NotNull final byte[] middle = compressedWith == ValueCompression.NONE
+                ? data
+                : compressedWith.uncompress(data, 0, changed, prefix < 0 ? null : base);
+
+        @NotNull final byte[] value;
+        if (prefix < 0) {
+            value = middle;
+        } else {
+            value = new byte[length];
+            System.arraycopy(base, 0, value, 0, prefix);
+            System.arraycopy(middle, 0, value, prefix, changed);
+            System.arraycopy(base, base.length - suffix, value, length - suffix, suffix);
+        }
+        if (k != null)
+            lastValues.put(k, value);
+
+        entry.key(BytesStore.wrap(key));
+        entry.value(BytesStore.wrap(value));
+        entry.isDeleted(false);
+    }
+
+    /**
+     * Forgets every value, e.g. when the connection is to be replaced after an entry couldn't be
+     * read.
+     */
+    public void clear() {
+        if (lastValues != null)
+            lastValues.clear();
+    }
+
+    /**
+     * Forgets the value of a key which was deleted, called on both sides for each deleted entry.
+     */
+    public void removed(@NotNull BytesStore key) {
+        if (lastValues != null)
+            lastValues.remove(ByteBuffer.wrap(key.toByteArray()));
+    }
+
+    @NotNull
+    private static byte[] copy(@NotNull byte[] bytes, int offset, int length) {
+        @NotNull final byte[] copy = new byte[length];
+        System.arraycopy(bytes, offset, copy, 0, length);
+        return copy;
+    }
+}
@@ -26,6 +26,7 @@ import net.openhft.chronicle.core.threads.InvalidEventHandlerException;
 import net.openhft.chronicle.engine.api.EngineReplication;
 import net.openhft.chronicle.engine.api.EngineReplication.ModificationIterator;
 import net.openhft.chronicle.engine.api.tree.RequestContext;
+import net.openhft.chronicle.engine.cfg.EngineClusterContext;
 import net.openhft.chronicle.engine.map.CMap2EngineReplicator.VanillaReplicatedEntry;
 import net.openhft.chronicle.engine.map.replication.Bootstrap;
 import net.openhft.chronicle.engine.server.internal.MapWireHandler;
@@ -231,6 +232,8 @@ class ReplicationHub extends AbstractStatelessClient {
         private final TcpChannelHub hub;
         private final ModificationIterator mi;
         private final byte remoteIdentifier;
+        private final int batchEntries = Math.max(1, EngineClusterContext.defaultReplicationBatchEntries());
+        private final int batchBytes = EngineClusterContext.defaultReplicationBatchBytes();
         boolean hasSentLastUpdateTime;
         long lastUpdateTime;
         boolean hasLogged;
@@ -298,8 +301,11 @@ class ReplicationHub extends AbstractStatelessClient {
 
             // also we have to write the data into a buffer, to free the map lock
             // asap, the old code use to pass the entry to the hub, this was leaving the
-            // segment locked and cause deadlocks with the read thread
-            mi.nextEntry(this);
+            // segment locked and cause deadlocks with the read thread.
+            // A bounded batch is drained into the buffer, releasing each segment lock before the
+            // next entry, and sent in one write.
+            for (int i = 0; i < batchEntries && bytes.readRemaining() < batchBytes && mi.hasNext(); i++)
+                mi.nextEntry(this);
 
             if (bytes.readRemaining() > 0) {
                 ReplicationHub.this.sendBytes(bytes, false);
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.core.io.IORuntimeException;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * The last modification time received from each remote host, and the bootstrap timestamps of the
+ * iterator sending to it, memory mapped to a small file beside the store, so a restarted host asks
+ * its peers only for the entries changed since then rather than for every entry.
+ * <p>
+ * The file must only be kept if the store and its replication data are persisted too, otherwise
+ * the host would claim entries it no longer has.
+ */
+final class ReplicationWatermarks implements Closeable {
+
+    static final String FILE_NAME = "replication-watermarks";
+
+    private static final long MAGIC = 0x52455057_4d524b32L;
+    private static final int HOSTS = 256;
+    private static final int HEADER = 8;
+    // per host, the last modification time, then the next and last bootstrap timestamps.
+    private static final int LAST_MODIFICATION_TIME = 0, NEXT_BOOTSTRAP = 8, LAST_BOOTSTRAP = 16;
+    private static final int HOST_SIZE = 24;
+    static final int SIZE = HEADER + HOSTS * HOST_SIZE;
+
+    @NotNull
+    private final FileChannel channel;
+    @NotNull
+    private final MappedByteBuffer buffer;
+    private boolean closed;
+
+    ReplicationWatermarks(@NotNull File file) {
+        final File dir = file.getParentFile();
+        if (dir != null)
+            dir.mkdirs();
+        try {
+            channel = FileChannel.open(file.toPath(), CREATE, READ, WRITE);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, SIZE);
+
+        } catch (IOException e) {
+            throw new IORuntimeException("Could not map " + file, e);
+        }
+
+        // a new file, or one written in another format, starts with no watermarks.
+        if (buffer.getLong(0) != MAGIC) {
+            for (int i = HEADER; i < SIZE; i += 8)
+                buffer.putLong(i, 0L);
+            buffer.putLong(0, MAGIC);
+        }
+    }
+
+    /**
+     * @return the last modification time received from this host, or 0 if there is none.
+     */
+    synchronized long lastModificationTime(int remoteIdentifier) {
+        return closed ? 0 : buffer.getLong(offset(remoteIdentifier) + LAST_MODIFICATION_TIME);
+    }
+
+    /**
+     * Records the time unless a later one has been recorded already.
+     */
+    synchronized void lastModificationTime(int remoteIdentifier, long timestamp) {
+        if (closed)
+            return;
+        final int offset = offset(remoteIdentifier) + LAST_MODIFICATION_TIME;
+        if (buffer.getLong(offset) < timestamp)
+            buffer.putLong(offset, timestamp);
+    }
+
+    /**
+     * @return the next bootstrap timestamp of the iterator for this host, or 0 if there is none.
+     */
+    synchronized long nextBootstrapTimestamp(int remoteIdentifier) {
+        return closed ? 0 : buffer.getLong(offset(remoteIdentifier) + NEXT_BOOTSTRAP);
+    }
+
+    /**
+     * @return the last bootstrap timestamp of the iterator for this host, or 0 if there is none.
+     */
+    synchronized long lastBootstrapTimestamp(int remoteIdentifier) {
+        return closed ? 0 : buffer.getLong(offset(remoteIdentifier) + LAST_BOOTSTRAP);
+    }
+
+    /**
+     * Records the bootstrap timestamps as they are, as either may be reset to 0.
+     */
+    synchronized void bootstrapTimestamps(int remoteIdentifier, long next, long last) {
+        if (closed)
+            return;
+        final int offset = offset(remoteIdentifier);
+        buffer.putLong(offset + NEXT_BOOTSTRAP, next);
+        buffer.putLong(offset + LAST_BOOTSTRAP, last);
+    }
+
+    private static int offset(int remoteIdentifier) {
+        return HEADER + (remoteIdentifier & 0xFF) * HOST_SIZE;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed)
+            return;
+        closed = true;
+        buffer.force();
+        Closeable.closeQuietly(channel);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The number of entries, and bytes, a replicated map has sent to and received from each remote
+ * host, added as a view of the map's asset.
+ * <p>
+ * Raw bytes are the length of the keys and values sent, wire bytes are the length of the
+ * documents they were sent in after any delta encoding and compression.
+ */
+public class ReplicationWireStats {
+
+    private static final int HOSTS = 256;
+
+    private final AtomicLongArray entriesSent = new AtomicLongArray(HOSTS);
+    private final AtomicLongArray rawBytesSent = new AtomicLongArray(HOSTS);
+    private final AtomicLongArray wireBytesSent = new AtomicLongArray(HOSTS);
+    private final AtomicLongArray entriesReceived = new AtomicLongArray(HOSTS);
+    private final AtomicLongArray wireBytesReceived = new AtomicLongArray(HOSTS);
+
+    public void onSent(byte remoteIdentifier, long rawBytes, long wireBytes) {
+        final int i = remoteIdentifier & 0xFF;
+        entriesSent.incrementAndGet(i);
+        rawBytesSent.addAndGet(i, rawBytes);
+        wireBytesSent.addAndGet(i, wireBytes);
+    }
+
+    public void onReceived(byte remoteIdentifier, long wireBytes) {
+        final int i = remoteIdentifier & 0xFF;
+        entriesReceived.incrementAndGet(i);
+        wireBytesReceived.addAndGet(i, wireBytes);
+    }
+
+    public long entriesSent(int remoteIdentifier) {
+        return entriesSent.get(remoteIdentifier & 0xFF);
+    }
+
+    public long rawBytesSent(int remoteIdentifier) {
+        return rawBytesSent.get(remoteIdentifier & 0xFF);
+    }
+
+    public long wireBytesSent(int remoteIdentifier) {
+        return wireBytesSent.get(remoteIdentifier & 0xFF);
+    }
+
+    public long entriesReceived(int remoteIdentifier) {
+        return entriesReceived.get(remoteIdentifier & 0xFF);
+    }
+
+    public long wireBytesReceived(int remoteIdentifier) {
+        return wireBytesReceived.get(remoteIdentifier & 0xFF);
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        @NotNull final StringBuilder sb = new StringBuilder("ReplicationWireStats{");
+        String sep = "";
+        for (int i = 0; i < HOSTS; i++) {
+            if (entriesSent.get(i) == 0 && entriesReceived.get(i) == 0)
+                continue;
+            sb.append(sep).append(i)
+                    .append("={sent=").append(entriesSent.get(i))
+                    .append(", rawBytesSent=").append(rawBytesSent.get(i))
+                    .append(", wireBytesSent=").append(wireBytesSent.get(i))
+                    .append(", received=").append(entriesReceived.get(i))
+                    .append(", wireBytesReceived=").append(wireBytesReceived.get(i))
+                    .append('}');
+            sep = ", ";
+        }
+        return sb.append('}').toString();
+    }
+}
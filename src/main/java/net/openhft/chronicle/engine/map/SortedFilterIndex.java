@@ -0,0 +1,226 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.engine.api.map.MapEvent;
+import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
+import net.openhft.chronicle.engine.api.pubsub.Subscriber;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.function.Predicate;
+
+/**
+ * The entries of a map which pass a filter, held in sort order and kept up to date from the map's
+ * subscription, so a page of rows can be found by position in O(log n) rather than filtering and
+ * sorting the whole map for each page.
+ * <p>
+ * The entries are held in chunks of at most {@link #MAX_CHUNK} in order, with a Fenwick tree of the
+ * chunk sizes used to find the chunk holding a position. It is read as soon as it is registered so
+ * it is always bootstrapped on the registering thread, however large the map.
+ */
+class SortedFilterIndex<K, V> implements Subscriber<MapEvent<K, V>>, ParallelBootstrap.Synchronous {
+
+    static final int MAX_CHUNK = 1024;
+
+    @NotNull
+    private final Predicate<Map.Entry<K, V>> filter;
+    @NotNull
+    private final Comparator<Map.Entry<K, V>> comparator;
+    // the entry held for each key which passed the filter.
+    private final Map<K, Map.Entry<K, V>> byKey = new HashMap<>();
+    private final List<List<Map.Entry<K, V>>> chunks = new ArrayList<>();
+    // 1 based Fenwick tree of the chunk sizes.
+    private int[] tree = new int[1];
+    private volatile boolean closed;
+
+    SortedFilterIndex(@NotNull Predicate<Map.Entry<K, V>> filter,
+                      @NotNull Comparator<Map.Entry<K, V>> comparator) {
+        this.filter = filter;
+        this.comparator = comparator;
+    }
+
+    @Override
+    public void onMessage(@NotNull MapEvent<K, V> event) throws InvalidSubscriberException {
+        if (closed)
+            throw new InvalidSubscriberException();
+        final K key = event.getKey();
+        final V value = event instanceof RemovedEvent ? null : event.getValue();
+        update(key, value);
+    }
+
+    /**
+     * no more events are applied, the subscription is removed on the next event.
+     */
+    void close() {
+        closed = true;
+    }
+
+    synchronized void update(@NotNull K key, @Nullable V value) {
+        @Nullable Map.Entry<K, V> old = byKey.remove(key);
+        if (old != null)
+            remove(old);
+        if (value == null)
+            return;
+        @NotNull Map.Entry<K, V> entry = new SimpleImmutableEntry<>(key, value);
+        if (!filter.test(entry))
+            return;
+        byKey.put(key, entry);
+        add(entry);
+    }
+
+    synchronized int size() {
+        return byKey.size();
+    }
+
+    /**
+     * @return the entry at this position in sort order, or null if there are fewer entries
+     */
+    @Nullable
+    synchronized Map.Entry<K, V> get(long position) {
+        if (position < 0 || position >= byKey.size())
+            return null;
+        // find the chunk containing the position by descending the Fenwick tree.
+        int chunk = 0;
+        int remaining = (int) position;
+        for (int step = Integer.highestOneBit(chunks.size()); step > 0; step >>= 1) {
+            int next = chunk + step;
+            if (next <= chunks.size() && tree[next] <= remaining) {
+                chunk = next;
+                remaining -= tree[next];
+            }
+        }
+        return chunks.get(chunk).get(remaining);
+    }
+
+    /**
+     * @return the entries from this position in sort order, each one looked up as it is needed
+     */
+    @NotNull
+    Iterator<Map.Entry<K, V>> iterator(final long fromPosition) {
+        return new Iterator<Map.Entry<K, V>>() {
+            long position = fromPosition;
+            @Nullable
+            Map.Entry<K, V> next = SortedFilterIndex.this.get(position);
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Map.Entry<K, V> next() {
+                if (next == null)
+                    throw new NoSuchElementException();
+                Map.Entry<K, V> result = next;
+                next = SortedFilterIndex.this.get(++position);
+                return result;
+            }
+        };
+    }
+
+    private void add(@NotNull Map.Entry<K, V> entry) {
+        if (chunks.isEmpty()) {
+            chunks.add(new ArrayList<>());
+            rebuildTree();
+        }
+        int chunkIndex = chunkFor(entry);
+        List<Map.Entry<K, V>> chunk = chunks.get(chunkIndex);
+        int pos = Collections.binarySearch(chunk, entry, comparator);
+        chunk.add(pos < 0 ? -pos - 1 : pos, entry);
+
+        if (chunk.size() > MAX_CHUNK) {
+            List<Map.Entry<K, V>> half = chunk.subList(MAX_CHUNK / 2, chunk.size());
+            chunks.add(chunkIndex + 1, new ArrayList<>(half));
+            half.clear();
+            rebuildTree();
+        } else {
+            addToTree(chunkIndex, 1);
+        }
+    }
+
+    private void remove(@NotNull Map.Entry<K, V> entry) {
+        // entries which compare the same may span chunks, the one to remove is the same instance.
+        final int first = chunkFor(entry);
+        for (int c = first; c < chunks.size(); c++) {
+            List<Map.Entry<K, V>> chunk = chunks.get(c);
+            int from = c == first ? lowerBound(chunk, entry) : 0;
+            for (int i = from; i < chunk.size(); i++) {
+                Map.Entry<K, V> e = chunk.get(i);
+                if (e == entry) {
+                    chunk.remove(i);
+                    if (chunk.isEmpty()) {
+                        chunks.remove(c);
+                        rebuildTree();
+                    } else {
+                        addToTree(c, -1);
+                    }
+                    return;
+                }
+                if (comparator.compare(e, entry) != 0)
+                    throw new IllegalStateException("Entry not found in the index " + entry);
+            }
+        }
+        throw new IllegalStateException("Entry not found in the index " + entry);
+    }
+
+    /**
+     * @return the first chunk whose last entry is not before this entry, or the last chunk.
+     */
+    private int chunkFor(@NotNull Map.Entry<K, V> entry) {
+        int low = 0, high = chunks.size() - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            List<Map.Entry<K, V>> chunk = chunks.get(mid);
+            if (comparator.compare(chunk.get(chunk.size() - 1), entry) < 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    private int lowerBound(@NotNull List<Map.Entry<K, V>> chunk, @NotNull Map.Entry<K, V> entry) {
+        int low = 0, high = chunk.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (comparator.compare(chunk.get(mid), entry) < 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    private void addToTree(int chunkIndex, int delta) {
+        for (int i = chunkIndex + 1; i < tree.length; i += i & -i)
+            tree[i] += delta;
+    }
+
+    private void rebuildTree() {
+        tree = new int[chunks.size() + 1];
+        for (int i = 1; i <= chunks.size(); i++) {
+            tree[i] += chunks.get(i - 1).size();
+            int parent = i + (i & -i);
+            if (parent <= chunks.size())
+                tree[parent] += tree[i];
+        }
+    }
+}
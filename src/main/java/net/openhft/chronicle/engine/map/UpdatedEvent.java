@@ -61,6 +61,21 @@ public class UpdatedEvent<K, V> extends AbstractMarshallable implements MapEvent
         return new UpdatedEvent<>(assetName, key, oldValue, value, isReplicationEvent, hasValueChanged);
     }
 
+    /**
+     * Resets this event so it can be reused, see {@link MapEventFlyweights}
+     */
+    @NotNull
+    UpdatedEvent<K, V> set(String assetName, @NotNull K key, V oldValue, V value,
+                           boolean isReplicationEvent, boolean hasValueChanged) {
+        this.assetName = assetName;
+        this.key = key;
+        this.oldValue = oldValue;
+        this.value = value;
+        this.isReplicationEvent = isReplicationEvent;
+        this.hasValueChanged = hasValueChanged;
+        return this;
+    }
+
     @Override
     public String assetName() {
         return assetName;
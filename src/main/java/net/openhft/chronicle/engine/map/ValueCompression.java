@@ -0,0 +1,171 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.core.Jvm;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The algorithms a map can compress its values with, named by the {@code compression} field of
+ * its cfg.
+ */
+public enum ValueCompression {
+    NONE(0) {
+        @NotNull
+        @Override
+        byte[] compress(@NotNull byte[] raw, @Nullable byte[] dictionary) {
+            return raw;
+        }
+
+        @NotNull
+        @Override
+        byte[] uncompress(@NotNull byte[] compressed, int offset, int rawLength, @Nullable byte[] dictionary) {
+            return Arrays.copyOfRange(compressed, offset, offset + rawLength);
+        }
+    },
+    DEFLATE(1) {
+        private final ThreadLocal<Deflater> deflaters = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+        private final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(Inflater::new);
+
+        @NotNull
+        @Override
+        byte[] compress(@NotNull byte[] raw, @Nullable byte[] dictionary) {
+            @NotNull final Deflater deflater = deflaters.get();
+            deflater.reset();
+            if (dictionary != null)
+                deflater.setDictionary(dictionary);
+            deflater.setInput(raw);
+            deflater.finish();
+            byte[] out = new byte[raw.length / 2 + 64];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == out.length)
+                    out = Arrays.copyOf(out, out.length * 2);
+                length += deflater.deflate(out, length, out.length - length);
+            }
+            return Arrays.copyOf(out, length);
+        }
+
+        @NotNull
+        @Override
+        byte[] uncompress(@NotNull byte[] compressed, int offset, int rawLength, @Nullable byte[] dictionary) {
+            @NotNull final Inflater inflater = inflaters.get();
+            inflater.reset();
+            inflater.setInput(compressed, offset, compressed.length - offset);
+            @NotNull final byte[] raw = new byte[rawLength];
+            try {
+                int length = 0;
+                while (length < rawLength && !inflater.finished()) {
+                    final int n = inflater.inflate(raw, length, rawLength - length);
+                    if (n == 0 && inflater.needsDictionary() && dictionary != null) {
+                        inflater.setDictionary(dictionary);
+                        continue;
+                    }
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                        break;
+                    length += n;
+                }
+                if (length != rawLength)
+                    throw new IllegalStateException("Expected " + rawLength + " bytes but inflated " + length);
+                return raw;
+
+            } catch (DataFormatException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+
+    // the id written in the header of a compressed value, which mustn't change once used.
+    private final byte id;
+
+    ValueCompression(int id) {
+        this.id = (byte) id;
+    }
+
+    /**
+     * @param id as returned by {@link #id()}
+     * @return the compression with this id
+     */
+    @NotNull
+    static ValueCompression forId(byte id) {
+        for (@NotNull ValueCompression compression : values())
+            if (compression.id == id)
+                return compression;
+        throw new IllegalStateException("Unknown compression id " + id);
+    }
+
+    /**
+     * @param name as given in a cfg, e.g. none or deflate.
+     * @return the compression to use, lz4 and snappy aren't available so deflate is used instead.
+     */
+    @NotNull
+    public static ValueCompression forName(@Nullable String name) {
+        if (name == null || name.isEmpty() || name.equalsIgnoreCase("none") || name.equalsIgnoreCase("binary"))
+            return NONE;
+        switch (name.toLowerCase()) {
+            case "deflate":
+            case "gzip":
+            case "zip":
+                return DEFLATE;
+            case "lz4":
+            case "snappy":
+                Jvm.warn().on(ValueCompression.class, name + " compression isn't available, using deflate");
+                return DEFLATE;
+            default:
+                throw new IllegalArgumentException("Unknown compression " + name);
+        }
+    }
+
+    /**
+     * @return the stable id of this compression, as stored with a compressed value.
+     */
+    byte id() {
+        return id;
+    }
+
+    @NotNull
+    byte[] compress(@NotNull byte[] raw) {
+        return compress(raw, null);
+    }
+
+    /**
+     * @param dictionary bytes the value is likely to share, e.g. an earlier version of it, or null
+     */
+    @NotNull
+    abstract byte[] compress(@NotNull byte[] raw, @Nullable byte[] dictionary);
+
+    @NotNull
+    byte[] uncompress(@NotNull byte[] compressed, int offset, int rawLength) {
+        return uncompress(compressed, offset, rawLength, null);
+    }
+
+    /**
+     * @param offset     of the compressed data in {@code compressed}
+     * @param rawLength  the length of the value before it was compressed
+     * @param dictionary the dictionary it was compressed with, or null
+     */
+    @NotNull
+    abstract byte[] uncompress(@NotNull byte[] compressed, int offset, int rawLength, @Nullable byte[] dictionary);
+}
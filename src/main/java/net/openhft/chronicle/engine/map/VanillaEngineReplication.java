@@ -24,6 +24,7 @@ import net.openhft.chronicle.engine.api.EngineReplication;
 import net.openhft.chronicle.engine.api.map.KeyValueStore;
 import net.openhft.chronicle.engine.api.map.MapEventListener;
 import net.openhft.chronicle.engine.api.map.SubscriptionKeyValueStore;
+import net.openhft.chronicle.engine.api.tree.RequestContext;
 import net.openhft.chronicle.wire.Marshallable;
 import net.openhft.chronicle.wire.WireIn;
 import net.openhft.chronicle.wire.WireOut;
@@ -36,6 +37,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
 import java.util.Iterator;
 import java.util.concurrent.atomic.AtomicReferenceArray;
@@ -73,6 +75,8 @@ public class VanillaEngineReplication<K, V, MV, Store extends SubscriptionKeyVal
     private final DirectBitSet modIterSet = createModIterBitSet();
     @NotNull
     private final MapEventListener<K, MV> eventListener;
+    @Nullable
+    private final ReplicationWatermarks watermarks;
 
     public VanillaEngineReplication(
             @NotNull IntFunction<KeyValueStore<BytesStore, ReplicationData>>
@@ -83,6 +87,27 @@ public class VanillaEngineReplication<K, V, MV, Store extends SubscriptionKeyVal
             @NotNull Store store, ChangeApplier<Store> changeApplier, GetValue<Store> getValue,
             SegmentForKey<Store> segmentForKey,
             @NotNull Function<K, BytesStore> keyToBytesStore) {
+        this(obtainKeyReplicationDataBySegment, modIterState, identifier, store, changeApplier,
+                getValue, segmentForKey, keyToBytesStore, null);
+    }
+
+    /**
+     * @param watermarkDir the directory to keep the last modification time received from each
+     *                     remote host, and the bootstrap timestamps of the iterator sending to it,
+     *                     in, so a restart doesn't replicate every entry again, or null to keep
+     *                     them in memory only, see {@link #watermarkDir(RequestContext)}. Only give
+     *                     one if the store and its replication data are persisted.
+     */
+    public VanillaEngineReplication(
+            @NotNull IntFunction<KeyValueStore<BytesStore, ReplicationData>>
+                    obtainKeyReplicationDataBySegment,
+            @NotNull KeyValueStore<IntValue, RemoteNodeReplicationState>
+                    modIterState,
+            byte identifier,
+            @NotNull Store store, ChangeApplier<Store> changeApplier, GetValue<Store> getValue,
+            SegmentForKey<Store> segmentForKey,
+            @NotNull Function<K, BytesStore> keyToBytesStore,
+            @Nullable File watermarkDir) {
 
         int segments = store.segments();
         this.keyReplicationData = new KeyValueStore[segments];
@@ -92,6 +117,11 @@ public class VanillaEngineReplication<K, V, MV, Store extends SubscriptionKeyVal
 
         this.modIterState = modIterState;
         initZeroStateForAllPossibleRemoteIdentifiers(modIterState);
+        this.watermarks = watermarkDir == null
+                ? null
+                : new ReplicationWatermarks(new File(watermarkDir, ReplicationWatermarks.FILE_NAME));
+        if (watermarks != null)
+            restoreLastModificationTimes(modIterState, watermarks);
 
         this.identifier = identifier;
         this.store = store;
@@ -120,6 +150,20 @@ public class VanillaEngineReplication<K, V, MV, Store extends SubscriptionKeyVal
         store.subscription(true).registerDownstream(e -> e.apply(eventListener));
     }
 
+    /**
+     * Persisting the watermarks is opt in, the engine doesn't build a VanillaEngineReplication
+     * itself, so this is for the rule which builds one over persisted stores to pass to the
+     * constructor.
+     *
+     * @return the directory to keep the watermarks of a store in, beside the directory the store
+     * is persisted to, or null if it isn't persisted.
+     */
+    @Nullable
+    public static File watermarkDir(@NotNull RequestContext context) {
+        final String basePath = context.basePath();
+        return basePath == null ? null : new File(basePath, context.name() + "-replication");
+    }
+
     private static int idToInt(byte identifier) {
         // if we consider > 127 ids, we should treat ids positively
         return identifier & 0xFF;
@@ -140,6 +184,25 @@ public class VanillaEngineReplication<K, V, MV, Store extends SubscriptionKeyVal
         }
     }
 
+    private static void restoreLastModificationTimes(
+            @NotNull KeyValueStore<IntValue, RemoteNodeReplicationState> modIterState,
+            @NotNull ReplicationWatermarks watermarks) {
+        Instances i = threadLocalInstances.get();
+        for (int id = 0; id < 256; id++) {
+            long lastModificationTime = watermarks.lastModificationTime(id);
+            long nextBootstrapTimestamp = watermarks.nextBootstrapTimestamp(id);
+            long lastBootstrapTimestamp = watermarks.lastBootstrapTimestamp(id);
+            if (lastModificationTime == 0 && nextBootstrapTimestamp == 0 && lastBootstrapTimestamp == 0)
+                continue;
+            i.identifier.setValue(id);
+            i.copyState.copyFrom(i.zeroState);
+            i.copyState.setLastModificationTime(lastModificationTime);
+            i.copyState.setNextBootstrapTimestamp(nextBootstrapTimestamp);
+            i.copyState.setLastBootstrapTimestamp(lastBootstrapTimestamp);
+            modIterState.put(i.identifier, i.copyState);
+        }
+    }
+
     private static boolean shouldApplyRemoteModification(
             @NotNull ReplicationEntry remoteEntry, @NotNull ReplicationData localReplicationData) {
         long remoteTimestamp = remoteEntry.timestamp();
@@ -160,8 +223,10 @@ public class VanillaEngineReplication<K, V, MV, Store extends SubscriptionKeyVal
             i.usingState = modIterState.getUsing(i.identifier, i.usingState);
             i.copyState.copyFrom(i.usingState);
             i.copyState.setNextBootstrapTimestamp(0);
-            if (modIterState.replaceIfEqual(i.identifier, i.usingState, i.copyState))
+            if (modIterState.replaceIfEqual(i.identifier, i.usingState, i.copyState)) {
+                saveBootstrapTimestamps(remoteIdentifier);
                 return;
+            }
         }
     }
 
@@ -173,9 +238,11 @@ public class VanillaEngineReplication<K, V, MV, Store extends SubscriptionKeyVal
             if (i.usingState.getNextBootstrapTimestamp() != 0)
                 return false;
             i.copyState.copyFrom(i.usingState);
-            i.copyState.setNextBootstrapTimestamp(0);
-            if (modIterState.replaceIfEqual(i.identifier, i.usingState, i.copyState))
+            i.copyState.setNextBootstrapTimestamp(timestamp);
+            if (modIterState.replaceIfEqual(i.identifier, i.usingState, i.copyState)) {
+                saveBootstrapTimestamps(remoteIdentifier);
                 return true;
+            }
         }
     }
 
@@ -186,8 +253,10 @@ public class VanillaEngineReplication<K, V, MV, Store extends SubscriptionKeyVal
             i.usingState = modIterState.getUsing(i.identifier, i.usingState);
             i.copyState.copyFrom(i.usingState);
             i.copyState.setLastBootstrapTimestamp(0);
-            if (modIterState.replaceIfEqual(i.identifier, i.usingState, i.copyState))
+            if (modIterState.replaceIfEqual(i.identifier, i.usingState, i.copyState)) {
+                saveBootstrapTimestamps(remoteIdentifier);
                 return;
+            }
         }
     }
 
@@ -202,12 +271,38 @@ public class VanillaEngineReplication<K, V, MV, Store extends SubscriptionKeyVal
             } else {
                 i.copyState.copyFrom(i.usingState);
                 i.copyState.setLastBootstrapTimestamp(nextBootstrapTs);
-                if (modIterState.replaceIfEqual(i.identifier, i.usingState, i.copyState))
+                if (modIterState.replaceIfEqual(i.identifier, i.usingState, i.copyState)) {
+                    saveBootstrapTimestamps(remoteIdentifier);
                     return nextBootstrapTs;
+                }
             }
         }
     }
 
+    private boolean hasBootstrapTimestamp(int remoteIdentifier) {
+        if (watermarks == null)
+            return false;
+        Instances i = threadLocalInstances.get();
+        i.identifier.setValue(remoteIdentifier);
+        i.usingState = modIterState.getUsing(i.identifier, i.usingState);
+        return i.usingState.getNextBootstrapTimestamp() != 0 || i.usingState.getLastBootstrapTimestamp() != 0;
+    }
+
+    /**
+     * copies the bootstrap timestamps of this host, as they are now, to the watermarks file.
+     */
+    private void saveBootstrapTimestamps(int remoteIdentifier) {
+        if (watermarks == null)
+            return;
+        Instances i = threadLocalInstances.get();
+        i.identifier.setValue(remoteIdentifier);
+        synchronized (watermarks) {
+            i.usingState = modIterState.getUsing(i.identifier, i.usingState);
+            watermarks.bootstrapTimestamps(remoteIdentifier,
+                    i.usingState.getNextBootstrapTimestamp(), i.usingState.getLastBootstrapTimestamp());
+        }
+    }
+
     @Override
     public long lastModificationTime(byte remoteIdentifier) {
         return lastModificationTime(idToInt(remoteIdentifier));
@@ -236,8 +331,11 @@ public class VanillaEngineReplication<K, V, MV, Store extends SubscriptionKeyVal
             if (i.usingState.getLastModificationTime() < timestamp) {
                 i.copyState.copyFrom(i.usingState);
                 i.copyState.setLastModificationTime(timestamp);
-                if (modIterState.replaceIfEqual(i.identifier, i.usingState, i.copyState))
+                if (modIterState.replaceIfEqual(i.identifier, i.usingState, i.copyState)) {
+                    if (watermarks != null)
+                        watermarks.lastModificationTime(identifier, timestamp);
                     return;
+                }
             } else {
                 return;
             }
@@ -290,10 +388,14 @@ public class VanillaEngineReplication<K, V, MV, Store extends SubscriptionKeyVal
 
             @NotNull final VanillaModificationIterator newModificationIterator =
                     new VanillaModificationIterator(remoteIdentifier);
-            modificationIteratorsRequiringSettingBootstrapTimestamp.set(remoteIdentifier);
-            resetNextBootstrapTimestamp(remoteIdentifier);
-            // in ChMap 2.1 currentTime() is set as a default lastBsTs; set to 0 here; TODO review
-            resetLastBootstrapTimestamp(remoteIdentifier);
+            // a bootstrap timestamp restored from the watermarks is kept, so the remote host
+            // bootstraps from no later than it would have before the restart.
+            if (!hasBootstrapTimestamp(remoteIdentifier)) {
+                modificationIteratorsRequiringSettingBootstrapTimestamp.set(remoteIdentifier);
+                resetNextBootstrapTimestamp(remoteIdentifier);
+                // in ChMap 2.1 currentTime() is set as a default lastBsTs; set to 0 here; TODO review
+                resetLastBootstrapTimestamp(remoteIdentifier);
+            }
 
             modificationIterators.set(remoteIdentifier, newModificationIterator);
             modIterSet.set(remoteIdentifier);
@@ -370,7 +472,12 @@ public class VanillaEngineReplication<K, V, MV, Store extends SubscriptionKeyVal
                 }
             }
         } finally {
-            modIterState.close();
+            try {
+                modIterState.close();
+            } finally {
+                if (watermarks != null)
+                    watermarks.close();
+            }
         }
     }
 
@@ -113,6 +113,12 @@ public class VanillaKeyValueStore<K, V> implements AuthenticatedKeyValueStore<K,
         return map.keySet().iterator();
     }
 
+    @NotNull
+    @Override
+    public Iterator<V> valuesIterator() {
+        return map.values().iterator();
+    }
+
     @Override
     public void clear() {
         try {
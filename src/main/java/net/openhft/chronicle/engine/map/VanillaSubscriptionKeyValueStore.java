@@ -49,10 +49,8 @@ public class VanillaSubscriptionKeyValueStore<K, MV, V> extends AbstractKeyValue
     @Override
     public V replace(@NotNull K key, @NotNull V value) {
         @Nullable V oldValue = kvStore.replace(key, value);
-        if (oldValue != null) {
-            subscriptions.notifyEvent(UpdatedEvent.of(asset.fullName(), key, oldValue, value,
-                    false, !value.equals(oldValue)));
-        }
+        if (oldValue != null)
+            notifyUpdated(key, oldValue, value);
         return oldValue;
     }
 
@@ -62,9 +60,10 @@ public class VanillaSubscriptionKeyValueStore<K, MV, V> extends AbstractKeyValue
             return getAndPut(key, value) != null;
         }
         boolean replaced = kvStore.put(key, value);
-        subscriptions.notifyEvent(replaced ?
-                UpdatedEvent.of(asset.fullName(), key, null, value, false, true) :
-                InsertedEvent.of(asset.fullName(), key, value, false));
+        if (replaced)
+            notifyUpdated(key, null, value);
+        else
+            notifyInserted(key, value);
         return replaced;
 
     }
@@ -75,7 +74,7 @@ public class VanillaSubscriptionKeyValueStore<K, MV, V> extends AbstractKeyValue
             return getAndRemove(key) != null;
         }
         if (kvStore.remove(key)) {
-            subscriptions.notifyEvent(RemovedEvent.of(asset.fullName(), key, null, false));
+            notifyRemoved(key, null);
             return true;
         }
         return false;
@@ -84,8 +83,7 @@ public class VanillaSubscriptionKeyValueStore<K, MV, V> extends AbstractKeyValue
     @Override
     public boolean replaceIfEqual(@NotNull K key, V oldValue, V newValue) {
         if (kvStore.replaceIfEqual(key, oldValue, newValue)) {
-            subscriptions.notifyEvent(UpdatedEvent.of(asset.fullName(), key, oldValue,
-                    newValue, false, true));
+            notifyUpdated(key, oldValue, newValue);
             return true;
         }
         return false;
@@ -94,7 +92,7 @@ public class VanillaSubscriptionKeyValueStore<K, MV, V> extends AbstractKeyValue
     @Override
     public boolean removeIfEqual(@NotNull K key, V value) {
         if (kvStore.removeIfEqual(key, value)) {
-            subscriptions.notifyEvent(RemovedEvent.of(asset.fullName(), key, value, false));
+            notifyRemoved(key, value);
             return true;
         }
         return false;
@@ -105,7 +103,7 @@ public class VanillaSubscriptionKeyValueStore<K, MV, V> extends AbstractKeyValue
     public V putIfAbsent(@NotNull K key, V value) {
         @Nullable V ret = kvStore.putIfAbsent(key, value);
         if (ret == null)
-            subscriptions.notifyEvent(InsertedEvent.of(asset.fullName(), key, value, false));
+            notifyInserted(key, value);
         return ret;
     }
 
@@ -114,9 +112,10 @@ public class VanillaSubscriptionKeyValueStore<K, MV, V> extends AbstractKeyValue
     public V getAndPut(@NotNull K key, V value) {
         @Nullable V oldValue = kvStore.getAndPut(key, value);
 
-        subscriptions.notifyEvent(oldValue == null
-                ? InsertedEvent.of(asset.fullName(), key, value, false)
-                : UpdatedEvent.of(asset.fullName(), key, oldValue, value, false, !oldValue.equals(value)));
+        if (oldValue == null)
+            notifyInserted(key, value);
+        else
+            notifyUpdated(key, oldValue, value);
         return oldValue;
     }
 
@@ -125,7 +124,68 @@ public class VanillaSubscriptionKeyValueStore<K, MV, V> extends AbstractKeyValue
     public V getAndRemove(@NotNull K key) {
         @Nullable V oldValue = kvStore.getAndRemove(key);
         if (oldValue != null)
-            subscriptions.notifyEvent(RemovedEvent.of(asset.fullName(), key, oldValue, false));
+            notifyRemoved(key, oldValue);
         return oldValue;
     }
+
+    /*
+     * Events are only created when there is a subscriber, and are reused when no subscriber holds
+     * on to them.
+     */
+
+    private void notifyInserted(@NotNull K key, V value) {
+        if (!subscriptions.hasSubscribers())
+            return;
+        @Nullable final MapEventFlyweights flyweights = acquireFlyweights();
+        if (flyweights == null) {
+            subscriptions.notifyEvent(InsertedEvent.of(asset.fullName(), key, value, false));
+            return;
+        }
+        try {
+            subscriptions.notifyEvent(flyweights.inserted(asset.fullName(), key, value));
+        } finally {
+            flyweights.release();
+        }
+    }
+
+    /**
+     * @param oldValue the value replaced, or null if it isn't known.
+     */
+    private void notifyUpdated(@NotNull K key, @Nullable V oldValue, V value) {
+        if (!subscriptions.hasSubscribers())
+            return;
+        final boolean hasValueChanged = oldValue == null || !oldValue.equals(value);
+        @Nullable final MapEventFlyweights flyweights = acquireFlyweights();
+        if (flyweights == null) {
+            subscriptions.notifyEvent(UpdatedEvent.of(asset.fullName(), key, oldValue, value,
+                    false, hasValueChanged));
+            return;
+        }
+        try {
+            subscriptions.notifyEvent(flyweights.updated(asset.fullName(), key, oldValue, value,
+                    hasValueChanged));
+        } finally {
+            flyweights.release();
+        }
+    }
+
+    private void notifyRemoved(@NotNull K key, @Nullable V oldValue) {
+        if (!subscriptions.hasSubscribers())
+            return;
+        @Nullable final MapEventFlyweights flyweights = acquireFlyweights();
+        if (flyweights == null) {
+            subscriptions.notifyEvent(RemovedEvent.of(asset.fullName(), key, oldValue, false));
+            return;
+        }
+        try {
+            subscriptions.notifyEvent(flyweights.removed(asset.fullName(), key, oldValue));
+        } finally {
+            flyweights.release();
+        }
+    }
+
+    @Nullable
+    private MapEventFlyweights acquireFlyweights() {
+        return subscriptions.retainsEvents() ? null : MapEventFlyweights.acquire();
+    }
 }
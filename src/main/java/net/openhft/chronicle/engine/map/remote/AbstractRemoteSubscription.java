@@ -94,6 +94,8 @@ abstract class AbstractRemoteSubscription<E> extends AbstractStatelessClient imp
             csp = csp + "&throttlePeriodMs=" + rc.throttlePeriodMs();
         if (rc.dontPersist())
             csp = csp + "&dontPersist=" + rc.dontPersist();
+        if (rc.conflate() != null)
+            csp = csp + "&conflate=" + rc.conflate();
 
         hub.subscribe(new AbstractAsyncSubscription(hub, csp, this.getClass().getSimpleName()) {
             {
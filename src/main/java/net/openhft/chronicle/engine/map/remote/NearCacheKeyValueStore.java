@@ -0,0 +1,360 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map.remote;
+
+import net.openhft.chronicle.engine.api.pubsub.Subscriber;
+import net.openhft.chronicle.engine.api.tree.Asset;
+import net.openhft.chronicle.engine.api.tree.RequestContext;
+import net.openhft.chronicle.engine.map.AbstractSubscriptionKeyValueStore;
+import net.openhft.chronicle.engine.map.KVSSubscription;
+import net.openhft.chronicle.engine.map.ObjectKeyValueStore;
+import net.openhft.chronicle.engine.query.Filter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Holds the most recently read values of a remote map on the client, so reading a hot key
+ * doesn't wait for a round trip.
+ * <p>
+ * Nothing is read up front, a key is cached the first time it is read. The least recently read
+ * key is evicted once there are more than {@code maxSize}. A key is dropped when this client
+ * changes it, or when the server publishes a change to it, and is read again from the server the
+ * next time it is read. A change by this client drops the key both before and after it is sent,
+ * as a read racing with the change may have cached the old value.
+ * <p>
+ * The values cached are returned to every reader, so they shouldn't be modified.
+ */
+public class NearCacheKeyValueStore<K, V> extends AbstractSubscriptionKeyValueStore<K, V, V>
+        implements ObjectKeyValueStore<K, V> {
+
+    @NotNull
+    private final RemoteKeyValueStore<K, V> remote;
+    private final int maxSize;
+    // access ordered so the eldest entry is the least recently read, guarded by itself.
+    @NotNull
+    private final Map<K, V> cache;
+    @NotNull
+    private final Subscriber<K> invalidator = new Invalidator();
+    @NotNull
+    private final KVSSubscription<K, V> subscription;
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder(), evictions = new LongAdder();
+    // incremented on every invalidation, a value read before one isn't cached.
+    private long invalidations;
+    private boolean enabled = true;
+
+    public NearCacheKeyValueStore(@NotNull RequestContext context,
+                                  @NotNull Asset asset,
+                                  @NotNull RemoteKeyValueStore<K, V> remote,
+                                  int maxSize) {
+        super(context, asset, remote);
+        this.remote = remote;
+        this.maxSize = maxSize;
+        this.cache = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() <= NearCacheKeyValueStore.this.maxSize)
+                    return false;
+                evictions.increment();
+                return true;
+            }
+        };
+
+        // sent before any read, so a change after a read is always published to this client.
+        subscription = (KVSSubscription<K, V>) asset.subscription(true);
+        @NotNull final RequestContext rc = RequestContext.requestContext()
+                .type(context.keyType())
+                .type2(context.valueType())
+                .bootstrap(false);
+        subscription.registerKeySubscriber(rc, invalidator, Filter.empty());
+    }
+
+    /**
+     * @param defaultSize the size to use if the context doesn't set one
+     * @return the number of entries to cache, or 0 for no cache.
+     */
+    public static int nearCacheSize(@NotNull RequestContext context, int defaultSize) {
+        return context.nearCacheSize() > 0 ? context.nearCacheSize() : defaultSize;
+    }
+
+    @Nullable
+    @Override
+    public V get(K key) {
+        return getUsing(key, null);
+    }
+
+    @Nullable
+    @Override
+    public V getUsing(K key, Object value) {
+        final long version;
+        synchronized (cache) {
+            @Nullable final V cached = cache.get(key);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+            version = invalidations;
+        }
+        misses.increment();
+
+        @Nullable final V read = remote.get(key);
+        if (read != null) {
+            synchronized (cache) {
+                if (enabled && version == invalidations)
+                    cache.put(key, read);
+            }
+        }
+        return read;
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        synchronized (cache) {
+            if (cache.containsKey(key)) {
+                hits.increment();
+                return true;
+            }
+        }
+        return get(key) != null;
+    }
+
+    @Override
+    public boolean put(K key, V value) {
+        invalidate(key);
+        try {
+            return remote.put(key, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Nullable
+    @Override
+    public V getAndPut(K key, V value) {
+        invalidate(key);
+        try {
+            return remote.getAndPut(key, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public boolean remove(K key) {
+        invalidate(key);
+        try {
+            return remote.remove(key);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Nullable
+    @Override
+    public V getAndRemove(K key) {
+        invalidate(key);
+        try {
+            return remote.getAndRemove(key);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Nullable
+    @Override
+    public V replace(K key, V value) {
+        invalidate(key);
+        try {
+            return remote.replace(key, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Nullable
+    @Override
+    public V putIfAbsent(K key, V value) {
+        invalidate(key);
+        try {
+            return remote.putIfAbsent(key, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public boolean replaceIfEqual(K key, V oldValue, V newValue) {
+        invalidate(key);
+        try {
+            return remote.replace(key, oldValue, newValue);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public boolean removeIfEqual(K key, V value) {
+        invalidate(key);
+        try {
+            return remote.remove(key, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    /**
+     * Reads the keys which aren't cached from the server in one round trip.
+     *
+     * @return the keys present, with their values, in the order of {@code keys}
+     */
+    @NotNull
+    public Map<K, V> getAll(@NotNull Collection<? extends K> keys) {
+        @NotNull final Map<K, V> result = new LinkedHashMap<>();
+        @NotNull final List<K> missing = new ArrayList<>();
+        final long version;
+        synchronized (cache) {
+            for (K key : keys) {
+                @Nullable final V cached = cache.get(key);
+                // holds the position of the key in the result
+                result.put(key, cached);
+                if (cached == null)
+                    missing.add(key);
+            }
+            version = invalidations;
+        }
+        hits.add(keys.size() - missing.size());
+        misses.add(missing.size());
+
+        if (!missing.isEmpty()) {
+            @NotNull final Map<K, V> read = remote.getAll(missing);
+            synchronized (cache) {
+                if (enabled && version == invalidations)
+                    cache.putAll(read);
+            }
+            result.putAll(read);
+        }
+        result.values().removeIf(Objects::isNull);
+        return result;
+    }
+
+    public void putAll(@NotNull Map<? extends K, ? extends V> map) {
+        synchronized (cache) {
+            invalidations++;
+            for (K key : map.keySet())
+                cache.remove(key);
+        }
+        try {
+            remote.putAll(map);
+        } finally {
+            synchronized (cache) {
+                invalidations++;
+                for (K key : map.keySet())
+                    cache.remove(key);
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        invalidateAll();
+        try {
+            remote.clear();
+        } finally {
+            invalidateAll();
+        }
+    }
+
+    @Override
+    public boolean containsValue(V value) {
+        return remote.containsValue(value);
+    }
+
+    @Override
+    public void close() {
+        synchronized (cache) {
+            enabled = false;
+            cache.clear();
+        }
+        subscription.unregisterSubscriber(invalidator);
+        remote.close();
+    }
+
+    /**
+     * @return the store which reads from the server.
+     */
+    @NotNull
+    public RemoteKeyValueStore<K, V> remote() {
+        return remote;
+    }
+
+    public int cachedSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    void invalidate(Object key) {
+        synchronized (cache) {
+            invalidations++;
+            cache.remove(key);
+        }
+    }
+
+    private void invalidateAll() {
+        synchronized (cache) {
+            invalidations++;
+            cache.clear();
+        }
+    }
+
+    private final class Invalidator implements Subscriber<K> {
+        @Override
+        public void onMessage(K key) {
+            if (key == null)
+                invalidateAll();
+            else
+                invalidate(key);
+        }
+
+        /**
+         * Changes are no longer published so nothing more is cached.
+         */
+        @Override
+        public void onEndOfSubscription() {
+            synchronized (cache) {
+                enabled = false;
+                invalidations++;
+                cache.clear();
+            }
+        }
+    }
+}
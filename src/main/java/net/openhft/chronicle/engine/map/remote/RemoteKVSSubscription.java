@@ -93,6 +93,11 @@ public class RemoteKVSSubscription<K, V> extends AbstractRemoteSubscription<MapE
                     if (rc.bootstrap() != null)
                         m.writeEventName(() -> "bootstrap").bool(rc.bootstrap());
 
+                    if (rc.conflate() != null) {
+                        m.writeEventName(() -> "conflate").bool(rc.conflate());
+                        m.writeEventName(() -> "throttlePeriodMs").int64(rc.throttlePeriodMs());
+                    }
+
                 });
             }
 
@@ -23,6 +23,7 @@ import net.openhft.chronicle.core.util.SerializableUpdaterWithArg;
 import net.openhft.chronicle.core.util.ThrowingConsumer;
 import net.openhft.chronicle.core.util.Time;
 import net.openhft.chronicle.engine.api.EngineReplication.ReplicationEntry;
+import net.openhft.chronicle.engine.api.map.AsyncMapView;
 import net.openhft.chronicle.engine.api.map.KeyValueStore;
 import net.openhft.chronicle.engine.api.map.MapEvent;
 import net.openhft.chronicle.engine.api.map.MapView;
@@ -35,26 +36,26 @@ import net.openhft.chronicle.engine.collection.ClientWiredStatelessChronicleSet;
 import net.openhft.chronicle.engine.map.InsertedEvent;
 import net.openhft.chronicle.engine.map.ObjectKeyValueStore;
 import net.openhft.chronicle.engine.map.ObjectSubscription;
+import net.openhft.chronicle.network.connection.AbstractAsyncTemporarySubscription;
 import net.openhft.chronicle.network.connection.AbstractStatelessClient;
 import net.openhft.chronicle.network.connection.CoreFields;
 import net.openhft.chronicle.network.connection.TcpChannelHub;
-import net.openhft.chronicle.wire.ValueIn;
-import net.openhft.chronicle.wire.Wires;
-import net.openhft.chronicle.wire.WriteMarshallable;
-import net.openhft.chronicle.wire.WriteValue;
+import net.openhft.chronicle.wire.*;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
 import static net.openhft.chronicle.engine.server.internal.MapWireHandler.EventId;
 import static net.openhft.chronicle.engine.server.internal.MapWireHandler.EventId.*;
+import static net.openhft.chronicle.network.connection.CoreFields.reply;
 import static net.openhft.chronicle.network.connection.CoreFields.stringEvent;
 
 public class RemoteKeyValueStore<K, V> extends AbstractStatelessClient<EventId>
-        implements Cloneable, ObjectKeyValueStore<K, V> {
+        implements Cloneable, ObjectKeyValueStore<K, V>, AsyncMapView<K, V> {
 
     private static final WriteValue VOID_PARAMETERS = WriteMarshallable.EMPTY;
 
@@ -388,6 +389,187 @@ public class RemoteKeyValueStore<K, V> extends AbstractStatelessClient<EventId>
                 csp.toString(), cid, valueIn -> valueIn.object(kClass));
     }
 
+    /**
+     * Reads the values of many keys in one round trip.
+     *
+     * @return the keys present, with their values, in the order of {@code keys}
+     */
+    @NotNull
+    public Map<K, V> getAll(@NotNull Collection<? extends K> keys) {
+        keys.forEach(this::checkKey);
+        if (keys.isEmpty())
+            return new LinkedHashMap<>();
+        return proxyReturnWireConsumerInOut(getAll, reply,
+                valueOut -> writeKeys(valueOut, keys),
+                read -> readValues(read, keys));
+    }
+
+    /**
+     * Writes many entries in one round trip.
+     */
+    public void putAll(@NotNull Map<? extends K, ? extends V> map) {
+        checkEntries(map);
+        if (map.isEmpty())
+            return;
+        proxyReturnWireConsumerInOut(putAll, reply,
+                valueOut -> writeEntries(valueOut, map),
+                read -> null);
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<V> getAsync(@NotNull K key) {
+        checkKey(key);
+        return sendAsync(get, toParameters(get, key), read -> read.object(vClass));
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<Boolean> containsKeyAsync(@NotNull K key) {
+        checkKey(key);
+        return sendAsync(containsKey, toParameters(containsKey, key), ValueIn::bool);
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<V> getAndPutAsync(@NotNull K key, @NotNull V value) {
+        checkKey(key);
+        checkValue(value);
+        return sendAsync(getAndPut, toParameters(getAndPut, key, value), read -> read.object(vClass));
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<V> getAndRemoveAsync(@NotNull K key) {
+        checkKey(key);
+        return sendAsync(getAndRemove, toParameters(getAndRemove, key), read -> read.object(vClass));
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<V> putIfAbsentAsync(@NotNull K key, @NotNull V value) {
+        checkKey(key);
+        checkValue(value);
+        return sendAsync(putIfAbsent, toParameters(putIfAbsent, key, value), read -> read.object(vClass));
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<V> replaceAsync(@NotNull K key, @NotNull V value) {
+        checkKey(key);
+        checkValue(value);
+        return sendAsync(replace, toParameters(replace, key, value), read -> read.object(vClass));
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<Long> longSizeAsync() {
+        return sendAsync(size, VOID_PARAMETERS, ValueIn::int64);
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<Map<K, V>> getAllAsync(@NotNull Collection<? extends K> keys) {
+        keys.forEach(this::checkKey);
+        if (keys.isEmpty())
+            return CompletableFuture.completedFuture(new LinkedHashMap<>());
+        return sendAsync(getAll, valueOut -> writeKeys(valueOut, keys), read -> readValues(read, keys));
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<Void> putAllAsync(@NotNull Map<? extends K, ? extends V> map) {
+        checkEntries(map);
+        if (map.isEmpty())
+            return CompletableFuture.completedFuture(null);
+        return sendAsync(putAll, valueOut -> writeEntries(valueOut, map), read -> null);
+    }
+
+    /**
+     * Sends the request without waiting for the reply, which is matched to it by its tid.
+     */
+    @NotNull
+    private <R> CompletableFuture<R> sendAsync(@NotNull final EventId eventId,
+                                               @NotNull final WriteValue parameters,
+                                               @NotNull final Function<ValueIn, R> reader) {
+        @NotNull final CompletableFuture<R> future = new CompletableFuture<>();
+        hub.subscribe(new AbstractAsyncTemporarySubscription(hub, csp, "RemoteKeyValueStore " + eventId) {
+
+            @Override
+            public void onSubscribe(@NotNull final WireOut wireOut) {
+                parameters.writeValue(wireOut.writeEventName(eventId));
+            }
+
+            @Override
+            public void onConsumer(@NotNull final WireIn inWire) {
+                hub.unsubscribe(tid());
+                try {
+                    inWire.readDocument(null, d -> {
+                        final StringBuilder eventName = Wires.acquireStringBuilder();
+                        while (!future.isDone() && d.hasMore()) {
+                            @NotNull final ValueIn valueIn = d.readEventName(eventName);
+                            if (reply.contentEquals(eventName))
+                                future.complete(reader.apply(valueIn));
+                            else if ("exception".contentEquals(eventName))
+                                future.completeExceptionally(valueIn.throwable(false));
+                            else
+                                valueIn.skipValue();
+                        }
+                    });
+
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+                if (!future.isDone())
+                    future.completeExceptionally(new IllegalStateException("No reply to " + eventId));
+            }
+        });
+        return future;
+    }
+
+    private void writeKeys(@NotNull ValueOut valueOut, @NotNull Collection<? extends K> keys) {
+        valueOut.sequence(v -> {
+            for (K key : keys)
+                v.object(key);
+        });
+    }
+
+    /**
+     * @return the values replied, one per key in order and null for a key which is absent.
+     */
+    @NotNull
+    private Map<K, V> readValues(@NotNull ValueIn read, @NotNull Collection<? extends K> keys) {
+        @NotNull final Map<K, V> result = new LinkedHashMap<>();
+        read.sequence(result, (r, v) -> {
+            for (K key : keys) {
+                if (!v.hasNextSequenceItem())
+                    break;
+                @Nullable final V value = v.object(vClass);
+                if (value != null)
+                    r.put(key, value);
+            }
+        });
+        return result;
+    }
+
+    private void writeEntries(@NotNull ValueOut valueOut, @NotNull Map<? extends K, ? extends V> map) {
+        valueOut.sequence(v -> {
+            for (@NotNull Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+                v.marshallable(m -> {
+                    m.write(put.params()[0]).object(entry.getKey());
+                    m.write(put.params()[1]).object(entry.getValue());
+                });
+            }
+        });
+    }
+
+    private void checkEntries(@NotNull Map<? extends K, ? extends V> map) {
+        for (@NotNull Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            checkKey(entry.getKey());
+            checkValue(entry.getValue());
+        }
+    }
+
     @SuppressWarnings("SameParameterValue")
     private boolean proxyReturnBoolean(@NotNull final EventId eventId,
                                        @Nullable final WriteValue consumer) {
@@ -22,6 +22,7 @@ import net.openhft.chronicle.core.util.SerializableBiFunction;
 import net.openhft.chronicle.core.util.SerializableFunction;
 import net.openhft.chronicle.core.util.SerializableUpdater;
 import net.openhft.chronicle.core.util.SerializableUpdaterWithArg;
+import net.openhft.chronicle.engine.api.map.AsyncMapView;
 import net.openhft.chronicle.engine.api.map.KeyValueStore;
 import net.openhft.chronicle.engine.api.map.MapView;
 import net.openhft.chronicle.engine.api.pubsub.Reference;
@@ -33,6 +34,7 @@ import net.openhft.chronicle.engine.map.VanillaMapView;
 import net.openhft.chronicle.engine.query.Filter;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.BiFunction;
@@ -59,13 +61,59 @@ public class RemoteMapView<K, MV, V> extends VanillaMapView<K, V> {
         return convertTo(Boolean.class, this.applyTo((SerializableBiFunction) MapFunction.CONTAINS_VALUE, value));
     }
 
-/* TODO CE-95
-   Map serialization not supported yet.
+    /**
+     * Writes every entry in one round trip.
+     */
     @Override
-    public void putAll(Map<? extends K, ? extends V> m) {
-        this.asyncUpdate((SerializableUpdaterWithArg) MapUpdate.PUT_ALL, m);
+    public void putAll(@org.jetbrains.annotations.NotNull Map<? extends K, ? extends V> m) {
+        @Nullable final NearCacheKeyValueStore<K, V> nearCache = nearCache();
+        if (nearCache == null)
+            remote().putAll(m);
+        else
+            nearCache.putAll(m);
+    }
+
+    /**
+     * Reads the values of many keys in one round trip.
+     *
+     * @return the keys present, with their values, in the order of {@code keys}
+     */
+    @org.jetbrains.annotations.NotNull
+    public Map<K, V> getAll(@org.jetbrains.annotations.NotNull Collection<? extends K> keys) {
+        @Nullable final NearCacheKeyValueStore<K, V> nearCache = nearCache();
+        return nearCache == null ? remote().getAll(keys) : nearCache.getAll(keys);
+    }
+
+    /**
+     * @return this map, with operations which return a future rather than wait for the reply.
+     * These go to the server even if there is a near cache.
+     */
+    @org.jetbrains.annotations.NotNull
+    public AsyncMapView<K, V> async() {
+        return remote();
+    }
+
+    /**
+     * @return the values of this map cached on the client, or null if they aren't cached.
+     */
+    @Nullable
+    public NearCacheKeyValueStore<K, V> nearCache() {
+        final KeyValueStore<K, V> kvStore = underlying();
+        return kvStore instanceof NearCacheKeyValueStore ? (NearCacheKeyValueStore<K, V>) kvStore : null;
+    }
+
+    @org.jetbrains.annotations.NotNull
+    private RemoteKeyValueStore<K, V> remote() {
+        @Nullable final NearCacheKeyValueStore<K, V> nearCache = nearCache();
+        return nearCache == null ? (RemoteKeyValueStore<K, V>) underlying() : nearCache.remote();
+    }
+
+    // a change made on the server isn't seen by the near cache until it is published back.
+    private void invalidate(Object key) {
+        @Nullable final NearCacheKeyValueStore<K, V> nearCache = nearCache();
+        if (nearCache != null)
+            nearCache.invalidate(key);
     }
-*/
 
     @Override
     public void registerKeySubscriber(@org.jetbrains.annotations.NotNull @NotNull Subscriber<K> subscriber,
@@ -109,6 +157,7 @@ public class RemoteMapView<K, MV, V> extends VanillaMapView<K, V> {
     public V putIfAbsent(@NotNull K key, V value) {
         checkKey(key);
         checkValue(value);
+        invalidate(key);
         return (V) this.applyTo((SerializableBiFunction) MapFunction.PUT_IF_ABSENT, KeyValuePair.of(key, value));
     }
 
@@ -116,6 +165,7 @@ public class RemoteMapView<K, MV, V> extends VanillaMapView<K, V> {
     public boolean remove(@NotNull Object key, Object value) {
         checkKey(key);
         checkValue(value);
+        invalidate(key);
         return (Boolean) this.applyTo((SerializableBiFunction) MapFunction.REMOVE, KeyValuePair.of(key, value));
     }
 
@@ -124,6 +174,7 @@ public class RemoteMapView<K, MV, V> extends VanillaMapView<K, V> {
         checkKey(key);
         checkValue(oldValue);
         checkValue(newValue);
+        invalidate(key);
         @Nullable Object o = this.applyTo((SerializableBiFunction) MapFunction.REPLACE, KeyValuesTuple.of(key, oldValue, newValue));
         return convertTo(Boolean.class, o);
     }
@@ -133,6 +184,7 @@ public class RemoteMapView<K, MV, V> extends VanillaMapView<K, V> {
     public V replace(@NotNull K key, @NotNull V value) {
         checkKey(key);
         checkValue(value);
+        invalidate(key);
         return (V) this.applyTo((SerializableBiFunction) MapFunction.REPLACE, KeyValuePair.of(key, value));
     }
 
@@ -141,6 +193,7 @@ public class RemoteMapView<K, MV, V> extends VanillaMapView<K, V> {
     @Override
     public V computeIfAbsent(@org.jetbrains.annotations.NotNull K key, @org.jetbrains.annotations.NotNull Function<? super K, ? extends V> mappingFunction) {
         checkKey(key);
+        invalidate(key);
         return (V) this.applyTo((SerializableBiFunction) MapFunction.COMPUTE_IF_ABSENT, KeyFunctionPair.of(key, mappingFunction));
     }
 
@@ -149,6 +202,7 @@ public class RemoteMapView<K, MV, V> extends VanillaMapView<K, V> {
     @Override
     public V computeIfPresent(@org.jetbrains.annotations.NotNull K key, @org.jetbrains.annotations.NotNull BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
         checkKey(key);
+        invalidate(key);
         return (V) this.applyTo((SerializableBiFunction) MapFunction.COMPUTE_IF_PRESENT, KeyFunctionPair.of(key, remappingFunction));
     }
 
@@ -157,6 +211,7 @@ public class RemoteMapView<K, MV, V> extends VanillaMapView<K, V> {
     @Override
     public V compute(@org.jetbrains.annotations.NotNull K key, @org.jetbrains.annotations.NotNull BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
         checkKey(key);
+        invalidate(key);
         return (V) this.applyTo((SerializableBiFunction) MapFunction.COMPUTE, KeyFunctionPair.of(key, remappingFunction));
     }
 
@@ -166,6 +221,7 @@ public class RemoteMapView<K, MV, V> extends VanillaMapView<K, V> {
     public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
         checkKey(key);
         checkValue(value);
+        invalidate(key);
         return (V) this.applyTo((SerializableBiFunction) MapFunction.MERGE, KeyValueFunctionTuple.of(key, value, remappingFunction));
     }
 
@@ -173,13 +229,13 @@ public class RemoteMapView<K, MV, V> extends VanillaMapView<K, V> {
     @Nullable
     @Override
     public <A, R> R applyTo(@NotNull SerializableBiFunction<MapView<K, V>, A, R> function, A arg) {
-        @Nullable RemoteKeyValueStore<K, V> store = (RemoteKeyValueStore<K, V>) underlying();
+        @org.jetbrains.annotations.NotNull RemoteKeyValueStore<K, V> store = remote();
         return store.applyTo((SerializableBiFunction<MapView<K, V>, A, R>) (SerializableBiFunction) function, arg);
     }
 
     @Override
     public <A> void asyncUpdate(@NotNull SerializableUpdaterWithArg<MapView<K, V>, A> updateFunction, A arg) {
-        @org.jetbrains.annotations.NotNull RemoteKeyValueStore<K, V> store = (RemoteKeyValueStore<K, V>) underlying();
+        @org.jetbrains.annotations.NotNull RemoteKeyValueStore<K, V> store = remote();
         store.asyncUpdate((SerializableUpdaterWithArg) updateFunction, arg);
     }
 
@@ -188,7 +244,7 @@ public class RemoteMapView<K, MV, V> extends VanillaMapView<K, V> {
     public <UA, RA, R> R syncUpdate(@NotNull SerializableUpdaterWithArg<MapView<K, V>, UA>
                                             updateFunction, UA ua, @NotNull
                                     SerializableBiFunction<MapView<K, V>, RA, R> returnFunction, RA ra) {
-        @org.jetbrains.annotations.NotNull RemoteKeyValueStore<K, V> store = (RemoteKeyValueStore<K, V>) underlying();
+        @org.jetbrains.annotations.NotNull RemoteKeyValueStore<K, V> store = remote();
         return store.syncUpdate((SerializableUpdaterWithArg) updateFunction, ua, (SerializableBiFunction) returnFunction, ra);
     }
 
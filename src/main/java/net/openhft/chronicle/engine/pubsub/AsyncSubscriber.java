@@ -0,0 +1,342 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.pubsub;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.Maths;
+import net.openhft.chronicle.core.threads.EventHandler;
+import net.openhft.chronicle.core.threads.InvalidEventHandlerException;
+import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
+import net.openhft.chronicle.engine.api.pubsub.OverflowPolicy;
+import net.openhft.chronicle.engine.api.pubsub.Subscriber;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * A Subscriber which buffers events in a bounded ring buffer on the publishing thread and
+ * delivers them in batches to the underlying subscriber when run as an {@link EventHandler} on
+ * an EventLoop, so a slow subscriber no longer holds up the writer.
+ * <p>
+ * What happens when the buffer is full is set by the {@link OverflowPolicy}.
+ */
+public class AsyncSubscriber<E> implements Subscriber<E>, EventHandler {
+    private static final int MAX_BATCH = 256;
+    private static final long START_TIMEOUT_MS = Long.getLong("engine.async.startTimeoutMs", 5_000);
+
+    @NotNull
+    private final Subscriber<E> subscriber;
+    @NotNull
+    private final OverflowPolicy overflowPolicy;
+    @NotNull
+    private final Function<E, Object> keyFunction;
+    @NotNull
+    private final BinaryOperator<E> conflater;
+    @NotNull
+    private final Object[] buffer;
+    private final int mask;
+    @NotNull
+    private final Object[] batch;
+    // the batch being delivered by action(), only used on the drain thread.
+    private int batchIndex, batchCount;
+    // the position in the buffer of the pending event for each key, only used when conflating.
+    private final Map<Object, Long> pendingByKey = new HashMap<>();
+
+    private long head, tail;
+    @Nullable
+    private volatile Thread drainThread;
+    private volatile boolean invalid, closed;
+    private final AtomicBoolean ended = new AtomicBoolean();
+
+    // metrics
+    private long published, delivered, dropped, conflated;
+    private int maxPending;
+    private long startTimeoutMs = START_TIMEOUT_MS;
+
+    public AsyncSubscriber(@NotNull Subscriber<E> subscriber,
+                           int capacity,
+                           @NotNull OverflowPolicy overflowPolicy,
+                           @NotNull Function<E, Object> keyFunction,
+                           @NotNull BinaryOperator<E> conflater) {
+        this.subscriber = subscriber;
+        this.overflowPolicy = overflowPolicy;
+        this.keyFunction = keyFunction;
+        this.conflater = conflater;
+        int size = (int) Maths.nextPower2(Math.max(capacity, 2), 2);
+        this.buffer = new Object[size];
+        this.mask = size - 1;
+        this.batch = new Object[Math.min(size, MAX_BATCH)];
+    }
+
+    /**
+     * @param startTimeoutMs how long a blocked publisher waits for the buffer to be drained for
+     *                       the first time before deciding the EventLoop isn't running.
+     * @return this
+     */
+    @NotNull
+    public AsyncSubscriber<E> startTimeoutMs(long startTimeoutMs) {
+        this.startTimeoutMs = startTimeoutMs;
+        return this;
+    }
+
+    @NotNull
+    public Subscriber<E> subscriber() {
+        return subscriber;
+    }
+
+    @Override
+    public void onMessage(E e) throws InvalidSubscriberException {
+        if (invalid || closed)
+            throw new InvalidSubscriberException();
+
+        boolean counted = false;
+        for (; ; ) {
+            synchronized (this) {
+                if (!counted) {
+                    counted = true;
+                    published++;
+                    if (overflowPolicy == OverflowPolicy.CONFLATE && conflate(e))
+                        return;
+                }
+
+                long blockedSince = 0;
+                while (tail - head > mask && Thread.currentThread() != drainThread) {
+                    if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+                        removeHead();
+                        dropped++;
+                        continue;
+                    }
+                    if (drainThread == null) {
+                        // nothing has ever drained this buffer, don't wait forever for an EventLoop which was never started.
+                        long now = System.currentTimeMillis();
+                        if (blockedSince == 0)
+                            blockedSince = now;
+                        else if (now - blockedSince >= startTimeoutMs)
+                            throw new IllegalStateException("Buffer of " + buffer.length + " events full and not drained after "
+                                    + startTimeoutMs + " ms, is the EventLoop running? " + subscriber);
+                    }
+                    try {
+                        wait(10);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        throw new InvalidSubscriberException();
+                    }
+                    if (invalid || closed)
+                        throw new InvalidSubscriberException();
+                }
+
+                if (tail - head <= mask) {
+                    if (overflowPolicy == OverflowPolicy.CONFLATE)
+                        pendingByKey.put(keyFunction.apply(e), tail);
+                    buffer[(int) (tail & mask)] = e;
+                    tail++;
+                    int pending = (int) (tail - head);
+                    if (pending > maxPending)
+                        maxPending = pending;
+                    return;
+                }
+                if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+                    removeHead();
+                    dropped++;
+                    continue;
+                }
+            }
+
+            // we are on the event loop which drains this buffer so waiting would dead lock,
+            // instead the oldest event is delivered here, outside the lock.
+            deliverOldest();
+            if (invalid)
+                throw new InvalidSubscriberException();
+        }
+    }
+
+    private boolean conflate(E e) {
+        Object key = keyFunction.apply(e);
+        Long pos = pendingByKey.get(key);
+        if (pos == null)
+            return false;
+        int index = (int) (pos & mask);
+        @Nullable E merged = conflater.apply((E) buffer[index], e);
+        buffer[index] = merged;
+        if (merged == null)
+            // the two events cancelled out, leave a gap which is skipped when draining.
+            pendingByKey.remove(key);
+        conflated++;
+        return true;
+    }
+
+    private void removeHead() {
+        int index = (int) (head & mask);
+        Object e = buffer[index];
+        buffer[index] = null;
+        if (e != null && overflowPolicy == OverflowPolicy.CONFLATE)
+            pendingByKey.remove(keyFunction.apply((E) e));
+        head++;
+    }
+
+    /**
+     * delivers the oldest event not yet delivered, the rest of a batch action() is part way
+     * through delivering comes before the events still in the buffer.
+     */
+    private void deliverOldest() {
+        final Object e;
+        if (batchIndex < batchCount) {
+            e = batch[batchIndex];
+            batch[batchIndex++] = null;
+
+        } else {
+            synchronized (this) {
+                e = buffer[(int) (head & mask)];
+                removeHead();
+                notifyAll();
+            }
+        }
+        if (e != null && deliver(e)) {
+            synchronized (this) {
+                delivered++;
+            }
+        }
+    }
+
+    /**
+     * @return true if the event was delivered.
+     */
+    private boolean deliver(@NotNull Object e) {
+        if (invalid)
+            return false;
+        try {
+            subscriber.onMessage((E) e);
+            return true;
+
+        } catch (InvalidSubscriberException ise) {
+            invalid = true;
+
+        } catch (RuntimeException re) {
+            Jvm.warn().on(getClass(), "Failed to deliver " + e, re);
+        }
+        return false;
+    }
+
+    @Override
+    public boolean action() throws InvalidEventHandlerException {
+        drainThread = Thread.currentThread();
+
+        int count = 0, deliveredCount = 0;
+        boolean empty;
+        synchronized (this) {
+            while (head < tail && count < batch.length) {
+                Object e = buffer[(int) (head & mask)];
+                removeHead();
+                if (e != null)
+                    batch[count++] = e;
+            }
+            if (count > 0)
+                notifyAll();
+            empty = head == tail;
+        }
+
+        // an event published while delivering this batch may deliver the rest of it, see deliverOldest().
+        batchIndex = 0;
+        batchCount = count;
+        while (batchIndex < batchCount) {
+            Object e = batch[batchIndex];
+            batch[batchIndex++] = null;
+            if (deliver(e))
+                deliveredCount++;
+        }
+        batchCount = 0;
+
+        synchronized (this) {
+            delivered += deliveredCount;
+        }
+        if (invalid || (closed && empty)) {
+            endSubscription();
+            throw new InvalidEventHandlerException();
+        }
+        return count > 0;
+    }
+
+    /**
+     * No more events are accepted, the events already buffered are still delivered before the
+     * underlying subscriber is told the subscription has ended.
+     */
+    @Override
+    public void onEndOfSubscription() {
+        closed = true;
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    private void endSubscription() {
+        if (ended.compareAndSet(false, true))
+            subscriber.onEndOfSubscription();
+    }
+
+    public boolean isClosed() {
+        return closed || invalid;
+    }
+
+    /**
+     * @return the number of events published but not yet delivered.
+     */
+    public synchronized int pending() {
+        return (int) (tail - head);
+    }
+
+    public synchronized int maxPending() {
+        return maxPending;
+    }
+
+    public synchronized long published() {
+        return published;
+    }
+
+    public synchronized long delivered() {
+        return delivered;
+    }
+
+    public synchronized long dropped() {
+        return dropped;
+    }
+
+    public synchronized long conflated() {
+        return conflated;
+    }
+
+    @NotNull
+    @Override
+    public synchronized String toString() {
+        return "AsyncSubscriber{" +
+                "subscriber=" + subscriber +
+                ", overflowPolicy=" + overflowPolicy +
+                ", capacity=" + buffer.length +
+                ", pending=" + (tail - head) +
+                ", maxPending=" + maxPending +
+                ", published=" + published +
+                ", delivered=" + delivered +
+                ", dropped=" + dropped +
+                ", conflated=" + conflated +
+                '}';
+    }
+}
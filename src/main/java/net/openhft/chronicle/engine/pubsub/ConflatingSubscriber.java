@@ -0,0 +1,184 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.pubsub;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.threads.EventHandler;
+import net.openhft.chronicle.core.threads.InvalidEventHandlerException;
+import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
+import net.openhft.chronicle.engine.api.pubsub.Subscriber;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * A Subscriber which holds only the latest event for each key between flushes. A subscriber which
+ * can't keep up sees a consistent, latest state rather than building up a backlog of every
+ * intermediate update, the number of events held is bounded by the number of distinct keys.
+ * <p>
+ * Events are flushed to the underlying subscriber when run as an {@link EventHandler}, at most
+ * once every flushPeriodMs, or on every call if the period is 0.
+ */
+public class ConflatingSubscriber<E> implements Subscriber<E>, EventHandler {
+
+    @NotNull
+    private final Subscriber<E> subscriber;
+    private final long flushPeriodMs;
+    @NotNull
+    private final Function<E, Object> keyFunction;
+    @NotNull
+    private final BinaryOperator<E> conflater;
+    private final AtomicBoolean ended = new AtomicBoolean();
+    // swapped on each flush so no map is created per flush.
+    @NotNull
+    private Map<Object, E> pending = new LinkedHashMap<>();
+    @NotNull
+    private Map<Object, E> flushing = new LinkedHashMap<>();
+    private long nextFlushMs;
+    private volatile boolean invalid, closed;
+
+    // metrics
+    private long published, delivered, conflated;
+
+    public ConflatingSubscriber(@NotNull Subscriber<E> subscriber,
+                                long flushPeriodMs,
+                                @NotNull Function<E, Object> keyFunction,
+                                @NotNull BinaryOperator<E> conflater) {
+        this.subscriber = subscriber;
+        this.flushPeriodMs = flushPeriodMs;
+        this.keyFunction = keyFunction;
+        this.conflater = conflater;
+    }
+
+    @Override
+    public void onMessage(E e) throws InvalidSubscriberException {
+        if (invalid || closed)
+            throw new InvalidSubscriberException();
+
+        Object key = keyFunction.apply(e);
+        synchronized (this) {
+            published++;
+            @Nullable E previous = pending.get(key);
+            if (previous == null) {
+                pending.put(key, e);
+                return;
+            }
+            conflated++;
+            @Nullable E merged = conflater.apply(previous, e);
+            if (merged == null)
+                pending.remove(key);
+            else
+                pending.put(key, merged);
+        }
+    }
+
+    @Override
+    public boolean action() throws InvalidEventHandlerException {
+        if (flushPeriodMs > 0) {
+            long now = System.currentTimeMillis();
+            if (now < nextFlushMs && !closed)
+                return false;
+            nextFlushMs = now + flushPeriodMs;
+        }
+
+        @NotNull Map<Object, E> toFlush;
+        synchronized (this) {
+            toFlush = pending;
+            pending = flushing;
+            flushing = toFlush;
+        }
+
+        int count = toFlush.size();
+        for (E e : toFlush.values()) {
+            if (invalid)
+                break;
+            try {
+                subscriber.onMessage(e);
+
+            } catch (InvalidSubscriberException ise) {
+                invalid = true;
+
+            } catch (RuntimeException re) {
+                Jvm.warn().on(getClass(), "Failed to deliver " + e, re);
+            }
+        }
+        toFlush.clear();
+
+        boolean empty;
+        synchronized (this) {
+            delivered += count;
+            empty = pending.isEmpty();
+        }
+        if (invalid || (closed && empty)) {
+            if (ended.compareAndSet(false, true))
+                subscriber.onEndOfSubscription();
+            throw new InvalidEventHandlerException();
+        }
+        return count > 0;
+    }
+
+    /**
+     * No more events are accepted, the latest events already held are still delivered before the
+     * underlying subscriber is told the subscription has ended.
+     */
+    @Override
+    public void onEndOfSubscription() {
+        closed = true;
+    }
+
+    public boolean isClosed() {
+        return closed || invalid;
+    }
+
+    /**
+     * @return the number of keys with an event waiting to be flushed.
+     */
+    public synchronized int pending() {
+        return pending.size();
+    }
+
+    public synchronized long published() {
+        return published;
+    }
+
+    public synchronized long delivered() {
+        return delivered;
+    }
+
+    public synchronized long conflated() {
+        return conflated;
+    }
+
+    @NotNull
+    @Override
+    public synchronized String toString() {
+        return "ConflatingSubscriber{" +
+                "subscriber=" + subscriber +
+                ", flushPeriodMs=" + flushPeriodMs +
+                ", pending=" + pending.size() +
+                ", published=" + published +
+                ", delivered=" + delivered +
+                ", conflated=" + conflated +
+                '}';
+    }
+}
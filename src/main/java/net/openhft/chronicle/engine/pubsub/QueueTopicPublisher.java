@@ -30,6 +30,8 @@ import net.openhft.chronicle.engine.tree.QueueView;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Map;
+
 /*
  * Created by Peter Lawrey on 23/05/15.
  */
@@ -55,6 +57,11 @@ public class QueueTopicPublisher<T, M> implements TopicPublisher<T, M>, Assetted
         underlying.publish(topic, message);
     }
 
+    @Override
+    public void publishAll(@NotNull Iterable<? extends Map.Entry<T, M>> messages) {
+        underlying.publishAll(messages);
+    }
+
     @Override
     public Asset asset() {
         return asset;
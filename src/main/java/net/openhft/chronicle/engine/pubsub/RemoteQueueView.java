@@ -20,11 +20,15 @@ package net.openhft.chronicle.engine.pubsub;
 import net.openhft.chronicle.engine.api.tree.Asset;
 import net.openhft.chronicle.engine.api.tree.RequestContext;
 import net.openhft.chronicle.engine.tree.ChronicleQueueView.LocalExcept;
+import net.openhft.chronicle.engine.tree.IndexRange;
 import net.openhft.chronicle.engine.tree.QueueView;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Map;
+
 import static net.openhft.chronicle.engine.server.internal.TopicPublisherHandler.EventId.*;
+import static net.openhft.chronicle.network.connection.CoreFields.reply;
 
 /**
  * @author Rob Austin.
@@ -58,6 +62,20 @@ public class RemoteQueueView<T, M> extends RemoteTopicPublisher<T, M> implements
         return proxyReturnLongWithArgs(publishAndIndex, topic, message);
     }
 
+    @Nullable
+    @Override
+    public IndexRange publishAllAndIndex(@NotNull Iterable<? extends Map.Entry<T, M>> messages) {
+        if (!checkBatch(messages))
+            return null;
+        return proxyReturnWireConsumerInOut(publishAllAndIndex, reply,
+                valueOut -> writeBatch(valueOut, messages),
+                read -> {
+                    @NotNull final IndexRange range = new IndexRange();
+                    read.marshallable(range);
+                    return range.isEmpty() ? null : range;
+                });
+    }
+
     @NotNull
     @Override
     public Asset asset() {
@@ -29,15 +29,19 @@ import net.openhft.chronicle.network.connection.AbstractStatelessClient;
 import net.openhft.chronicle.network.connection.CoreFields;
 import net.openhft.chronicle.network.connection.TcpChannelHub;
 import net.openhft.chronicle.wire.ValueIn;
+import net.openhft.chronicle.wire.ValueOut;
 import net.openhft.chronicle.wire.WireIn;
 import net.openhft.chronicle.wire.WireOut;
 import net.openhft.chronicle.wire.Wires;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Map;
+
 import static net.openhft.chronicle.engine.server.internal.PublisherHandler.EventId.registerSubscriber;
 import static net.openhft.chronicle.engine.server.internal.TopicPublisherHandler.EventId.onEndOfSubscription;
 import static net.openhft.chronicle.engine.server.internal.TopicPublisherHandler.EventId.publish;
+import static net.openhft.chronicle.engine.server.internal.TopicPublisherHandler.EventId.publishAll;
 
 /*
  * Created by Rob Austin
@@ -90,6 +94,40 @@ public class RemoteTopicPublisher<T, M> extends AbstractStatelessClient<EventId>
         }), true);
     }
 
+    @Override
+    public void publishAll(@NotNull final Iterable<? extends Map.Entry<T, M>> messages) {
+        if (!checkBatch(messages))
+            return;
+        sendEventAsync(publishAll, valueOut -> writeBatch(valueOut, messages), true);
+    }
+
+    /**
+     * @return true if there is at least one message, all of which are valid.
+     */
+    boolean checkBatch(@NotNull Iterable<? extends Map.Entry<T, M>> messages) {
+        boolean empty = true;
+        for (@NotNull Map.Entry<T, M> entry : messages) {
+            checkTopic(entry.getKey());
+            checkMessage(entry.getValue());
+            empty = false;
+        }
+        return !empty;
+    }
+
+    /**
+     * Writes the batch as a sequence of topic and message pairs, so it is sent as one document.
+     */
+    void writeBatch(@NotNull ValueOut valueOut, @NotNull Iterable<? extends Map.Entry<T, M>> messages) {
+        valueOut.sequence(v -> {
+            for (@NotNull Map.Entry<T, M> entry : messages) {
+                v.marshallable(m -> {
+                    m.write(Params.topic).object(entry.getKey());
+                    m.write(Params.message).object(entry.getValue());
+                });
+            }
+        });
+    }
+
     private void checkTopic(@Nullable Object topic) {
         if (topic == null)
             throw new NullPointerException("topic can not be null");
@@ -17,7 +17,6 @@
 
 package net.openhft.chronicle.engine.query;
 
-import net.openhft.chronicle.core.Jvm;
 import net.openhft.chronicle.core.util.SerializableFunction;
 import net.openhft.chronicle.core.util.SerializablePredicate;
 import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
@@ -26,6 +25,7 @@ import net.openhft.chronicle.engine.api.query.Query;
 import net.openhft.chronicle.wire.Marshallable;
 import net.openhft.chronicle.wire.WireIn;
 import net.openhft.chronicle.wire.WireOut;
+import net.openhft.chronicle.wire.Wires;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
@@ -154,53 +154,56 @@ public class Filter<E> implements Marshallable, Iterable<Operation> {
 
     /**
      * marshableFilters subscription on based on {@code net.openhft.chronicle.engine.query.Filter}
+     * <p>
+     * The pipeline is compiled once, when subscribing, into a chain of stages, each of which
+     * passes its result straight to the next, so there is no per message walk of the operations.
      */
     public static class FilteredSubscriber<E> implements Subscriber<E> {
 
         @NotNull
         private final Subscriber<E> subscriber;
         @NotNull
-        private final Filter<E> filter;
+        private final Subscriber<Object> head;
 
         public FilteredSubscriber(@NotNull Filter<E> filter,
                                   @NotNull Subscriber<E> subscriber) {
-            this.filter = filter;
             this.subscriber = subscriber;
+            this.head = compile(filter, subscriber);
         }
 
-        @Override
-        public void onMessage(@NotNull E message) throws InvalidSubscriberException {
-
-            for (@NotNull Operation o : filter) {
+        @NotNull
+        @SuppressWarnings("unchecked")
+        static Subscriber<Object> compile(@NotNull Filter<?> filter, @NotNull Subscriber<?> subscriber) {
+            @NotNull Subscriber<Object> next = (Subscriber<Object>) subscriber;
+            for (int i = filter.pipelineSize() - 1; i >= 0; i--) {
+                @NotNull final Operation o = filter.getPipeline(i);
                 switch (o.op()) {
                     case FILTER:
-                        final Predicate<E> serializable = o.wrapped();
-                        if (!serializable.test(message))
-                            return;
+                        next = new FilterStage(o.wrapped(), next);
                         break;
 
                     case MAP:
-                        final Function<Object, E> function = o.wrapped();
-                        message = function.apply(message);
+                        next = new MapStage(o.wrapped(), next);
                         break;
 
                     case FLAT_MAP:
-                        final Function<Object, Stream<E>> func = o.wrapped();
-                        func.apply(message).forEach(e -> {
-                            try {
-                                FilteredSubscriber.this.onMessage(e);
-                            } catch (InvalidSubscriberException ise) {
-                                throw Jvm.rethrow(ise);
-                            }
-                        });
+                        next = new FlatMapStage(o.wrapped(), next);
                         break;
 
                     case PROJECT:
-                        throw new UnsupportedOperationException("todo");
+                        next = new ProjectStage(o.wrapped(), next);
+                        break;
+
+                    default:
+                        throw new IllegalStateException("Unknown operation " + o);
                 }
             }
+            return next;
+        }
 
-            subscriber.onMessage(message);
+        @Override
+        public void onMessage(@NotNull E message) throws InvalidSubscriberException {
+            head.onMessage(message);
         }
 
         @Override
@@ -208,4 +211,88 @@ public class Filter<E> implements Marshallable, Iterable<Operation> {
             subscriber.onEndOfSubscription();
         }
     }
+
+    static final class FilterStage implements Subscriber<Object> {
+        @NotNull
+        private final Predicate<Object> predicate;
+        @NotNull
+        private final Subscriber<Object> next;
+
+        FilterStage(@NotNull Predicate<Object> predicate, @NotNull Subscriber<Object> next) {
+            this.predicate = predicate;
+            this.next = next;
+        }
+
+        @Override
+        public void onMessage(Object message) throws InvalidSubscriberException {
+            if (predicate.test(message))
+                next.onMessage(message);
+        }
+    }
+
+    static final class MapStage implements Subscriber<Object> {
+        @NotNull
+        private final Function<Object, Object> function;
+        @NotNull
+        private final Subscriber<Object> next;
+
+        MapStage(@NotNull Function<Object, Object> function, @NotNull Subscriber<Object> next) {
+            this.function = function;
+            this.next = next;
+        }
+
+        @Override
+        public void onMessage(Object message) throws InvalidSubscriberException {
+            next.onMessage(function.apply(message));
+        }
+    }
+
+    /**
+     * Each element produced is passed to the rest of the pipeline, the mapper may return a Query
+     * or a Stream.
+     */
+    static final class FlatMapStage implements Subscriber<Object> {
+        @NotNull
+        private final Function<Object, Object> function;
+        @NotNull
+        private final Subscriber<Object> next;
+
+        FlatMapStage(@NotNull Function<Object, Object> function, @NotNull Subscriber<Object> next) {
+            this.function = function;
+            this.next = next;
+        }
+
+        @Override
+        public void onMessage(Object message) throws InvalidSubscriberException {
+            final Object result = function.apply(message);
+            if (result == null)
+                return;
+            @NotNull final Stream<?> stream = result instanceof Query
+                    ? ((Query<?>) result).stream()
+                    : (Stream<?>) result;
+            for (Iterator<?> iterator = stream.iterator(); iterator.hasNext(); )
+                next.onMessage(iterator.next());
+        }
+    }
+
+    /**
+     * Copies the fields of each message with the same names into a new instance of the class
+     * given.
+     */
+    static final class ProjectStage implements Subscriber<Object> {
+        @NotNull
+        private final Class<?> rClass;
+        @NotNull
+        private final Subscriber<Object> next;
+
+        ProjectStage(@NotNull Class<?> rClass, @NotNull Subscriber<Object> next) {
+            this.rClass = rClass;
+            this.next = next;
+        }
+
+        @Override
+        public void onMessage(Object message) throws InvalidSubscriberException {
+            next.onMessage(message == null ? null : Wires.project(rClass, message));
+        }
+    }
 }
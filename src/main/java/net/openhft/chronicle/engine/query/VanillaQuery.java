@@ -21,6 +21,7 @@ import net.openhft.chronicle.core.util.SerializableFunction;
 import net.openhft.chronicle.core.util.SerializablePredicate;
 import net.openhft.chronicle.engine.api.query.Query;
 import net.openhft.chronicle.engine.api.query.Subscription;
+import net.openhft.chronicle.wire.Wires;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.function.Consumer;
@@ -52,7 +53,7 @@ public class VanillaQuery<E> implements Query<E> {
     @NotNull
     @Override
     public <R> Query<R> project(Class<R> rClass) {
-        throw new UnsupportedOperationException("todo");
+        return new VanillaQuery<>(stream.map(e -> Wires.project(rClass, e)));
     }
 
     @NotNull
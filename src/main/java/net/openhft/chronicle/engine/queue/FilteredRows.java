@@ -0,0 +1,161 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.queue;
+
+import net.openhft.chronicle.engine.tree.QueueView;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
+
+/**
+ * A running count of the excerpts which match a filter, brought up to date by reading only the
+ * excerpts added since the last call.
+ * <p>
+ * Every CHECKPOINT_EVERY excerpts the queue index and the number of matching rows before it is
+ * recorded, so the number of matches before any index, or the index of the n-th match, is found
+ * with a binary search and a read of at most CHECKPOINT_EVERY excerpts.
+ */
+class FilteredRows<V> {
+
+    static final int CHECKPOINT_EVERY = 1024;
+
+    @NotNull
+    private final Predicate<QueueView.Excerpt<String, V>> filter;
+    @NotNull
+    private final LongFunction<QueueView.Tailer<String, V>> tailerFrom;
+
+    private long[] indexes = new long[16];
+    private long[] rowsBefore = new long[16];
+    private int checkpoints;
+
+    @Nullable
+    private QueueView.Tailer<String, V> tailer;
+    private long scanned, rows;
+
+    /**
+     * @param filter     the rows to count
+     * @param tailerFrom creates a tailer which reads from the given index, or from the start for
+     *                   0
+     */
+    FilteredRows(@NotNull Predicate<QueueView.Excerpt<String, V>> filter,
+                 @NotNull LongFunction<QueueView.Tailer<String, V>> tailerFrom) {
+        this.filter = filter;
+        this.tailerFrom = tailerFrom;
+    }
+
+    /**
+     * @return the number of excerpts which match.
+     */
+    synchronized long rows() {
+        update();
+        return rows;
+    }
+
+    /**
+     * @return the number of excerpts at or after {@code index} which match.
+     */
+    synchronized long rowsFrom(long index) {
+        update();
+        return rows - rowsBefore(index);
+    }
+
+    /**
+     * @param row the position of a matching excerpt, starting at 0
+     * @return an index to read from so the first match is that row, or -1 if there are no more
+     * than {@code row} matches
+     */
+    synchronized long startOfRow(long row) {
+        update();
+        if (row >= rows)
+            return -1;
+
+        // the last checkpoint with no more than row matches before it.
+        int i = search(rowsBefore, row + 1) - 1;
+        long count = rowsBefore[i];
+        if (count == row)
+            return indexes[i];
+
+        @NotNull final QueueView.Tailer<String, V> t = tailerFrom.apply(indexes[i]);
+        for (QueueView.Excerpt<String, V> e; (e = t.read()) != null; ) {
+            if (!filter.test(e))
+                continue;
+            if (count++ == row)
+                return e.index();
+        }
+        return -1;
+    }
+
+    private long rowsBefore(long index) {
+        if (checkpoints == 0 || index <= indexes[0])
+            return 0;
+
+        // the last checkpoint at or before this index.
+        int i = search(indexes, index + 1) - 1;
+        long count = rowsBefore[i];
+        if (indexes[i] == index)
+            return count;
+
+        @NotNull final QueueView.Tailer<String, V> t = tailerFrom.apply(indexes[i]);
+        for (QueueView.Excerpt<String, V> e; (e = t.read()) != null && e.index() < index; ) {
+            if (filter.test(e))
+                count++;
+        }
+        return count;
+    }
+
+    private void update() {
+        if (tailer == null)
+            tailer = tailerFrom.apply(0);
+
+        for (QueueView.Excerpt<String, V> e; (e = tailer.read()) != null; scanned++) {
+            if (scanned % CHECKPOINT_EVERY == 0)
+                addCheckpoint(e.index());
+            if (filter.test(e))
+                rows++;
+        }
+    }
+
+    private void addCheckpoint(long index) {
+        if (checkpoints == indexes.length) {
+            indexes = Arrays.copyOf(indexes, checkpoints * 2);
+            rowsBefore = Arrays.copyOf(rowsBefore, checkpoints * 2);
+        }
+        indexes[checkpoints] = index;
+        rowsBefore[checkpoints] = rows;
+        checkpoints++;
+    }
+
+    /**
+     * @return the position of the first checkpoint with a value of at least {@code value}, both
+     * arrays are in ascending order.
+     */
+    private int search(long[] values, long value) {
+        int lo = 0, hi = checkpoints;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (values[mid] < value)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.queue;
+
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.queue.RollCycle;
+import net.openhft.chronicle.queue.impl.RollingChronicleQueue;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static net.openhft.chronicle.queue.TailerDirection.BACKWARD;
+
+/**
+ * Works out queue indexes from row positions using the roll cycle index arithmetic, an index is
+ * the cycle in the high bits and the sequence number within that cycle in the low bits, so
+ * within a cycle no excerpts have to be read.
+ * <p>
+ * The number of excerpts in each cycle before the last one is found with a binary search of
+ * moveToIndex and cached, as those cycles no longer change.
+ */
+class QueueRowIndex {
+
+    @NotNull
+    private final RollingChronicleQueue queue;
+    @NotNull
+    private final RollCycle rollCycle;
+    private final Map<Integer, Long> cycleCounts = new HashMap<>();
+    private ExcerptTailer endTailer;
+    private ExcerptTailer seekTailer;
+
+    // the total number of excerpts in the cycles before countedToCycle.
+    private int countedToCycle = Integer.MIN_VALUE;
+    private long countedBefore;
+
+    QueueRowIndex(@NotNull RollingChronicleQueue queue) {
+        this.queue = queue;
+        this.rollCycle = queue.rollCycle();
+    }
+
+    /**
+     * @return the total number of excerpts in the queue.
+     */
+    synchronized long excerpts() {
+        final long lastIndex = lastIndex();
+        if (lastIndex == 0)
+            return 0;
+
+        final int lastCycle = rollCycle.toCycle(lastIndex);
+        if (countedToCycle < firstCycle()) {
+            countedToCycle = firstCycle();
+            countedBefore = 0;
+        }
+        for (; countedToCycle < lastCycle; countedToCycle++)
+            countedBefore += excerptsInCycle(countedToCycle);
+
+        return countedBefore + rollCycle.toSequenceNumber(lastIndex) + 1;
+    }
+
+    /**
+     * @param countFromEnd the number of excerpts to include, counting back from the last one
+     * @return the index of the first of those excerpts, the first index in the queue if it has
+     * fewer excerpts, or 0 if the queue is empty
+     */
+    synchronized long indexFromEnd(long countFromEnd) {
+        final long lastIndex = lastIndex();
+        if (lastIndex == 0)
+            return 0;
+
+        final int firstCycle = firstCycle();
+        int cycle = rollCycle.toCycle(lastIndex);
+        long seq = rollCycle.toSequenceNumber(lastIndex);
+        // the number of excerpts before the last one still to step back over.
+        long remaining = countFromEnd - 1;
+
+        for (; ; ) {
+            if (remaining <= seq)
+                return rollCycle.toIndex(cycle, seq - remaining);
+            remaining -= seq + 1;
+
+            long count;
+            do {
+                if (--cycle < firstCycle)
+                    return queue.firstIndex();
+                count = excerptsInCycle(cycle);
+            } while (count == 0);
+            seq = count - 1;
+        }
+    }
+
+    /**
+     * @param row the position of the excerpt from the start of the queue, starting at 0
+     * @return the index of that excerpt, or -1 if the queue has no more than {@code row}
+     * excerpts
+     */
+    synchronized long indexOfRow(long row) {
+        final long lastIndex = lastIndex();
+        if (lastIndex == 0)
+            return -1;
+
+        final int lastCycle = rollCycle.toCycle(lastIndex);
+        for (int cycle = firstCycle(); cycle < lastCycle; cycle++) {
+            final long count = excerptsInCycle(cycle);
+            if (row < count)
+                return rollCycle.toIndex(cycle, row);
+            row -= count;
+        }
+        return row <= rollCycle.toSequenceNumber(lastIndex)
+                ? rollCycle.toIndex(lastCycle, row)
+                : -1;
+    }
+
+    private long lastIndex() {
+        if (endTailer == null)
+            endTailer = queue.createTailer().direction(BACKWARD);
+        return endTailer.toEnd().index();
+    }
+
+    private int firstCycle() {
+        return rollCycle.toCycle(queue.firstIndex());
+    }
+
+    private long excerptsInCycle(int cycle) {
+        final Long count = cycleCounts.get(cycle);
+        if (count != null)
+            return count;
+
+        final long count0 = countExcerpts(cycle);
+        cycleCounts.put(cycle, count0);
+        return count0;
+    }
+
+    private long countExcerpts(int cycle) {
+        if (!exists(cycle, 0))
+            return 0;
+
+        // exists(lo) and !exists(hi) once the first loop ends.
+        long lo = 0, hi = 1;
+        while (exists(cycle, hi)) {
+            lo = hi;
+            hi <<= 1;
+        }
+        while (hi - lo > 1) {
+            final long mid = (lo + hi) >>> 1;
+            if (exists(cycle, mid))
+                lo = mid;
+            else
+                hi = mid;
+        }
+        return lo + 1;
+    }
+
+    private boolean exists(int cycle, long seq) {
+        if (seekTailer == null)
+            seekTailer = queue.createTailer();
+        return seekTailer.moveToIndex(rollCycle.toIndex(cycle, seq));
+    }
+}
@@ -9,10 +9,9 @@ import net.openhft.chronicle.engine.api.tree.Asset;
 import net.openhft.chronicle.engine.api.tree.RequestContext;
 import net.openhft.chronicle.engine.map.ObjectSubscription;
 import net.openhft.chronicle.engine.map.VanillaMapView;
+import net.openhft.chronicle.engine.tree.ChronicleQueueView;
 import net.openhft.chronicle.engine.tree.QueueView;
-import net.openhft.chronicle.queue.ExcerptTailer;
-import net.openhft.chronicle.queue.impl.single.SingleChronicleQueue;
-import net.openhft.chronicle.wire.DocumentContext;
+import net.openhft.chronicle.queue.impl.RollingChronicleQueue;
 import net.openhft.chronicle.wire.FieldInfo;
 import net.openhft.chronicle.wire.Marshallable;
 import net.openhft.chronicle.wire.Wires;
@@ -20,14 +19,11 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.function.Predicate;
 import java.util.stream.StreamSupport;
 
 import static java.util.Spliterators.spliteratorUnknownSize;
 import static net.openhft.chronicle.core.util.ObjectUtils.convertTo;
-import static net.openhft.chronicle.queue.TailerDirection.BACKWARD;
 import static net.openhft.chronicle.wire.Wires.fieldInfos;
 
 /**
@@ -35,12 +31,24 @@ import static net.openhft.chronicle.wire.Wires.fieldInfos;
  */
 public class QueueWrappingColumnView<K, V> implements QueueColumnView {
 
+    private static final int MAX_FILTERED_ROWS = 8;
+
     private final Asset asset;
     @NotNull
     private final QueueView<String, V> queueView;
     @Nullable
     private ArrayList<String> columnNames = null;
     private final Class<?> messageClass;
+    @Nullable
+    private QueueRowIndex rowIndex;
+    // the running row counts for the most recently used filters.
+    private final Map<List<MarshableFilter>, FilteredRows<V>> filteredRows =
+            new LinkedHashMap<List<MarshableFilter>, FilteredRows<V>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<List<MarshableFilter>, FilteredRows<V>> eldest) {
+                    return size() > MAX_FILTERED_ROWS;
+                }
+            };
 
     public QueueWrappingColumnView(
             RequestContext requestContext,
@@ -65,7 +73,7 @@ public class QueueWrappingColumnView<K, V> implements QueueColumnView {
     private ClosableIterator<ChronicleQueueRow> iteratorWithCountFromEnd(
             @NotNull final List<MarshableFilter> filters,
             long countFromEnd) {
-        final long index = toIndexFromEnd(countFromEnd);
+        final long index = rowIndex().indexFromEnd(countFromEnd);
         return toIterator(filters, index);
     }
 
@@ -79,40 +87,58 @@ public class QueueWrappingColumnView<K, V> implements QueueColumnView {
             return iterator(filters.marshableFilters, filters.fromIndex);
     }
 
-    @NotNull
-    Map<List<MarshableFilter>, NavigableMap<Long, ChronicleQueueRow>> indexCache = new ConcurrentHashMap<>();
-
     @NotNull
     private ClosableIterator<ChronicleQueueRow> iterator(@NotNull final List<MarshableFilter> filters, long fromSequenceNumber) {
-        long count = 0;
-        final NavigableMap<Long, ChronicleQueueRow> map = indexCache.computeIfAbsent(filters, k -> new ConcurrentSkipListMap<>());
-        final Map.Entry<Long, ChronicleQueueRow> longChronicleQueueRowEntry = map.floorEntry(fromSequenceNumber);
-
-        final long index0;
+        if (fromSequenceNumber <= 0)
+            return toIterator(filters, 0);
 
-        if (longChronicleQueueRowEntry != null) {
-            ChronicleQueueRow value = longChronicleQueueRowEntry.getValue();
-            count = value.seqNumber();
-            index0 = longChronicleQueueRowEntry.getValue().index();
-        } else
-            index0 = 0;
+        final long index = filters.isEmpty()
+                ? rowIndex().indexOfRow(fromSequenceNumber)
+                : filteredRows(filters).startOfRow(fromSequenceNumber);
+        if (index == -1)
+            return emptyIterator();
 
-        @NotNull final ClosableIterator<ChronicleQueueRow> result = toIterator(filters, index0);
+        return toIterator(filters, index);
+    }
 
-        @Nullable ChronicleQueueRow r = null;
-        while (count < fromSequenceNumber && result.hasNext()) {
-            r = result.next();
-            count++;
-            r.seqNumber(count);
-            if (r.seqNumber() % 1024 == 0)
-                map.put(count, r);
+    @NotNull
+    private synchronized QueueRowIndex rowIndex() {
+        if (rowIndex == null)
+            rowIndex = new QueueRowIndex((RollingChronicleQueue) queueView.underlying());
+        return rowIndex;
+    }
 
+    @NotNull
+    private synchronized FilteredRows<V> filteredRows(@NotNull List<MarshableFilter> filters) {
+        @NotNull final List<MarshableFilter> key = new ArrayList<>(filters);
+        FilteredRows<V> rows = filteredRows.get(key);
+        if (rows == null) {
+            @NotNull final ChronicleQueueView<String, V> chronicleQueueView = (ChronicleQueueView<String, V>) queueView;
+            rows = new FilteredRows<>(filter(key), chronicleQueueView::tailer);
+            filteredRows.put(key, rows);
         }
+        return rows;
+    }
 
-        if (longChronicleQueueRowEntry == null && r != null)
-            map.put(r.seqNumber(), r);
+    @NotNull
+    private static ClosableIterator<ChronicleQueueRow> emptyIterator() {
+        return new ClosableIterator<ChronicleQueueRow>() {
+            @Override
+            public void close() {
+                // do nothing
+            }
 
-        return result;
+            @Override
+            public boolean hasNext() {
+                return false;
+            }
+
+            @NotNull
+            @Override
+            public ChronicleQueueRow next() {
+                throw new NoSuchElementException();
+            }
+        };
     }
 
     @NotNull
@@ -191,30 +217,6 @@ public class QueueWrappingColumnView<K, V> implements QueueColumnView {
         };
     }
 
-    private long toIndexFromEnd(long countFromEnd) {
-        long fromSequenceNumber = -1;
-
-        if (countFromEnd > 0) {
-            @Nullable final SingleChronicleQueue chronicleQueue = (SingleChronicleQueue) queueView.underlying();
-
-            @NotNull final ExcerptTailer excerptTailer = chronicleQueue.createTailer().direction(BACKWARD).toEnd();
-            fromSequenceNumber = excerptTailer.index();
-            if (fromSequenceNumber == 0)
-                return 0;
-
-            for (int i = 0; i < countFromEnd; i++) {
-
-                try (DocumentContext documentContext = excerptTailer.readingDocument()) {
-                    if (!documentContext.isPresent())
-                        break;
-                    fromSequenceNumber = documentContext.index();
-                }
-            }
-
-        }
-        return fromSequenceNumber;
-    }
-
     @Override
     public boolean containsRowWithKey(@NotNull List keys) {
         if (keys.size() == 1 && keys.get(0) instanceof String) {
@@ -356,55 +358,22 @@ public class QueueWrappingColumnView<K, V> implements QueueColumnView {
     @Override
     public int rowCount(@NotNull SortedFilter filters) {
 
-        long countFromEnd = filters.countFromEnd;
-
-        if (countFromEnd > 0) {
-            int count0 = 0;
-            @NotNull ClosableIterator<ChronicleQueueRow> iterator = iterator(filters);
-
-            while (iterator.hasNext()) {
-                iterator.next();
-                count0++;
-            }
-            return count0;
-        }
-
+        final List<MarshableFilter> marshableFilters = filters.marshableFilters;
+        final long countFromEnd = filters.countFromEnd;
+        final long count;
 
-        final NavigableMap<Long, ChronicleQueueRow> map = indexCache.computeIfAbsent(filters.marshableFilters, k
-                -> new ConcurrentSkipListMap<>());
+        if (marshableFilters.isEmpty()) {
+            final long excerpts = rowIndex().excerpts();
+            count = countFromEnd > 0 ? Math.min(countFromEnd, excerpts) : excerpts;
 
-        Iterator<ChronicleQueueRow> iterator;
+        } else if (countFromEnd > 0) {
+            final long index = rowIndex().indexFromEnd(countFromEnd);
+            count = filteredRows(marshableFilters).rowsFrom(index);
 
-        long count = 0;
-        if (map != null) {
-            final Map.Entry<Long, ChronicleQueueRow> last = map.lastEntry();
-            if (last == null) {
-                iterator = iterator(filters);
-            } else {
-                final ChronicleQueueRow value = last.getValue();
-                count = value.seqNumber();
-                filters.fromIndex = last.getValue().index();
-                iterator = iterator(filters);
-            }
         } else
-            iterator = iterator(filters);
-
-        boolean hasMoreData = false;
-        @Nullable ChronicleQueueRow row = null;
-
-        while (iterator.hasNext()) {
-            row = iterator.next();
-            count++;
-            row.seqNumber(count);
-            hasMoreData = true;
-            if (row.seqNumber() % 1024 == 0)
-                map.put(count, row);
-        }
-
-        if (hasMoreData)
-            map.put(count, row);
+            count = filteredRows(marshableFilters).rows();
 
-        return (int) count;
+        return (int) Math.min(count, Integer.MAX_VALUE);
     }
 
 }
\ No newline at end of file
@@ -177,11 +177,11 @@ abstract class AbstractHandler {
     /**
      * @param publisher
      * @return If the throttlePeriodMs is set returns a throttled wire out publisher, otherwise the
-     * original
+     * original. A conflating subscription uses the throttlePeriodMs as its flush period instead.
      */
     @NotNull
     WireOutPublisher publisher(@NotNull final WireOutPublisher publisher) {
-        return requestContext.throttlePeriodMs() == 0 ?
+        return requestContext.throttlePeriodMs() == 0 || Boolean.TRUE.equals(requestContext.conflate()) ?
                 publisher :
                 newThrottledWireOutPublisher(requestContext.throttlePeriodMs(), publisher);
     }
@@ -1,5 +1,6 @@
 package net.openhft.chronicle.engine.server.internal;
 
+import net.openhft.chronicle.wire.WireOut;
 import org.jetbrains.annotations.NotNull;
 
 /**
@@ -15,5 +16,11 @@ interface CspManager {
 
     long createProxy(String type);
 
+    /**
+     * Creates a proxy as {@link #createProxy(String)} but writes the reply to {@code out}, e.g. a
+     * buffer published once the earlier replies of the connection have been.
+     */
+    long createProxy(String type, @NotNull WireOut out);
+
     long createProxy(String type, long token);
 }
@@ -32,7 +32,8 @@ import net.openhft.chronicle.engine.api.tree.Asset;
 import net.openhft.chronicle.engine.api.tree.AssetNotFoundException;
 import net.openhft.chronicle.engine.api.tree.RequestContext;
 import net.openhft.chronicle.engine.api.tree.RequestContextInterner;
-import net.openhft.chronicle.engine.cfg.UserStat;
+import net.openhft.chronicle.engine.cfg.MapOffloadCfg;
+import net.openhft.chronicle.engine.cfg.MonitorStats;
 import net.openhft.chronicle.engine.collection.CollectionWireHandler;
 import net.openhft.chronicle.engine.map.ObjectSubscription;
 import net.openhft.chronicle.engine.tree.HostIdentifier;
@@ -50,7 +51,6 @@ import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.time.LocalTime;
 import java.util.*;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicLong;
@@ -117,6 +117,11 @@ public class EngineWireHandler extends WireTcpHandler<EngineWireNetworkContext>
     @Nullable
     private EventLoop eventLoop;
     private boolean isServerSocket;
+    @Nullable
+    private MonitorStats monitorStats;
+    // the counters of the user of this session, once logged in.
+    @Nullable
+    private MonitorStats.UserCounters userCounters;
     private Asset contextAsset;
 
     private WireAdapter<?, ?> wireAdapter;
@@ -138,6 +143,14 @@ public class EngineWireHandler extends WireTcpHandler<EngineWireNetworkContext>
 
     @Nullable
     private Class viewType;
+    // the handler for viewType, so a data message is dispatched without checking its type.
+    @Nullable
+    private ViewHandler viewHandler;
+    // the map events of the current csp to run off the event loop, if any.
+    @Nullable
+    private MapOffloadCfg mapOffloadCfg;
+    @NotNull
+    private final Map<Class, ViewHandler> handlerByViewType = new HashMap<>();
     private long tid;
     private long cid;
 
@@ -195,6 +208,7 @@ public class EngineWireHandler extends WireTcpHandler<EngineWireNetworkContext>
 
 
         this.sessionProvider = rootAsset.getView(SessionProvider.class);
+        this.monitorStats = rootAsset.getView(MonitorStats.class);
         this.eventLoop = rootAsset.findOrCreateView(EventLoop.class);
         assert eventLoop != null;
 
@@ -254,6 +268,7 @@ public class EngineWireHandler extends WireTcpHandler<EngineWireNetworkContext>
                             contextAsset = this.rootAsset.acquireAsset(fullName);
 
                         viewType = requestContext.viewType();
+                        viewHandler = null;
                         if (viewType == null) {
                             if (LOG.isDebugEnabled())
                                 Jvm.debug().on(getClass(), "received system-meta-data");
@@ -282,6 +297,8 @@ public class EngineWireHandler extends WireTcpHandler<EngineWireNetworkContext>
                                     : requestContext.valueType();
 
                             wireAdapter = new GenericWireAdapter<>(type, type2);
+                            viewHandler = handlerByViewType.computeIfAbsent(viewType, this::resolveHandler);
+                            mapOffloadCfg = contextAsset.findView(MapOffloadCfg.class);
                         } else {
                             throw new UnsupportedOperationException("unsupported view type");
                         }
@@ -302,6 +319,80 @@ public class EngineWireHandler extends WireTcpHandler<EngineWireNetworkContext>
 
     }
 
+    /**
+     * @return the handler for this view type, or null if its messages are ignored. The handler
+     * reads the view and the request details from the fields set by the last meta data.
+     */
+    @Nullable
+    private ViewHandler resolveHandler(@NotNull Class viewType) {
+        if (MapView.class.isAssignableFrom(viewType))
+            return (in, out) -> mapWireHandler.process(in, out, (MapView) view, tid, wireAdapter,
+                    requestContext, mapOffloadCfg, publisher(), wireType());
+
+        if (EntrySetView.class.isAssignableFrom(viewType))
+            return (in, out) -> entrySetHandler.process(in, out, (EntrySetView) view,
+                    wireAdapter.entryToWire(),
+                    wireAdapter.wireToEntry(), HashSet::new, tid);
+
+        if (KeySetView.class.isAssignableFrom(viewType))
+            return (in, out) -> keySetHandler.process(in, out, (KeySetView) view,
+                    wireAdapter.keyToWire(),
+                    wireAdapter.wireToKey(), HashSet::new, tid);
+
+        if (MapColumnView.class.isAssignableFrom(viewType) || QueueColumnView.class.isAssignableFrom(viewType) ||
+                viewType == ColumnView.class)
+            return (in, out) -> columnViewHandler.process(in, out, (ColumnViewInternal) view, tid);
+
+        if (ColumnViewIterator.class.isAssignableFrom(viewType))
+            return (in, out) -> columnViewIteratorHandler.process(in, out, tid, (Iterator<Row>) view, cid);
+
+        if (ValuesCollection.class.isAssignableFrom(viewType))
+            return (in, out) -> valuesHandler.process(in, out, (ValuesCollection) view,
+                    wireAdapter.keyToWire(),
+                    wireAdapter.wireToKey(), ArrayList::new, tid);
+
+        if (ObjectSubscription.class.isAssignableFrom(viewType))
+            return (in, out) -> subscriptionHandler.process(in,
+                    requestContext, publisher(), contextAsset, tid,
+                    outWire, (SubscriptionCollection) view);
+
+        if (TopologySubscription.class.isAssignableFrom(viewType))
+            return (in, out) -> topologySubscriptionHandler.process(in,
+                    requestContext, publisher(), contextAsset, tid,
+                    outWire, (TopologySubscription) view);
+
+        if (Reference.class.isAssignableFrom(viewType))
+            return (in, out) -> referenceHandler.process(in, requestContext,
+                    publisher(), tid,
+                    (Reference) view, cspText, outWire, wireAdapter);
+
+        if (TopicPublisher.class.isAssignableFrom(viewType) || QueueView.class.isAssignableFrom(viewType))
+            return (in, out) -> topicPublisherHandler.process(in, publisher(), tid, outWire,
+                    (TopicPublisher) view, wireAdapter);
+
+        if (Publisher.class.isAssignableFrom(viewType))
+            return (in, out) -> publisherHandler.process(in, requestContext,
+                    publisher(), tid,
+                    (Publisher) view, outWire, wireAdapter);
+
+        if (Replication.class.isAssignableFrom(viewType))
+            return (in, out) -> replicationHandler.process(in,
+                    publisher(), tid, outWire,
+                    hostIdentifier,
+                    (Replication) view,
+                    eventLoop);
+
+        if (IndexQueueView.class.isAssignableFrom(viewType))
+            return (in, out) -> indexQueueViewHandler.process(in, requestContext, contextAsset,
+                    publisher(), tid,
+                    outWire);
+
+        if (VaadinChart.class.isAssignableFrom(viewType))
+            return (in, out) -> barChatHandler.process(in, out, (VaadinChart) view, tid);
+
+        return null;
+    }
+
     private boolean isValid(@NotNull Class viewType) {
         for (@NotNull Class v : views) {
             if (v.isAssignableFrom(viewType))
@@ -376,7 +467,7 @@ public class EngineWireHandler extends WireTcpHandler<EngineWireNetworkContext>
                 };
 
                 if (isSystemMessage) {
-                    systemHandler.process(in, out, tid, sessionDetails, getMonitoringMap(),
+                    systemHandler.process(in, out, tid, sessionDetails, monitorStats,
                             isServerSocket, this::publisher, hostIdentifier, wireTypeConsumer,
                             wireType());
                     if (!systemHandler.wasHeartBeat()) {
@@ -390,115 +481,15 @@ public class EngineWireHandler extends WireTcpHandler<EngineWireNetworkContext>
                     logBufferToStandardOut(prevLogMessage.append(currentLogMessage));
                 }
 
-                @Nullable Map<String, UserStat> userMonitoringMap = getMonitoringMap();
-                if (userMonitoringMap != null) {
-                    UserStat userStat = userMonitoringMap.get(sessionDetails.userId());
-                    if (userStat == null) {
-                        throw new AssertionError("User should have been logged in");
-                    }
-                    //Use timeInMillis
-                    userStat.setRecentInteraction(LocalTime.now());
-                    userStat.setTotalInteractions(userStat.getTotalInteractions() + 1);
-                    userMonitoringMap.put(sessionDetails.userId(), userStat);
+                if (monitorStats != null) {
+                    if (userCounters == null)
+                        userCounters = monitorStats.user(sessionDetails.userId());
+                    if (userCounters != null)
+                        userCounters.interaction();
                 }
 
-                if (wireAdapter != null) {
-
-                    if (viewType == null)
-                        return;
-
-                    if (MapView.class.isAssignableFrom(viewType)) {
-                        mapWireHandler.process(in, out, (MapView) view, tid, wireAdapter,
-                                requestContext);
-                        return;
-                    }
-
-                    if (EntrySetView.class.isAssignableFrom(viewType)) {
-                        entrySetHandler.process(in, out, (EntrySetView) view,
-                                wireAdapter.entryToWire(),
-                                wireAdapter.wireToEntry(), HashSet::new, tid);
-                        return;
-                    }
-
-                    if (KeySetView.class.isAssignableFrom(viewType)) {
-                        keySetHandler.process(in, out, (KeySetView) view,
-                                wireAdapter.keyToWire(),
-                                wireAdapter.wireToKey(), HashSet::new, tid);
-                        return;
-                    }
-
-                    if (MapColumnView.class.isAssignableFrom(viewType) || QueueColumnView.class.isAssignableFrom(viewType) ||
-                            viewType == ColumnView.class) {
-                        columnViewHandler.process(in, out, (ColumnViewInternal) view, tid);
-                        return;
-                    }
-
-                    if (ColumnViewIterator.class.isAssignableFrom(viewType)) {
-                        columnViewIteratorHandler.process(in, out, tid, (Iterator<Row>) view, cid);
-                        return;
-                    }
-
-                    if (ValuesCollection.class.isAssignableFrom(viewType)) {
-                        valuesHandler.process(in, out, (ValuesCollection) view,
-                                wireAdapter.keyToWire(),
-                                wireAdapter.wireToKey(), ArrayList::new, tid);
-                        return;
-                    }
-
-                    if (ObjectSubscription.class.isAssignableFrom(viewType)) {
-                        subscriptionHandler.process(in,
-                                requestContext, publisher(), contextAsset, tid,
-                                outWire, (SubscriptionCollection) view);
-                        return;
-                    }
-
-                    if (TopologySubscription.class.isAssignableFrom(viewType)) {
-                        topologySubscriptionHandler.process(in,
-                                requestContext, publisher(), contextAsset, tid,
-                                outWire, (TopologySubscription) view);
-                        return;
-                    }
-
-                    if (Reference.class.isAssignableFrom(viewType)) {
-                        referenceHandler.process(in, requestContext,
-                                publisher(), tid,
-                                (Reference) view, cspText, outWire, wireAdapter);
-                        return;
-                    }
-
-                    if (TopicPublisher.class.isAssignableFrom(viewType) || QueueView.class.isAssignableFrom(viewType)) {
-                        topicPublisherHandler.process(in, publisher(), tid, outWire,
-                                (TopicPublisher) view, wireAdapter);
-                        return;
-                    }
-
-                    if (Publisher.class.isAssignableFrom(viewType)) {
-                        publisherHandler.process(in, requestContext,
-                                publisher(), tid,
-                                (Publisher) view, outWire, wireAdapter);
-                        return;
-                    }
-
-                    if (Replication.class.isAssignableFrom(viewType)) {
-                        replicationHandler.process(in,
-                                publisher(), tid, outWire,
-                                hostIdentifier,
-                                (Replication) view,
-                                eventLoop);
-                        return;
-                    }
-
-                    if (IndexQueueView.class.isAssignableFrom(viewType)) {
-                        indexQueueViewHandler.process(in, requestContext, contextAsset,
-                                publisher(), tid,
-                                outWire);
-                        return;
-                    }
-
-                    if (VaadinChart.class.isAssignableFrom(viewType)) {
-                        barChatHandler.process(in, out, (VaadinChart) view, tid);
-                    }
-                }
+                if (wireAdapter != null && viewHandler != null)
+                    viewHandler.process(in, out);
 
             } catch (Exception e) {
 
@@ -513,16 +504,6 @@ public class EngineWireHandler extends WireTcpHandler<EngineWireNetworkContext>
         }
     }
 
-    @Nullable
-    private Map<String, UserStat> getMonitoringMap() {
-        @Nullable Map<String, UserStat> userMonitoringMap = null;
-        @Nullable Asset userAsset = rootAsset.root().getAsset("proc/users");
-        if (userAsset != null && userAsset.getView(MapView.class) != null) {
-            userMonitoringMap = userAsset.getView(MapView.class);
-        }
-        return userMonitoringMap;
-    }
-
     private void logYamlToStandardOut(@NotNull WireIn in) {
         if (YamlLogging.showServerReads()) {
             try {
@@ -653,9 +634,14 @@ public class EngineWireHandler extends WireTcpHandler<EngineWireNetworkContext>
 
     @Override
     public long createProxy(final String type) {
+        return createProxy(type, outWire);
+    }
+
+    @Override
+    public long createProxy(final String type, @NotNull final WireOut out) {
         createProxy0(type, cspBuff);
         final long cid = acquireCid(cspBuff);
-        outWire.writeEventName(reply).typePrefix("set-proxy")
+        out.writeEventName(reply).typePrefix("set-proxy")
                 .marshallable(w -> {
                     w.writeEventName(CoreFields.csp).text(cspBuff);
                     w.writeEventName(CoreFields.cid).int64(cid);
@@ -703,5 +689,8 @@ public class EngineWireHandler extends WireTcpHandler<EngineWireNetworkContext>
         cidToCsp.put(cid, csp);
     }
 
-
-}
\ No newline at end of file
+    @FunctionalInterface
+    private interface ViewHandler {
+        void process(@NotNull WireIn in, @NotNull WireOut out);
+    }
+}
@@ -59,6 +59,7 @@ public class EngineWireNetworkContext<T extends EngineWireNetworkContext>
     private MapView<ConnectionDetails, ConnectionEvent> hostByConnectionStatus;
     private MapView<String, ConnectionStatus> connectivityHosts;
     private TcpHandler handler;
+    private final String clusterName;
 
     public TcpHandler handler() {
         return handler;
@@ -66,6 +67,7 @@ public class EngineWireNetworkContext<T extends EngineWireNetworkContext>
 
     public EngineWireNetworkContext(@NotNull Asset asset, String clusterName) {
         this.rootAsset = asset.root();
+        this.clusterName = clusterName;
         // TODO make configurable
         serverThreadingStrategy(ServerThreadingStrategy.CONCURRENT);
         ((VanillaAsset) rootAsset.acquireAsset("/proc")).configMapServer();
@@ -86,6 +88,13 @@ public class EngineWireNetworkContext<T extends EngineWireNetworkContext>
         return this.rootAsset;
     }
 
+    /**
+     * @return the name of the cluster this connection belongs to.
+     */
+    public String clusterName() {
+        return clusterName;
+    }
+
     @Override
     public void onHandlerChanged(TcpHandler handler) {
         this.handler = handler;
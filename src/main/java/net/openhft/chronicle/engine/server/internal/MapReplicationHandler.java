@@ -17,6 +17,9 @@
 
 package net.openhft.chronicle.engine.server.internal;
 
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.core.Jvm;
 import net.openhft.chronicle.core.annotation.UsedViaReflection;
 import net.openhft.chronicle.core.io.Closeable;
 import net.openhft.chronicle.core.threads.EventHandler;
@@ -27,7 +30,15 @@ import net.openhft.chronicle.engine.api.EngineReplication.ModificationIterator;
 import net.openhft.chronicle.engine.api.pubsub.Replication;
 import net.openhft.chronicle.engine.api.tree.Asset;
 import net.openhft.chronicle.engine.api.tree.RequestContext;
+import net.openhft.chronicle.engine.api.EngineReplication.ReplicationEntry;
+import net.openhft.chronicle.engine.cfg.EngineClusterContext;
+import net.openhft.chronicle.engine.cfg.ReplicationEncodingCfg;
+import net.openhft.chronicle.engine.fs.Clusters;
+import net.openhft.chronicle.engine.fs.EngineCluster;
 import net.openhft.chronicle.engine.map.CMap2EngineReplicator.VanillaReplicatedEntry;
+import net.openhft.chronicle.engine.map.ReplicationDeltaCodec;
+import net.openhft.chronicle.engine.map.ReplicationWireStats;
+import net.openhft.chronicle.engine.map.ValueCompression;
 import net.openhft.chronicle.engine.tree.HostIdentifier;
 import net.openhft.chronicle.network.cluster.AbstractSubHandler;
 import net.openhft.chronicle.network.connection.CoreFields;
@@ -38,7 +49,12 @@ import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
+import java.util.function.BiConsumer;
+
 import static java.lang.ThreadLocal.withInitial;
+import static net.openhft.chronicle.core.io.Closeable.closeQuietly;
+import static net.openhft.chronicle.engine.server.internal.MapReplicationHandler.EventId.replicationDelta;
 import static net.openhft.chronicle.engine.server.internal.MapReplicationHandler.EventId.replicationEvent;
 import static net.openhft.chronicle.network.connection.CoreFields.lastUpdateTime;
 
@@ -50,11 +66,19 @@ public class MapReplicationHandler extends AbstractSubHandler<EngineWireNetworkC
 
     private static final Logger LOG = LoggerFactory.getLogger(MapReplicationHandler.class);
     private final ThreadLocal<VanillaReplicatedEntry> vre = withInitial(VanillaReplicatedEntry::new);
+    // holds heap copies of the key and value of a delta, so isn't one of vre.
+    private final VanillaReplicatedEntry deltaEntry = new VanillaReplicatedEntry();
+    // decodes the deltas sent by the remote host, created on the first one.
+    @Nullable
+    private ReplicationDeltaCodec decoder;
+    private ReplicationWireStats stats;
     private Replication replication;
     private long timestamp;
 
     private byte localIdentifier;
     private volatile boolean closed;
+    // true once a delta couldn't be decoded, nothing more is applied until the connection is replaced.
+    private boolean resynchronising;
     @NotNull
     private Class keyType;
     @NotNull
@@ -93,9 +117,15 @@ public class MapReplicationHandler extends AbstractSubHandler<EngineWireNetworkC
     @Override
     public void onRead(@NotNull WireIn inWire, @NotNull WireOut outWire) {
 
+        final long wireBytes = inWire.bytes().readRemaining();
         final StringBuilder eventName = Wires.acquireStringBuilder();
         @NotNull final ValueIn valueIn = inWire.readEventName(eventName);
 
+        if (resynchronising) {
+            valueIn.skipValue();
+            return;
+        }
+
         if (lastUpdateTime.contentEquals(eventName)) {
             final long time = valueIn.int64();
             final byte id = inWire.read(() -> "id").int8();
@@ -108,7 +138,27 @@ public class MapReplicationHandler extends AbstractSubHandler<EngineWireNetworkC
             final VanillaReplicatedEntry entry = vre.get();
             entry.clear();
             valueIn.marshallable(entry);
+            if (decoder != null && entry.isDeleted())
+                decoder.removed(entry.key());
+            stats.onReceived((byte) remoteIdentifier(), wireBytes);
             replication.applyReplication(entry);
+            return;
+        }
+
+        if (replicationDelta.contentEquals(eventName)) {
+            if (decoder == null)
+                decoder = new ReplicationDeltaCodec();
+            @NotNull final ReplicationDeltaCodec codec = decoder;
+            try {
+                valueIn.marshallable(w -> codec.read(w, deltaEntry));
+
+            } catch (IllegalStateException e) {
+                Jvm.warn().on(getClass(), "Unable to decode a replicated entry of " + csp() + ", resynchronising", e);
+                resynchronise(codec);
+                return;
+            }
+            stats.onReceived((byte) remoteIdentifier(), wireBytes);
+            replication.applyReplication(deltaEntry);
         }
     }
 
@@ -121,6 +171,7 @@ public class MapReplicationHandler extends AbstractSubHandler<EngineWireNetworkC
         @NotNull Asset rootAsset = nc().rootAsset();
         @NotNull final RequestContext requestContext = RequestContext.requestContext(csp());
         @NotNull final Asset asset = rootAsset.acquireAsset(requestContext.fullName());
+        stats = acquireStats(asset);
 
         replication = asset.acquireView(Replication.class, RequestContext.requestContext(asset
                 .fullName()).keyType(keyType).valueType(valueType));
@@ -154,7 +205,55 @@ public class MapReplicationHandler extends AbstractSubHandler<EngineWireNetworkC
         if (!eventLoop.isAlive() && !eventLoop.isClosed())
             throw new IllegalStateException("the event loop is not yet running !");
 
-        eventLoop.addHandler(true, new ReplicationEventHandler(mi, (byte) remoteIdentifier()));
+        @Nullable final EngineClusterContext context = clusterContext(rootAsset);
+        eventLoop.addHandler(true, new ReplicationEventHandler(mi, (byte) remoteIdentifier(),
+                newEncoder(asset.findView(ReplicationEncodingCfg.class)),
+                context == null ? EngineClusterContext.defaultReplicationBatchEntries() : context.replicationBatchEntries(),
+                context == null ? EngineClusterContext.defaultReplicationBatchBytes() : context.replicationBatchBytes()));
+    }
+
+    /**
+     * The delta caches on the two sides no longer match, so the entries which follow can't be
+     * decoded. The rest of this connection is ignored, so the last modification time of the
+     * remote host doesn't move past the failed entry, and the connection is closed. On reconnect
+     * both sides start with empty caches and the remote host resends every entry since the last
+     * modification time, as it does on bootstrap.
+     */
+    private void resynchronise(@NotNull ReplicationDeltaCodec codec) {
+        resynchronising = true;
+        codec.clear();
+        decoder = null;
+        closeQuietly(nc().socketChannel());
+    }
+
+    @Nullable
+    private EngineClusterContext clusterContext(@NotNull Asset rootAsset) {
+        @Nullable final String clusterName = nc().clusterName();
+        @Nullable final Clusters clusters = rootAsset.findView(Clusters.class);
+        if (clusterName == null || clusters == null)
+            return null;
+        @Nullable final EngineCluster cluster = clusters.get(clusterName);
+        return cluster == null ? null : cluster.engineClusterContext();
+    }
+
+    @NotNull
+    private static ReplicationWireStats acquireStats(@NotNull Asset asset) {
+        synchronized (asset) {
+            @Nullable final ReplicationWireStats stats = asset.getView(ReplicationWireStats.class);
+            return stats != null ? stats : asset.addView(ReplicationWireStats.class, new ReplicationWireStats());
+        }
+    }
+
+    /**
+     * @return the codec to send entries with, or null if they are sent whole.
+     */
+    @Nullable
+    private ReplicationDeltaCodec newEncoder(@Nullable ReplicationEncodingCfg cfg) {
+        if (cfg == null || !cfg.appliesTo(nc().clusterName()))
+            return null;
+        if (!cfg.delta() && cfg.compression() == ValueCompression.NONE)
+            return null;
+        return new ReplicationDeltaCodec(cfg.compression(), cfg.compressAbove(), cfg.deltaCacheSize());
     }
 
     @Override
@@ -162,10 +261,30 @@ public class MapReplicationHandler extends AbstractSubHandler<EngineWireNetworkC
         this.closed = true;
     }
 
+    /**
+     * Writes up to {@code batchEntries} entries, stopping once about {@code batchBytes} have been
+     * written, each copied out under its own segment lock.
+     *
+     * @return the number of entries written
+     */
+    static int drain(@NotNull ModificationIterator mi, @NotNull WireOut wire, int batchEntries, int batchBytes,
+                     @NotNull BiConsumer<WireOut, ReplicationEntry> writer) {
+        final long start = wire.bytes().writePosition();
+        int count = 0;
+        while (count < batchEntries && wire.bytes().writePosition() - start < batchBytes && mi.hasNext()) {
+            if (mi.nextEntry(e -> writer.accept(wire, e)))
+                count++;
+            else
+                break;
+        }
+        return count;
+    }
+
     public enum EventId implements ParameterizeWireKey {
 
         replicationEvent,
-        bootstrap;
+        bootstrap,
+        replicationDelta;
 
         private final WireKey[] params;
 
@@ -186,15 +305,30 @@ public class MapReplicationHandler extends AbstractSubHandler<EngineWireNetworkC
 
         private final ModificationIterator mi;
         private final byte id;
+        @Nullable
+        private final ReplicationDeltaCodec encoder;
+        private final int batchEntries;
+        private final int batchBytes;
         boolean hasSentLastUpdateTime;
         long lastUpdateTime;
         boolean hasLogged;
         int count;
         long startBufferFullTimeStamp;
-
-        ReplicationEventHandler(ModificationIterator mi, byte id) {
+        // the length of the key and value of the entry being sent.
+        long rawBytes;
+        // the batch being drained, before it is published.
+        private final Bytes<ByteBuffer> buffer = Bytes.elasticHeapByteBuffer(1024);
+        private final Wire bufferWire;
+
+        ReplicationEventHandler(ModificationIterator mi, byte id, @Nullable ReplicationDeltaCodec encoder,
+                                int batchEntries, int batchBytes) {
             this.mi = mi;
             this.id = id;
+            this.encoder = encoder;
+            this.batchEntries = Math.max(1, batchEntries);
+            this.batchBytes = batchBytes;
+            @Nullable final WireType wireType = nc().wireType();
+            bufferWire = (wireType == null ? WireType.BINARY : wireType).apply(buffer);
             lastUpdateTime = 0;
             hasLogged = false;
             count = 0;
@@ -241,23 +375,45 @@ public class MapReplicationHandler extends AbstractSubHandler<EngineWireNetworkC
                 return false;
             }
 
-            mi.nextEntry(e -> publisher.put(null, w -> {
-                assert e.remoteIdentifier() != localIdentifier;
-                long newlastUpdateTime = Math.max(lastUpdateTime, e.timestamp());
+            // drains a bounded batch of entries into a buffer, each under its own segment lock, and
+            // only then locks the publisher to send the batch in one write, so a segment lock is
+            // never taken while holding the publisher lock.
+            buffer.clear();
+            drain(mi, bufferWire, batchEntries, batchBytes, this::write);
+            if (buffer.readRemaining() > 0)
+                publisher.put(null, w -> w.bytes().write(buffer));
+            return true;
+        }
+
+        private void write(@NotNull WireOut w, @NotNull ReplicationEntry e) {
+            assert e.remoteIdentifier() != localIdentifier;
+            long newlastUpdateTime = Math.max(lastUpdateTime, e.timestamp());
 
-                if (newlastUpdateTime > lastUpdateTime) {
-                    hasSentLastUpdateTime = false;
-                    lastUpdateTime = newlastUpdateTime;
-                }
+            if (newlastUpdateTime > lastUpdateTime) {
+                hasSentLastUpdateTime = false;
+                lastUpdateTime = newlastUpdateTime;
+            }
 
-                w.writeDocument(true, d -> d.write(CoreFields.cid).int64(cid()));
-                w.writeDocument(false,
-                        d -> {
+            final long start = w.bytes().writePosition();
+            w.writeDocument(true, d -> d.write(CoreFields.cid).int64(cid()));
+            w.writeDocument(false,
+                    d -> {
+                        if (encoder == null || e.isDeleted()) {
+                            // the remote host forgets the value of a deleted key too.
+                            if (encoder != null)
+                                encoder.removed(e.key());
                             d.writeEventName(replicationEvent).marshallable(e);
-                            d.writeComment("isAcceptor=" + nc().isAcceptor());
-                        });
-            }));
-            return true;
+                            rawBytes = length(e.key()) + length(e.value());
+                        } else {
+                            d.writeEventName(replicationDelta).marshallable(m -> rawBytes = encoder.write(m, e));
+                        }
+                        d.writeComment("isAcceptor=" + nc().isAcceptor());
+                    });
+            stats.onSent(id, rawBytes, w.bytes().writePosition() - start);
+        }
+
+        private long length(@Nullable BytesStore bytes) {
+            return bytes == null ? 0 : bytes.readRemaining();
         }
 
         @NotNull
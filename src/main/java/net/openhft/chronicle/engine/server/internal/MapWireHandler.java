@@ -21,21 +21,25 @@ package net.openhft.chronicle.engine.server.internal;
  * Created by Rob Austin
  */
 
+import net.openhft.chronicle.bytes.Bytes;
 import net.openhft.chronicle.core.Jvm;
 import net.openhft.chronicle.core.pool.StringBuilderPool;
 import net.openhft.chronicle.core.util.SerializableBiFunction;
 import net.openhft.chronicle.core.util.SerializableUpdaterWithArg;
 import net.openhft.chronicle.engine.api.map.MapView;
 import net.openhft.chronicle.engine.api.tree.RequestContext;
+import net.openhft.chronicle.engine.cfg.MapOffloadCfg;
 import net.openhft.chronicle.engine.map.remote.RemoteKeyValueStore;
 import net.openhft.chronicle.map.ChronicleMap;
 import net.openhft.chronicle.network.connection.CoreFields;
+import net.openhft.chronicle.network.connection.WireOutPublisher;
 import net.openhft.chronicle.wire.*;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 
@@ -65,6 +69,11 @@ public class MapWireHandler<K, V> extends AbstractHandler {
     private MapView<K, V> map;
     private boolean charSequenceValue;
     private long tid;
+    // runs the offloaded requests of this connection in order, with a handler of their own.
+    @Nullable
+    private OrderedWorker worker;
+    @Nullable
+    private MapWireHandler<K, V> offloadHandler;
     private final BiConsumer<WireIn, Long> dataConsumer = new BiConsumer<WireIn, Long>() {
 
         @SuppressWarnings("ConstantConditions")
@@ -154,7 +163,7 @@ public class MapWireHandler<K, V> extends AbstractHandler {
                             values.contentEquals(eventName) ||
                             entrySet.contentEquals(eventName)) {
                         skipValue(valueIn);
-                        cspManager.createProxy(eventName.toString());
+                        cspManager.createProxy(eventName.toString(), outWire);
                         return;
                     }
 
@@ -189,6 +198,17 @@ public class MapWireHandler<K, V> extends AbstractHandler {
                         return;
                     }
 
+                    if (getAll.contentEquals(eventName)) {
+                        outWire.writeEventName(reply).sequence(valueOut -> valueIn.sequence(map, (m, v) -> {
+                            while (v.hasNextSequenceItem()) {
+                                final K key = wireToK.apply(v);
+                                nullCheck(key);
+                                vToWire.accept(valueOut, m.get(key));
+                            }
+                        }));
+                        return;
+                    }
+
                     if (getAndPut.contentEquals(eventName)) {
                         valueIn.marshallable(wire -> {
 
@@ -324,6 +344,102 @@ public class MapWireHandler<K, V> extends AbstractHandler {
                         long tid,
                         @NotNull final WireAdapter wireAdapter,
                         @NotNull final RequestContext requestContext) {
+        process0(in, out, map, tid, wireAdapter, requestContext);
+    }
+
+    /**
+     * Runs the request on the worker pool if its event is offloaded, or if an earlier request of
+     * this connection is still waiting to run there, otherwise on the calling thread. Replies to
+     * an offloaded request are written to the publisher once it has run, so the replies of a
+     * connection are in the order of its requests.
+     * <p>
+     * The keySet, values and entrySet events create a proxy from the connection's state, so they
+     * always run on the calling thread. While the worker is busy their reply is buffered and
+     * published by the worker, behind the replies before it.
+     *
+     * @param offloadCfg the events to run on the worker pool, or null to run every event on the
+     *                   calling thread
+     */
+    public void process(@NotNull final WireIn in,
+                        @NotNull final WireOut out,
+                        @NotNull MapView map,
+                        long tid,
+                        @NotNull final WireAdapter wireAdapter,
+                        @NotNull final RequestContext requestContext,
+                        @Nullable final MapOffloadCfg offloadCfg,
+                        @NotNull final WireOutPublisher publisher,
+                        @NotNull final WireType wireType) {
+        final boolean busy = worker != null && worker.isBusy();
+        if (offloadCfg == null && !busy) {
+            process0(in, out, map, tid, wireAdapter, requestContext);
+            return;
+        }
+
+        peekEventName(in);
+        if (keySet.contentEquals(eventName) || values.contentEquals(eventName)
+                || entrySet.contentEquals(eventName)) {
+            if (!busy) {
+                process0(in, out, map, tid, wireAdapter, requestContext);
+                return;
+            }
+            @NotNull final Bytes<ByteBuffer> reply = Bytes.elasticHeapByteBuffer(128);
+            process0(in, wireType.apply(reply), map, tid, wireAdapter, requestContext);
+            worker.submit(() -> publish(publisher, reply));
+            return;
+        }
+
+        if (!busy && !offloadCfg.isOffloaded(eventName)) {
+            process0(in, out, map, tid, wireAdapter, requestContext);
+            return;
+        }
+
+        @NotNull final Bytes<?> inBytes = in.bytes();
+        @NotNull final Bytes<ByteBuffer> request = Bytes.elasticHeapByteBuffer((int) inBytes.readRemaining());
+        request.write(inBytes, inBytes.readPosition(), inBytes.readRemaining());
+        inBytes.readPosition(inBytes.readLimit());
+
+        if (worker == null) {
+            worker = new OrderedWorker();
+            offloadHandler = new MapWireHandler<>(cspManager);
+        }
+        @NotNull final MapWireHandler<K, V> handler = offloadHandler;
+        worker.submit(() -> {
+            @NotNull final Bytes<ByteBuffer> reply = Bytes.elasticHeapByteBuffer(128);
+            handler.process0(wireType.apply(request), wireType.apply(reply), map, tid, wireAdapter,
+                    requestContext);
+            publish(publisher, reply);
+        });
+    }
+
+    private static void publish(@NotNull WireOutPublisher publisher, @NotNull Bytes<ByteBuffer> reply) {
+        if (reply.readRemaining() == 0)
+            return;
+        synchronized (publisher) {
+            publisher.put(null, publish -> publish.bytes().write(reply));
+        }
+    }
+
+    /**
+     * reads the event name of the request, leaving it to be read again.
+     */
+    private void peekEventName(@NotNull WireIn in) {
+        @NotNull final Bytes<?> bytes = in.bytes();
+        final long readPosition = bytes.readPosition();
+        try {
+            eventName.setLength(0);
+            in.readEventName(eventName);
+
+        } finally {
+            bytes.readPosition(readPosition);
+        }
+    }
+
+    private void process0(@NotNull final WireIn in,
+                          @NotNull final WireOut out,
+                          @NotNull MapView map,
+                          long tid,
+                          @NotNull final WireAdapter wireAdapter,
+                          @NotNull final RequestContext requestContext) {
         this.vToWire = wireAdapter.valueToWire();
         this.wireToK = wireAdapter.wireToKey();
         this.wireToV = wireAdapter.wireToValue();
@@ -394,7 +510,8 @@ public class MapWireHandler<K, V> extends AbstractHandler {
         applyTo2(function, arg),
         update2(updateFunction, updateArg),
         update4(updateFunction, updateArg, function, arg),
-        bootstrap;
+        bootstrap,
+        getAll;
 
         private final WireKey[] params;
 
@@ -94,17 +94,26 @@ public final class ObjectKVSubscriptionHandler extends SubscriptionHandler<Subsc
                     final Class vClass = m.read(() -> "valueType").typeLiteral();
 
                     final StringBuilder eventName = Wires.acquireStringBuilder();
+                    @NotNull final StringBuilder uri = new StringBuilder(requestContext.fullName());
+                    char sep = '?';
+                    while (!m.isEmpty()) {
+                        @NotNull final ValueIn option = m.readEventName(eventName);
+                        if ("bootstrap".contentEquals(eventName))
+                            uri.append(sep).append("bootstrap=").append(option.bool());
+                        else if ("conflate".contentEquals(eventName))
+                            uri.append(sep).append("conflate=").append(option.bool());
+                        else if ("throttlePeriodMs".contentEquals(eventName))
+                            uri.append(sep).append("throttlePeriodMs=").append(option.int64());
+                        else {
+                            option.skipValue();
+                            continue;
+                        }
+                        sep = '&';
+                    }
 
-                    @NotNull final ValueIn bootstrap = m.readEventName(eventName);
                     assert listener != null;
                     tidToListener.put(inputTid, listener);
-
-                    if ("bootstrap".contentEquals(eventName))
-                        asset.registerTopicSubscriber(requestContext.fullName()
-                                + "?bootstrap=" + bootstrap.bool(), kClass, vClass, listener);
-                    else
-                        asset.registerTopicSubscriber(requestContext.fullName(), kClass,
-                                vClass, listener);
+                    asset.registerTopicSubscriber(uri.toString(), kClass, vClass, listener);
                 });
                 return;
             }
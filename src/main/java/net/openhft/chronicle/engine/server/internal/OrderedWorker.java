@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.server.internal;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.threads.NamedThreadFactory;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the tasks of one connection on a pool shared by every connection, one at a time and in
+ * the order they were submitted, so a connection's replies are published in the order its
+ * requests arrived while different connections run in parallel.
+ */
+class OrderedWorker {
+
+    private static final Executor WORKER_POOL = Executors.newFixedThreadPool(
+            Integer.getInteger("engine.map.workers", Runtime.getRuntime().availableProcessors()),
+            new NamedThreadFactory("map-worker", true));
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    // the number of tasks submitted which haven't finished.
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /**
+     * @return true if a task is queued or running, any request which follows should be submitted
+     * too, to keep it in order.
+     */
+    boolean isBusy() {
+        return pending.get() > 0;
+    }
+
+    void submit(@NotNull Runnable task) {
+        tasks.add(task);
+        if (pending.getAndIncrement() == 0)
+            WORKER_POOL.execute(this::drain);
+    }
+
+    private void drain() {
+        do {
+            final Runnable task = tasks.poll();
+            try {
+                task.run();
+
+            } catch (RuntimeException e) {
+                Jvm.warn().on(getClass(), "Failed to run " + task, e);
+            }
+        } while (pending.decrementAndGet() > 0);
+    }
+}
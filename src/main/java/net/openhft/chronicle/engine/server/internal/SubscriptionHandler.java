@@ -38,7 +38,6 @@ import java.util.concurrent.ConcurrentHashMap;
 
 import static net.openhft.chronicle.engine.server.internal.SubscriptionHandler.SubscriptionEventID.*;
 import static net.openhft.chronicle.network.connection.CoreFields.reply;
-import static net.openhft.chronicle.network.connection.WireOutPublisher.newThrottledWireOutPublisher;
 
 /*
  * Created by rob on 28/06/2015.
@@ -103,10 +102,7 @@ public class SubscriptionHandler<T extends SubscriptionCollection> extends Abstr
                 return true;
             }
 
-            final WireOutPublisher pub =
-                    (requestContext.throttlePeriodMs() == 0) ?
-                            publisher :
-                            newThrottledWireOutPublisher(requestContext.throttlePeriodMs(), publisher);
+            final WireOutPublisher pub = publisher(publisher);
 
             @NotNull Subscriber<Object> listener = new LocalSubscriber(tid, pub);
             tidToListener.put(tid, listener);
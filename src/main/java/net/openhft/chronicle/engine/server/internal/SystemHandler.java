@@ -17,7 +17,7 @@
 
 package net.openhft.chronicle.engine.server.internal;
 
-import net.openhft.chronicle.engine.cfg.UserStat;
+import net.openhft.chronicle.engine.cfg.MonitorStats;
 import net.openhft.chronicle.engine.tree.HostIdentifier;
 import net.openhft.chronicle.network.ClientClosedProvider;
 import net.openhft.chronicle.network.SessionMode;
@@ -28,8 +28,6 @@ import net.openhft.chronicle.wire.*;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.time.LocalTime;
-import java.util.Map;
 import java.util.UUID;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
@@ -46,7 +44,7 @@ public class SystemHandler extends AbstractHandler implements ClientClosedProvid
     private SessionDetailsProvider sessionDetails;
     private final WireParser<Void> wireParser = wireParser();
     @Nullable
-    private Map<String, UserStat> monitoringMap;
+    private MonitorStats monitorStats;
     private volatile boolean hasClientClosed;
     private boolean wasHeartBeat;
     @NotNull
@@ -58,11 +56,8 @@ public class SystemHandler extends AbstractHandler implements ClientClosedProvid
 
             if (EventId.userId.contentEquals(eventName)) {
                 this.sessionDetails.userId(valueIn.text());
-                if (this.monitoringMap != null) {
-                    @NotNull UserStat userStat = new UserStat();
-                    userStat.setLoggedIn(LocalTime.now());
-                    monitoringMap.put(sessionDetails.userId(), userStat);
-                }
+                if (this.monitorStats != null)
+                    monitorStats.loggedIn(sessionDetails.userId());
 
                 while (inWire.bytes().readRemaining() > 0)
                     wireParser.parseOne(inWire, null);
@@ -104,7 +99,7 @@ public class SystemHandler extends AbstractHandler implements ClientClosedProvid
     void process(@NotNull final WireIn inWire,
                  @NotNull final WireOut outWire, final long tid,
                  @NotNull final SessionDetailsProvider sessionDetails,
-                 @Nullable Map<String, UserStat> monitoringMap,
+                 @Nullable MonitorStats monitorStats,
                  boolean isServerSocket,
                  @Nullable Supplier<WireOutPublisher> publisher,
                  @Nullable final HostIdentifier hostId,
@@ -112,7 +107,7 @@ public class SystemHandler extends AbstractHandler implements ClientClosedProvid
 
         this.wasHeartBeat = false;
         this.sessionDetails = sessionDetails;
-        this.monitoringMap = monitoringMap;
+        this.monitorStats = monitorStats;
         setOutWire(outWire);
         dataConsumer.accept(inWire, tid);
 
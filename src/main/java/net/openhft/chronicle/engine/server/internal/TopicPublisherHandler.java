@@ -19,12 +19,17 @@ package net.openhft.chronicle.engine.server.internal;
 
 import net.openhft.chronicle.engine.api.pubsub.TopicPublisher;
 import net.openhft.chronicle.engine.api.pubsub.TopicSubscriber;
+import net.openhft.chronicle.engine.tree.IndexRange;
 import net.openhft.chronicle.engine.tree.QueueView;
 import net.openhft.chronicle.network.connection.WireOutPublisher;
 import net.openhft.chronicle.wire.*;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 
@@ -109,6 +114,11 @@ public class TopicPublisherHandler<T, M> extends AbstractHandler {
                     return;
                 }
 
+                if (publishAll.contentEquals(eventName)) {
+                    view.publishAll(readBatch(valueIn));
+                    return;
+                }
+
                 outWire.writeDocument(true, wire -> outWire.writeEventName(tid).int64(inputTid));
                 writeData(inWire, out -> {
 
@@ -134,6 +144,13 @@ public class TopicPublisherHandler<T, M> extends AbstractHandler {
 
                         });
                         out.writeEventName(reply).int64(index);
+                        return;
+                    }
+
+                    if (publishAllAndIndex.contentEquals(eventName)) {
+                        @Nullable final IndexRange range = ((QueueView<T, M>) view).publishAllAndIndex(readBatch(valueIn));
+                        // an empty batch is sent as a range of -1, which the client returns as null.
+                        out.writeEventName(reply).marshallable(range == null ? IndexRange.EMPTY : range);
                     }
 
                 });
@@ -144,6 +161,29 @@ public class TopicPublisherHandler<T, M> extends AbstractHandler {
         }
     };
 
+    /**
+     * Reads a batch written as a sequence of topic and message pairs.
+     */
+    @NotNull
+    private List<Map.Entry<T, M>> readBatch(@NotNull ValueIn valueIn) {
+        assert wireToT != null;
+        assert wireToM != null;
+
+        @NotNull final List<Map.Entry<T, M>> batch = new ArrayList<>();
+        valueIn.sequence(batch, (b, v) -> {
+            while (v.hasNextSequenceItem()) {
+                v.marshallable(wire -> {
+                    final T topic = wireToT.apply(wire.read(Params.topic));
+                    final M message = wireToM.apply(wire.read(Params.message));
+                    nullCheck(topic);
+                    nullCheck(message);
+                    b.add(new AbstractMap.SimpleImmutableEntry<>(topic, message));
+                });
+            }
+        });
+        return batch;
+    }
+
     @SuppressWarnings("unchecked")
     void process(@NotNull final WireIn inWire,
                  final WireOutPublisher publisher,
@@ -175,7 +215,9 @@ public class TopicPublisherHandler<T, M> extends AbstractHandler {
         getNextAtIndex(index),      // used only by the queue view
         getNextAtTopic(topic),      // used only by the queue view
         next,                // used only by the queue view
-        publishAndIndex(topic, message);     // used only by the queue view
+        publishAndIndex(topic, message),     // used only by the queue view
+        publishAll,
+        publishAllAndIndex;                  // used only by the queue view
 
         private final WireKey[] params;
 
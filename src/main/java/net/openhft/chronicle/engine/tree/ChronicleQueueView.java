@@ -36,7 +36,6 @@ import net.openhft.chronicle.engine.api.tree.RequestContext;
 import net.openhft.chronicle.engine.fs.Clusters;
 import net.openhft.chronicle.engine.fs.EngineCluster;
 import net.openhft.chronicle.engine.fs.EngineHostDetails;
-import net.openhft.chronicle.engine.map.VanillaKeyValueStore;
 import net.openhft.chronicle.engine.map.VanillaMapView;
 import net.openhft.chronicle.engine.pubsub.QueueTopicPublisher;
 import net.openhft.chronicle.engine.query.Filter;
@@ -73,6 +72,8 @@ public class ChronicleQueueView<T, M> implements QueueView<T, M>, MapView<T, M>,
         Closeable {
 
     private static final Logger LOG = LoggerFactory.getLogger(ChronicleQueueView.class);
+    private static final long DEFAULT_TOPICS = 1 << 16;
+    private static final int MAX_INDEX_BATCH = 256;
 
     @NotNull
     private final RollingChronicleQueue chronicleQueue;
@@ -96,6 +97,10 @@ public class ChronicleQueueView<T, M> implements QueueView<T, M>, MapView<T, M>,
 
     private volatile MapView<T, M> mapView;
 
+    @NotNull
+    private final TopicIndex topicIndex;
+    private volatile boolean closed;
+
     public ChronicleQueueView(@NotNull RequestContext context,
                               @NotNull Asset asset) throws IOException {
         this(null, context, asset);
@@ -121,6 +126,8 @@ public class ChronicleQueueView<T, M> implements QueueView<T, M>, MapView<T, M>,
         elementTypeClass = context.elementType();
         threadLocal = ThreadLocal.withInitial(() -> new ThreadLocalData(chronicleQueue));
         dontPersist = context.dontPersist();
+        topicIndex = new TopicIndex(dontPersist ? null : new File(chronicleQueue.file(), TopicIndex.FILE_NAME),
+                context.getEntries() > 0 ? context.getEntries() : DEFAULT_TOPICS);
 
         if (hostId != null)
             replication(context, asset);
@@ -139,6 +146,7 @@ public class ChronicleQueueView<T, M> implements QueueView<T, M>, MapView<T, M>,
                 return HandlerPriority.MONITOR;
             }
         });
+        eventLoop.addHandler(new TopicIndexer());
     }
 
     @NotNull
@@ -259,6 +267,13 @@ public class ChronicleQueueView<T, M> implements QueueView<T, M>, MapView<T, M>,
         return chronicleQueue;
     }
 
+    /**
+     * @return true if the queue files are deleted when the view is closed.
+     */
+    public boolean dontPersist() {
+        return dontPersist;
+    }
+
     public void replication(@NotNull RequestContext context, @NotNull Asset asset) {
         @Nullable final HostIdentifier hostIdentifier;
 
@@ -502,6 +517,20 @@ public class ChronicleQueueView<T, M> implements QueueView<T, M>, MapView<T, M>,
         return () -> ChronicleQueueView.this.next(tailer, localExcept);
     }
 
+    /**
+     * @param index the index to start reading from, if index==0 then reading starts from the first
+     *              index
+     * @return a tailer of its own, which doesn't move the tailer used by getExcerpt
+     */
+    @NotNull
+    public Tailer<T, M> tailer(long index) {
+        @NotNull final ExcerptTailer tailer = chronicleQueue.createTailer();
+        if (index != 0 && !tailer.moveToIndex(index))
+            tailer.toEnd();
+        @NotNull final LocalExcept localExcept = new LocalExcept();
+        return () -> ChronicleQueueView.this.next(tailer, localExcept);
+    }
+
     private Excerpt<T, M> next(@NotNull ExcerptTailer excerptTailer, @NotNull final LocalExcept excerpt) {
         excerpt.clear();
         try (DocumentContext dc = excerptTailer.readingDocument()) {
@@ -581,6 +610,44 @@ public class ChronicleQueueView<T, M> implements QueueView<T, M>, MapView<T, M>,
         }
     }
 
+    /**
+     * Unlike getExcerpt(topic) this doesn't scan the queue, the index of the latest excerpt for
+     * the topic is looked up in the topic index and read with a tailer of its own.
+     *
+     * @param topic the topic to look up
+     * @return the latest excerpt for this topic, or null if there is none or it was removed
+     */
+    @Nullable
+    public Excerpt<T, M> latestExcerpt(@NotNull T topic) {
+        final long index = topicIndex.valueIndex(topic.toString());
+        return index == -1 ? null : excerptAt(index);
+    }
+
+    @Nullable
+    Excerpt<T, M> excerptAt(long index) {
+        final ThreadLocalData threadLocalData = threadLocal.get();
+        @NotNull ExcerptTailer excerptTailer = threadLocalData.lookupTailer;
+        if (!excerptTailer.moveToIndex(index))
+            return null;
+
+        try (DocumentContext dc = excerptTailer.readingDocument()) {
+            if (!dc.isPresent())
+                return null;
+            final StringBuilder topic = Wires.acquireStringBuilder();
+            @Nullable final M message = dc.wire().readEventName(topic).object(elementTypeClass);
+
+            return threadLocalData.lookupExcerpt
+                    .message(message)
+                    .topic(convertTo(messageTypeClass, topic))
+                    .index(index);
+        }
+    }
+
+    @NotNull
+    TopicIndex topicIndex() {
+        return topicIndex;
+    }
+
     @Override
     public void set(T key, M element) {
         throw new UnsupportedOperationException("todo");
@@ -618,7 +685,41 @@ public class ChronicleQueueView<T, M> implements QueueView<T, M>, MapView<T, M>,
         try (final DocumentContext dc = excerptAppender.writingDocument()) {
             dc.wire().writeEvent(messageTypeClass, topic).object(elementTypeClass, message);
         }
-        return excerptAppender.lastIndexAppended();
+        final long index = excerptAppender.lastIndexAppended();
+        topicIndex.update(topic.toString(), index, message == null);
+        return index;
+    }
+
+    /**
+     * Writes each message with the same appender, looked up once for the batch.
+     */
+    @Nullable
+    @Override
+    public IndexRange publishAllAndIndex(@NotNull Iterable<? extends Map.Entry<T, M>> messages) {
+
+        if (isReplicating && !isSource)
+            throw new IllegalStateException("You can not publish to a sink used in replication, " +
+                    "you have to publish to the source");
+
+        @NotNull final ExcerptAppender excerptAppender = threadLocalAppender();
+        long firstIndex = -1, lastIndex = -1;
+        for (@NotNull Map.Entry<T, M> entry : messages) {
+            final T topic = entry.getKey();
+            final M message = entry.getValue();
+            try (final DocumentContext dc = excerptAppender.writingDocument()) {
+                dc.wire().writeEvent(messageTypeClass, topic).object(elementTypeClass, message);
+            }
+            lastIndex = excerptAppender.lastIndexAppended();
+            if (firstIndex == -1)
+                firstIndex = lastIndex;
+            topicIndex.update(topic.toString(), lastIndex, message == null);
+        }
+        return firstIndex == -1 ? null : new IndexRange(firstIndex, lastIndex);
+    }
+
+    @Override
+    public void publishAll(@NotNull Iterable<? extends Map.Entry<T, M>> messages) {
+        publishAllAndIndex(messages);
     }
 
     public long set(@NotNull M event) {
@@ -684,7 +785,9 @@ public class ChronicleQueueView<T, M> implements QueueView<T, M>, MapView<T, M>,
     @Override
     public void close() {
 
+        closed = true;
         @NotNull File file = chronicleQueue.file();
+        Closeable.closeQuietly(topicIndex);
         chronicleQueue.close();
         if (dontPersist) {
             try {
@@ -872,19 +975,11 @@ public class ChronicleQueueView<T, M> implements QueueView<T, M>, MapView<T, M>,
         @NotNull
         private final QueueView<K, V> queueView;
 
-        QueueViewAsMapView(@NotNull final QueueView<K, V> queueView,
+        QueueViewAsMapView(@NotNull final ChronicleQueueView<K, V> queueView,
                            @NotNull RequestContext context,
                            @NotNull Asset asset) {
-            super(context, asset, new VanillaKeyValueStore<>(context, asset));
+            super(context, asset, new QueueTopicKeyValueStore<>(queueView, context, asset));
             this.queueView = queueView;
-
-            queueView.registerTopicSubscriber((topic, message) -> {
-                if (message == null)
-                    super.remove(topic);
-                else if (topic != null)
-                    super.put(topic, message);
-            });
-
         }
 
         @Nullable
@@ -939,7 +1034,7 @@ public class ChronicleQueueView<T, M> implements QueueView<T, M>, MapView<T, M>,
             checkKey(key);
             checkValue(value);
             @Nullable V v = super.putIfAbsent(key, value);
-            if (v != null)
+            if (v == null)
                 queueView.publishAndIndex((K) key, value);
             return v;
         }
@@ -984,6 +1079,11 @@ public class ChronicleQueueView<T, M> implements QueueView<T, M>, MapView<T, M>,
         final ExcerptTailer replayTailer;
         @NotNull
         final LocalExcept excerpt;
+        // used for lookups by topic, so the replay tailer isn't moved.
+        @NotNull
+        final ExcerptTailer lookupTailer;
+        @NotNull
+        final LocalExcept lookupExcerpt;
 
         ThreadLocalData(@NotNull ChronicleQueue chronicleQueue) {
             appender = chronicleQueue.acquireAppender();
@@ -992,6 +1092,73 @@ public class ChronicleQueueView<T, M> implements QueueView<T, M>, MapView<T, M>,
 
             replayTailer = chronicleQueue.createTailer();
             excerpt = new LocalExcept();
+            lookupTailer = chronicleQueue.createTailer();
+            lookupExcerpt = new LocalExcept();
+        }
+    }
+
+    /**
+     * Brings the topic index up to date with the excerpts which weren't written by
+     * publishAndIndex, such as those replicated from another host or written before the index
+     * was created.
+     */
+    private final class TopicIndexer implements EventHandler {
+        @Nullable
+        private ExcerptTailer tailer;
+
+        @Override
+        public boolean action() throws InvalidEventHandlerException {
+            if (closed)
+                throw new InvalidEventHandlerException();
+            try {
+                if (tailer == null)
+                    tailer = resumeTailer();
+                return indexBatch(tailer);
+
+            } catch (RuntimeException e) {
+                if (closed)
+                    throw new InvalidEventHandlerException();
+                throw e;
+            }
+        }
+
+        /**
+         * @return a tailer which reads from the excerpt after the last one indexed, or from the
+         * start if that excerpt is no longer in the queue.
+         */
+        @NotNull
+        private ExcerptTailer resumeTailer() {
+            @NotNull final ExcerptTailer excerptTailer = chronicleQueue.createTailer();
+            final long lastIndexed = topicIndex.lastIndexed();
+            if (lastIndexed == -1)
+                return excerptTailer;
+
+            if (excerptTailer.moveToIndex(lastIndexed)) {
+                try (DocumentContext dc = excerptTailer.readingDocument()) {
+                    if (dc.isPresent())
+                        return excerptTailer;
+                }
+            }
+            topicIndex.clear();
+            return excerptTailer.toStart();
+        }
+
+        private boolean indexBatch(@NotNull ExcerptTailer excerptTailer) {
+            final StringBuilder topic = Wires.acquireStringBuilder();
+            long lastIndex = -1;
+            for (int i = 0; i < MAX_INDEX_BATCH; i++) {
+                try (DocumentContext dc = excerptTailer.readingDocument()) {
+                    if (!dc.isPresent())
+                        break;
+                    @Nullable final M message = dc.wire().readEventName(topic).object(elementTypeClass);
+                    lastIndex = excerptTailer.index();
+                    topicIndex.update(topic, lastIndex, message == null);
+                }
+            }
+            if (lastIndex == -1)
+                return false;
+            topicIndex.lastIndexed(lastIndex);
+            return true;
         }
     }
 
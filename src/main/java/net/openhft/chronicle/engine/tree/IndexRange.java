@@ -0,0 +1,54 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.tree;
+
+import net.openhft.chronicle.wire.AbstractMarshallable;
+
+/**
+ * The indexes of the first and last excerpts written by a batch publish. Other publishers may
+ * have written excerpts in between, so not every index in the range is from the batch.
+ */
+public class IndexRange extends AbstractMarshallable {
+    /**
+     * How no excerpts written is sent on the wire, publishAllAndIndex returns null instead.
+     */
+    public static final IndexRange EMPTY = new IndexRange(-1, -1);
+
+    private long firstIndex;
+    private long lastIndex;
+
+    public IndexRange() {
+    }
+
+    public IndexRange(long firstIndex, long lastIndex) {
+        this.firstIndex = firstIndex;
+        this.lastIndex = lastIndex;
+    }
+
+    public long firstIndex() {
+        return firstIndex;
+    }
+
+    public long lastIndex() {
+        return lastIndex;
+    }
+
+    public boolean isEmpty() {
+        return firstIndex == -1;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.tree;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.engine.api.EngineReplication.ReplicationEntry;
+import net.openhft.chronicle.engine.api.map.KeyValueStore;
+import net.openhft.chronicle.engine.api.map.MapEvent;
+import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
+import net.openhft.chronicle.engine.api.pubsub.SubscriptionConsumer;
+import net.openhft.chronicle.engine.api.tree.Asset;
+import net.openhft.chronicle.engine.api.tree.RequestContext;
+import net.openhft.chronicle.engine.map.InsertedEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Objects;
+
+import static net.openhft.chronicle.core.util.ObjectUtils.convertTo;
+
+/**
+ * The latest message for each topic of a queue, read from the queue through its topic index so
+ * no copy of the values is held on the heap.
+ * <p>
+ * Writes are made by publishing to the queue, which updates the index, so put and remove don't
+ * change anything here.
+ */
+class QueueTopicKeyValueStore<K, V> implements KeyValueStore<K, V> {
+
+    @NotNull
+    private final ChronicleQueueView<K, V> queueView;
+    @NotNull
+    private final Class<K> keyType;
+    @NotNull
+    private final Asset asset;
+
+    QueueTopicKeyValueStore(@NotNull ChronicleQueueView<K, V> queueView,
+                            @NotNull RequestContext context,
+                            @NotNull Asset asset) {
+        this.queueView = queueView;
+        this.keyType = context.keyType();
+        this.asset = asset;
+    }
+
+    @Override
+    public boolean put(K key, V value) {
+        return containsKey(key);
+    }
+
+    @Nullable
+    @Override
+    public V getAndPut(K key, V value) {
+        return get(key);
+    }
+
+    @Override
+    public boolean remove(K key) {
+        return containsKey(key);
+    }
+
+    @Nullable
+    @Override
+    public V getAndRemove(K key) {
+        return get(key);
+    }
+
+    @Nullable
+    @Override
+    public V getUsing(@NotNull K key, Object value) {
+        @Nullable final QueueView.Excerpt<K, V> excerpt = queueView.latestExcerpt(key);
+        return excerpt == null ? null : excerpt.message();
+    }
+
+    @Override
+    public boolean containsKey(@NotNull K key) {
+        return queueView.topicIndex().valueIndex(key.toString()) != -1;
+    }
+
+    @Override
+    public long longSize() {
+        return queueView.topicIndex().size();
+    }
+
+    @Override
+    public void keysFor(int segment, @NotNull SubscriptionConsumer<K> kConsumer) throws InvalidSubscriberException {
+        queueView.topicIndex().forEachTopic((topic, index) -> kConsumer.accept(convertTo(keyType, topic)));
+    }
+
+    @Override
+    public void entriesFor(int segment, @NotNull SubscriptionConsumer<MapEvent<K, V>> kvConsumer) throws InvalidSubscriberException {
+        queueView.topicIndex().forEachTopic((topic, index) -> {
+            @Nullable final QueueView.Excerpt<K, V> excerpt = queueView.excerptAt(index);
+            if (excerpt != null && excerpt.message() != null)
+                kvConsumer.accept(InsertedEvent.of(asset.fullName(), convertTo(keyType, topic), excerpt.message(), false));
+        });
+    }
+
+    @Override
+    public void clear() {
+        // the map view publishes a removal for each topic.
+    }
+
+    @Override
+    public boolean containsValue(final V value) {
+        try {
+            queueView.topicIndex().forEachTopic((topic, index) -> {
+                @Nullable final QueueView.Excerpt<K, V> excerpt = queueView.excerptAt(index);
+                if (excerpt != null && Objects.equals(value, excerpt.message()))
+                    throw new InvalidSubscriberException();
+            });
+            return false;
+
+        } catch (InvalidSubscriberException found) {
+            return true;
+        }
+    }
+
+    @NotNull
+    @Override
+    public Asset asset() {
+        return asset;
+    }
+
+    @Nullable
+    @Override
+    public KeyValueStore underlying() {
+        return null;
+    }
+
+    @Override
+    public void close() {
+        // the topic index is closed with the queue view.
+    }
+
+    /**
+     * The values are the messages of the queue, so a queue is replicated by replicating the queue
+     * rather than this map of its latest messages, an entry sent to it is skipped.
+     */
+    @Override
+    public void accept(final ReplicationEntry replicationEntry) {
+        Jvm.warn().on(getClass(), "Replication of the latest messages isn't supported by " + asset.fullName()
+                + ", replicate the queue instead, skipped replicationEntry=" + replicationEntry);
+    }
+}
@@ -23,6 +23,11 @@ import net.openhft.chronicle.engine.api.tree.KeyedView;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
 /**
  * @author Rob Austin.
  */
@@ -54,6 +59,39 @@ public interface QueueView<T, M> extends TopicPublisher<T, M>, KeyedView, Assett
      */
     long publishAndIndex(@NotNull T topic, @NotNull M message);
 
+    /**
+     * Publish many messages in order, as one batch.
+     *
+     * @param messages the topic and message of each publish
+     * @return the indexes of the first and last excerpts written, or null if there were no
+     * messages
+     */
+    @Nullable
+    default IndexRange publishAllAndIndex(@NotNull Iterable<? extends Map.Entry<T, M>> messages) {
+        long firstIndex = -1, lastIndex = -1;
+        for (@NotNull Map.Entry<T, M> entry : messages) {
+            lastIndex = publishAndIndex(entry.getKey(), entry.getValue());
+            if (firstIndex == -1)
+                firstIndex = lastIndex;
+        }
+        return firstIndex == -1 ? null : new IndexRange(firstIndex, lastIndex);
+    }
+
+    /**
+     * Publish the messages from this supplier, until it returns null, as one batch.
+     *
+     * @param messages supplies the topic and message of each publish, then null
+     * @return the indexes of the first and last excerpts written, or null if there were no
+     * messages
+     */
+    @Nullable
+    default IndexRange publishAllAndIndexUntilNull(@NotNull Supplier<? extends Map.Entry<T, M>> messages) {
+        @NotNull final List<Map.Entry<T, M>> batch = new ArrayList<>();
+        for (Map.Entry<T, M> entry; (entry = messages.get()) != null; )
+            batch.add(entry);
+        return publishAllAndIndex(batch);
+    }
+
     interface Excerpt<T, M> {
         @Nullable
         T topic();
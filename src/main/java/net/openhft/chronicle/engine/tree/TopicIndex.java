@@ -0,0 +1,158 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.tree;
+
+import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.core.io.IORuntimeException;
+import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
+import net.openhft.chronicle.map.ChronicleMap;
+import net.openhft.chronicle.map.ChronicleMapBuilder;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * An off heap index of the queue index of the latest excerpt for each topic, memory mapped beside
+ * the queue files unless the queue isn't persisted, so the latest message for a topic is one seek
+ * away.
+ * <p>
+ * A topic whose latest message was null i.e. removed, is held as the complement of its index.
+ */
+class TopicIndex implements Closeable {
+
+    static final String FILE_NAME = "topic-index.cm";
+
+    // empty topics aren't indexed so this can't clash with one.
+    private static final String LAST_INDEXED = "";
+
+    @NotNull
+    private final ChronicleMap<String, Long> topicToIndex;
+    // the number of topics whose latest message isn't null, counted once when opened then kept up to date.
+    private volatile long size;
+
+    /**
+     * @param file    to persist to, or null to hold the index off heap only
+     * @param entries the number of topics expected
+     */
+    TopicIndex(@Nullable File file, long entries) {
+        @NotNull final ChronicleMapBuilder<String, Long> builder = ChronicleMapBuilder.of(String.class, Long.class)
+                .entries(entries)
+                .averageKeySize(32);
+        try {
+            topicToIndex = file == null ? builder.create() : builder.createPersistedTo(file);
+
+        } catch (IOException e) {
+            throw new IORuntimeException("Could not access " + file, e);
+        }
+        size = countTopics();
+    }
+
+    private long countTopics() {
+        long count = 0;
+        for (@NotNull Map.Entry<String, Long> e : topicToIndex.entrySet()) {
+            if (e.getValue() >= 0 && !e.getKey().isEmpty())
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * Records the excerpt at {@code index} as the latest for this topic, unless a later one has
+     * been recorded already.
+     *
+     * @param removed true if the message is null.
+     */
+    synchronized void update(@NotNull CharSequence topic, long index, boolean removed) {
+        if (topic.length() == 0)
+            return;
+        @NotNull final String key = topic.toString();
+        @Nullable final Long previous = topicToIndex.get(key);
+        if (previous != null && decode(previous) >= index)
+            return;
+        topicToIndex.put(key, removed ? ~index : index);
+
+        final boolean wasPresent = previous != null && previous >= 0;
+        if (wasPresent && removed)
+            size--;
+        else if (!wasPresent && !removed)
+            size++;
+    }
+
+    /**
+     * @return the index of the latest message for this topic, or -1 if there is none or it was
+     * removed.
+     */
+    long valueIndex(@NotNull CharSequence topic) {
+        if (topic.length() == 0)
+            return -1;
+        @Nullable final Long index = topicToIndex.get(topic.toString());
+        return index == null || index < 0 ? -1 : index;
+    }
+
+    /**
+     * @return the number of topics whose latest message isn't null.
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * @param consumer passed each topic whose latest message isn't null, with the index of that
+     *                 message.
+     */
+    void forEachTopic(@NotNull TopicConsumer consumer) throws InvalidSubscriberException {
+        for (@NotNull Map.Entry<String, Long> e : topicToIndex.entrySet()) {
+            if (e.getValue() >= 0 && !e.getKey().isEmpty())
+                consumer.accept(e.getKey(), e.getValue());
+        }
+    }
+
+    /**
+     * @return the index of the last excerpt read into this index, or -1 if none has been.
+     */
+    long lastIndexed() {
+        @Nullable final Long index = topicToIndex.get(LAST_INDEXED);
+        return index == null ? -1 : index;
+    }
+
+    void lastIndexed(long index) {
+        topicToIndex.put(LAST_INDEXED, index);
+    }
+
+    synchronized void clear() {
+        topicToIndex.clear();
+        size = 0;
+    }
+
+    @Override
+    public void close() {
+        topicToIndex.close();
+    }
+
+    private static long decode(long index) {
+        return index < 0 ? ~index : index;
+    }
+
+    @FunctionalInterface
+    interface TopicConsumer {
+        void accept(@NotNull String topic, long index) throws InvalidSubscriberException;
+    }
+}
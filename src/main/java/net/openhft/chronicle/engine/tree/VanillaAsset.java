@@ -136,6 +136,14 @@ public class VanillaAsset implements Asset, Closeable {
     }
 
     public void configMapRemote() {
+        configMapRemote(0);
+    }
+
+    /**
+     * @param nearCacheSize the number of entries of each map to cache on the client, unless the
+     *                      nearCacheSize option is set, or 0 for no cache.
+     */
+    public void configMapRemote(int nearCacheSize) {
         configMapCommon();
         addWrappingRule(SimpleSubscription.class, LAST + "subscriber", RemoteSimpleSubscription::new, Reference.class);
 
@@ -147,7 +155,14 @@ public class VanillaAsset implements Asset, Closeable {
 
         addWrappingRule(MapView.class, LAST + " RemoteMapView", RemoteMapView::new, ObjectKeyValueStore.class);
 
-        addLeafRule(ObjectKeyValueStore.class, LAST + " RemoteKeyValueStore",
+        addWrappingRule(ObjectKeyValueStore.class, LAST + " NearCacheKeyValueStore",
+                (rc, asset) -> NearCacheKeyValueStore.nearCacheSize(rc, nearCacheSize) > 0,
+                (rc, asset, kvStore) -> new NearCacheKeyValueStore<>(rc, asset, kvStore,
+                        NearCacheKeyValueStore.nearCacheSize(rc, nearCacheSize)),
+                RemoteKeyValueStore.class);
+        addWrappingRule(ObjectKeyValueStore.class, LAST + " RemoteKeyValueStore",
+                (rc, asset, kvStore) -> kvStore, RemoteKeyValueStore.class);
+        addLeafRule(RemoteKeyValueStore.class, LAST + " RemoteKeyValueStore",
                 RemoteKeyValueStore::new);
         addLeafRule(ObjectSubscription.class, LAST + " Remote", RemoteKVSSubscription::new);
         addLeafRule(VaadinChart.class, LAST + " VanillaKeyValueStore", RemoteVaadinChart::new);
@@ -309,6 +324,16 @@ public class VanillaAsset implements Asset, Closeable {
                 MapKVSSubscription::new);
     }
 
+    /**
+     * replace the on heap VanillaKeyValueStore leaf with an off heap store for this asset and
+     * its children.
+     */
+    public void enableOffHeapKeyValueStore() {
+        addLeafRule(AuthenticatedKeyValueStore.class, LAST + " OffHeapKeyValueStore", OffHeapKeyValueStore::new);
+        addLeafRule(SubscriptionKeyValueStore.class, LAST + " OffHeapKeyValueStore", OffHeapKeyValueStore::new);
+        addLeafRule(KeyValueStore.class, LAST + " OffHeapKeyValueStore", OffHeapKeyValueStore::new);
+    }
+
     @Override
     public <W, U> void addWrappingRule(Class<W> viewType, String description, BiPredicate<RequestContext, Asset> predicate, WrappingViewFactory<W, U> factory, Class<U> underlyingType) {
         SortedMap<String, WrappingViewRecord> smap = wrappingViewFactoryMap.computeIfAbsent(viewType, k -> new ConcurrentSkipListMap<>());
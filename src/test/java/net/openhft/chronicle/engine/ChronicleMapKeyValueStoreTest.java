@@ -158,7 +158,8 @@ public class ChronicleMapKeyValueStoreTest {
                                     .bytesForWrite();
                             bs.writeUtf8(s);
                             return bs;
-                        }
+                        },
+                        VanillaEngineReplication.watermarkDir(requestContext)
                 ));
 
         //  VanillaAssetTreeEgMain.registerTextViewofTree("host " + hostId, tree);
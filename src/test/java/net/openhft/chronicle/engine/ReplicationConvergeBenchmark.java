@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.engine.api.EngineReplication;
+import net.openhft.chronicle.engine.api.map.KeyValueStore;
+import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.api.tree.AssetTree;
+import net.openhft.chronicle.engine.map.CMap2EngineReplicator;
+import net.openhft.chronicle.engine.map.ChronicleMapKeyValueStore;
+import net.openhft.chronicle.engine.map.VanillaMapView;
+import net.openhft.chronicle.engine.server.ServerEndpoint;
+import net.openhft.chronicle.engine.tree.VanillaAssetTree;
+import net.openhft.chronicle.network.TCPRegistry;
+import net.openhft.chronicle.network.connection.TcpChannelHub;
+import net.openhft.chronicle.wire.WireType;
+import net.openhft.chronicle.wire.YamlLogging;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static net.openhft.chronicle.engine.Replication2WayTest.resourcesDir;
+
+/**
+ * The time for a second host to converge with a first, which has a million entries it hasn't
+ * replicated yet, for a number of entries replicated per write, set with
+ * engine.replication.batchEntries as the 2way cluster doesn't set one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReplicationConvergeBenchmark {
+
+    private static final int ENTRIES = 1_000_000;
+
+    @Param({"1", "256", "4096"})
+    public int batchEntries;
+
+    private AssetTree tree1, tree2;
+    private ServerEndpoint serverEndpoint1, serverEndpoint2;
+    private String name;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ReplicationConvergeBenchmark.class.getSimpleName())
+                .warmupIterations(1)
+                .measurementIterations(3)
+                .forks(1)
+                .build()).run();
+    }
+
+    @NotNull
+    private static AssetTree create(int hostId) {
+        @NotNull AssetTree tree = new VanillaAssetTree((byte) hostId)
+                .forTesting()
+                .withConfig(resourcesDir() + "/2way", OS.TARGET + "/" + hostId);
+
+        tree.root().addWrappingRule(MapView.class, "map directly to KeyValueStore",
+                VanillaMapView::new,
+                KeyValueStore.class);
+        tree.root().addLeafRule(EngineReplication.class, "Engine replication holder",
+                CMap2EngineReplicator::new);
+        tree.root().addLeafRule(KeyValueStore.class, "KVS is Chronicle Map", (context, asset) ->
+                new ChronicleMapKeyValueStore(context.wireType(WireType.BINARY).cluster("clusterTwo"),
+                        asset));
+        return tree;
+    }
+
+    @Setup(Level.Invocation)
+    public void setUp() throws IOException {
+        YamlLogging.setAll(false);
+        System.setProperty("engine.replication.batchEntries", Integer.toString(batchEntries));
+        TCPRegistry.createServerSocketChannelFor("host.port1", "host.port2");
+
+        name = "ReplicationConvergeBenchmark" + System.nanoTime() + "?entries=" + (ENTRIES + ENTRIES / 10);
+        tree1 = create(1);
+        serverEndpoint1 = new ServerEndpoint("host.port1", tree1, "cluster");
+        @NotNull final Map<String, String> map1 = tree1.acquireMap(name, String.class, String.class);
+        for (int i = 0; i < ENTRIES; i++)
+            map1.put("key-" + i, "value-" + i);
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() {
+        Closeable.closeQuietly(tree1);
+        Closeable.closeQuietly(tree2);
+        Closeable.closeQuietly(serverEndpoint1);
+        Closeable.closeQuietly(serverEndpoint2);
+        TcpChannelHub.closeAllHubs();
+        TCPRegistry.reset();
+        System.clearProperty("engine.replication.batchEntries");
+    }
+
+    @Benchmark
+    public int converge() throws IOException {
+        tree2 = create(2);
+        serverEndpoint2 = new ServerEndpoint("host.port2", tree2, "cluster");
+        @NotNull final Map<String, String> map2 = tree2.acquireMap(name, String.class, String.class);
+        while (map2.size() < ENTRIES)
+            Jvm.pause(1);
+        return map2.size();
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.api.query;
+
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.core.OS;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+
+public class IndexCheckpointTest {
+
+    @Test
+    public void resumesFromCheckpoint() {
+        @NotNull File file = new File(OS.TARGET, "IndexCheckpointTest-" + System.nanoTime() + ".cm");
+        try {
+            try (IndexCheckpoint checkpoint = new IndexCheckpoint(file, 1024)) {
+                assertEquals(-1, checkpoint.lastIndex());
+                checkpoint.put("onPrice", BytesStore.wrap(new byte[]{1, 2}), 10);
+                checkpoint.put("onPrice", BytesStore.wrap(new byte[]{3}), 11);
+                checkpoint.put("onTrade", BytesStore.wrap(new byte[]{1, 2}), 11);
+                // the latest index for a key replaces the earlier one
+                checkpoint.put("onPrice", BytesStore.wrap(new byte[]{1, 2}), 12);
+                checkpoint.lastIndex(13);
+            }
+
+            try (IndexCheckpoint checkpoint = new IndexCheckpoint(file, 1024)) {
+                assertEquals(13, checkpoint.lastIndex());
+                assertEquals(new TreeSet<>(Arrays.asList(11L, 12L)), checkpoint.indexes());
+
+                checkpoint.clear();
+                assertEquals(-1, checkpoint.lastIndex());
+            }
+        } finally {
+            file.delete();
+        }
+    }
+}
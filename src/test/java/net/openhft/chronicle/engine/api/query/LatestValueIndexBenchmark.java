@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.api.query;
+
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.io.IOTools;
+import net.openhft.chronicle.core.pool.ClassAliasPool;
+import net.openhft.chronicle.engine.api.query.events.EventProcessor;
+import net.openhft.chronicle.engine.api.query.events.WriterGateway;
+import net.openhft.chronicle.engine.api.query.events.marketdata.MarketDataEvent;
+import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.queue.impl.single.SingleChronicleQueueBuilder;
+import net.openhft.chronicle.wire.DocumentContext;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the messages per second indexed by {@link LatestValueIndex}, cycling through a queue of
+ * market data updates for a fixed set of instruments.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class LatestValueIndexBenchmark {
+
+    private static final int MESSAGES = 200_000;
+    private static final int KEYS = 1_000;
+
+    static {
+        ClassAliasPool.CLASS_ALIASES.addAlias(MarketDataEvent.class);
+    }
+
+    private File path;
+    private ChronicleQueue queue;
+    private ExcerptTailer tailer;
+    private LatestValueIndex<MarketDataEvent> index;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(LatestValueIndexBenchmark.class.getSimpleName())
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .forks(1)
+                .build()).run();
+    }
+
+    @Setup
+    public void setUp() {
+        path = new File(OS.TARGET, "LatestValueIndexBenchmark-" + System.nanoTime());
+        queue = SingleChronicleQueueBuilder.binary(path).build();
+        WriterGateway gateway = new WriterGateway(queue);
+        for (int i = 0; i < MESSAGES; i++)
+            gateway.onMarketDataChanged(new MarketDataEvent("GB" + (i % KEYS), "source", i, i + 0.5));
+
+        tailer = queue.createTailer();
+        index = new LatestValueIndex<>(new GenericTypesToString(EventProcessor.class));
+    }
+
+    @TearDown
+    public void tearDown() {
+        queue.close();
+        IOTools.shallowDeleteDirWithFiles(path);
+    }
+
+    @Benchmark
+    public boolean indexMessage() {
+        try (DocumentContext dc = tailer.readingDocument()) {
+            if (dc.isPresent())
+                return index.indexDocument(dc);
+        }
+        // every message has been indexed, go round again, only the values change.
+        tailer.toStart();
+        return false;
+    }
+}
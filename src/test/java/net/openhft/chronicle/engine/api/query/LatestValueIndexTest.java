@@ -0,0 +1,179 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.api.query;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.io.IOTools;
+import net.openhft.chronicle.core.pool.ClassAliasPool;
+import net.openhft.chronicle.engine.api.query.events.EventProcessor;
+import net.openhft.chronicle.engine.api.query.events.WriterGateway;
+import net.openhft.chronicle.engine.api.query.events.marketdata.MarketDataEvent;
+import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.queue.impl.single.SingleChronicleQueueBuilder;
+import net.openhft.chronicle.wire.DocumentContext;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.*;
+
+public class LatestValueIndexTest {
+
+    static {
+        ClassAliasPool.CLASS_ALIASES.addAlias(MarketDataEvent.class);
+    }
+
+    private File path;
+    private ChronicleQueue queue;
+    private WriterGateway gateway;
+    private ExcerptTailer tailer;
+    private LatestValueIndex<MarketDataEvent> index;
+
+    @Before
+    public void setUp() {
+        path = new File(OS.TARGET, "LatestValueIndexTest-" + System.nanoTime());
+        queue = SingleChronicleQueueBuilder.binary(path).build();
+        gateway = new WriterGateway(queue);
+        tailer = queue.createTailer();
+        index = new LatestValueIndex<>(new GenericTypesToString(EventProcessor.class));
+    }
+
+    @After
+    public void tearDown() {
+        queue.close();
+        IOTools.shallowDeleteDirWithFiles(path);
+    }
+
+    private long indexAll() {
+        long last = 0;
+        for (; ; ) {
+            try (DocumentContext dc = tailer.readingDocument()) {
+                if (!dc.isPresent())
+                    return last;
+                assertTrue(index.indexDocument(dc));
+                last = dc.index();
+            }
+        }
+    }
+
+    @NotNull
+    private List<String> instrumentsByBid(double bid) {
+        SecondaryIndex<MarketDataEvent> byBid = index.secondaryIndex("onMarketDataChanged", "bid");
+        assertNotNull(byBid);
+        return byBid.lookup(bid, bid)
+                .map(v -> v.v().instrument() + "/" + v.v().source())
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void latestValuePerKey() {
+        index.addIndex("onMarketDataChanged", SecondaryIndex.sorted("bid", MarketDataEvent::bidPrice));
+
+        gateway.onMarketDataChanged(new MarketDataEvent("GB1", "a", 1.0, 1.5));
+        gateway.onMarketDataChanged(new MarketDataEvent("GB2", "a", 1.0, 1.5));
+        gateway.onMarketDataChanged(new MarketDataEvent("GB1", "b", 3.0, 3.5));
+        gateway.onMarketDataChanged(new MarketDataEvent("GB1", "a", 2.0, 2.5));
+        long lastIndex = indexAll();
+
+        assertEquals(lastIndex, index.lastIndexRead());
+        assertEquals(4, index.messagesRead());
+        Map<Object, IndexedValue<MarketDataEvent>> values = index.eventMap("onMarketDataChanged");
+        assertEquals(3, values.size());
+        for (IndexedValue<MarketDataEvent> value : values.values())
+            assertTrue(((Bytes) value.k()).isDirectMemory());
+
+        IndexedValue<MarketDataEvent> gb1 = values.values().stream()
+                .filter(v -> v.v().instrument().equals("GB1") && v.v().source().equals("a"))
+                .findFirst().orElseThrow(AssertionError::new);
+        assertEquals(2.0, gb1.v().bidPrice(), 0.0);
+        assertEquals(lastIndex, gb1.index());
+
+        // the update moved GB1/a from the 1.0 bid to the 2.0 bid.
+        assertEquals(asList("GB2/a"), instrumentsByBid(1.0));
+        assertEquals(asList("GB1/a"), instrumentsByBid(2.0));
+        assertEquals(asList("GB1/b"), instrumentsByBid(3.0));
+
+        // an update to the same value replaces it in place.
+        gateway.onMarketDataChanged(new MarketDataEvent("GB2", "a", 3.0, 3.5));
+        indexAll();
+        assertEquals(3, values.size());
+        assertEquals(emptyList(), instrumentsByBid(1.0));
+        assertEquals(asList("GB1/b", "GB2/a"), instrumentsByBid(3.0));
+    }
+
+    @Test
+    public void clearRemovesEveryValue() {
+        index.addIndex("onMarketDataChanged", SecondaryIndex.sorted("bid", MarketDataEvent::bidPrice));
+
+        gateway.onMarketDataChanged(new MarketDataEvent("GB1", "a", 1.0, 1.5));
+        gateway.onMarketDataChanged(new MarketDataEvent("GB2", "a", 1.0, 1.5));
+        indexAll();
+        assertEquals(2, index.eventMap("onMarketDataChanged").size());
+
+        index.clear();
+        assertEquals(0, index.eventMap("onMarketDataChanged").size());
+        assertEquals(emptyList(), instrumentsByBid(1.0));
+
+        // indexing again from the start gives the same latest values.
+        tailer.toStart();
+        indexAll();
+        assertEquals(2, index.eventMap("onMarketDataChanged").size());
+        assertEquals(asList("GB1/a", "GB2/a"), instrumentsByBid(1.0));
+    }
+
+    @NotNull
+    private List<String> instruments(@NotNull VanillaIndexQuery<MarketDataEvent> query) {
+        SecondaryIndex<MarketDataEvent> secondaryIndex = index.secondaryIndex(query.eventName(), query.indexName());
+        assertNotNull(secondaryIndex);
+        assertTrue(secondaryIndex.canLookup(query.indexFrom(), query.indexTo()));
+        return secondaryIndex.lookup(query.indexFrom(), query.indexTo())
+                .map(v -> v.v().instrument() + "/" + v.v().source())
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void queriesByIndex() {
+        index.addIndex("onMarketDataChanged", SecondaryIndex.hash("instrument", MarketDataEvent::instrument));
+        index.addIndex("onMarketDataChanged", SecondaryIndex.sorted("bid", MarketDataEvent::bidPrice));
+
+        gateway.onMarketDataChanged(new MarketDataEvent("GB1", "a", 1.0, 1.5));
+        gateway.onMarketDataChanged(new MarketDataEvent("GB2", "a", 2.0, 2.5));
+        gateway.onMarketDataChanged(new MarketDataEvent("GB1", "b", 3.0, 3.5));
+        indexAll();
+
+        @NotNull VanillaIndexQuery<MarketDataEvent> query = new VanillaIndexQuery<>();
+        query.eventName("onMarketDataChanged");
+        assertEquals(asList("GB1/a", "GB1/b"), instruments(query.where("instrument", "GB1")));
+        assertEquals(asList("GB2/a"), instruments(query.where("bid", 2.0)));
+        assertEquals(asList("GB1/a", "GB2/a"), instruments(query.whereBetween("bid", 1.0, 2.5)));
+        // a bound of another numeric type is converted to the type of the field.
+        assertEquals(asList("GB1/b", "GB2/a"), instruments(query.whereBetween("bid", 2, null)));
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.api.query;
+
+import net.openhft.chronicle.wire.AbstractMarshallable;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+public class SecondaryIndexTest {
+
+    @NotNull
+    private static List<String> isins(@NotNull SecondaryIndex<Bond> index, Object from, Object to) {
+        return index.lookup(from, to)
+                .map(i -> i.v().isin)
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void hashLookup() {
+        @NotNull SecondaryIndex<Bond> index = SecondaryIndex.hash("book", b -> b.book);
+        @NotNull IndexedValue<Bond> a = new IndexedValue<>(new Bond("A", "CASH", 100), 1);
+        @NotNull IndexedValue<Bond> b = new IndexedValue<>(new Bond("B", "REPO", 101), 2);
+        @NotNull IndexedValue<Bond> c = new IndexedValue<>(new Bond("C", "CASH", 102), 3);
+        index.add(a);
+        index.add(b);
+        index.add(c);
+
+        assertEquals(asList("A", "C"), isins(index, "CASH", "CASH"));
+        assertFalse(index.canLookup("CASH", "REPO"));
+
+        // the book of C changes
+        index.remove(index.fieldOf(c.v()), c);
+        c.v().book = "REPO";
+        index.add(c);
+        assertEquals(asList("A"), isins(index, "CASH", "CASH"));
+        assertEquals(asList("B", "C"), isins(index, "REPO", "REPO"));
+        assertTrue(index.matches(c.v(), "REPO", "REPO"));
+        assertFalse(index.matches(c.v(), "CASH", "CASH"));
+    }
+
+    @Test
+    public void sortedRange() {
+        @NotNull SecondaryIndex<Bond> index = SecondaryIndex.sorted("price", b -> b.price);
+        for (int i = 0; i < 10; i++)
+            index.add(new IndexedValue<>(new Bond("I" + i, "CASH", 100 + i), i));
+
+        assertTrue(index.canLookup(103.0, 105.0));
+        assertEquals(asList("I3", "I4", "I5"), isins(index, 103.0, 105.0));
+        assertEquals(asList("I8", "I9"), isins(index, 108.0, null));
+        assertEquals(asList("I0", "I1"), isins(index, null, 101.0));
+        assertTrue(index.matches(new Bond("X", "CASH", 104), 103.0, 105.0));
+        assertFalse(index.matches(new Bond("X", "CASH", 106), 103.0, 105.0));
+    }
+
+    @Test
+    public void numericBoundsOfAnotherType() {
+        @NotNull SecondaryIndex<Bond> byPrice = SecondaryIndex.sorted("price", b -> b.price);
+        @NotNull SecondaryIndex<Bond> byLot = SecondaryIndex.hash("lot", b -> (long) b.price);
+        for (int i = 0; i < 10; i++) {
+            @NotNull IndexedValue<Bond> value = new IndexedValue<>(new Bond("I" + i, "CASH", 100 + i), i);
+            byPrice.add(value);
+            byLot.add(value);
+        }
+
+        // e.g. decoded from the wire as an Integer or a Long
+        assertEquals(asList("I3", "I4", "I5"), isins(byPrice, 103, 105L));
+        assertTrue(byPrice.matches(new Bond("X", "CASH", 104), 103, 105));
+        assertTrue(byLot.canLookup(104, 104L));
+        assertEquals(asList("I4"), isins(byLot, 104, 104));
+        assertTrue(byLot.matches(new Bond("X", "CASH", 104), 104, 104));
+
+        @NotNull SecondaryIndex<Bond> byWholePrice = SecondaryIndex.sorted("wholePrice", b -> (int) b.price);
+        for (int i = 0; i < 10; i++)
+            byWholePrice.add(new IndexedValue<>(new Bond("I" + i, "CASH", 100 + i), i));
+        // a fractional bound of an integral field only includes the whole values in the range.
+        assertEquals(asList("I3", "I4"), isins(byWholePrice, 102.5, 104.5));
+    }
+
+    static class Bond extends AbstractMarshallable {
+        String isin;
+        String book;
+        double price;
+
+        Bond(String isin, String book, double price) {
+            this.isin = isin;
+            this.book = book;
+            this.price = price;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.cfg;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class MonitorStatsTest {
+
+    @Test
+    public void countsArePublishedWhenChanged() {
+        @NotNull final Map<String, UserStat> users = new HashMap<>();
+        @NotNull final Map<String, SubscriptionStat> subscriptions = new HashMap<>();
+        @NotNull final MonitorStats stats = new MonitorStats(users, subscriptions, 1000);
+
+        assertNull(stats.user("alice"));
+        final MonitorStats.UserCounters alice = stats.loggedIn("alice");
+        assertSame(alice, stats.user("alice"));
+        for (int i = 0; i < 5; i++)
+            alice.interaction();
+
+        stats.subscribed("alice", "subscription");
+        stats.subscribed("alice", "subscription");
+        stats.unsubscribed("alice", "subscription");
+
+        // nothing is written until the stats are published.
+        assertTrue(users.isEmpty());
+        assertTrue(subscriptions.isEmpty());
+
+        stats.publish();
+        assertEquals(5, users.get("alice").getTotalInteractions());
+        assertNotNull(users.get("alice").getLoggedIn());
+        final SubscriptionStat subscription = subscriptions.get("alice~subscription");
+        assertEquals(2, subscription.getTotalSubscriptions());
+        assertEquals(1, subscription.getActiveSubscriptions());
+
+        // unchanged counts aren't written again.
+        users.clear();
+        subscriptions.clear();
+        stats.publish();
+        assertTrue(users.isEmpty());
+        assertTrue(subscriptions.isEmpty());
+
+        alice.interaction();
+        stats.publish();
+        assertEquals(6, users.get("alice").getTotalInteractions());
+        assertTrue(subscriptions.isEmpty());
+    }
+
+    @Test
+    public void disabledMonitoringCountsNothing() {
+        @NotNull final MonitorStats stats = new MonitorStats(null, null, 0);
+        assertNull(stats.loggedIn("bob"));
+        assertNull(stats.user("bob"));
+        stats.subscribed("bob", "subscription");
+        stats.publish();
+    }
+}
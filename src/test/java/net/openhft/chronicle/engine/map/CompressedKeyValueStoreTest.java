@@ -0,0 +1,167 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.engine.ThreadMonitoringTest;
+import net.openhft.chronicle.engine.api.map.MapEvent;
+import net.openhft.chronicle.engine.api.tree.Asset;
+import net.openhft.chronicle.engine.api.tree.RequestContext;
+import net.openhft.chronicle.engine.tree.VanillaAssetTree;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CompressedKeyValueStoreTest extends ThreadMonitoringTest {
+
+    private VanillaAssetTree assetTree;
+    private VanillaKeyValueStore<String, BytesStore> underlying;
+    private CompressedKeyValueStore<String> store;
+
+    @NotNull
+    private static BytesStore bytes(@NotNull String s) {
+        return BytesStore.wrap(s.getBytes());
+    }
+
+    @NotNull
+    private static String largeJson() {
+        @NotNull StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < 200; i++)
+            sb.append("{\"name\":\"instrument\",\"price\":100.25,\"qty\":").append(i).append("},");
+        return sb.append("{}]").toString();
+    }
+
+    @Before
+    public void before() {
+        assetTree = new VanillaAssetTree().forTesting();
+        @NotNull Asset asset = assetTree.acquireAsset("/compressed");
+        @NotNull RequestContext rc = RequestContext.requestContext("/compressed");
+        underlying = new VanillaKeyValueStore<>(rc, asset);
+        store = new CompressedKeyValueStore<>(rc, asset, underlying, ValueCompression.DEFLATE, 64);
+    }
+
+    @Override
+    @After
+    public void preAfter() {
+        assetTree.close();
+    }
+
+    @Test
+    public void largeValuesAreCompressed() {
+        @NotNull String json = largeJson();
+        assertFalse(store.put("a", bytes(json)));
+
+        assertEquals(json, store.get("a").to8bitString());
+        assertTrue(underlying.get("a").readRemaining() < json.length() / 4);
+        assertEquals(1, store.compressedCount());
+        assertTrue(store.bytesSaved() > json.length() / 2);
+        assertTrue(store.compressNanos() > 0);
+        assertSame(store, assetTree.acquireAsset("/compressed").getView(CompressedKeyValueStore.class));
+    }
+
+    @Test
+    public void smallValuesAreStoredAsTheyAre() {
+        store.put("a", bytes("small"));
+        assertEquals("small", underlying.get("a").to8bitString());
+        assertEquals("small", store.get("a").to8bitString());
+        assertEquals(0, store.compressedCount());
+    }
+
+    @Test
+    public void valuesLikeTheHeaderRoundTrip() {
+        @NotNull String value = "\u0000ZV\u0001\u0000\u0000\u0000\u0002ab";
+        store.put("a", bytes(value));
+        assertEquals(value, store.get("a").to8bitString());
+    }
+
+    @Test
+    public void theValuePutIsCopied() {
+        @NotNull BytesStore value = bytes(largeJson());
+        store.put("a", value);
+        @NotNull String expected = value.to8bitString();
+        value.writeByte(0, (byte) 'X');
+        assertEquals(expected, store.get("a").to8bitString());
+    }
+
+    @Test
+    public void changesArePublishedUncompressed() {
+        @NotNull List<MapEvent<String, BytesStore>> events = new ArrayList<>();
+        store.subscription(true).registerDownstream(events::add);
+
+        @NotNull String json = largeJson();
+        store.put("a", bytes(json));
+        assertNotNull(store.getAndRemove("a"));
+
+        assertEquals(2, events.size());
+        assertTrue(events.get(0) instanceof InsertedEvent);
+        assertEquals(json, events.get(0).getValue().to8bitString());
+        assertTrue(events.get(1) instanceof RemovedEvent);
+        assertEquals(json, events.get(1).oldValue().to8bitString());
+    }
+
+    @Test
+    public void entriesAreUncompressed() {
+        @NotNull String json = largeJson();
+        store.put("a", bytes(json));
+        assertEquals(json, store.entrySetIterator().next().getValue().to8bitString());
+        assertEquals(json, store.valuesIterator().next().to8bitString());
+    }
+
+    @Test
+    public void conditionalUpdatesCompareCompressedValues() {
+        @NotNull String json = largeJson();
+        @NotNull String json2 = json.replace("instrument", "bond");
+
+        assertNull(store.putIfAbsent("a", bytes(json)));
+        assertEquals(json, store.putIfAbsent("a", bytes(json2)).to8bitString());
+
+        assertFalse(store.replaceIfEqual("a", bytes(json2), bytes(json)));
+        assertTrue(store.replaceIfEqual("a", bytes(json), bytes(json2)));
+        assertEquals(json2, store.get("a").to8bitString());
+
+        assertEquals(json2, store.replace("a", bytes(json)).to8bitString());
+        assertNull(store.replace("b", bytes(json)));
+        assertFalse(store.containsKey("b"));
+
+        assertFalse(store.removeIfEqual("a", bytes(json2)));
+        assertTrue(store.removeIfEqual("a", bytes(json)));
+        assertFalse(store.containsKey("a"));
+    }
+
+    @Test
+    public void headerHoldsTheCompressionId() {
+        store.put("a", bytes(largeJson()));
+        assertEquals(ValueCompression.DEFLATE.id(), underlying.get("a").readByte(3));
+        assertEquals(ValueCompression.DEFLATE, ValueCompression.forId(ValueCompression.DEFLATE.id()));
+        assertEquals(ValueCompression.NONE, ValueCompression.forId(ValueCompression.NONE.id()));
+    }
+
+    @Test
+    public void compressionByName() {
+        assertEquals(ValueCompression.NONE, ValueCompression.forName(null));
+        assertEquals(ValueCompression.NONE, ValueCompression.forName("none"));
+        assertEquals(ValueCompression.DEFLATE, ValueCompression.forName("deflate"));
+    }
+}
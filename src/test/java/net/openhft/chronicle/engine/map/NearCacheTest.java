@@ -0,0 +1,140 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.engine.ThreadMonitoringTest;
+import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.api.tree.Asset;
+import net.openhft.chronicle.engine.api.tree.RequestContext;
+import net.openhft.chronicle.engine.map.remote.NearCacheKeyValueStore;
+import net.openhft.chronicle.engine.map.remote.RemoteKeyValueStore;
+import net.openhft.chronicle.engine.map.remote.RemoteMapView;
+import net.openhft.chronicle.engine.server.ServerEndpoint;
+import net.openhft.chronicle.engine.tree.VanillaAssetTree;
+import net.openhft.chronicle.network.TCPRegistry;
+import net.openhft.chronicle.network.connection.TcpChannelHub;
+import net.openhft.chronicle.wire.WireType;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import static net.openhft.chronicle.core.io.Closeable.closeQuietly;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class NearCacheTest extends ThreadMonitoringTest {
+    private static final String CONNECTION = "NearCacheTest.host.port";
+
+    private VanillaAssetTree serverAssetTree;
+    private VanillaAssetTree clientAssetTree;
+    private ServerEndpoint serverEndpoint;
+
+    @Before
+    public void before() throws IOException {
+        serverAssetTree = new VanillaAssetTree().forTesting();
+        TCPRegistry.createServerSocketChannelFor(CONNECTION);
+        serverEndpoint = new ServerEndpoint(CONNECTION, serverAssetTree, "cluster");
+        clientAssetTree = new VanillaAssetTree().forRemoteAccess(CONNECTION, WireType.BINARY);
+    }
+
+    @Override
+    @After
+    public void preAfter() {
+        clientAssetTree.close();
+        closeQuietly(serverEndpoint);
+        serverAssetTree.close();
+        TcpChannelHub.closeAllHubs();
+        TCPRegistry.reset();
+    }
+
+    @Test
+    public void noCacheUnlessConfigured() {
+        @NotNull final MapView<String, String> map = clientAssetTree.acquireMap("plain", String.class, String.class);
+        assertNull(((RemoteMapView<String, ?, String>) map).nearCache());
+    }
+
+    @Test
+    public void hotKeysAreReadFromTheCache() throws TimeoutException {
+        @NotNull final MapView<String, String> serverMap = serverAssetTree.acquireMap("near", String.class, String.class);
+        serverMap.put("a", "1");
+        serverMap.put("b", "2");
+
+        @NotNull final MapView<String, String> map = clientAssetTree.acquireMap("near?nearCacheSize=2", String.class, String.class);
+        @NotNull final NearCacheKeyValueStore<String, String> nearCache = ((RemoteMapView<String, ?, String>) map).nearCache();
+        assertNotNull(nearCache);
+
+        assertEquals("1", map.get("a"));
+        assertEquals("1", map.get("a"));
+        assertEquals(1, nearCache.misses());
+        assertEquals(1, nearCache.hits());
+
+        // a change on the server is published to the client, which drops the key.
+        serverMap.put("a", "updated");
+        waitFor(() -> nearCache.cachedSize() == 0);
+        assertEquals("updated", map.get("a"));
+
+        // a change by this client is seen at once.
+        map.put("a", "again");
+        assertEquals("again", map.get("a"));
+
+        @NotNull final Map<String, String> all = ((RemoteMapView<String, ?, String>) map).getAll(Arrays.asList("a", "b", "c"));
+        assertEquals(2, all.size());
+        assertEquals("2", all.get("b"));
+
+        // no more than nearCacheSize keys are held.
+        map.put("c", "3");
+        assertEquals("3", map.get("c"));
+        assertTrue(nearCache.cachedSize() <= 2);
+    }
+
+    @Test
+    public void aReadDuringAPutDoesNotCacheTheOldValue() {
+        @NotNull final Asset asset = mock(Asset.class);
+        doReturn(mock(KVSSubscription.class)).when(asset).subscription(true);
+        @NotNull final RemoteKeyValueStore<String, String> remote = mock(RemoteKeyValueStore.class);
+        @NotNull final NearCacheKeyValueStore<String, String> nearCache = new NearCacheKeyValueStore<>(
+                RequestContext.requestContext("/near").keyType(String.class).valueType(String.class), asset, remote, 16);
+
+        when(remote.get("a")).thenReturn("old");
+        // another reader gets the old value from the server before it has applied the put.
+        when(remote.put("a", "new")).thenAnswer(invocation -> {
+            assertEquals("old", nearCache.get("a"));
+            when(remote.get("a")).thenReturn("new");
+            return true;
+        });
+
+        assertTrue(nearCache.put("a", "new"));
+        assertEquals(0, nearCache.cachedSize());
+        assertEquals("new", nearCache.get("a"));
+    }
+
+    private static void waitFor(@NotNull java.util.function.BooleanSupplier condition) throws TimeoutException {
+        final long end = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > end)
+                throw new TimeoutException();
+            Thread.yield();
+        }
+    }
+}
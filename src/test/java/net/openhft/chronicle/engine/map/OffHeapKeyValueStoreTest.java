@@ -0,0 +1,148 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.engine.ThreadMonitoringTest;
+import net.openhft.chronicle.engine.api.map.MapEvent;
+import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
+import net.openhft.chronicle.engine.tree.VanillaAsset;
+import net.openhft.chronicle.engine.tree.VanillaAssetTree;
+import net.openhft.chronicle.wire.AbstractMarshallable;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.junit.Assert.*;
+
+public class OffHeapKeyValueStoreTest extends ThreadMonitoringTest {
+
+    private VanillaAssetTree assetTree;
+
+    @Before
+    public void setUp() {
+        assetTree = new VanillaAssetTree().forTesting();
+    }
+
+    @After
+    public void tearDown() {
+        assetTree.close();
+    }
+
+    @Test
+    public void longKeys() throws InterruptedException {
+        ((VanillaAsset) assetTree.acquireAsset("/offheap")).enableOffHeapKeyValueStore();
+        @NotNull MapView<Long, String> map = assetTree.acquireMap("/offheap/longs?putReturnsNull=false&removeReturnsNull=false", Long.class, String.class);
+
+        @NotNull BlockingQueue<MapEvent> events = new ArrayBlockingQueue<>(10);
+        map.registerSubscriber(events::add);
+
+        map.put(1L, "one");
+        map.put(2L, "two");
+        assertEquals("one", map.get(1L));
+        assertEquals("two", map.put(2L, "deux"));
+        assertEquals(2, map.size());
+        assertEquals("deux", map.remove(2L));
+        assertEquals(1, map.size());
+
+        assertTrue(events.poll(1, TimeUnit.SECONDS) instanceof InsertedEvent);
+        assertTrue(events.poll(1, TimeUnit.SECONDS) instanceof InsertedEvent);
+        assertTrue(events.poll(1, TimeUnit.SECONDS) instanceof UpdatedEvent);
+        assertTrue(events.poll(1, TimeUnit.SECONDS) instanceof RemovedEvent);
+
+        assertTrue(assetTree.acquireAsset("/offheap/longs")
+                .getView(AuthenticatedKeyValueStore.class) instanceof OffHeapKeyValueStore);
+    }
+
+    @Test
+    public void bytesStoreValues() {
+        ((VanillaAsset) assetTree.acquireAsset("/offheap")).enableOffHeapKeyValueStore();
+        @NotNull MapView<Integer, BytesStore> map = assetTree.acquireMap("/offheap/bytes", Integer.class, BytesStore.class);
+
+        map.put(1, BytesStore.wrap("Hello World".getBytes(ISO_8859_1)));
+        assertEquals("Hello World", map.get(1).toString());
+        assertTrue(map.containsValue(BytesStore.wrap("Hello World".getBytes(ISO_8859_1))));
+        assertNull(map.get(2));
+    }
+
+    @Test
+    public void marshallableValues() {
+        ((VanillaAsset) assetTree.acquireAsset("/offheap")).enableOffHeapKeyValueStore();
+        @NotNull MapView<String, TestMarshallable> map = assetTree.acquireMap("/offheap/marshallables", String.class, TestMarshallable.class);
+
+        @NotNull TestMarshallable value = new TestMarshallable();
+        value.name = "name-1";
+        value.count = 1;
+        map.put("key-1", value);
+        assertEquals(value, map.get("key-1"));
+    }
+
+    @Test
+    public void primitiveKeys() {
+        ((VanillaAsset) assetTree.acquireAsset("/offheap")).enableOffHeapKeyValueStore();
+        @NotNull MapView<Long, String> map = assetTree.acquireMap("/offheap/primitives", Long.class, String.class);
+        @NotNull OffHeapKeyValueStore<Long, String> store = (OffHeapKeyValueStore<Long, String>)
+                assetTree.acquireAsset("/offheap/primitives").getView(AuthenticatedKeyValueStore.class);
+
+        assertFalse(store.put(1L << 40, "big"));
+        assertTrue(store.put(1L << 40, "bigger"));
+        map.put(3L, "three");
+        assertEquals("bigger", map.get(1L << 40));
+        assertEquals("three", store.get(3L));
+        assertTrue(store.containsKey(3L));
+        assertEquals(new HashSet<>(Arrays.asList(3L, 1L << 40)), new HashSet<>(map.keySet()));
+        assertTrue(store.remove(3L));
+        assertFalse(store.containsKey(3L));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void intKeysAndSegments() throws InvalidSubscriberException {
+        ((VanillaAsset) assetTree.acquireAsset("/offheap")).enableOffHeapKeyValueStore();
+        @NotNull MapView<Integer, String> map = assetTree.acquireMap("/offheap/ints", Integer.class, String.class);
+        @NotNull OffHeapKeyValueStore<Integer, String> store = (OffHeapKeyValueStore<Integer, String>)
+                assetTree.acquireAsset("/offheap/ints").getView(AuthenticatedKeyValueStore.class);
+
+        map.put(1, "one");
+        store.put(2, "two");
+        assertEquals("two", map.get(2));
+        assertEquals("one", store.get(1));
+
+        assertEquals(1, store.segments());
+        @NotNull List<Integer> keys = new ArrayList<>();
+        store.keysFor(0, keys::add);
+        store.keysFor(1, keys::add);
+        Collections.sort(keys);
+        assertEquals(Arrays.asList(1, 2), keys);
+
+        assertSame(assetTree.acquireAsset("/offheap/ints").getView(ObjectSubscription.class), store.subscription(false));
+    }
+
+    static class TestMarshallable extends AbstractMarshallable {
+        String name;
+        int count;
+    }
+}
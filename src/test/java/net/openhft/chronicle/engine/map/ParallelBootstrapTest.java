@@ -0,0 +1,158 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.engine.api.map.MapEvent;
+import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
+import net.openhft.chronicle.engine.api.pubsub.Subscriber;
+import net.openhft.chronicle.engine.api.tree.Asset;
+import net.openhft.chronicle.engine.query.Filter;
+import net.openhft.chronicle.engine.tree.VanillaAssetTree;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static net.openhft.chronicle.engine.api.tree.RequestContext.requestContext;
+import static org.junit.Assert.*;
+
+public class ParallelBootstrapTest {
+
+    private static final int SEGMENTS = 4;
+    private static final int PER_SEGMENT = 1000;
+
+    @Test
+    public void liveEventsWinOverTheSnapshot() throws InterruptedException {
+        @NotNull Map<Integer, String> state = new ConcurrentHashMap<>();
+        @NotNull ParallelBootstrap<Integer, Map.Entry<Integer, String>> bootstrap =
+                new ParallelBootstrap<>(e -> state.put(e.getKey(), e.getValue()), Map.Entry::getKey);
+
+        @NotNull CountDownLatch done = new CountDownLatch(1);
+        bootstrap.start(SEGMENTS, (segment, consumer) -> {
+            for (int i = 0; i < PER_SEGMENT; i++) {
+                int key = segment * PER_SEGMENT + i;
+                // a live update is delivered after this snapshot entry was read.
+                if (key % 100 == 0)
+                    bootstrap.onMessage(new SimpleImmutableEntry<>(key, "live"));
+                consumer.accept(new SimpleImmutableEntry<>(key, "snapshot"));
+            }
+        }, done::countDown, () -> {
+            throw new AssertionError();
+        });
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(bootstrap.isBootstrapped());
+        assertEquals(SEGMENTS * PER_SEGMENT, state.size());
+        for (int key = 0; key < SEGMENTS * PER_SEGMENT; key++)
+            assertEquals("key=" + key, key % 100 == 0 ? "live" : "snapshot", state.get(key));
+    }
+
+    @Test
+    public void stopsWhenTheSubscriberIsInvalid() throws InterruptedException {
+        @NotNull ParallelBootstrap<Integer, Integer> bootstrap = new ParallelBootstrap<>(k -> {
+            if (k == 10)
+                throw new InvalidSubscriberException();
+        }, k -> k);
+
+        @NotNull CountDownLatch invalid = new CountDownLatch(1);
+        bootstrap.start(1, (segment, consumer) -> {
+            for (int i = 0; i < PER_SEGMENT; i++)
+                consumer.accept(i);
+        }, () -> {
+            throw new AssertionError();
+        }, invalid::countDown);
+
+        assertTrue(invalid.await(10, TimeUnit.SECONDS));
+    }
+
+    @NotNull
+    private static MapKVSSubscription<String, String> largeMapSubscription(@NotNull Asset asset) {
+        @NotNull VanillaKeyValueStore<String, String> kvStore = new VanillaKeyValueStore<String, String>(asset) {
+            @Override
+            public long longSize() {
+                return ParallelBootstrap.PARALLEL_THRESHOLD;
+            }
+        };
+        for (int i = 0; i < PER_SEGMENT; i++)
+            kvStore.put("key-" + i, "value-" + i);
+        @NotNull MapKVSSubscription<String, String> subscription = new MapKVSSubscription<>((Class) null, asset);
+        subscription.setKvStore(kvStore);
+        return subscription;
+    }
+
+    @Test
+    public void indexIsBootstrappedOnTheRegisteringThread() {
+        @NotNull VanillaAssetTree tree = new VanillaAssetTree().forTesting();
+        try {
+            @NotNull MapKVSSubscription<String, String> subscription = largeMapSubscription(tree.acquireAsset("/large"));
+            @NotNull SortedFilterIndex<String, String> index = new SortedFilterIndex<>(e -> true, Map.Entry.comparingByKey());
+            subscription.registerSubscriber(requestContext().bootstrap(true).elementType(MapEvent.class),
+                    index, Filter.empty());
+
+            // read straight away, as MapWrappingColumnView does.
+            assertEquals(PER_SEGMENT, index.size());
+            subscription.unregisterSubscriber(index);
+
+        } finally {
+            tree.close();
+        }
+    }
+
+    @Test
+    public void unregisterRemovesTheAsyncSubscriberWrapped() throws InterruptedException {
+        @NotNull VanillaAssetTree tree = new VanillaAssetTree().forTesting();
+        try {
+            @NotNull MapKVSSubscription<String, String> subscription = largeMapSubscription(tree.acquireAsset("/large"));
+            @NotNull CountDownLatch bootstrapped = new CountDownLatch(PER_SEGMENT);
+            @NotNull CountDownLatch ended = new CountDownLatch(1);
+            @NotNull Subscriber<MapEvent<String, String>> subscriber = new Subscriber<MapEvent<String, String>>() {
+                @Override
+                public void onMessage(MapEvent<String, String> event) {
+                    bootstrapped.countDown();
+                }
+
+                @Override
+                public void onEndOfSubscription() {
+                    ended.countDown();
+                }
+            };
+            subscription.registerSubscriber(requestContext().bootstrap(true).elementType(MapEvent.class)
+                    .asyncBufferSize(64), subscriber, Filter.empty());
+            assertTrue(bootstrapped.await(10, TimeUnit.SECONDS));
+
+            @NotNull AtomicInteger asyncSubscribers = new AtomicInteger();
+            subscription.forEachAsyncSubscriber(a -> asyncSubscribers.incrementAndGet());
+            assertEquals(1, asyncSubscribers.get());
+
+            // the parallel bootstrap and the async subscriber it wraps are both removed.
+            subscription.unregisterSubscriber(subscriber);
+            assertTrue(ended.await(10, TimeUnit.SECONDS));
+            asyncSubscribers.set(0);
+            subscription.forEachAsyncSubscriber(a -> asyncSubscribers.incrementAndGet());
+            assertEquals(0, asyncSubscribers.get());
+
+        } finally {
+            tree.close();
+        }
+    }
+}
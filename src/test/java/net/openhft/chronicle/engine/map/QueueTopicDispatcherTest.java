@@ -0,0 +1,136 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.core.threads.InvalidEventHandlerException;
+import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
+import net.openhft.chronicle.engine.api.pubsub.Subscriber;
+import net.openhft.chronicle.engine.tree.QueueView;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class QueueTopicDispatcherTest {
+
+    private final List<QueueView.Excerpt<String, String>> excerpts = new ArrayList<>();
+    @NotNull
+    private final QueueTopicDispatcher<String, String> dispatcher = new QueueTopicDispatcher<>(this::tailer);
+
+    @NotNull
+    private QueueView.Tailer<String, String> tailer() {
+        int[] position = {0};
+        return () -> position[0] < excerpts.size() ? excerpts.get(position[0]++) : null;
+    }
+
+    private void publish(@NotNull String topic, @NotNull String message) {
+        final long index = excerpts.size() + 1;
+        excerpts.add(new QueueView.Excerpt<String, String>() {
+            @Nullable
+            @Override
+            public String topic() {
+                return topic;
+            }
+
+            @Nullable
+            @Override
+            public String message() {
+                return message;
+            }
+
+            @Override
+            public long index() {
+                return index;
+            }
+
+            @Override
+            public void clear() {
+            }
+        });
+    }
+
+    private void drain() throws InvalidEventHandlerException {
+        while (dispatcher.action()) {
+            // keep going until there is nothing left to do.
+        }
+    }
+
+    @Test
+    public void routesByTopic() throws InvalidEventHandlerException {
+        @NotNull List<String> a = new ArrayList<>();
+        @NotNull List<String> b = new ArrayList<>();
+        dispatcher.addSubscriber("a", a::add);
+        dispatcher.addSubscriber("b", b::add);
+
+        publish("a", "a1");
+        publish("b", "b1");
+        publish("c", "c1");
+        publish("a", "a2");
+        drain();
+
+        assertEquals(Arrays.asList("a1", "a2"), a);
+        assertEquals(Arrays.asList("b1"), b);
+    }
+
+    @Test
+    public void lateSubscriberCatchesUpOnce() throws InvalidEventHandlerException {
+        @NotNull List<String> early = new ArrayList<>();
+        dispatcher.addSubscriber("a", early::add);
+        for (int i = 0; i < 1000; i++)
+            publish(i % 2 == 0 ? "a" : "b", "m" + i);
+        drain();
+
+        @NotNull List<String> late = new ArrayList<>();
+        dispatcher.addSubscriber("a", late::add);
+        @NotNull List<String> all = new ArrayList<>();
+        dispatcher.addTopicSubscriber((topic, message) -> all.add(topic + ":" + message));
+        publish("a", "last");
+        drain();
+
+        assertEquals(501, early.size());
+        assertEquals(early, late);
+        assertEquals(1001, all.size());
+        assertEquals("a:last", all.get(1000));
+    }
+
+    @Test
+    public void invalidSubscriberIsRemoved() throws InvalidEventHandlerException {
+        @NotNull List<String> received = new ArrayList<>();
+        @NotNull Subscriber<String> subscriber = m -> {
+            received.add(m);
+            throw new InvalidSubscriberException();
+        };
+        dispatcher.addSubscriber("a", subscriber);
+        drain();
+        assertEquals(1, dispatcher.subscriberCount());
+
+        publish("a", "a1");
+        publish("a", "a2");
+        drain();
+
+        assertEquals(Arrays.asList("a1"), received);
+        assertEquals(0, dispatcher.subscriberCount());
+        assertTrue(!dispatcher.remove(subscriber));
+    }
+}
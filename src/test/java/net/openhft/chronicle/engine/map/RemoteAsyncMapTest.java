@@ -0,0 +1,129 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.engine.ThreadMonitoringTest;
+import net.openhft.chronicle.engine.api.map.AsyncMapView;
+import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.map.remote.RemoteMapView;
+import net.openhft.chronicle.engine.server.ServerEndpoint;
+import net.openhft.chronicle.engine.tree.VanillaAssetTree;
+import net.openhft.chronicle.network.TCPRegistry;
+import net.openhft.chronicle.network.connection.TcpChannelHub;
+import net.openhft.chronicle.wire.WireType;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static net.openhft.chronicle.core.io.Closeable.closeQuietly;
+import static org.junit.Assert.*;
+
+@RunWith(value = Parameterized.class)
+public class RemoteAsyncMapTest extends ThreadMonitoringTest {
+    private static final String CONNECTION = "RemoteAsyncMapTest.host.port";
+    private static final int COUNT = 1000;
+
+    private final WireType wireType;
+    private VanillaAssetTree serverAssetTree;
+    private VanillaAssetTree clientAssetTree;
+    private ServerEndpoint serverEndpoint;
+
+    public RemoteAsyncMapTest(WireType wireType) {
+        this.wireType = wireType;
+    }
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> data() {
+        return Arrays.asList(
+                new Object[]{WireType.BINARY},
+                new Object[]{WireType.TEXT}
+        );
+    }
+
+    @Before
+    public void before() throws IOException {
+        serverAssetTree = new VanillaAssetTree().forTesting();
+        TCPRegistry.createServerSocketChannelFor(CONNECTION);
+        serverEndpoint = new ServerEndpoint(CONNECTION, serverAssetTree, "cluster");
+        clientAssetTree = new VanillaAssetTree().forRemoteAccess(CONNECTION, wireType);
+    }
+
+    @Override
+    @After
+    public void preAfter() {
+        clientAssetTree.close();
+        closeQuietly(serverEndpoint);
+        serverAssetTree.close();
+        TcpChannelHub.closeAllHubs();
+        TCPRegistry.reset();
+    }
+
+    @Test
+    public void pipelinedRequests() throws InterruptedException, ExecutionException, TimeoutException {
+        @NotNull final MapView<String, String> map = clientAssetTree.acquireMap("pipelined", String.class, String.class);
+        @NotNull final AsyncMapView<String, String> async = ((RemoteMapView<String, ?, String>) map).async();
+
+        @NotNull final Map<String, String> entries = new LinkedHashMap<>();
+        for (int i = 0; i < COUNT; i++)
+            entries.put("key-" + i, "value-" + i);
+        async.putAllAsync(entries).get(10, TimeUnit.SECONDS);
+
+        // every request is sent before any reply is waited for.
+        @NotNull final List<CompletableFuture<String>> gets = new ArrayList<>();
+        for (int i = 0; i < COUNT; i++)
+            gets.add(async.getAsync("key-" + i));
+        @NotNull final CompletableFuture<Boolean> missing = async.containsKeyAsync("missing");
+        @NotNull final CompletableFuture<Long> size = async.longSizeAsync();
+
+        for (int i = 0; i < COUNT; i++)
+            assertEquals("value-" + i, gets.get(i).get(10, TimeUnit.SECONDS));
+        assertFalse(missing.get(10, TimeUnit.SECONDS));
+        assertEquals(COUNT, (long) size.get(10, TimeUnit.SECONDS));
+
+        assertEquals("value-1", async.getAndPutAsync("key-1", "updated").get(10, TimeUnit.SECONDS));
+        assertEquals("updated", async.getAndRemoveAsync("key-1").get(10, TimeUnit.SECONDS));
+        assertNull(async.getAsync("key-1").get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void getAllInOneRequest() {
+        @NotNull final RemoteMapView<String, ?, String> map = (RemoteMapView<String, ?, String>)
+                clientAssetTree.<String, String>acquireMap("getAll", String.class, String.class);
+
+        @NotNull final Map<String, String> entries = new HashMap<>();
+        entries.put("a", "1");
+        entries.put("b", "2");
+        map.putAll(entries);
+
+        @NotNull final Map<String, String> values = map.getAll(Arrays.asList("b", "missing", "a"));
+        assertEquals(Arrays.asList("b", "a"), new ArrayList<>(values.keySet()));
+        assertEquals("2", values.get("b"));
+        assertEquals("1", values.get("a"));
+        assertTrue(map.getAll(Collections.emptyList()).isEmpty());
+    }
+}
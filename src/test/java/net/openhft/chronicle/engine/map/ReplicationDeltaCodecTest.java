@@ -0,0 +1,148 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.engine.map.CMap2EngineReplicator.VanillaReplicatedEntry;
+import net.openhft.chronicle.wire.BinaryWire;
+import net.openhft.chronicle.wire.Wire;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ReplicationDeltaCodecTest {
+
+    private final Bytes<ByteBuffer> bytes = Bytes.elasticByteBuffer();
+    private final Wire wire = new BinaryWire(bytes);
+    private final ReplicationDeltaCodec receiver = new ReplicationDeltaCodec();
+
+    @NotNull
+    private static String largeJson(int qty) {
+        @NotNull StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < 100; i++)
+            sb.append("{\"name\":\"instrument\",\"price\":100.25,\"qty\":").append(i == 50 ? qty : i).append("},");
+        return sb.append("{}]").toString();
+    }
+
+    @NotNull
+    private static VanillaReplicatedEntry entry(@NotNull String key, @NotNull String value) {
+        @NotNull final VanillaReplicatedEntry entry = new VanillaReplicatedEntry();
+        entry.key(BytesStore.wrap(key.getBytes(ISO_8859_1)));
+        entry.value(BytesStore.wrap(value.getBytes(ISO_8859_1)));
+        entry.timestamp(System.currentTimeMillis());
+        entry.identifier((byte) 2);
+        entry.bootStrapTimeStamp(1);
+        return entry;
+    }
+
+    private long send(@NotNull ReplicationDeltaCodec sender, @NotNull ReplicationDeltaCodec receiver,
+                      @NotNull String key, @NotNull String value) {
+        @NotNull final VanillaReplicatedEntry sent = entry(key, value);
+        bytes.clear();
+        sender.write(wire, sent);
+        final long length = bytes.readRemaining();
+
+        @NotNull final VanillaReplicatedEntry received = new VanillaReplicatedEntry();
+        receiver.read(wire, received);
+        assertEquals(key, new String(received.key().toByteArray(), ISO_8859_1));
+        assertEquals(value, new String(received.value().toByteArray(), ISO_8859_1));
+        assertEquals(sent.timestamp(), received.timestamp());
+        assertEquals(sent.identifier(), received.identifier());
+        assertEquals(sent.bootStrapTimeStamp(), received.bootStrapTimeStamp());
+        return length;
+    }
+
+    @Test
+    public void sendsOnlyTheChangedBytes() {
+        @NotNull final ReplicationDeltaCodec sender = new ReplicationDeltaCodec(ValueCompression.NONE, 0, 16);
+        final String value = largeJson(1);
+        assertTrue(send(sender, receiver, "key", value) > value.length());
+        assertTrue(send(sender, receiver, "key", largeJson(123456)) < 200);
+
+        // shorter, longer, empty and unchanged values.
+        send(sender, receiver, "key", largeJson(7));
+        send(sender, receiver, "key", largeJson(7) + "tail");
+        send(sender, receiver, "key", "");
+        send(sender, receiver, "key", "");
+        send(sender, receiver, "other", value);
+    }
+
+    @Test
+    public void compressesAgainstThePreviousValue() {
+        @NotNull final ReplicationDeltaCodec sender = new ReplicationDeltaCodec(ValueCompression.DEFLATE, 16, 16);
+        final String value = largeJson(1);
+        assertTrue(send(sender, receiver, "key", value) < value.length() / 2);
+        send(sender, receiver, "key", largeJson(2) + largeJson(3));
+    }
+
+    @Test
+    public void compressesWithoutDelta() {
+        @NotNull final ReplicationDeltaCodec sender = new ReplicationDeltaCodec(ValueCompression.DEFLATE, 16, 0);
+        final String value = largeJson(1);
+        assertTrue(send(sender, receiver, "key", value) < value.length() / 2);
+        assertTrue(send(sender, receiver, "key", largeJson(2)) < value.length() / 2);
+        send(sender, receiver, "key", "short");
+    }
+
+    @Test
+    public void removedKeysAreSentWhole() {
+        @NotNull final ReplicationDeltaCodec sender = new ReplicationDeltaCodec(ValueCompression.NONE, 0, 16);
+        final String value = largeJson(1);
+        send(sender, receiver, "key", value);
+        sender.removed(BytesStore.wrap("key".getBytes(ISO_8859_1)));
+        receiver.removed(BytesStore.wrap("key".getBytes(ISO_8859_1)));
+        assertTrue(send(sender, receiver, "key", value) > value.length());
+    }
+
+    @Test
+    public void evictsTheSameKeysOnBothSides() {
+        @NotNull final ReplicationDeltaCodec sender = new ReplicationDeltaCodec(ValueCompression.NONE, 0, 2);
+        final String value = largeJson(1);
+        send(sender, receiver, "a", value);
+        send(sender, receiver, "b", value);
+        send(sender, receiver, "a", largeJson(2));
+        // evicts b, the least recently used.
+        send(sender, receiver, "c", value);
+        assertTrue(send(sender, receiver, "b", value) > value.length());
+        assertTrue(send(sender, receiver, "c", largeJson(3)) < 200);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void aDeltaWithoutAPreviousValueIsRejected() {
+        @NotNull final ReplicationDeltaCodec sender = new ReplicationDeltaCodec(ValueCompression.NONE, 0, 16);
+        send(sender, receiver, "key", largeJson(1));
+        send(sender, new ReplicationDeltaCodec(), "key", largeJson(2));
+    }
+
+    @Test
+    public void clearedCodecsStartAgainWithWholeValues() {
+        @NotNull final ReplicationDeltaCodec sender = new ReplicationDeltaCodec(ValueCompression.NONE, 0, 16);
+        final String value = largeJson(1);
+        send(sender, receiver, "key", value);
+        sender.clear();
+        receiver.clear();
+        assertTrue(send(sender, receiver, "key", value) > value.length());
+        assertTrue(send(sender, receiver, "key", largeJson(2)) < 200);
+    }
+}
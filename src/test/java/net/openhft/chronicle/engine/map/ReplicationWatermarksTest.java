@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.core.OS;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertEquals;
+
+public class ReplicationWatermarksTest {
+
+    private final File file = new File(OS.TARGET, "ReplicationWatermarksTest-" + System.nanoTime());
+
+    @After
+    public void after() {
+        file.delete();
+    }
+
+    @Test
+    public void survivesAReopen() {
+        try (ReplicationWatermarks watermarks = new ReplicationWatermarks(file)) {
+            assertEquals(0, watermarks.lastModificationTime(2));
+            watermarks.lastModificationTime(2, 1000);
+            watermarks.lastModificationTime((byte) -1, 2000);
+        }
+
+        try (ReplicationWatermarks watermarks = new ReplicationWatermarks(file)) {
+            assertEquals(1000, watermarks.lastModificationTime(2));
+            assertEquals(2000, watermarks.lastModificationTime(255));
+            assertEquals(0, watermarks.lastModificationTime(3));
+        }
+    }
+
+    @Test
+    public void keepsTheLatestTime() {
+        try (ReplicationWatermarks watermarks = new ReplicationWatermarks(file)) {
+            watermarks.lastModificationTime(2, 1000);
+            watermarks.lastModificationTime(2, 500);
+            assertEquals(1000, watermarks.lastModificationTime(2));
+        }
+    }
+
+    @Test
+    public void keepsTheBootstrapTimestamps() {
+        try (ReplicationWatermarks watermarks = new ReplicationWatermarks(file)) {
+            watermarks.lastModificationTime(2, 1000);
+            watermarks.bootstrapTimestamps(2, 900, 800);
+            watermarks.bootstrapTimestamps(3, 700, 600);
+            watermarks.bootstrapTimestamps(3, 0, 700);
+        }
+
+        try (ReplicationWatermarks watermarks = new ReplicationWatermarks(file)) {
+            assertEquals(1000, watermarks.lastModificationTime(2));
+            assertEquals(900, watermarks.nextBootstrapTimestamp(2));
+            assertEquals(800, watermarks.lastBootstrapTimestamp(2));
+            assertEquals(0, watermarks.nextBootstrapTimestamp(3));
+            assertEquals(700, watermarks.lastBootstrapTimestamp(3));
+            assertEquals(0, watermarks.lastModificationTime(3));
+        }
+    }
+
+    @Test
+    public void ignoresAFileInAnotherFormat() throws Exception {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.writeLong(12345L);
+            raf.writeLong(1000L);
+        }
+        try (ReplicationWatermarks watermarks = new ReplicationWatermarks(file)) {
+            assertEquals(0, watermarks.lastModificationTime(0));
+        }
+    }
+}
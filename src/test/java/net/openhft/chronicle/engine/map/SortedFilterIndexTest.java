@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class SortedFilterIndexTest {
+
+    @Test
+    public void pagesInSortOrderAsEntriesChange() {
+        // even values only, sorted by value then key
+        @NotNull SortedFilterIndex<Integer, Integer> index = new SortedFilterIndex<>(
+                e -> e.getValue() % 2 == 0,
+                Comparator.<Map.Entry<Integer, Integer>>comparingInt(Map.Entry::getValue)
+                        .thenComparingInt(Map.Entry::getKey));
+        @NotNull Map<Integer, Integer> expected = new HashMap<>();
+        @NotNull Random random = new Random(1);
+
+        for (int i = 0; i < 20_000; i++) {
+            int key = random.nextInt(5_000);
+            if (random.nextInt(10) == 0) {
+                index.update(key, null);
+                expected.remove(key);
+            } else {
+                int value = random.nextInt(1_000);
+                index.update(key, value);
+                expected.put(key, value);
+            }
+        }
+
+        @NotNull List<Map.Entry<Integer, Integer>> sorted = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> e : expected.entrySet())
+            if (e.getValue() % 2 == 0)
+                sorted.add(new AbstractMap.SimpleImmutableEntry<>(e));
+        sorted.sort(Comparator.<Map.Entry<Integer, Integer>>comparingInt(Map.Entry::getValue)
+                .thenComparingInt(Map.Entry::getKey));
+
+        assertEquals(sorted.size(), index.size());
+        for (int i = 0; i < sorted.size(); i += 97)
+            assertEquals(sorted.get(i), index.get(i));
+        assertNull(index.get(sorted.size()));
+
+        // a page from the middle
+        Iterator<Map.Entry<Integer, Integer>> page = index.iterator(1000);
+        for (int i = 1000; i < 1050; i++)
+            assertEquals(sorted.get(i), page.next());
+    }
+
+    @Test
+    public void removesOnlyThatEntryWhenValuesSortTheSame() {
+        @NotNull SortedFilterIndex<String, String> index = new SortedFilterIndex<>(e -> true, (a, b) -> 0);
+        for (int i = 0; i < 3 * SortedFilterIndex.MAX_CHUNK; i++)
+            index.update("k" + i, "v");
+        index.update("k" + SortedFilterIndex.MAX_CHUNK * 2, null);
+        assertEquals(3 * SortedFilterIndex.MAX_CHUNK - 1, index.size());
+        for (int i = 0; i < index.size(); i++)
+            assertNotEquals("k" + SortedFilterIndex.MAX_CHUNK * 2, index.get(i).getKey());
+    }
+}
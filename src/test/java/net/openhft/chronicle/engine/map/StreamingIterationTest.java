@@ -0,0 +1,108 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.engine.ThreadMonitoringTest;
+import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.collection.ClientWiredStatelessChronicleCollection;
+import net.openhft.chronicle.engine.map.remote.RemoteKeyValueStore;
+import net.openhft.chronicle.engine.server.ServerEndpoint;
+import net.openhft.chronicle.engine.tree.VanillaAssetTree;
+import net.openhft.chronicle.network.TCPRegistry;
+import net.openhft.chronicle.network.connection.TcpChannelHub;
+import net.openhft.chronicle.wire.WireType;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+
+import static net.openhft.chronicle.core.io.Closeable.closeQuietly;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class StreamingIterationTest extends ThreadMonitoringTest {
+    private static final String CONNECTION = "StreamingIterationTest.host.port";
+    private static final int ENTRIES = 5_000;
+
+    private VanillaAssetTree serverAssetTree;
+    private VanillaAssetTree clientAssetTree;
+    private ServerEndpoint serverEndpoint;
+
+    @Before
+    public void before() throws IOException {
+        serverAssetTree = new VanillaAssetTree().forTesting();
+        TCPRegistry.createServerSocketChannelFor(CONNECTION);
+        serverEndpoint = new ServerEndpoint(CONNECTION, serverAssetTree, "cluster");
+        clientAssetTree = new VanillaAssetTree().forRemoteAccess(CONNECTION, WireType.BINARY);
+
+        @NotNull final MapView<String, String> serverMap = serverAssetTree.acquireMap("streaming", String.class, String.class);
+        for (int i = 0; i < ENTRIES; i++)
+            serverMap.put("key-" + i, "value-" + i);
+    }
+
+    @Override
+    @After
+    public void preAfter() {
+        clientAssetTree.close();
+        closeQuietly(serverEndpoint);
+        serverAssetTree.close();
+        TcpChannelHub.closeAllHubs();
+        TCPRegistry.reset();
+    }
+
+    @Test
+    public void everyElementIsReadInBatches() {
+        @NotNull final RemoteKeyValueStore<String, String> store = remoteStore();
+
+        @NotNull final Set<String> keys = new HashSet<>();
+        for (@NotNull Iterator<String> it = ((ClientWiredStatelessChronicleCollection<String, ?>) store.keySet()).iterator(100); it.hasNext(); )
+            keys.add(it.next());
+        assertEquals(ENTRIES, keys.size());
+
+        @NotNull final List<String> values = new ArrayList<>();
+        for (@NotNull Iterator<String> it = ((ClientWiredStatelessChronicleCollection<String, ?>) store.values()).iterator(333); it.hasNext(); )
+            values.add(it.next());
+        assertEquals(ENTRIES, values.size());
+
+        int count = 0;
+        for (@NotNull Map.Entry<String, String> entry : store.entrySet()) {
+            assertEquals(entry.getKey().replace("key", "value"), entry.getValue());
+            count++;
+        }
+        assertEquals(ENTRIES, count);
+    }
+
+    @Test
+    public void anAbandonedIteratorDoesNotStopAnother() {
+        @NotNull final RemoteKeyValueStore<String, String> store = remoteStore();
+        @NotNull final Iterator<String> abandoned = ((ClientWiredStatelessChronicleCollection<String, ?>) store.keySet()).iterator(10);
+        abandoned.next();
+
+        assertEquals(ENTRIES, store.keySet().toArray().length);
+        assertFalse(store.keySet().isEmpty());
+    }
+
+    @NotNull
+    private RemoteKeyValueStore<String, String> remoteStore() {
+        @NotNull final MapView<String, String> map = clientAssetTree.acquireMap("streaming", String.class, String.class);
+        return (RemoteKeyValueStore<String, String>) map.underlying();
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.engine.api.map.MapEvent;
+import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.api.pubsub.Subscriber;
+import net.openhft.chronicle.engine.api.pubsub.TopicSubscriber;
+import net.openhft.chronicle.engine.api.tree.AssetTree;
+import net.openhft.chronicle.engine.tree.VanillaAssetTree;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The rate and garbage of updating an existing key in a map with no subscribers, with a topic
+ * subscriber, which is passed reused events, and with an entry subscriber, which is passed a new
+ * event each time. Run with the GC profiler so gc.alloc.rate.norm shows the bytes per put.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SubscriptionPutBenchmark {
+
+    private static final int KEYS = 1024;
+
+    @Param({"none", "topic", "entry"})
+    public String subscriber;
+
+    private AssetTree assetTree;
+    private MapView<String, String> map;
+    private final String[] keys = new String[KEYS];
+    private final String[] values = new String[KEYS];
+    private int counter;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SubscriptionPutBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .forks(1)
+                .build()).run();
+    }
+
+    @Setup
+    public void setUp(@NotNull Blackhole blackhole) {
+        assetTree = new VanillaAssetTree().forTesting();
+        @NotNull final String name = "/map/SubscriptionPutBenchmark";
+        map = assetTree.acquireMap(name, String.class, String.class);
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = "key-" + i;
+            values[i] = "value-" + i;
+            map.put(keys[i], values[i]);
+        }
+
+        if ("topic".equals(subscriber)) {
+            @NotNull TopicSubscriber<String, String> topicSubscriber = (topic, message) -> blackhole.consume(message);
+            assetTree.registerTopicSubscriber(name, String.class, String.class, topicSubscriber);
+
+        } else if ("entry".equals(subscriber)) {
+            @NotNull Subscriber<MapEvent> entrySubscriber = blackhole::consume;
+            assetTree.registerSubscriber(name + "?bootstrap=false", MapEvent.class, entrySubscriber);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        Closeable.closeQuietly(assetTree);
+    }
+
+    @Benchmark
+    public void put() {
+        final int i = counter++ & (KEYS - 1);
+        map.set(keys[i], values[i]);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.values.IntValue;
+import net.openhft.chronicle.engine.api.EngineReplication.ModificationIterator;
+import net.openhft.chronicle.engine.api.tree.AssetTree;
+import net.openhft.chronicle.engine.api.tree.RequestContext;
+import net.openhft.chronicle.engine.map.VanillaEngineReplication.RemoteNodeReplicationState;
+import net.openhft.chronicle.engine.map.VanillaEngineReplication.ReplicationData;
+import net.openhft.chronicle.engine.tree.VanillaAssetTree;
+import net.openhft.lang.model.DataValueClasses;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static net.openhft.chronicle.engine.api.tree.RequestContext.requestContext;
+import static org.junit.Assert.*;
+
+/**
+ * A restarted replication restores the state of each remote host from its watermarks.
+ */
+public class VanillaEngineReplicationTest {
+
+    private static final byte REMOTE = 2;
+
+    private final String basePath = OS.TARGET + "/VanillaEngineReplicationTest-" + System.nanoTime();
+    private AssetTree tree;
+    private FilePerKeyValueStore store;
+
+    @NotNull
+    private static BytesStore bytes(@NotNull String s) {
+        Bytes bs = BytesStore.wrap(new byte[s.length() + 1]).bytesForWrite();
+        bs.writeUtf8(s);
+        return bs;
+    }
+
+    @Before
+    public void before() {
+        tree = new VanillaAssetTree().forTesting();
+        store = new FilePerKeyValueStore(requestContext("/restart/data").basePath(basePath),
+                tree.acquireAsset("/restart/data"));
+    }
+
+    @After
+    public void after() throws IOException {
+        store.close();
+        tree.close();
+        try (Stream<Path> files = Files.walk(Paths.get(basePath))) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @NotNull
+    private VanillaEngineReplication<String, BytesStore, BytesStore, FilePerKeyValueStore> create() {
+        return create(VanillaEngineReplication.watermarkDir(requestContext("/restart/data").basePath(basePath)));
+    }
+
+    @NotNull
+    private VanillaEngineReplication<String, BytesStore, BytesStore, FilePerKeyValueStore> create(
+            @Nullable File watermarkDir) {
+        @NotNull final BytesStore value = BytesStore.wrap("value".getBytes());
+        return new VanillaEngineReplication<>(
+                segment -> new FilePerKeyBasedKeyMarshallableValueStore<>(
+                        fileStore("/restart/segment" + segment),
+                        BytesStore::toString,
+                        VanillaEngineReplicationTest::bytes,
+                        () -> DataValueClasses.newInstance(ReplicationData.class)),
+                new FilePerKeyBasedKeyMarshallableValueStore<>(
+                        fileStore("/restart/state"),
+                        id -> id.getValue() + "",
+                        id -> {
+                            IntValue v = DataValueClasses.newInstance(IntValue.class);
+                            v.setValue(Integer.valueOf(id));
+                            return v;
+                        },
+                        () -> DataValueClasses.newInstance(RemoteNodeReplicationState.class)),
+                (byte) 1,
+                store,
+                (kvStore, replicationEntry) -> {
+                },
+                (kvStore, key) -> value,
+                (kvStore, key) -> 0,
+                VanillaEngineReplicationTest::bytes,
+                watermarkDir);
+    }
+
+    @NotNull
+    private FilePerKeyValueStore fileStore(@NotNull String name) {
+        @NotNull final RequestContext rc = requestContext(name).basePath(basePath);
+        return new FilePerKeyValueStore(rc, tree.acquireAsset(name));
+    }
+
+    private static long bootstrapTimestampOfNextEntry(@NotNull ModificationIterator mi) {
+        @NotNull final AtomicLong bootstrap = new AtomicLong();
+        assertTrue(mi.nextEntry(e -> bootstrap.set(e.bootStrapTimeStamp())));
+        return bootstrap.get();
+    }
+
+    @Test
+    public void bootstrapsFromTheFirstChangeAfterEachDrain() throws IOException {
+        try (VanillaEngineReplication<String, BytesStore, BytesStore, FilePerKeyValueStore> replication = create(null)) {
+            @NotNull final ModificationIterator mi = replication.acquireModificationIterator(REMOTE);
+            replication.onPut(bytes("a"), 1000);
+            replication.onPut(bytes("b"), 1500);
+            assertEquals(1000, bootstrapTimestampOfNextEntry(mi));
+            assertEquals(1000, bootstrapTimestampOfNextEntry(mi));
+            assertFalse(mi.nextEntry(e -> fail()));
+
+            // once drained, the next change is the new bootstrap timestamp.
+            replication.onPut(bytes("c"), 3000);
+            assertEquals(3000, bootstrapTimestampOfNextEntry(mi));
+        }
+        assertFalse(new File(basePath, "/restart/data-replication").exists());
+    }
+
+    @Test
+    public void restoresTheStateOfEachRemoteHost() throws IOException {
+        try (VanillaEngineReplication<String, BytesStore, BytesStore, FilePerKeyValueStore> replication = create()) {
+            @NotNull final ModificationIterator mi = replication.acquireModificationIterator(REMOTE);
+            // the first change after the iterator is acquired is its bootstrap timestamp.
+            replication.onPut(bytes("a"), 1000);
+            replication.onPut(bytes("b"), 1500);
+            replication.setLastModificationTime(REMOTE, 2000);
+            assertEquals(1000, bootstrapTimestampOfNextEntry(mi));
+        }
+
+        try (VanillaEngineReplication<String, BytesStore, BytesStore, FilePerKeyValueStore> replication = create()) {
+            assertEquals(2000, replication.lastModificationTime(REMOTE));
+            assertEquals(0, replication.lastModificationTime((byte) 3));
+
+            @NotNull final ModificationIterator mi = replication.acquireModificationIterator(REMOTE);
+            replication.onPut(bytes("c"), 3000);
+            // the restored bootstrap timestamp is kept rather than restarting from this change.
+            assertEquals(1000, bootstrapTimestampOfNextEntry(mi));
+        }
+    }
+
+    @Test
+    public void noWatermarksWithoutABasePath() {
+        assertNull(VanillaEngineReplication.watermarkDir(requestContext("/restart/data")));
+        assertEquals(new File(basePath, "/restart/data-replication"),
+                VanillaEngineReplication.watermarkDir(requestContext("/restart/data").basePath(basePath)));
+    }
+}
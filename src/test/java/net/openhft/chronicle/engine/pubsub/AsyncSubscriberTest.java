@@ -0,0 +1,167 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.pubsub;
+
+import net.openhft.chronicle.core.threads.InvalidEventHandlerException;
+import net.openhft.chronicle.engine.api.map.MapEvent;
+import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
+import net.openhft.chronicle.engine.api.pubsub.OverflowPolicy;
+import net.openhft.chronicle.engine.map.InsertedEvent;
+import net.openhft.chronicle.engine.map.MapEvents;
+import net.openhft.chronicle.engine.map.RemovedEvent;
+import net.openhft.chronicle.engine.map.UpdatedEvent;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AsyncSubscriberTest {
+
+    @NotNull
+    private static AsyncSubscriber<MapEvent<String, String>> async(@NotNull List<MapEvent<String, String>> events,
+                                                                   @NotNull OverflowPolicy overflowPolicy) {
+        return new AsyncSubscriber<>(events::add, 4, overflowPolicy, MapEvent::getKey, MapEvents::conflate);
+    }
+
+    @Test
+    public void deliversInBatchesOnAction() throws InvalidSubscriberException, InvalidEventHandlerException {
+        @NotNull List<MapEvent<String, String>> events = new ArrayList<>();
+        @NotNull AsyncSubscriber<MapEvent<String, String>> async = async(events, OverflowPolicy.BLOCK);
+
+        async.onMessage(InsertedEvent.of("/map", "a", "1", false));
+        async.onMessage(InsertedEvent.of("/map", "b", "2", false));
+        assertEquals(0, events.size());
+        assertEquals(2, async.pending());
+
+        assertTrue(async.action());
+        assertEquals(2, events.size());
+        assertEquals(0, async.pending());
+        assertEquals(2, async.delivered());
+        assertFalse(async.action());
+    }
+
+    @Test
+    public void dropOldest() throws InvalidSubscriberException, InvalidEventHandlerException {
+        @NotNull List<MapEvent<String, String>> events = new ArrayList<>();
+        @NotNull AsyncSubscriber<MapEvent<String, String>> async = async(events, OverflowPolicy.DROP_OLDEST);
+
+        for (int i = 0; i < 6; i++)
+            async.onMessage(InsertedEvent.of("/map", "k" + i, "v" + i, false));
+        assertEquals(4, async.pending());
+        assertEquals(2, async.dropped());
+
+        async.action();
+        assertEquals("k2", events.get(0).getKey());
+        assertEquals("k5", events.get(3).getKey());
+    }
+
+    @Test
+    public void conflatePerKey() throws InvalidSubscriberException, InvalidEventHandlerException {
+        @NotNull List<MapEvent<String, String>> events = new ArrayList<>();
+        @NotNull AsyncSubscriber<MapEvent<String, String>> async = async(events, OverflowPolicy.CONFLATE);
+
+        async.onMessage(InsertedEvent.of("/map", "a", "1", false));
+        async.onMessage(UpdatedEvent.of("/map", "a", "1", "2", false, true));
+        async.onMessage(UpdatedEvent.of("/map", "b", "x", "y", false, true));
+        async.onMessage(RemovedEvent.of("/map", "b", "y", false));
+        async.onMessage(InsertedEvent.of("/map", "c", "3", false));
+        async.onMessage(RemovedEvent.of("/map", "c", "3", false));
+        assertEquals(3, async.conflated());
+
+        async.action();
+        assertEquals(2, events.size());
+        assertTrue(events.get(0) instanceof InsertedEvent);
+        assertEquals("2", events.get(0).getValue());
+        assertTrue(events.get(1) instanceof RemovedEvent);
+        assertEquals("x", events.get(1).oldValue());
+    }
+
+    @Test(expected = InvalidEventHandlerException.class)
+    public void endOfSubscriptionAfterDrain() throws InvalidSubscriberException, InvalidEventHandlerException {
+        @NotNull List<MapEvent<String, String>> events = new ArrayList<>();
+        @NotNull AsyncSubscriber<MapEvent<String, String>> async = async(events, OverflowPolicy.BLOCK);
+
+        async.onMessage(InsertedEvent.of("/map", "a", "1", false));
+        async.onEndOfSubscription();
+        try {
+            async.action();
+        } finally {
+            assertEquals(1, events.size());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void blockFailsFastWhenNeverDrained() throws InvalidSubscriberException {
+        @NotNull List<MapEvent<String, String>> events = new ArrayList<>();
+        @NotNull AsyncSubscriber<MapEvent<String, String>> async = async(events, OverflowPolicy.BLOCK)
+                .startTimeoutMs(50);
+
+        for (int i = 0; i < 5; i++)
+            async.onMessage(InsertedEvent.of("/map", "k" + i, "v" + i, false));
+    }
+
+    @Test
+    public void deliveredOnlyCountsDeliveredEvents() throws InvalidSubscriberException, InvalidEventHandlerException {
+        @NotNull List<MapEvent<String, String>> events = new ArrayList<>();
+        @NotNull AsyncSubscriber<MapEvent<String, String>> async = new AsyncSubscriber<>(e -> {
+            if (e.getKey().equals("bad"))
+                throw new IllegalArgumentException("bad");
+            events.add(e);
+        }, 4, OverflowPolicy.BLOCK, MapEvent::getKey, MapEvents::conflate);
+
+        async.onMessage(InsertedEvent.of("/map", "a", "1", false));
+        async.onMessage(InsertedEvent.of("/map", "bad", "2", false));
+        async.onMessage(InsertedEvent.of("/map", "c", "3", false));
+        async.action();
+        assertEquals(2, events.size());
+        assertEquals(3, async.published());
+        assertEquals(2, async.delivered());
+    }
+
+    @Test
+    public void publishingWhileDeliveringKeepsTheOrder() throws InvalidSubscriberException, InvalidEventHandlerException {
+        @NotNull List<String> keys = new ArrayList<>();
+        @NotNull List<AsyncSubscriber<MapEvent<String, String>>> holder = new ArrayList<>();
+        @NotNull AsyncSubscriber<MapEvent<String, String>> async = new AsyncSubscriber<>(e -> {
+            keys.add(e.getKey());
+            if (e.getKey().equals("k0")) {
+                // fills the buffer, on the thread delivering the batch, while k1 to k3 are still to be delivered.
+                for (int i = 0; i < 5; i++)
+                    holder.get(0).onMessage(InsertedEvent.of("/map", "x" + i, "v", false));
+            }
+            if (e.getKey().equals("k2"))
+                throw new IllegalStateException("deliberately failing");
+        }, 4, OverflowPolicy.BLOCK, MapEvent::getKey, MapEvents::conflate);
+        holder.add(async);
+
+        for (int i = 0; i < 4; i++)
+            async.onMessage(InsertedEvent.of("/map", "k" + i, "v", false));
+        assertTrue(async.action());
+        // the rest of the batch was delivered before the oldest buffered event, to make room.
+        assertEquals("[k0, k1, k2, k3, x0]", keys.toString());
+        assertEquals(4, async.pending());
+
+        assertTrue(async.action());
+        assertEquals("[k0, k1, k2, k3, x0, x1, x2, x3, x4]", keys.toString());
+        // k2 failed so isn't counted.
+        assertEquals(8, async.delivered());
+    }
+}
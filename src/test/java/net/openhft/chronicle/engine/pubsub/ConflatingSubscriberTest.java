@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.pubsub;
+
+import net.openhft.chronicle.core.threads.InvalidEventHandlerException;
+import net.openhft.chronicle.engine.api.map.MapEvent;
+import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
+import net.openhft.chronicle.engine.map.InsertedEvent;
+import net.openhft.chronicle.engine.map.MapEvents;
+import net.openhft.chronicle.engine.map.RemovedEvent;
+import net.openhft.chronicle.engine.map.UpdatedEvent;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ConflatingSubscriberTest {
+
+    @NotNull
+    private static ConflatingSubscriber<MapEvent<String, String>> conflating(@NotNull List<MapEvent<String, String>> events) {
+        return new ConflatingSubscriber<>(events::add, 0, MapEvent::getKey, MapEvents::conflate);
+    }
+
+    @Test
+    public void latestPerKey() throws InvalidSubscriberException, InvalidEventHandlerException {
+        @NotNull List<MapEvent<String, String>> events = new ArrayList<>();
+        @NotNull ConflatingSubscriber<MapEvent<String, String>> conflating = conflating(events);
+
+        conflating.onMessage(InsertedEvent.of("/map", "a", "1", false));
+        for (int i = 2; i <= 100; i++)
+            conflating.onMessage(UpdatedEvent.of("/map", "a", "" + (i - 1), "" + i, false, true));
+        conflating.onMessage(InsertedEvent.of("/map", "b", "1", false));
+        conflating.onMessage(RemovedEvent.of("/map", "b", "1", false));
+        assertEquals(1, conflating.pending());
+        assertEquals(100, conflating.conflated());
+
+        assertTrue(conflating.action());
+        assertEquals(1, events.size());
+        assertTrue(events.get(0) instanceof InsertedEvent);
+        assertEquals("100", events.get(0).getValue());
+        assertFalse(conflating.action());
+
+        conflating.onMessage(UpdatedEvent.of("/map", "a", "100", "101", false, true));
+        assertTrue(conflating.action());
+        assertEquals(2, events.size());
+        assertEquals("100", events.get(1).oldValue());
+        assertEquals(103, conflating.published());
+    }
+
+    @Test(expected = InvalidEventHandlerException.class)
+    public void endOfSubscriptionAfterFlush() throws InvalidSubscriberException, InvalidEventHandlerException {
+        @NotNull List<MapEvent<String, String>> events = new ArrayList<>();
+        @NotNull ConflatingSubscriber<MapEvent<String, String>> conflating = conflating(events);
+
+        conflating.onMessage(InsertedEvent.of("/map", "a", "1", false));
+        conflating.onEndOfSubscription();
+        try {
+            conflating.action();
+        } finally {
+            assertEquals(1, events.size());
+        }
+    }
+}
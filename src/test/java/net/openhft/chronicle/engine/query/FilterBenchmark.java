@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.query;
+
+import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
+import net.openhft.chronicle.engine.api.pubsub.Subscriber;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Compares a compiled {@link Filter.FilteredSubscriber} with the loop over the operations it
+ * replaced, for a four stage pipeline of filters and maps.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FilterBenchmark {
+
+    private Filter<Long> filter;
+    private Subscriber<Long> compiled;
+    private Subscriber<Long> interpreted;
+    private long counter;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FilterBenchmark.class.getSimpleName())
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .forks(1)
+                .build()).run();
+    }
+
+    @Setup
+    public void setUp(@NotNull Blackhole blackhole) {
+        filter = new Filter<>();
+        filter.addFilter(l -> (l & 1) == 0);
+        filter.addMap(l -> l * 3);
+        filter.addFilter(l -> l % 5 != 0);
+        filter.addMap(l -> l + 1);
+
+        @NotNull Subscriber<Long> sink = blackhole::consume;
+        compiled = new Filter.FilteredSubscriber<>(filter, sink);
+        interpreted = m -> interpret(filter, sink, m);
+    }
+
+    /**
+     * The operations loop of FilteredSubscriber before the pipeline was compiled, for FILTER and
+     * MAP only.
+     */
+    private static <E> void interpret(@NotNull Filter<E> filter,
+                                      @NotNull Subscriber<E> subscriber,
+                                      @NotNull E message) throws InvalidSubscriberException {
+        for (@NotNull Operation o : filter) {
+            switch (o.op()) {
+                case FILTER:
+                    final Predicate<E> serializable = o.wrapped();
+                    if (!serializable.test(message))
+                        return;
+                    break;
+
+                case MAP:
+                    final Function<Object, E> function = o.wrapped();
+                    message = function.apply(message);
+                    break;
+
+                default:
+                    throw new UnsupportedOperationException();
+            }
+        }
+        subscriber.onMessage(message);
+    }
+
+    @Benchmark
+    public void compiled() throws InvalidSubscriberException {
+        compiled.onMessage(counter++);
+    }
+
+    @Benchmark
+    public void interpreted() throws InvalidSubscriberException {
+        interpreted.onMessage(counter++);
+    }
+}
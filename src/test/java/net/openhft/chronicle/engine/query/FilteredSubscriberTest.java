@@ -0,0 +1,108 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.query;
+
+import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
+import net.openhft.chronicle.engine.api.pubsub.Subscriber;
+import net.openhft.chronicle.wire.AbstractMarshallable;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FilteredSubscriberTest {
+
+    @NotNull
+    private static <E> Subscriber<E> subscriber(@NotNull Filter<E> filter, @NotNull List<Object> received) {
+        return new Filter.FilteredSubscriber<>(filter, (Subscriber<E>) received::add);
+    }
+
+    @Test
+    public void filterThenMap() throws InvalidSubscriberException {
+        @NotNull Filter<Integer> filter = new Filter<>();
+        filter.addFilter(i -> i % 2 == 0);
+        filter.addMap(i -> "n" + i);
+
+        @NotNull List<Object> received = new ArrayList<>();
+        @NotNull Subscriber<Integer> subscriber = subscriber(filter, received);
+        for (int i = 0; i < 6; i++)
+            subscriber.onMessage(i);
+
+        assertEquals(Arrays.asList("n0", "n2", "n4"), received);
+    }
+
+    @Test
+    public void flatMapPassesEachElementToTheRestOfThePipeline() throws InvalidSubscriberException {
+        @NotNull Filter<String> filter = new Filter<>();
+        filter.addFlatMap(s -> new VanillaQuery<String>(Arrays.stream(s.split(","))));
+        filter.addFilter(s -> !s.isEmpty());
+
+        @NotNull List<Object> received = new ArrayList<>();
+        subscriber(filter, received).onMessage("a,,b");
+
+        assertEquals(Arrays.asList("a", "b"), received);
+    }
+
+    @Test
+    public void project() throws InvalidSubscriberException {
+        @NotNull Filter<Trade> filter = new Filter<>();
+        filter.addProject(Price.class);
+
+        @NotNull List<Object> received = new ArrayList<>();
+        subscriber(filter, received).onMessage(new Trade("GBPUSD", 1.25, 1000));
+
+        assertEquals(1, received.size());
+        assertTrue(received.get(0) instanceof Price);
+        @NotNull Price price = (Price) received.get(0);
+        assertEquals("GBPUSD", price.symbol);
+        assertEquals(1.25, price.price, 0.0);
+    }
+
+    @Test
+    public void projectQuery() {
+        @NotNull List<Price> prices = new ArrayList<>();
+        new VanillaQuery<>(Arrays.asList(new Trade("A", 1, 1), new Trade("B", 2, 2)).stream())
+                .project(Price.class)
+                .forEach(prices::add);
+
+        assertEquals(2, prices.size());
+        assertEquals("B", prices.get(1).symbol);
+    }
+
+    static class Trade extends AbstractMarshallable {
+        String symbol;
+        double price;
+        long quantity;
+
+        Trade(String symbol, double price, long quantity) {
+            this.symbol = symbol;
+            this.price = price;
+            this.quantity = quantity;
+        }
+    }
+
+    static class Price extends AbstractMarshallable {
+        String symbol;
+        double price;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.queue;
+
+import net.openhft.chronicle.engine.tree.QueueView;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class FilteredRowsTest {
+
+    // every third excerpt matches, indexes go up in steps of 10.
+    private final List<QueueView.Excerpt<String, Integer>> excerpts = new ArrayList<>();
+    @NotNull
+    private final FilteredRows<Integer> rows = new FilteredRows<>(e -> e.message() % 3 == 0, this::tailer);
+
+    @NotNull
+    private QueueView.Tailer<String, Integer> tailer(long fromIndex) {
+        int[] position = {0};
+        while (position[0] < excerpts.size() && excerpts.get(position[0]).index() < fromIndex)
+            position[0]++;
+        return () -> position[0] < excerpts.size() ? excerpts.get(position[0]++) : null;
+    }
+
+    private void append(int count) {
+        for (int i = 0; i < count; i++) {
+            final int n = excerpts.size();
+            excerpts.add(new QueueView.Excerpt<String, Integer>() {
+                @Nullable
+                @Override
+                public String topic() {
+                    return "topic";
+                }
+
+                @Nullable
+                @Override
+                public Integer message() {
+                    return n;
+                }
+
+                @Override
+                public long index() {
+                    return 10L * (n + 1);
+                }
+
+                @Override
+                public void clear() {
+                }
+            });
+        }
+    }
+
+    @Test
+    public void countsIncrementally() {
+        assertEquals(0, rows.rows());
+        append(5000);
+        assertEquals(1667, rows.rows());
+        append(1);
+        assertEquals(1667, rows.rows());
+        append(1);
+        assertEquals(1668, rows.rows());
+    }
+
+    @Test
+    public void rowsFrom() {
+        append(5000);
+        // excerpts 4990 to 4999 hold 4992, 4995 and 4998
+        assertEquals(3, rows.rowsFrom(10L * 4991));
+        assertEquals(1667, rows.rowsFrom(10));
+        assertEquals(1667, rows.rowsFrom(0));
+        assertEquals(0, rows.rowsFrom(10L * 5001));
+        for (int n = 0; n < 5000; n += 97)
+            assertEquals("n=" + n, expectedFrom(n), rows.rowsFrom(10L * (n + 1)));
+    }
+
+    @Test
+    public void startOfRow() {
+        append(5000);
+        for (int row = 0; row < 1667; row += 13)
+            assertEquals("row=" + row, 10L * (row * 3 + 1), firstMatchFrom(rows.startOfRow(row)));
+        // matches exactly at a checkpoint, excerpt 1024 is not a match and 1026 is row 342.
+        assertEquals(10L * 1027, firstMatchFrom(rows.startOfRow(342)));
+        assertEquals(-1, rows.startOfRow(1667));
+    }
+
+    private long firstMatchFrom(long index) {
+        @NotNull final QueueView.Tailer<String, Integer> t = tailer(index);
+        for (QueueView.Excerpt<String, Integer> e; (e = t.read()) != null; )
+            if (e.message() % 3 == 0)
+                return e.index();
+        return -1;
+    }
+
+    private static long expectedFrom(int n) {
+        long count = 0;
+        for (int i = n; i < 5000; i++)
+            if (i % 3 == 0)
+                count++;
+        return count;
+    }
+}
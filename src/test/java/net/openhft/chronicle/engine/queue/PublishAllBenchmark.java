@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.queue;
+
+import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.engine.api.pubsub.TopicPublisher;
+import net.openhft.chronicle.engine.api.tree.AssetTree;
+import net.openhft.chronicle.engine.server.ServerEndpoint;
+import net.openhft.chronicle.engine.tree.VanillaAssetTree;
+import net.openhft.chronicle.network.TCPRegistry;
+import net.openhft.chronicle.network.connection.TcpChannelHub;
+import net.openhft.chronicle.wire.WireType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Messages per second published one at a time and as one batch, to a queue in the same process
+ * and to one over TCP.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PublishAllBenchmark {
+
+    private static final int BATCH = 1000;
+
+    @Param({"local", "tcp"})
+    public String path;
+
+    private AssetTree assetTree;
+    @Nullable
+    private AssetTree serverAssetTree;
+    @Nullable
+    private ServerEndpoint serverEndpoint;
+    private TopicPublisher<String, String> publisher;
+    private final List<Map.Entry<String, String>> batch = new ArrayList<>();
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PublishAllBenchmark.class.getSimpleName())
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .forks(1)
+                .build()).run();
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        if ("tcp".equals(path)) {
+            serverAssetTree = new VanillaAssetTree().forTesting();
+            @NotNull String hostPortDescription = "PublishAllBenchmark";
+            TCPRegistry.createServerSocketChannelFor(hostPortDescription);
+            serverEndpoint = new ServerEndpoint(hostPortDescription, serverAssetTree, "cluster");
+            assetTree = new VanillaAssetTree().forRemoteAccess(hostPortDescription, WireType.BINARY);
+
+        } else {
+            assetTree = new VanillaAssetTree(1).forTesting();
+        }
+
+        publisher = assetTree.acquireTopicPublisher("/queue/PublishAllBenchmark/" + System.nanoTime()
+                + "?dontPersist=true", String.class, String.class);
+
+        for (int i = 0; i < BATCH; i++)
+            batch.add(new AbstractMap.SimpleImmutableEntry<>("topic-" + (i % 32), "message-" + i));
+    }
+
+    @TearDown
+    public void tearDown() {
+        Closeable.closeQuietly(assetTree);
+        Closeable.closeQuietly(serverEndpoint);
+        Closeable.closeQuietly(serverAssetTree);
+        TcpChannelHub.closeAllHubs();
+        TCPRegistry.reset();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void publishEach() {
+        for (@NotNull Map.Entry<String, String> entry : batch)
+            publisher.publish(entry.getKey(), entry.getValue());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void publishAll() {
+        publisher.publishAll(batch);
+    }
+}
@@ -28,6 +28,7 @@ import net.openhft.chronicle.engine.api.pubsub.TopicSubscriber;
 import net.openhft.chronicle.engine.api.tree.AssetTree;
 import net.openhft.chronicle.engine.api.tree.RequestContext;
 import net.openhft.chronicle.engine.server.ServerEndpoint;
+import net.openhft.chronicle.engine.tree.IndexRange;
 import net.openhft.chronicle.engine.tree.QueueView;
 import net.openhft.chronicle.engine.tree.QueueView.Excerpt;
 import net.openhft.chronicle.engine.tree.VanillaAssetTree;
@@ -43,8 +44,8 @@ import org.junit.runners.Parameterized;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.Collection;
+import java.util.*;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -53,7 +54,7 @@ import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static net.openhft.chronicle.engine.Utils.methodName;
 import static net.openhft.chronicle.engine.api.tree.RequestContext.requestContext;
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 /**
  * @author Rob Austin.
@@ -195,6 +196,66 @@ public class SimpleQueueViewTest extends ThreadMonitoringTest {
         assertEquals(index2, actual2.index());
     }
 
+    @NotNull
+    private QueueView<String, String> acquireQueueView() {
+        @NotNull final RequestContext requestContext = requestContext("/queue/" + methodName + DELETE_CHRONICLE_FILE);
+        return assetTree.acquireView(requestContext.view("queue").type(String.class).type2(String.class)
+                .cluster(""));
+    }
+
+    @NotNull
+    private static List<Map.Entry<String, String>> messages(int count) {
+        @NotNull final List<Map.Entry<String, String>> messages = new ArrayList<>();
+        for (int i = 1; i <= count; i++)
+            messages.add(new SimpleImmutableEntry<>("topic-" + (i % 2), "Message-" + i));
+        return messages;
+    }
+
+    @Test
+    public void testPublishAllAndIndex() {
+        @NotNull final QueueView<String, String> queueView = acquireQueueView();
+
+        @Nullable final IndexRange range = queueView.publishAllAndIndex(messages(3));
+        assertNotNull(range);
+        assertTrue(range.firstIndex() < range.lastIndex());
+
+        @Nullable final Excerpt<String, String> first = queueView.getExcerpt(range.firstIndex());
+        assertEquals(range.firstIndex(), first.index());
+        assertEquals("topic-1", first.topic());
+        assertEquals("Message-1", first.message());
+
+        @Nullable final Excerpt<String, String> last = queueView.getExcerpt(range.lastIndex());
+        assertEquals(range.lastIndex(), last.index());
+        assertEquals("topic-1", last.topic());
+        assertEquals("Message-3", last.message());
+
+        // the next publish follows the batch.
+        assertTrue(queueView.publishAndIndex("topic-0", "Message-4") > range.lastIndex());
+
+        // both local and remote return null for an empty batch.
+        assertNull(queueView.publishAllAndIndex(Collections.emptyList()));
+    }
+
+    @Test
+    public void testPublishAllUntilNull() throws InterruptedException {
+        @NotNull final QueueView<String, String> queueView = acquireQueueView();
+
+        @NotNull final Iterator<Map.Entry<String, String>> iterator = messages(4).iterator();
+        @Nullable final IndexRange range = queueView.publishAllAndIndexUntilNull(() -> iterator.hasNext() ? iterator.next() : null);
+        assertNotNull(range);
+        assertEquals("Message-4", queueView.getExcerpt(range.lastIndex()).message());
+        assertNull(queueView.publishAllAndIndexUntilNull(() -> null));
+
+        @NotNull final Iterator<Map.Entry<String, String>> iterator2 = messages(2).iterator();
+        queueView.publishAllUntilNull(() -> iterator2.hasNext() ? iterator2.next() : null);
+
+        @NotNull final BlockingQueue<String> values = new LinkedBlockingQueue<>();
+        assetTree.registerSubscriber("/queue/" + methodName + "/topic-1" + DELETE_CHRONICLE_FILE, String.class, values::add);
+        assertEquals("Message-1", values.poll(3, SECONDS));
+        assertEquals("Message-3", values.poll(3, SECONDS));
+        assertEquals("Message-1", values.poll(3, SECONDS));
+    }
+
     @Test
     public void testStringPublish() throws InterruptedException {
         @Nullable Publisher<String> publisher = null;
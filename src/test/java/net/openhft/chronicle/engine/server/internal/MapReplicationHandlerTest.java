@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.server.internal;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.engine.api.EngineReplication.ModificationIterator;
+import net.openhft.chronicle.engine.api.EngineReplication.ModificationNotifier;
+import net.openhft.chronicle.engine.api.EngineReplication.ReplicationEntry;
+import net.openhft.chronicle.engine.map.CMap2EngineReplicator.VanillaReplicatedEntry;
+import net.openhft.chronicle.wire.Wire;
+import net.openhft.chronicle.wire.WireOut;
+import net.openhft.chronicle.wire.WireType;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * A batch of replicated entries is bounded by both the number of entries and the bytes written.
+ */
+public class MapReplicationHandlerTest {
+
+    @NotNull
+    private static Wire wire() {
+        return WireType.BINARY.apply(Bytes.elasticHeapByteBuffer(1024));
+    }
+
+    private static void writeValue(@NotNull WireOut w, @NotNull ReplicationEntry e) {
+        w.bytes().write(e.value());
+    }
+
+    @Test
+    public void boundedByEntries() {
+        @NotNull final Entries mi = new Entries(10, 8);
+        @NotNull final Wire wire = wire();
+
+        assertEquals(4, MapReplicationHandler.drain(mi, wire, 4, 1 << 20, MapReplicationHandlerTest::writeValue));
+        assertEquals(4 * 8, wire.bytes().readRemaining());
+        assertEquals(6, mi.remaining());
+
+        assertEquals(4, MapReplicationHandler.drain(mi, wire, 4, 1 << 20, MapReplicationHandlerTest::writeValue));
+        assertEquals(2, MapReplicationHandler.drain(mi, wire, 4, 1 << 20, MapReplicationHandlerTest::writeValue));
+        assertEquals(0, MapReplicationHandler.drain(mi, wire, 4, 1 << 20, MapReplicationHandlerTest::writeValue));
+    }
+
+    @Test
+    public void boundedByBytes() {
+        @NotNull final Entries mi = new Entries(10, 100);
+        @NotNull final Wire wire = wire();
+
+        // stops once at least the batch bytes have been written.
+        assertEquals(3, MapReplicationHandler.drain(mi, wire, 100, 250, MapReplicationHandlerTest::writeValue));
+        assertEquals(300, wire.bytes().readRemaining());
+        assertEquals(7, mi.remaining());
+
+        // an entry larger than the batch is still sent, on its own.
+        wire.bytes().clear();
+        assertEquals(1, MapReplicationHandler.drain(mi, wire, 100, 50, MapReplicationHandlerTest::writeValue));
+        assertEquals(6, mi.remaining());
+    }
+
+    static class Entries implements ModificationIterator {
+        private final Queue<ReplicationEntry> entries = new ArrayDeque<>();
+
+        Entries(int count, int valueLength) {
+            for (int i = 0; i < count; i++) {
+                @NotNull final VanillaReplicatedEntry entry = new VanillaReplicatedEntry();
+                entry.key(BytesStore.wrap(("key" + i).getBytes()));
+                entry.value(BytesStore.wrap(new byte[valueLength]));
+                entries.add(entry);
+            }
+        }
+
+        int remaining() {
+            return entries.size();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !entries.isEmpty();
+        }
+
+        @Override
+        public boolean nextEntry(@NotNull Consumer<ReplicationEntry> consumer) {
+            final ReplicationEntry entry = entries.poll();
+            if (entry == null)
+                return false;
+            consumer.accept(entry);
+            return true;
+        }
+
+        @Override
+        public void dirtyEntries(long fromTimeStamp) {
+        }
+
+        @Override
+        public void setModificationNotifier(@NotNull ModificationNotifier modificationNotifier) {
+        }
+    }
+}
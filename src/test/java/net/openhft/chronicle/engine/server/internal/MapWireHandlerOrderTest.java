@@ -0,0 +1,160 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.server.internal;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.cfg.MapOffloadCfg;
+import net.openhft.chronicle.network.connection.CoreFields;
+import net.openhft.chronicle.network.connection.WireOutPublisher;
+import net.openhft.chronicle.wire.*;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static net.openhft.chronicle.engine.api.tree.RequestContext.requestContext;
+import static net.openhft.chronicle.engine.server.internal.MapWireHandler.EventId.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * The replies of a connection, whether the request was offloaded, run inline while the worker
+ * was busy, or run inline once it was idle, are written in the order of the requests.
+ */
+public class MapWireHandlerOrderTest {
+
+    private static final WireType WIRE_TYPE = WireType.BINARY;
+
+    @NotNull
+    private static Wire request(@NotNull WireKey event, @NotNull String value) {
+        @NotNull final Wire wire = WIRE_TYPE.apply(Bytes.elasticHeapByteBuffer(64));
+        wire.writeEventName(event).text(value);
+        return wire;
+    }
+
+    /**
+     * @return the tid and the reply of each reply in this wire, as "tid=reply"
+     */
+    @NotNull
+    private static List<String> replies(@NotNull Wire wire) {
+        @NotNull final List<String> replies = new ArrayList<>();
+        while (wire.bytes().readRemaining() > 0) {
+            long tid;
+            try (DocumentContext dc = wire.readingDocument()) {
+                assertTrue(dc.isMetaData());
+                tid = wire.read(CoreFields.tid).int64();
+            }
+            try (DocumentContext dc = wire.readingDocument()) {
+                assertTrue(dc.isData());
+                replies.add(tid + "=" + wire.read(CoreFields.reply).object(Object.class));
+            }
+        }
+        return replies;
+    }
+
+    @Test
+    public void repliesInRequestOrder() throws InterruptedException {
+        @NotNull final CountDownLatch sizeRunning = new CountDownLatch(1);
+        @NotNull final CountDownLatch releaseSize = new CountDownLatch(1);
+        @NotNull final MapView<String, String> map = mock(MapView.class);
+        when(map.longSize()).thenAnswer(invocation -> {
+            sizeRunning.countDown();
+            assertTrue(releaseSize.await(10, TimeUnit.SECONDS));
+            return 3L;
+        });
+        when(map.get("key")).thenReturn("value");
+
+        @NotNull final List<Bytes> published = Collections.synchronizedList(new ArrayList<>());
+        @NotNull final CountDownLatch threePublished = new CountDownLatch(3);
+        @NotNull final WireOutPublisher publisher = mock(WireOutPublisher.class);
+        doAnswer(invocation -> {
+            @NotNull final Bytes<ByteBuffer> bytes = Bytes.elasticHeapByteBuffer(128);
+            ((WriteMarshallable) invocation.getArguments()[1]).writeMarshallable(WIRE_TYPE.apply(bytes));
+            published.add(bytes);
+            threePublished.countDown();
+            return null;
+        }).when(publisher).put(any(), any());
+
+        @NotNull final MapWireHandler<String, String> handler = new MapWireHandler<>(new TestCspManager());
+        @NotNull final GenericWireAdapter<String, String> wireAdapter = new GenericWireAdapter<>(String.class, String.class);
+        @NotNull final MapOffloadCfg offloadCfg = new MapOffloadCfg("size");
+        @NotNull final Wire out = WIRE_TYPE.apply(Bytes.elasticHeapByteBuffer(128));
+
+        // offloaded, and held on the worker.
+        handler.process(request(size, ""), out, map, 1, wireAdapter, requestContext("/map"), offloadCfg, publisher, WIRE_TYPE);
+        assertTrue(sizeRunning.await(10, TimeUnit.SECONDS));
+        // not offloaded, but queued behind the size as the worker is busy.
+        handler.process(request(get, "key"), out, map, 2, wireAdapter, requestContext("/map"), offloadCfg, publisher, WIRE_TYPE);
+        // run on this thread, and published by the worker.
+        handler.process(request(keySet, ""), out, map, 3, wireAdapter, requestContext("/map"), offloadCfg, publisher, WIRE_TYPE);
+        assertEquals(0, out.bytes().readRemaining());
+        assertEquals(0, published.size());
+
+        releaseSize.countDown();
+        assertTrue(threePublished.await(10, TimeUnit.SECONDS));
+        @NotNull final Wire publishedWire = WIRE_TYPE.apply(Bytes.elasticHeapByteBuffer(256));
+        synchronized (published) {
+            for (Bytes bytes : published)
+                publishedWire.bytes().write(bytes);
+        }
+        assertEquals("[1=3, 2=value, 3=proxy-keySet]", replies(publishedWire).toString());
+
+        // once the worker is idle a request which isn't offloaded runs inline.
+        Thread.sleep(100);
+        handler.process(request(get, "key"), out, map, 4, wireAdapter, requestContext("/map"), offloadCfg, publisher, WIRE_TYPE);
+        assertEquals("[4=value]", replies(out).toString());
+        assertEquals(3, published.size());
+    }
+
+    static class TestCspManager implements CspManager {
+        @Override
+        public long acquireCid(@NotNull CharSequence csp) {
+            return 1;
+        }
+
+        @Override
+        public void storeObject(long cid, Object object) {
+        }
+
+        @Override
+        public void removeCid(long cid) {
+        }
+
+        @Override
+        public long createProxy(String type) {
+            throw new AssertionError("the proxy should be written to the wire of the request");
+        }
+
+        @Override
+        public long createProxy(String type, @NotNull WireOut out) {
+            out.writeEventName(CoreFields.reply).text("proxy-" + type);
+            return 1;
+        }
+
+        @Override
+        public long createProxy(String type, long token) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
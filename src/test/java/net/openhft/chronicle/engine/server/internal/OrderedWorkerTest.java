@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.server.internal;
+
+import net.openhft.chronicle.engine.cfg.MapOffloadCfg;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class OrderedWorkerTest {
+
+    @Test
+    public void tasksRunOneAtATimeInOrder() throws InterruptedException {
+        @NotNull final OrderedWorker worker = new OrderedWorker();
+        @NotNull final List<Integer> ran = new ArrayList<>();
+        @NotNull final CountDownLatch done = new CountDownLatch(1);
+        final int count = 10_000;
+        for (int i = 0; i < count; i++) {
+            final int n = i;
+            worker.submit(() -> {
+                // the list isn't thread safe, tasks must not overlap.
+                ran.add(n);
+                if (n == count - 1)
+                    done.countDown();
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(count, ran.size());
+        for (int i = 0; i < count; i++)
+            assertEquals(i, (int) ran.get(i));
+    }
+
+    @Test
+    public void aFailedTaskDoesNotStopTheRest() throws InterruptedException {
+        @NotNull final OrderedWorker worker = new OrderedWorker();
+        @NotNull final CountDownLatch done = new CountDownLatch(1);
+        worker.submit(() -> {
+            throw new IllegalStateException("expected");
+        });
+        worker.submit(done::countDown);
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void offloadedEvents() {
+        @NotNull final MapOffloadCfg cfg = new MapOffloadCfg("applyTo2", " putAll ");
+        assertTrue(cfg.isOffloaded("applyTo2"));
+        assertTrue(cfg.isOffloaded(new StringBuilder("putAll")));
+        assertFalse(cfg.isOffloaded("put"));
+        assertFalse(cfg.isOffloaded("applyTo"));
+        assertFalse(new MapOffloadCfg().isOffloaded(""));
+    }
+}
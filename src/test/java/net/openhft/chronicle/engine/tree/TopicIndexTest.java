@@ -0,0 +1,90 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.tree;
+
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+
+public class TopicIndexTest {
+
+    @Test
+    public void latestIndexPerTopic() throws InvalidSubscriberException {
+        try (@NotNull TopicIndex index = new TopicIndex(null, 1024)) {
+            index.update("a", 10, false);
+            index.update("b", 11, false);
+            index.update("a", 12, false);
+            // an older excerpt doesn't replace a newer one.
+            index.update("b", 5, false);
+
+            assertEquals(12, index.valueIndex("a"));
+            assertEquals(11, index.valueIndex("b"));
+            assertEquals(-1, index.valueIndex("c"));
+            assertEquals(2, index.size());
+
+            @NotNull final Map<String, Long> topics = new TreeMap<>();
+            index.forEachTopic(topics::put);
+            assertEquals("{a=12, b=11}", topics.toString());
+        }
+    }
+
+    @Test
+    public void removedTopics() {
+        try (@NotNull TopicIndex index = new TopicIndex(null, 1024)) {
+            index.update("a", 10, false);
+            index.update("a", 11, true);
+            assertEquals(-1, index.valueIndex("a"));
+            assertEquals(0, index.size());
+
+            // a removal older than the latest put is ignored.
+            index.update("b", 20, false);
+            index.update("b", 19, true);
+            assertEquals(20, index.valueIndex("b"));
+
+            index.update("a", 21, false);
+            assertEquals(21, index.valueIndex("a"));
+            assertEquals(2, index.size());
+        }
+    }
+
+    @Test
+    public void persisted() {
+        @NotNull final File file = new File(OS.TARGET, "TopicIndexTest-" + System.nanoTime() + ".cm");
+        try {
+            try (@NotNull TopicIndex index = new TopicIndex(file, 1024)) {
+                assertEquals(-1, index.lastIndexed());
+                index.update("a", 10, false);
+                index.lastIndexed(10);
+            }
+            try (@NotNull TopicIndex index = new TopicIndex(file, 1024)) {
+                assertEquals(10, index.lastIndexed());
+                assertEquals(10, index.valueIndex("a"));
+                assertEquals(1, index.size());
+            }
+        } finally {
+            file.delete();
+        }
+    }
+}